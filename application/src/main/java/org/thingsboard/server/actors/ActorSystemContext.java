@@ -82,6 +82,7 @@ import org.thingsboard.server.dao.widget.WidgetTypeService;
 import org.thingsboard.server.dao.widget.WidgetsBundleService;
 import org.thingsboard.server.queue.discovery.PartitionService;
 import org.thingsboard.server.queue.discovery.TbServiceInfoProvider;
+import org.thingsboard.server.queue.settings.TbQueueRuleEngineSettings;
 import org.thingsboard.server.queue.util.DataDecodingEncodingService;
 import org.thingsboard.server.service.apiusage.TbApiUsageStateService;
 import org.thingsboard.server.service.component.ComponentDiscoveryService;
@@ -161,6 +162,11 @@ public class ActorSystemContext {
     @Setter
     private TbServiceInfoProvider serviceInfoProvider;
 
+    @Lazy
+    @Autowired
+    @Getter
+    private TbQueueRuleEngineSettings ruleEngineSettings;
+
     @Getter
     @Setter
     private ActorService actorService;
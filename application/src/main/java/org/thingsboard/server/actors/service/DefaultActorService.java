@@ -26,6 +26,7 @@ import org.thingsboard.common.util.ThingsBoardExecutors;
 import org.thingsboard.common.util.ThingsBoardThreadFactory;
 import org.thingsboard.server.actors.ActorSystemContext;
 import org.thingsboard.server.actors.DefaultTbActorSystem;
+import org.thingsboard.server.actors.TbActorMailboxType;
 import org.thingsboard.server.actors.TbActorRef;
 import org.thingsboard.server.actors.TbActorSystem;
 import org.thingsboard.server.actors.TbActorSystemSettings;
@@ -39,6 +40,8 @@ import org.thingsboard.server.queue.util.AfterStartUp;
 
 import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
@@ -79,17 +82,50 @@ public class DefaultActorService extends TbApplicationEventListener<PartitionCha
     @Value("${actors.system.rule_dispatcher_pool_size:4}")
     private int ruleDispatcherSize;
 
+    @Value("${actors.system.app_dispatcher_virtual_threads:false}")
+    private boolean appDispatcherVirtualThreads;
+
+    @Value("${actors.system.tenant_dispatcher_virtual_threads:false}")
+    private boolean tenantDispatcherVirtualThreads;
+
+    @Value("${actors.system.device_dispatcher_virtual_threads:false}")
+    private boolean deviceDispatcherVirtualThreads;
+
+    @Value("${actors.system.rule_dispatcher_virtual_threads:false}")
+    private boolean ruleDispatcherVirtualThreads;
+
+    @Value("${actors.system.mailbox.app_dispatcher_type:DEFAULT}")
+    private TbActorMailboxType appDispatcherMailboxType;
+
+    @Value("${actors.system.mailbox.tenant_dispatcher_type:DEFAULT}")
+    private TbActorMailboxType tenantDispatcherMailboxType;
+
+    @Value("${actors.system.mailbox.device_dispatcher_type:DEFAULT}")
+    private TbActorMailboxType deviceDispatcherMailboxType;
+
+    @Value("${actors.system.mailbox.rule_dispatcher_type:DEFAULT}")
+    private TbActorMailboxType ruleDispatcherMailboxType;
+
+    @Value("${actors.system.mailbox.batch_size:100}")
+    private int mailboxBatchSize;
+
     @PostConstruct
     public void initActorSystem() {
         log.info("Initializing actor system.");
         actorContext.setActorService(this);
-        TbActorSystemSettings settings = new TbActorSystemSettings(actorThroughput, schedulerPoolSize, maxActorInitAttempts);
+        Map<String, TbActorMailboxType> mailboxTypes = new HashMap<>();
+        mailboxTypes.put(APP_DISPATCHER_NAME, appDispatcherMailboxType);
+        mailboxTypes.put(TENANT_DISPATCHER_NAME, tenantDispatcherMailboxType);
+        mailboxTypes.put(DEVICE_DISPATCHER_NAME, deviceDispatcherMailboxType);
+        mailboxTypes.put(RULE_DISPATCHER_NAME, ruleDispatcherMailboxType);
+        TbActorSystemSettings settings = new TbActorSystemSettings(actorThroughput, schedulerPoolSize, maxActorInitAttempts,
+                mailboxTypes, mailboxBatchSize);
         system = new DefaultTbActorSystem(settings);
 
-        system.createDispatcher(APP_DISPATCHER_NAME, initDispatcherExecutor(APP_DISPATCHER_NAME, appDispatcherSize));
-        system.createDispatcher(TENANT_DISPATCHER_NAME, initDispatcherExecutor(TENANT_DISPATCHER_NAME, tenantDispatcherSize));
-        system.createDispatcher(DEVICE_DISPATCHER_NAME, initDispatcherExecutor(DEVICE_DISPATCHER_NAME, deviceDispatcherSize));
-        system.createDispatcher(RULE_DISPATCHER_NAME, initDispatcherExecutor(RULE_DISPATCHER_NAME, ruleDispatcherSize));
+        system.createDispatcher(APP_DISPATCHER_NAME, initDispatcherExecutor(APP_DISPATCHER_NAME, appDispatcherSize, appDispatcherVirtualThreads));
+        system.createDispatcher(TENANT_DISPATCHER_NAME, initDispatcherExecutor(TENANT_DISPATCHER_NAME, tenantDispatcherSize, tenantDispatcherVirtualThreads));
+        system.createDispatcher(DEVICE_DISPATCHER_NAME, initDispatcherExecutor(DEVICE_DISPATCHER_NAME, deviceDispatcherSize, deviceDispatcherVirtualThreads));
+        system.createDispatcher(RULE_DISPATCHER_NAME, initDispatcherExecutor(RULE_DISPATCHER_NAME, ruleDispatcherSize, ruleDispatcherVirtualThreads));
 
         actorContext.setActorSystem(system);
 
@@ -102,7 +138,13 @@ public class DefaultActorService extends TbApplicationEventListener<PartitionCha
         log.info("Actor system initialized.");
     }
 
-    private ExecutorService initDispatcherExecutor(String dispatcherName, int poolSize) {
+    private ExecutorService initDispatcherExecutor(String dispatcherName, int poolSize, boolean virtualThreads) {
+        if (virtualThreads) {
+            if (ThingsBoardExecutors.isVirtualThreadsSupported()) {
+                return ThingsBoardExecutors.newVirtualThreadPerTaskExecutor(dispatcherName);
+            }
+            log.warn("[{}] Virtual threads are not supported by the current Java version, using the dispatcher pool", dispatcherName);
+        }
         if (poolSize == 0) {
             int cores = Runtime.getRuntime().availableProcessors();
             poolSize = Math.max(1, cores / 2);
@@ -31,6 +31,7 @@ import io.swagger.annotations.ApiResponses;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
@@ -51,6 +52,7 @@ import org.thingsboard.server.common.data.EntityType;
 import org.thingsboard.server.common.data.StringUtils;
 import org.thingsboard.server.common.data.TenantProfile;
 import org.thingsboard.server.common.data.audit.ActionType;
+import org.thingsboard.server.common.data.exception.ThingsboardErrorCode;
 import org.thingsboard.server.common.data.exception.ThingsboardException;
 import org.thingsboard.server.common.data.id.DeviceId;
 import org.thingsboard.server.common.data.id.EntityId;
@@ -82,13 +84,18 @@ import org.thingsboard.server.service.security.AccessValidator;
 import org.thingsboard.server.service.security.model.SecurityUser;
 import org.thingsboard.server.service.security.permission.Operation;
 import org.thingsboard.server.service.telemetry.AttributeData;
+import org.thingsboard.server.service.telemetry.TimeseriesExportService;
 import org.thingsboard.server.service.telemetry.TsData;
+import org.thingsboard.server.service.telemetry.TsExportFormat;
 import org.thingsboard.server.service.telemetry.exception.InvalidParametersException;
 import org.thingsboard.server.service.telemetry.exception.UncheckedApiException;
 
 import javax.annotation.Nullable;
 import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.LinkedHashMap;
@@ -153,6 +160,9 @@ public class TelemetryController extends BaseController {
     @Autowired
     private AccessValidator accessValidator;
 
+    @Autowired
+    private TimeseriesExportService tsExportService;
+
     @Value("${transport.json.max_string_value_length:0}")
     private int maxStringValueLength;
 
@@ -363,6 +373,51 @@ public class TelemetryController extends BaseController {
         }
     }
 
+    @ApiOperation(value = "Export time-series data (exportTimeseries)",
+            notes = "Streams all raw time-series values of the specified keys within the time range as a file. " +
+                    "Unlike 'getTimeseries', the values are not limited by the 'limit' parameter and are not collected in memory: " +
+                    "they are fetched page by page in ascending order and written to the response as soon as they are loaded. " +
+                    "Supported formats are 'NDJSON' (one JSON object with 'key', 'ts' and 'value' per line) and 'CSV' (with 'key,ts,value' header). " +
+                    "\n\n" + INVALID_ENTITY_ID_OR_ENTITY_TYPE_DESCRIPTION + TENANT_OR_CUSTOMER_AUTHORITY_PARAGRAPH)
+    @PreAuthorize("hasAnyAuthority('SYS_ADMIN', 'TENANT_ADMIN', 'CUSTOMER_USER')")
+    @RequestMapping(value = "/{entityType}/{entityId}/values/timeseries/export", method = RequestMethod.GET, params = {"keys", "startTs", "endTs"})
+    public void exportTimeseries(
+            @ApiParam(value = ENTITY_TYPE_PARAM_DESCRIPTION, required = true, defaultValue = "DEVICE") @PathVariable("entityType") String entityType,
+            @ApiParam(value = ENTITY_ID_PARAM_DESCRIPTION, required = true) @PathVariable("entityId") String entityIdStr,
+            @ApiParam(value = TELEMETRY_KEYS_BASE_DESCRIPTION, required = true) @RequestParam(name = "keys") String keys,
+            @ApiParam(value = "A long value representing the start timestamp of the time range in milliseconds, UTC.")
+            @RequestParam(name = "startTs") Long startTs,
+            @ApiParam(value = "A long value representing the end timestamp of the time range in milliseconds, UTC.")
+            @RequestParam(name = "endTs") Long endTs,
+            @ApiParam(value = "A string value representing the format of the exported file.", allowableValues = "NDJSON, CSV")
+            @RequestParam(name = "format", defaultValue = "NDJSON") String formatStr,
+            @ApiParam(value = STRICT_DATA_TYPES_DESCRIPTION)
+            @RequestParam(name = "useStrictDataTypes", required = false, defaultValue = "false") Boolean useStrictDataTypes,
+            HttpServletResponse response) throws ThingsboardException {
+        TsExportFormat format;
+        EntityId entityId;
+        List<String> keyList = toKeysList(keys);
+        try {
+            format = TsExportFormat.valueOf(formatStr.toUpperCase());
+            entityId = EntityIdFactory.getByTypeAndId(entityType, entityIdStr);
+            if (keyList == null || startTs >= endTs) {
+                throw new IllegalArgumentException("Keys must not be empty and startTs must be less than endTs!");
+            }
+        } catch (IllegalArgumentException e) {
+            throw new ThingsboardException(e.getMessage(), ThingsboardErrorCode.BAD_REQUEST_PARAMS);
+        }
+        checkEntityId(entityId, Operation.READ_TELEMETRY);
+        SecurityUser user = getCurrentUser();
+        response.setContentType(format.getContentType());
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + entityIdStr + "." + format.getFileExtension() + "\"");
+        try {
+            tsExportService.export(user.getTenantId(), entityId, keyList, startTs, endTs, format, useStrictDataTypes, response.getOutputStream());
+        } catch (IOException e) {
+            log.debug("[{}][{}] Time-series export of keys {} was aborted", user.getTenantId(), entityId, keyList, e);
+        }
+    }
+
     @ApiOperation(value = "Save device attributes (saveDeviceAttributes)",
             notes = "Creates or updates the device attributes based on device id and specified attribute scope. " +
                     SAVE_ATTRIBUTES_REQUEST_PAYLOAD
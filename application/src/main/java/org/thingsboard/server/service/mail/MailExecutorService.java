@@ -25,9 +25,17 @@ public class MailExecutorService extends AbstractListeningExecutor {
     @Value("${actors.rule.mail_thread_pool_size}")
     private int mailExecutorThreadPoolSize;
 
+    @Value("${actors.rule.mail_virtual_threads:false}")
+    private boolean virtualThreads;
+
     @Override
     protected int getThreadPollSize() {
         return mailExecutorThreadPoolSize;
     }
 
+    @Override
+    protected boolean isVirtualThreads() {
+        return virtualThreads;
+    }
+
 }
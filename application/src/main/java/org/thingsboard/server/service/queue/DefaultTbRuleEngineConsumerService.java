@@ -54,6 +54,7 @@ import org.thingsboard.server.service.apiusage.TbApiUsageStateService;
 import org.thingsboard.server.service.profile.TbAssetProfileCache;
 import org.thingsboard.server.service.profile.TbDeviceProfileCache;
 import org.thingsboard.server.service.queue.processing.AbstractConsumerService;
+import org.thingsboard.server.service.queue.processing.TbMsgOrderingGate;
 import org.thingsboard.server.service.queue.processing.TbRuleEngineProcessingDecision;
 import org.thingsboard.server.service.queue.processing.TbRuleEngineProcessingResult;
 import org.thingsboard.server.service.queue.processing.TbRuleEngineProcessingStrategy;
@@ -65,8 +66,10 @@ import org.thingsboard.server.service.stats.RuleEngineStatisticsService;
 
 import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Deque;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -110,6 +113,7 @@ public class DefaultTbRuleEngineConsumerService extends AbstractConsumerService<
     private final ConcurrentMap<QueueKey, TbQueueConsumer<TbProtoQueueMsg<ToRuleEngineMsg>>> consumers = new ConcurrentHashMap<>();
     private final ConcurrentMap<QueueKey, Queue> consumerConfigurations = new ConcurrentHashMap<>();
     private final ConcurrentMap<QueueKey, TbRuleEngineConsumerStats> consumerStats = new ConcurrentHashMap<>();
+    private TbRuleEngineMsgDataStats msgDataStats;
     private final ConcurrentMap<QueueKey, TbTopicWithConsumerPerPartition> topicsConsumerPerPartition = new ConcurrentHashMap<>();
     final ExecutorService submitExecutor = Executors.newSingleThreadExecutor(ThingsBoardThreadFactory.forName("tb-rule-engine-consumer-submit"));
     final ScheduledExecutorService repartitionExecutor = Executors.newScheduledThreadPool(1, ThingsBoardThreadFactory.forName("tb-rule-engine-consumer-repartition"));
@@ -141,6 +145,7 @@ public class DefaultTbRuleEngineConsumerService extends AbstractConsumerService<
     @PostConstruct
     public void init() {
         super.init("tb-rule-engine-consumer", "tb-rule-engine-notifications-consumer");
+        msgDataStats = new TbRuleEngineMsgDataStats(statsFactory);
         List<Queue> queues = queueService.findAllQueues();
         for (Queue configuration : queues) {
             initConsumer(configuration);
@@ -261,6 +266,10 @@ public class DefaultTbRuleEngineConsumerService extends AbstractConsumerService<
     }
 
     void consumerLoop(TbQueueConsumer<TbProtoQueueMsg<ToRuleEngineMsg>> consumer, org.thingsboard.server.common.data.queue.Queue configuration, TbRuleEngineConsumerStats stats, String threadSuffix) {
+        if (isPipelined(configuration, consumer)) {
+            pipelinedConsumerLoop(consumer, configuration, stats, threadSuffix);
+            return;
+        }
         updateCurrentThreadName(threadSuffix);
         while (!stopped && !consumer.isStopped()) {
             try {
@@ -272,26 +281,11 @@ public class DefaultTbRuleEngineConsumerService extends AbstractConsumerService<
                 final TbRuleEngineProcessingStrategy ackStrategy = getAckStrategy(configuration);
                 submitStrategy.init(msgs);
                 while (!stopped && !consumer.isStopped()) {
-                    TbMsgPackProcessingContext ctx = new TbMsgPackProcessingContext(configuration.getName(), submitStrategy, ackStrategy.isSkipTimeoutMsgs());
-                    submitStrategy.submitAttempt((id, msg) -> submitExecutor.submit(() -> submitMessage(configuration, stats, ctx, id, msg)));
+                    TbMsgPackProcessingContext ctx = submitPack(configuration, stats, submitStrategy, ackStrategy);
 
                     final boolean timeout = !ctx.await(configuration.getPackProcessingTimeout(), TimeUnit.MILLISECONDS);
 
-                    TbRuleEngineProcessingResult result = new TbRuleEngineProcessingResult(configuration.getName(), timeout, ctx);
-                    if (timeout) {
-                        printFirstOrAll(configuration, ctx, ctx.getPendingMap(), "Timeout");
-                    }
-                    if (!ctx.getFailedMap().isEmpty()) {
-                        printFirstOrAll(configuration, ctx, ctx.getFailedMap(), "Failed");
-                    }
-                    ctx.printProfilerStats();
-
-                    TbRuleEngineProcessingDecision decision = ackStrategy.analyze(result);
-                    if (statsEnabled) {
-                        stats.log(result, decision.isCommit());
-                    }
-
-                    ctx.cleanup();
+                    TbRuleEngineProcessingDecision decision = analyzePack(configuration, stats, ackStrategy, ctx, timeout);
 
                     if (decision.isCommit()) {
                         submitStrategy.stop();
@@ -315,6 +309,115 @@ public class DefaultTbRuleEngineConsumerService extends AbstractConsumerService<
         log.info("TB Rule Engine Consumer stopped.");
     }
 
+    boolean isPipelined(Queue configuration, TbQueueConsumer<TbProtoQueueMsg<ToRuleEngineMsg>> consumer) {
+        if (configuration.getSubmitStrategy() == null || !configuration.getSubmitStrategy().isPipelined()) {
+            return false;
+        }
+        if (!consumer.isPartialCommitSupported()) {
+            log.warn("[{}] Queue consumer does not support partial commits, falling back to the pack mode", configuration.getName());
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Every poll becomes a pack processed with its own submit and processing strategies, like in the pack mode, but the consumer keeps
+     * polling while the number of messages in flight is below the window instead of waiting for the pack. Packs are committed in the poll
+     * order once all the packs before them are done, so a slow message delays the commit but not the processing of the following packs.
+     */
+    void pipelinedConsumerLoop(TbQueueConsumer<TbProtoQueueMsg<ToRuleEngineMsg>> consumer, Queue configuration, TbRuleEngineConsumerStats stats, String threadSuffix) {
+        updateCurrentThreadName(threadSuffix);
+        int maxInFlightMsgs = configuration.getSubmitStrategy().getMaxInFlightMsgs();
+        TbMsgOrderingGate orderingGate = new TbMsgOrderingGate();
+        Deque<PipelinePack> packs = new ArrayDeque<>();
+        while (!stopped && !consumer.isStopped()) {
+            try {
+                if (countInFlightMsgs(packs) < maxInFlightMsgs) {
+                    List<TbProtoQueueMsg<ToRuleEngineMsg>> msgs = consumer.poll(pollDuration);
+                    if (!msgs.isEmpty()) {
+                        TbRuleEngineSubmitStrategy submitStrategy = submitStrategyFactory.newPipelinedInstance(configuration.getName(), configuration.getSubmitStrategy(), orderingGate);
+                        submitStrategy.init(msgs);
+                        PipelinePack pack = new PipelinePack(msgs, submitStrategy, getAckStrategy(configuration));
+                        pack.submit(configuration, stats);
+                        packs.add(pack);
+                    }
+                } else {
+                    packs.getFirst().ctx.awaitProcessed(pollDuration, TimeUnit.MILLISECONDS);
+                }
+                for (PipelinePack pack : packs) {
+                    if (!pack.done && (pack.ctx.isProcessed() || System.currentTimeMillis() >= pack.deadline)) {
+                        boolean timeout = !pack.ctx.await(0, TimeUnit.MILLISECONDS);
+                        TbRuleEngineProcessingDecision decision = analyzePack(configuration, stats, pack.ackStrategy, pack.ctx, timeout);
+                        if (decision.isCommit()) {
+                            pack.submitStrategy.stop();
+                            pack.done = true;
+                        } else {
+                            pack.submitStrategy.update(decision.getReprocessMap());
+                            pack.submit(configuration, stats);
+                        }
+                    }
+                }
+                PipelinePack lastDone = null;
+                while (!packs.isEmpty() && packs.getFirst().done) {
+                    lastDone = packs.removeFirst();
+                }
+                if (lastDone != null) {
+                    consumer.commit(lastDone.msgs);
+                }
+            } catch (Exception e) {
+                if (!stopped) {
+                    log.warn("Failed to process messages from queue.", e);
+                    try {
+                        Thread.sleep(pollDuration);
+                    } catch (InterruptedException e2) {
+                        log.trace("Failed to wait until the server has capacity to handle new requests", e2);
+                    }
+                }
+            }
+        }
+        packs.forEach(pack -> {
+            pack.submitStrategy.stop();
+            pack.ctx.cleanup();
+        });
+        log.info("TB Rule Engine Consumer stopped.");
+    }
+
+    private int countInFlightMsgs(Deque<PipelinePack> packs) {
+        int count = 0;
+        for (PipelinePack pack : packs) {
+            if (!pack.done) {
+                count += pack.ctx.getPendingMap().size();
+            }
+        }
+        return count;
+    }
+
+    private TbMsgPackProcessingContext submitPack(Queue configuration, TbRuleEngineConsumerStats stats, TbRuleEngineSubmitStrategy submitStrategy, TbRuleEngineProcessingStrategy ackStrategy) {
+        TbMsgPackProcessingContext ctx = new TbMsgPackProcessingContext(configuration.getName(), submitStrategy, ackStrategy.isSkipTimeoutMsgs());
+        submitStrategy.submitAttempt((id, msg) -> submitExecutor.submit(() -> submitMessage(configuration, stats, ctx, id, msg)));
+        return ctx;
+    }
+
+    private TbRuleEngineProcessingDecision analyzePack(Queue configuration, TbRuleEngineConsumerStats stats, TbRuleEngineProcessingStrategy ackStrategy,
+                                                       TbMsgPackProcessingContext ctx, boolean timeout) {
+        TbRuleEngineProcessingResult result = new TbRuleEngineProcessingResult(configuration.getName(), timeout, ctx);
+        if (timeout) {
+            printFirstOrAll(configuration, ctx, ctx.getPendingMap(), "Timeout");
+        }
+        if (!ctx.getFailedMap().isEmpty()) {
+            printFirstOrAll(configuration, ctx, ctx.getFailedMap(), "Failed");
+        }
+        ctx.printProfilerStats();
+
+        TbRuleEngineProcessingDecision decision = ackStrategy.analyze(result);
+        if (statsEnabled) {
+            stats.log(result, decision.isCommit());
+        }
+
+        ctx.cleanup();
+        return decision;
+    }
+
     void updateCurrentThreadName(String threadSuffix) {
         String name = Thread.currentThread().getName();
         int spliteratorIndex = name.indexOf(THREAD_TOPIC_SEPARATOR);
@@ -489,6 +592,29 @@ public class DefaultTbRuleEngineConsumerService extends AbstractConsumerService<
                 statisticsService.reportQueueStats(ts, stats);
                 stats.reset();
             });
+            msgDataStats.collect();
+            msgDataStats.printStats();
+            msgDataStats.reset();
+        }
+    }
+
+    private class PipelinePack {
+        private final List<TbProtoQueueMsg<ToRuleEngineMsg>> msgs;
+        private final TbRuleEngineSubmitStrategy submitStrategy;
+        private final TbRuleEngineProcessingStrategy ackStrategy;
+        private TbMsgPackProcessingContext ctx;
+        private long deadline;
+        private boolean done;
+
+        private PipelinePack(List<TbProtoQueueMsg<ToRuleEngineMsg>> msgs, TbRuleEngineSubmitStrategy submitStrategy, TbRuleEngineProcessingStrategy ackStrategy) {
+            this.msgs = msgs;
+            this.submitStrategy = submitStrategy;
+            this.ackStrategy = ackStrategy;
+        }
+
+        private void submit(Queue configuration, TbRuleEngineConsumerStats stats) {
+            deadline = System.currentTimeMillis() + configuration.getPackProcessingTimeout();
+            ctx = submitPack(configuration, stats, submitStrategy, ackStrategy);
         }
     }
 
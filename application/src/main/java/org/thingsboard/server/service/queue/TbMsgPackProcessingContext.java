@@ -74,6 +74,17 @@ public class TbMsgPackProcessingContext {
         return success;
     }
 
+    public boolean isProcessed() {
+        return processingTimeoutLatch.getCount() == 0;
+    }
+
+    /**
+     * Waits for the pack to be processed without recording the timeout in the profiler, unlike {@link #await(long, TimeUnit)}.
+     */
+    public boolean awaitProcessed(long timeout, TimeUnit unit) throws InterruptedException {
+        return processingTimeoutLatch.await(timeout, unit);
+    }
+
     public void onSuccess(UUID id) {
         TbProtoQueueMsg<TransportProtos.ToRuleEngineMsg> msg;
         boolean empty = false;
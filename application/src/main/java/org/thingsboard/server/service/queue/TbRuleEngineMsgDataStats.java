@@ -0,0 +1,73 @@
+/**
+ * Copyright © 2016-2023 The Linkstuffs Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.service.queue;
+
+import lombok.extern.slf4j.Slf4j;
+import org.thingsboard.server.common.msg.TbMsgDataParseStats;
+import org.thingsboard.server.common.stats.StatsCounter;
+import org.thingsboard.server.common.stats.StatsFactory;
+import org.thingsboard.server.common.stats.StatsType;
+
+/**
+ * Rule engine counters of the msg data parsed by the rule nodes and of the data reused from the previous nodes.
+ * The counts are shared by all queues, since a message may be parsed on any of them.
+ */
+@Slf4j
+public class TbRuleEngineMsgDataStats {
+
+    public static final String PARSED_MSG_DATA = "parsedMsgData";
+    public static final String REUSED_MSG_DATA = "reusedMsgData";
+
+    private final StatsCounter parsedCounter;
+    private final StatsCounter reusedCounter;
+
+    public TbRuleEngineMsgDataStats(StatsFactory statsFactory) {
+        String statsKey = StatsType.RULE_ENGINE.getName() + ".msgData";
+        this.parsedCounter = statsFactory.createStatsCounter(statsKey, PARSED_MSG_DATA);
+        this.reusedCounter = statsFactory.createStatsCounter(statsKey, REUSED_MSG_DATA);
+    }
+
+    public void collect() {
+        parsedCounter.add(toInt(TbMsgDataParseStats.getAndResetParsed()));
+        reusedCounter.add(toInt(TbMsgDataParseStats.getAndResetReused()));
+    }
+
+    public int getParsed() {
+        return parsedCounter.get();
+    }
+
+    public int getReused() {
+        return reusedCounter.get();
+    }
+
+    public void printStats() {
+        int parsed = parsedCounter.get();
+        int reused = reusedCounter.get();
+        if (parsed > 0 || reused > 0) {
+            log.info("Msg data stats: {} = [{}] {} = [{}]", parsedCounter.getName(), parsed, reusedCounter.getName(), reused);
+        }
+    }
+
+    public void reset() {
+        parsedCounter.clear();
+        reusedCounter.clear();
+    }
+
+    private static int toInt(long value) {
+        return (int) Math.min(value, Integer.MAX_VALUE);
+    }
+
+}
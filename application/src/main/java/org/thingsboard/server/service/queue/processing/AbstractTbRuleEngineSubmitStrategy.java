@@ -36,6 +36,17 @@ public abstract class AbstractTbRuleEngineSubmitStrategy implements TbRuleEngine
 
     protected abstract void doOnSuccess(UUID id);
 
+    protected boolean isOrdered() {
+        return false;
+    }
+
+    /**
+     * Messages with the same key must be processed one after another in the poll order. Used only when {@link #isOrdered()}.
+     */
+    protected Object getOrderingKey(TransportProtos.ToRuleEngineMsg msg) {
+        return null;
+    }
+
     @Override
     public void init(List<TbProtoQueueMsg<TransportProtos.ToRuleEngineMsg>> msgs) {
         orderedMsgList = msgs.stream().map(msg -> new IdMsgPair<>(UUID.randomUUID(), msg)).collect(Collectors.toList());
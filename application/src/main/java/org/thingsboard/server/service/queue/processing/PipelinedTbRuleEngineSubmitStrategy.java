@@ -0,0 +1,84 @@
+/**
+ * Copyright © 2016-2023 The Linkstuffs Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.service.queue.processing;
+
+import org.thingsboard.server.gen.transport.TransportProtos;
+import org.thingsboard.server.queue.common.TbProtoQueueMsg;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.BiConsumer;
+import java.util.stream.Collectors;
+
+/**
+ * Wraps an ordered submit strategy of one pack of the pipelined consumer. The wrapped strategy orders the messages inside the pack,
+ * the shared {@link TbMsgOrderingGate} holds them back while the earlier packs still process messages with the same key.
+ * Failed and timed out messages keep their key until the pack is committed or retried, so a retry is not overtaken by the later packs.
+ */
+public class PipelinedTbRuleEngineSubmitStrategy implements TbRuleEngineSubmitStrategy {
+
+    private final AbstractTbRuleEngineSubmitStrategy delegate;
+    private final TbMsgOrderingGate orderingGate;
+
+    public PipelinedTbRuleEngineSubmitStrategy(AbstractTbRuleEngineSubmitStrategy delegate, TbMsgOrderingGate orderingGate) {
+        this.delegate = delegate;
+        this.orderingGate = orderingGate;
+    }
+
+    @Override
+    public void init(List<TbProtoQueueMsg<TransportProtos.ToRuleEngineMsg>> msgs) {
+        delegate.init(msgs);
+        for (IdMsgPair<TransportProtos.ToRuleEngineMsg> pair : delegate.orderedMsgList) {
+            orderingGate.register(pair.uuid, delegate.getOrderingKey(pair.msg.getValue()));
+        }
+    }
+
+    @Override
+    public ConcurrentMap<UUID, TbProtoQueueMsg<TransportProtos.ToRuleEngineMsg>> getPendingMap() {
+        return delegate.getPendingMap();
+    }
+
+    @Override
+    public void submitAttempt(BiConsumer<UUID, TbProtoQueueMsg<TransportProtos.ToRuleEngineMsg>> msgConsumer) {
+        delegate.submitAttempt((id, msg) -> orderingGate.submit(id, () -> msgConsumer.accept(id, msg)));
+    }
+
+    @Override
+    public void update(ConcurrentMap<UUID, TbProtoQueueMsg<TransportProtos.ToRuleEngineMsg>> reprocessMap) {
+        List<UUID> ids = packIds();
+        orderingGate.cancelWaiting(ids);
+        orderingGate.release(ids.stream().filter(id -> !reprocessMap.containsKey(id)).collect(Collectors.toList()));
+        delegate.update(reprocessMap);
+    }
+
+    @Override
+    public void onSuccess(UUID id) {
+        orderingGate.complete(id);
+        delegate.onSuccess(id);
+    }
+
+    @Override
+    public void stop() {
+        delegate.stop();
+        orderingGate.release(packIds());
+    }
+
+    private List<UUID> packIds() {
+        return delegate.orderedMsgList.stream().map(pair -> pair.uuid).collect(Collectors.toList());
+    }
+
+}
@@ -97,4 +97,14 @@ public abstract class SequentialByEntityIdTbRuleEngineSubmitStrategy extends Abs
 
     protected abstract EntityId getEntityId(TransportProtos.ToRuleEngineMsg msg);
 
+    @Override
+    protected boolean isOrdered() {
+        return true;
+    }
+
+    @Override
+    protected Object getOrderingKey(TransportProtos.ToRuleEngineMsg msg) {
+        return getEntityId(msg);
+    }
+
 }
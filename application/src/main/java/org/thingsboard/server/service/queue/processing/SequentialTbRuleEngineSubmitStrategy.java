@@ -55,6 +55,16 @@ public class SequentialTbRuleEngineSubmitStrategy extends AbstractTbRuleEngineSu
         }
     }
 
+    @Override
+    protected boolean isOrdered() {
+        return true;
+    }
+
+    @Override
+    protected Object getOrderingKey(TransportProtos.ToRuleEngineMsg msg) {
+        return queueName;
+    }
+
     private void submitNext() {
         int listSize = orderedMsgList.size();
         int idx = msgIdx.get();
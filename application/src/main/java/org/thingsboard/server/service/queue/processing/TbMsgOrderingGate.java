@@ -0,0 +1,119 @@
+/**
+ * Copyright © 2016-2023 The Linkstuffs Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.service.queue.processing;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Keeps messages with the same ordering key in the poll order across the packs that the pipelined consumer processes at the same time.
+ * Messages are registered in the poll order and a message is submitted only after all the earlier messages with the same key
+ * are completed or released.
+ */
+public class TbMsgOrderingGate {
+
+    private final Map<Object, KeyQueue> queues = new HashMap<>();
+    private final Map<UUID, Object> msgKeys = new HashMap<>();
+
+    public synchronized void register(UUID id, Object key) {
+        if (key != null) {
+            msgKeys.put(id, key);
+            queues.computeIfAbsent(key, k -> new KeyQueue()).ids.add(id);
+        }
+    }
+
+    /**
+     * Runs the task now if the message is the first one with its key, otherwise when all the earlier messages are completed or released.
+     */
+    public void submit(UUID id, Runnable task) {
+        synchronized (this) {
+            Object key = msgKeys.get(id);
+            if (key != null) {
+                KeyQueue queue = queues.get(key);
+                if (!id.equals(queue.head())) {
+                    queue.waiting.put(id, task);
+                    return;
+                }
+            }
+        }
+        task.run();
+    }
+
+    public void complete(UUID id) {
+        release(List.of(id));
+    }
+
+    /**
+     * Removes the messages from the gate and submits the messages that became the first ones with their keys.
+     */
+    public void release(Collection<UUID> ids) {
+        List<Runnable> ready = new ArrayList<>();
+        synchronized (this) {
+            for (UUID id : ids) {
+                Object key = msgKeys.remove(id);
+                if (key == null) {
+                    continue;
+                }
+                KeyQueue queue = queues.get(key);
+                boolean head = id.equals(queue.head());
+                queue.ids.remove(id);
+                queue.waiting.remove(id);
+                if (queue.ids.isEmpty()) {
+                    queues.remove(key);
+                } else if (head) {
+                    Runnable next = queue.waiting.remove(queue.head());
+                    if (next != null) {
+                        ready.add(next);
+                    }
+                }
+            }
+        }
+        ready.forEach(Runnable::run);
+    }
+
+    /**
+     * Drops the pending submissions of the messages, they stay registered and keep their place in the order.
+     */
+    public synchronized void cancelWaiting(Collection<UUID> ids) {
+        for (UUID id : ids) {
+            Object key = msgKeys.get(id);
+            if (key != null) {
+                queues.get(key).waiting.remove(id);
+            }
+        }
+    }
+
+    public synchronized int size() {
+        return msgKeys.size();
+    }
+
+    private static class KeyQueue {
+        private final LinkedHashSet<UUID> ids = new LinkedHashSet<>();
+        private final Map<UUID, Runnable> waiting = new HashMap<>();
+
+        private UUID head() {
+            Iterator<UUID> iterator = ids.iterator();
+            return iterator.hasNext() ? iterator.next() : null;
+        }
+    }
+
+}
@@ -25,6 +25,19 @@ import org.thingsboard.server.queue.settings.TbRuleEngineQueueSubmitStrategyConf
 public class TbRuleEngineSubmitStrategyFactory {
 
     public TbRuleEngineSubmitStrategy newInstance(String name, SubmitStrategy submitStrategy) {
+        return create(name, submitStrategy);
+    }
+
+    /**
+     * Strategy for a pack of the pipelined consumer. Strategies that order messages are wrapped to keep the order across the packs
+     * that are processed at the same time.
+     */
+    public TbRuleEngineSubmitStrategy newPipelinedInstance(String name, SubmitStrategy submitStrategy, TbMsgOrderingGate orderingGate) {
+        AbstractTbRuleEngineSubmitStrategy strategy = create(name, submitStrategy);
+        return strategy.isOrdered() ? new PipelinedTbRuleEngineSubmitStrategy(strategy, orderingGate) : strategy;
+    }
+
+    private AbstractTbRuleEngineSubmitStrategy create(String name, SubmitStrategy submitStrategy) {
         switch (submitStrategy.getType()) {
             case BURST:
                 return new BurstTbRuleEngineSubmitStrategy(name);
@@ -536,15 +536,17 @@ public class DefaultDeviceStateService extends AbstractPartitionBasedService<Dev
 
 
     private ListenableFuture<DeviceStateData> fetchDeviceState(Device device) {
-        ListenableFuture<DeviceStateData> future;
+        return transformInactivityTimeout(fetchPersistedDeviceState(device));
+    }
+
+    private ListenableFuture<DeviceStateData> fetchPersistedDeviceState(Device device) {
         if (persistToTelemetry) {
             ListenableFuture<List<TsKvEntry>> tsData = tsService.findLatest(TenantId.SYS_TENANT_ID, device.getId(), PERSISTENT_ATTRIBUTES);
-            future = Futures.transform(tsData, extractDeviceStateData(device), deviceStateExecutor);
+            return Futures.transform(tsData, extractDeviceStateData(device), deviceStateExecutor);
         } else {
             ListenableFuture<List<AttributeKvEntry>> attrData = attributesService.find(TenantId.SYS_TENANT_ID, device.getId(), DataConstants.SERVER_SCOPE, PERSISTENT_ATTRIBUTES);
-            future = Futures.transform(attrData, extractDeviceStateData(device), deviceStateExecutor);
+            return Futures.transform(attrData, extractDeviceStateData(device), deviceStateExecutor);
         }
-        return transformInactivityTimeout(future);
     }
 
     private ListenableFuture<DeviceStateData> transformInactivityTimeout(ListenableFuture<DeviceStateData> future) {
@@ -607,7 +609,7 @@ public class DefaultDeviceStateService extends AbstractPartitionBasedService<Dev
         List<Device> devices = deviceService.findDevicesByIds(deviceIds.stream().map(DeviceIdInfo::getDeviceId).collect(Collectors.toList()));
         List<ListenableFuture<DeviceStateData>> deviceStateFutures = new ArrayList<>();
         for (Device device : devices) {
-            deviceStateFutures.add(fetchDeviceState(device));
+            deviceStateFutures.add(fetchPersistedDeviceState(device));
         }
         try {
             List<DeviceStateData> result = Futures.successfulAsList(deviceStateFutures).get(5, TimeUnit.MINUTES);
@@ -619,13 +621,43 @@ public class DefaultDeviceStateService extends AbstractPartitionBasedService<Dev
                     log.warn("[{}][{}] Failed to initialized device state due to:", deviceIdInfo.getTenantId(), deviceIdInfo.getDeviceId());
                 }
             }
-            return success ? result : result.stream().filter(Objects::nonNull).collect(Collectors.toList());
+            List<DeviceStateData> states = success ? result : result.stream().filter(Objects::nonNull).collect(Collectors.toList());
+            fetchInactivityTimeouts(states);
+            return states;
         } catch (InterruptedException | ExecutionException | TimeoutException e) {
             log.warn("Failed to initialized device state futures for ids: {} due to:", deviceIds, e);
             throw new RuntimeException(e);
         }
     }
 
+    /**
+     * Same as {@link #transformInactivityTimeout}, but with a single attributes request for all the devices.
+     */
+    private void fetchInactivityTimeouts(List<DeviceStateData> states) throws InterruptedException, ExecutionException, TimeoutException {
+        if (!persistToTelemetry) {
+            return;
+        }
+        List<EntityId> deviceIds = states.stream()
+                .filter(deviceStateData -> deviceStateData.getState().getInactivityTimeout() == defaultInactivityTimeoutMs)
+                .map(DeviceStateData::getDeviceId)
+                .collect(Collectors.toList());
+        if (deviceIds.isEmpty()) {
+            return;
+        }
+        Map<EntityId, List<AttributeKvEntry>> attributes = attributesService.findByEntityIds(TenantId.SYS_TENANT_ID, deviceIds, SERVER_SCOPE,
+                Collections.singletonList(INACTIVITY_TIMEOUT)).get(5, TimeUnit.MINUTES);
+        for (DeviceStateData deviceStateData : states) {
+            attributes.getOrDefault(deviceStateData.getDeviceId(), Collections.emptyList()).stream()
+                    .findFirst()
+                    .flatMap(KvEntry::getLongValue)
+                    .ifPresent(inactivityTimeout -> {
+                        if (inactivityTimeout > 0) {
+                            deviceStateData.getState().setInactivityTimeout(inactivityTimeout);
+                        }
+                    });
+        }
+    }
+
     private List<DeviceStateData> fetchDeviceStateDataUsingEntityDataQuery(List<DeviceIdInfo> deviceIds) {
         EntityListFilter ef = new EntityListFilter();
         ef.setEntityType(EntityType.DEVICE);
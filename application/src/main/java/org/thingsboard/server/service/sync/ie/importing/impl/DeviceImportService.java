@@ -86,6 +86,8 @@ public class DeviceImportService extends BaseEntityImportService<DeviceId, Devic
             credentials.setDeviceId(prepared.getId());
             if (!existing.equals(credentials)) {
                 credentialsService.updateDeviceCredentials(ctx.getTenantId(), credentials);
+                // the device itself is unmodified, so there is no device update event to evict the old credentials on the transports
+                clusterService.onDeviceCredentialsUpdated(ctx.getTenantId(), prepared.getId(), null);
                 updated = true;
             }
         }
@@ -0,0 +1,206 @@
+/**
+ * Copyright © 2016-2023 The Linkstuffs Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.service.telemetry;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.thingsboard.server.common.data.id.EntityId;
+import org.thingsboard.server.common.data.id.TenantId;
+import org.thingsboard.server.common.data.kv.Aggregation;
+import org.thingsboard.server.common.data.kv.BaseReadTsKvQuery;
+import org.thingsboard.server.common.data.kv.TsKvEntry;
+import org.thingsboard.server.dao.timeseries.TimeseriesService;
+import org.thingsboard.server.queue.util.TbCoreComponent;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Walks the requested range of every key with a keyset cursor: each page is fetched in ascending order
+ * starting right after the timestamp of the last exported value. Pages are written and flushed to the client
+ * one by one, so a slow client holds back the next database query instead of growing the response in memory.
+ */
+@Slf4j
+@Service
+@TbCoreComponent
+@RequiredArgsConstructor
+public class DefaultTimeseriesExportService implements TimeseriesExportService {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private final TimeseriesService tsService;
+
+    @Value("${server.rest.timeseries_export.page_size:10000}")
+    private int pageSize;
+
+    @Override
+    public void export(TenantId tenantId, EntityId entityId, List<String> keys, long startTs, long endTs,
+                       TsExportFormat format, boolean useStrictDataTypes, OutputStream out) throws IOException {
+        TsExportWriter writer = format == TsExportFormat.CSV ? new CsvTsExportWriter(out) : new NdjsonTsExportWriter(out, useStrictDataTypes);
+        writer.writeHeader();
+        long total = 0;
+        for (String key : keys) {
+            long cursor = startTs;
+            while (cursor < endTs) {
+                List<TsKvEntry> page = fetchPage(tenantId, entityId, key, cursor, endTs);
+                for (TsKvEntry entry : page) {
+                    writer.write(entry);
+                }
+                writer.flush();
+                total += page.size();
+                if (page.size() < pageSize) {
+                    break;
+                }
+                cursor = page.get(page.size() - 1).getTs() + 1;
+            }
+        }
+        writer.flush();
+        log.debug("[{}][{}] Exported {} time-series values of keys {}", tenantId, entityId, total, keys);
+    }
+
+    private List<TsKvEntry> fetchPage(TenantId tenantId, EntityId entityId, String key, long startTs, long endTs) throws IOException {
+        BaseReadTsKvQuery query = new BaseReadTsKvQuery(key, startTs, endTs, 0, pageSize, Aggregation.NONE, "ASC");
+        try {
+            return tsService.findAll(tenantId, entityId, Collections.singletonList(query)).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Time-series export was interrupted");
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Failed to fetch time-series of key [" + key + "] starting from " + startTs, e.getCause());
+        }
+    }
+
+    private interface TsExportWriter {
+
+        void writeHeader() throws IOException;
+
+        void write(TsKvEntry entry) throws IOException;
+
+        void flush() throws IOException;
+
+    }
+
+    private static class NdjsonTsExportWriter implements TsExportWriter {
+
+        private final JsonGenerator generator;
+        private final boolean useStrictDataTypes;
+
+        NdjsonTsExportWriter(OutputStream out, boolean useStrictDataTypes) throws IOException {
+            this.generator = JSON_FACTORY.createGenerator(out, JsonEncoding.UTF8);
+            this.generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            this.generator.setRootValueSeparator(null);
+            this.useStrictDataTypes = useStrictDataTypes;
+        }
+
+        @Override
+        public void writeHeader() {
+        }
+
+        @Override
+        public void write(TsKvEntry entry) throws IOException {
+            generator.writeStartObject();
+            generator.writeStringField("key", entry.getKey());
+            generator.writeNumberField("ts", entry.getTs());
+            generator.writeFieldName("value");
+            if (useStrictDataTypes) {
+                writeStrictValue(entry);
+            } else {
+                generator.writeString(entry.getValueAsString());
+            }
+            generator.writeEndObject();
+            generator.writeRaw('\n');
+        }
+
+        private void writeStrictValue(TsKvEntry entry) throws IOException {
+            switch (entry.getDataType()) {
+                case BOOLEAN:
+                    generator.writeBoolean(entry.getBooleanValue().get());
+                    break;
+                case LONG:
+                    generator.writeNumber(entry.getLongValue().get());
+                    break;
+                case DOUBLE:
+                    generator.writeNumber(entry.getDoubleValue().get());
+                    break;
+                case JSON:
+                    generator.writeRawValue(entry.getJsonValue().get());
+                    break;
+                default:
+                    generator.writeString(entry.getValueAsString());
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            generator.flush();
+        }
+
+    }
+
+    private static class CsvTsExportWriter implements TsExportWriter {
+
+        private final Writer writer;
+
+        CsvTsExportWriter(OutputStream out) {
+            this.writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        }
+
+        @Override
+        public void writeHeader() throws IOException {
+            writer.write("key,ts,value\n");
+        }
+
+        @Override
+        public void write(TsKvEntry entry) throws IOException {
+            writeField(entry.getKey());
+            writer.write(',');
+            writer.write(Long.toString(entry.getTs()));
+            writer.write(',');
+            writeField(entry.getValueAsString());
+            writer.write('\n');
+        }
+
+        private void writeField(String value) throws IOException {
+            if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+                writer.write(value);
+            } else {
+                writer.write('"');
+                writer.write(value.replace("\"", "\"\""));
+                writer.write('"');
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            writer.flush();
+        }
+
+    }
+
+}
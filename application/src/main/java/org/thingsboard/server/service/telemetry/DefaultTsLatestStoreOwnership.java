@@ -0,0 +1,60 @@
+/**
+ * Copyright © 2016-2023 The Linkstuffs Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.service.telemetry;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import org.thingsboard.server.common.data.id.EntityId;
+import org.thingsboard.server.common.data.id.TenantId;
+import org.thingsboard.server.common.msg.queue.ServiceType;
+import org.thingsboard.server.dao.timeseries.latest.TsLatestStore;
+import org.thingsboard.server.dao.timeseries.latest.TsLatestStoreOwnership;
+import org.thingsboard.server.queue.discovery.PartitionService;
+import org.thingsboard.server.queue.discovery.TbApplicationEventListener;
+import org.thingsboard.server.queue.discovery.event.PartitionChangeEvent;
+import org.thingsboard.server.queue.util.TbCoreComponent;
+
+/**
+ * The latest values are stored locally only for the entities of the core partitions of this service:
+ * the updates made by the other services are delivered to the owner of the partition as the subscription updates.
+ * The store is dropped on every change of the core partitions.
+ */
+@Slf4j
+@TbCoreComponent
+@Service
+@ConditionalOnProperty(prefix = "cache.ts_latest", value = "enabled", havingValue = "true")
+@RequiredArgsConstructor
+public class DefaultTsLatestStoreOwnership extends TbApplicationEventListener<PartitionChangeEvent> implements TsLatestStoreOwnership {
+
+    private final PartitionService partitionService;
+    private final TsLatestStore tsLatestStore;
+
+    @Override
+    public boolean isLocal(TenantId tenantId, EntityId entityId) {
+        return partitionService.resolve(ServiceType.TB_CORE, tenantId, entityId).isMyPartition();
+    }
+
+    @Override
+    protected void onTbApplicationEvent(PartitionChangeEvent event) {
+        if (ServiceType.TB_CORE.equals(event.getServiceType())) {
+            log.debug("Core partitions changed, clearing the latest timeseries store");
+            tsLatestStore.clear();
+        }
+    }
+
+}
@@ -0,0 +1,35 @@
+/**
+ * Copyright © 2016-2023 The Linkstuffs Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.service.telemetry;
+
+import org.thingsboard.server.common.data.id.EntityId;
+import org.thingsboard.server.common.data.id.TenantId;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+
+public interface TimeseriesExportService {
+
+    /**
+     * Writes raw time-series values of the given keys within [startTs, endTs) to the output stream.
+     * Values are fetched page by page in ascending order and flushed after each page,
+     * so memory usage does not depend on the size of the requested range.
+     */
+    void export(TenantId tenantId, EntityId entityId, List<String> keys, long startTs, long endTs,
+                TsExportFormat format, boolean useStrictDataTypes, OutputStream out) throws IOException;
+
+}
@@ -0,0 +1,207 @@
+/**
+ * Copyright © 2016-2023 The Linkstuffs Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.service.queue;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.thingsboard.server.actors.ActorSystemContext;
+import org.thingsboard.server.common.data.id.DeviceId;
+import org.thingsboard.server.common.data.id.TenantId;
+import org.thingsboard.server.common.data.queue.ProcessingStrategy;
+import org.thingsboard.server.common.data.queue.ProcessingStrategyType;
+import org.thingsboard.server.common.data.queue.Queue;
+import org.thingsboard.server.common.data.queue.SubmitMode;
+import org.thingsboard.server.common.data.queue.SubmitStrategy;
+import org.thingsboard.server.common.data.queue.SubmitStrategyType;
+import org.thingsboard.server.common.msg.TbMsg;
+import org.thingsboard.server.common.msg.TbMsgMetaData;
+import org.thingsboard.server.common.msg.queue.QueueToRuleEngineMsg;
+import org.thingsboard.server.gen.transport.TransportProtos.ToRuleEngineMsg;
+import org.thingsboard.server.queue.TbQueueConsumer;
+import org.thingsboard.server.queue.common.TbProtoQueueMsg;
+import org.thingsboard.server.queue.provider.TbRuleEngineQueueFactory;
+import org.thingsboard.server.service.queue.processing.TbRuleEngineProcessingStrategyFactory;
+import org.thingsboard.server.service.queue.processing.TbRuleEngineSubmitStrategyFactory;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class DefaultTbRuleEngineConsumerServiceTest {
+
+    private static final TenantId TENANT_ID = TenantId.fromUUID(UUID.randomUUID());
+
+    @Mock
+    private ActorSystemContext actorContext;
+    @Mock
+    private TbRuleEngineQueueFactory queueFactory;
+    @Mock
+    private TbQueueConsumer<TbProtoQueueMsg<ToRuleEngineMsg>> consumer;
+    @Mock
+    private TbRuleEngineConsumerStats stats;
+
+    private DefaultTbRuleEngineConsumerService service;
+    private final AtomicBoolean consumerStopped = new AtomicBoolean();
+    private final Map<DeviceId, QueueToRuleEngineMsg> heldMsgs = new ConcurrentHashMap<>();
+    private final AtomicInteger processedCount = new AtomicInteger();
+    private Thread loopThread;
+
+    @Before
+    public void setUp() {
+        service = new DefaultTbRuleEngineConsumerService(new TbRuleEngineProcessingStrategyFactory(), new TbRuleEngineSubmitStrategyFactory(),
+                queueFactory, null, actorContext, null, null, null, null, null, null, null, null, null, null);
+        ReflectionTestUtils.setField(service, "pollDuration", 10L);
+        when(consumer.isStopped()).thenAnswer(inv -> consumerStopped.get());
+    }
+
+    @After
+    public void tearDown() throws InterruptedException {
+        consumerStopped.set(true);
+        if (loopThread != null) {
+            loopThread.join(TimeUnit.SECONDS.toMillis(5));
+        }
+        service.submitExecutor.shutdownNow();
+        service.repartitionExecutor.shutdownNow();
+    }
+
+    @Test
+    public void givenSlowMsg_whenPipelined_thenNextPackProcessedAndCommitWaitsForSlowMsg() {
+        DeviceId slowDevice = new DeviceId(UUID.randomUUID());
+        DeviceId fastDevice = new DeviceId(UUID.randomUUID());
+        List<TbProtoQueueMsg<ToRuleEngineMsg>> firstPoll = List.of(toQueueMsg(slowDevice), toQueueMsg(fastDevice));
+        List<TbProtoQueueMsg<ToRuleEngineMsg>> secondPoll = List.of(toQueueMsg(fastDevice));
+        when(consumer.poll(anyLong())).thenReturn(firstPoll, secondPoll, Collections.emptyList());
+        holdMsgsOf(slowDevice);
+
+        startLoop(queue(SubmitStrategyType.BURST, 100));
+
+        await().atMost(10, TimeUnit.SECONDS).until(() -> processedCount.get() == 3);
+        verify(consumer, never()).commit(any(List.class));
+
+        heldMsgs.remove(slowDevice).getMsg().getCallback().onSuccess();
+
+        verify(consumer, timeout(10000)).commit(secondPoll);
+        verify(consumer, never()).commit(firstPoll);
+    }
+
+    @Test
+    public void givenSequentialByOriginator_whenPipelined_thenLaterPackWaitsForSameOriginator() throws InterruptedException {
+        DeviceId device = new DeviceId(UUID.randomUUID());
+        DeviceId otherDevice = new DeviceId(UUID.randomUUID());
+        List<TbProtoQueueMsg<ToRuleEngineMsg>> firstPoll = List.of(toQueueMsg(device));
+        List<TbProtoQueueMsg<ToRuleEngineMsg>> secondPoll = List.of(toQueueMsg(device), toQueueMsg(otherDevice));
+        when(consumer.poll(anyLong())).thenReturn(firstPoll, secondPoll, Collections.emptyList());
+        holdMsgsOf(device);
+
+        startLoop(queue(SubmitStrategyType.SEQUENTIAL_BY_ORIGINATOR, 100));
+
+        await().atMost(10, TimeUnit.SECONDS).until(() -> processedCount.get() == 2);
+        Thread.sleep(100);
+        assertThat(processedCount.get()).isEqualTo(2);
+
+        heldMsgs.remove(device).getMsg().getCallback().onSuccess();
+
+        verify(actorContext, timeout(10000).times(3)).tell(any());
+        await().atMost(10, TimeUnit.SECONDS).until(() -> heldMsgs.containsKey(device));
+        heldMsgs.remove(device).getMsg().getCallback().onSuccess();
+
+        verify(consumer, timeout(10000)).commit(secondPoll);
+    }
+
+    @Test
+    public void givenFullWindow_whenPipelined_thenNoPollUntilMsgsProcessed() throws InterruptedException {
+        DeviceId slowDevice = new DeviceId(UUID.randomUUID());
+        List<TbProtoQueueMsg<ToRuleEngineMsg>> firstPoll = List.of(toQueueMsg(slowDevice), toQueueMsg(slowDevice));
+        CountDownLatch polledAgain = new CountDownLatch(2);
+        when(consumer.poll(anyLong())).thenAnswer(inv -> {
+            polledAgain.countDown();
+            return polledAgain.getCount() == 1 ? firstPoll : Collections.emptyList();
+        });
+        holdMsgsOf(slowDevice);
+
+        startLoop(queue(SubmitStrategyType.BURST, 2));
+
+        assertThat(polledAgain.await(500, TimeUnit.MILLISECONDS)).isFalse();
+    }
+
+    private void startLoop(Queue queue) {
+        when(consumer.isPartialCommitSupported()).thenReturn(true);
+        loopThread = new Thread(() -> service.consumerLoop(consumer, queue, stats, "test"));
+        loopThread.start();
+    }
+
+    private void holdMsgsOf(DeviceId deviceId) {
+        doAnswer(inv -> {
+            QueueToRuleEngineMsg msg = inv.getArgument(0);
+            processedCount.incrementAndGet();
+            if (msg.getMsg().getOriginator().equals(deviceId)) {
+                heldMsgs.put(deviceId, msg);
+            } else {
+                msg.getMsg().getCallback().onSuccess();
+            }
+            return null;
+        }).when(actorContext).tell(any());
+    }
+
+    private Queue queue(SubmitStrategyType submitStrategyType, int maxInFlightMsgs) {
+        Queue queue = new Queue();
+        queue.setName("Main");
+        queue.setPackProcessingTimeout(TimeUnit.MINUTES.toMillis(1));
+        SubmitStrategy submitStrategy = new SubmitStrategy();
+        submitStrategy.setType(submitStrategyType);
+        submitStrategy.setMode(SubmitMode.PIPELINED);
+        submitStrategy.setMaxInFlightMsgs(maxInFlightMsgs);
+        queue.setSubmitStrategy(submitStrategy);
+        ProcessingStrategy processingStrategy = new ProcessingStrategy();
+        processingStrategy.setType(ProcessingStrategyType.SKIP_ALL_FAILURES);
+        queue.setProcessingStrategy(processingStrategy);
+        return queue;
+    }
+
+    private TbProtoQueueMsg<ToRuleEngineMsg> toQueueMsg(DeviceId deviceId) {
+        TbMsg tbMsg = TbMsg.newMsg("TEST", deviceId, new TbMsgMetaData(), "{}");
+        ToRuleEngineMsg msg = ToRuleEngineMsg.newBuilder()
+                .setTenantIdMSB(TENANT_ID.getId().getMostSignificantBits())
+                .setTenantIdLSB(TENANT_ID.getId().getLeastSignificantBits())
+                .setTbMsg(TbMsg.toByteString(tbMsg))
+                .build();
+        return new TbProtoQueueMsg<>(UUID.randomUUID(), msg);
+    }
+
+}
@@ -0,0 +1,68 @@
+/**
+ * Copyright © 2016-2023 The Linkstuffs Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.service.queue;
+
+import io.micrometer.core.instrument.Counter;
+import org.junit.Before;
+import org.junit.Test;
+import org.thingsboard.server.common.data.id.DeviceId;
+import org.thingsboard.server.common.msg.TbMsg;
+import org.thingsboard.server.common.msg.TbMsgMetaData;
+import org.thingsboard.server.common.stats.StatsCounter;
+import org.thingsboard.server.common.stats.StatsFactory;
+
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.willAnswer;
+import static org.mockito.Mockito.mock;
+
+public class TbRuleEngineMsgDataStatsTest {
+
+    private TbRuleEngineMsgDataStats stats;
+
+    @Before
+    public void setUp() {
+        StatsFactory statsFactory = mock(StatsFactory.class);
+        willAnswer(invocation -> new StatsCounter(new AtomicInteger(), mock(Counter.class), invocation.getArgument(1)))
+                .given(statsFactory).createStatsCounter(eq("ruleEngine.msgData"), anyString());
+        stats = new TbRuleEngineMsgDataStats(statsFactory);
+        stats.collect();
+        stats.reset();
+    }
+
+    @Test
+    public void givenMsgDataParsedAndReused_whenCollect_thenCountersUpdated() {
+        TbMsg msg = TbMsg.newMsg("POST_TELEMETRY_REQUEST", new DeviceId(UUID.randomUUID()), new TbMsgMetaData(), "{\"temperature\":42}");
+        msg.getDataAsJson();
+        msg.getDataAsJson();
+        TbMsg.transformMsg(msg, new TbMsgMetaData()).getDataAsJson();
+
+        stats.collect();
+
+        assertThat(stats.getParsed()).isGreaterThanOrEqualTo(1);
+        assertThat(stats.getReused()).isGreaterThanOrEqualTo(2);
+
+        stats.reset();
+
+        assertThat(stats.getParsed()).isZero();
+        assertThat(stats.getReused()).isZero();
+    }
+
+}
@@ -0,0 +1,112 @@
+/**
+ * Copyright © 2016-2023 The Linkstuffs Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.service.queue.processing;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TbMsgOrderingGateTest {
+
+    private final TbMsgOrderingGate gate = new TbMsgOrderingGate();
+    private final List<UUID> submitted = new ArrayList<>();
+
+    @Test
+    public void givenSameKey_whenLaterMsgSubmittedFirst_thenWaitsForEarlierMsg() {
+        UUID first = UUID.randomUUID();
+        UUID second = UUID.randomUUID();
+        gate.register(first, "device");
+        gate.register(second, "device");
+
+        submit(second);
+        assertThat(submitted).isEmpty();
+
+        submit(first);
+        assertThat(submitted).containsExactly(first);
+
+        gate.complete(first);
+        assertThat(submitted).containsExactly(first, second);
+
+        gate.complete(second);
+        assertThat(gate.size()).isZero();
+    }
+
+    @Test
+    public void givenDifferentKeys_whenSubmitted_thenNotBlocked() {
+        UUID first = UUID.randomUUID();
+        UUID second = UUID.randomUUID();
+        gate.register(first, "device1");
+        gate.register(second, "device2");
+
+        submit(second);
+        submit(first);
+
+        assertThat(submitted).containsExactly(second, first);
+    }
+
+    @Test
+    public void givenNoKey_whenSubmitted_thenRunsImmediately() {
+        UUID id = UUID.randomUUID();
+        gate.register(id, null);
+
+        submit(id);
+
+        assertThat(submitted).containsExactly(id);
+        assertThat(gate.size()).isZero();
+    }
+
+    @Test
+    public void givenWaitingMsg_whenEarlierMsgReleased_thenSubmitted() {
+        UUID first = UUID.randomUUID();
+        UUID second = UUID.randomUUID();
+        UUID third = UUID.randomUUID();
+        gate.register(first, "device");
+        gate.register(second, "device");
+        gate.register(third, "device");
+        submit(first);
+        submit(third);
+
+        gate.release(List.of(first, second));
+
+        assertThat(submitted).containsExactly(first, third);
+    }
+
+    @Test
+    public void givenCanceledWaitingMsg_whenEarlierMsgCompleted_thenNotSubmittedUntilResubmit() {
+        UUID first = UUID.randomUUID();
+        UUID second = UUID.randomUUID();
+        gate.register(first, "device");
+        gate.register(second, "device");
+        submit(first);
+        submit(second);
+
+        gate.cancelWaiting(List.of(second));
+        gate.complete(first);
+        assertThat(submitted).containsExactly(first);
+
+        submit(second);
+        assertThat(submitted).containsExactly(first, second);
+    }
+
+    private void submit(UUID id) {
+        gate.submit(id, () -> submitted.add(id));
+    }
+
+}
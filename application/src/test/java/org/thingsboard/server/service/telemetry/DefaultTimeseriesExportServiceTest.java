@@ -0,0 +1,120 @@
+/**
+ * Copyright © 2016-2023 The Linkstuffs Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.service.telemetry;
+
+import com.google.common.util.concurrent.Futures;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.thingsboard.server.common.data.id.DeviceId;
+import org.thingsboard.server.common.data.id.TenantId;
+import org.thingsboard.server.common.data.kv.BasicTsKvEntry;
+import org.thingsboard.server.common.data.kv.JsonDataEntry;
+import org.thingsboard.server.common.data.kv.LongDataEntry;
+import org.thingsboard.server.common.data.kv.ReadTsKvQuery;
+import org.thingsboard.server.common.data.kv.StringDataEntry;
+import org.thingsboard.server.common.data.kv.TsKvEntry;
+import org.thingsboard.server.dao.timeseries.TimeseriesService;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.willReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+class DefaultTimeseriesExportServiceTest {
+
+    final TenantId tenantId = TenantId.fromUUID(UUID.randomUUID());
+    final DeviceId deviceId = new DeviceId(UUID.randomUUID());
+
+    TimeseriesService tsService;
+    DefaultTimeseriesExportService exportService;
+
+    @BeforeEach
+    void setUp() {
+        tsService = mock(TimeseriesService.class);
+        exportService = new DefaultTimeseriesExportService(tsService);
+        ReflectionTestUtils.setField(exportService, "pageSize", 2);
+    }
+
+    @Test
+    void givenSeveralPages_whenExport_thenCursorMovesAfterLastTs() throws Exception {
+        willReturn(Futures.immediateFuture(Arrays.asList(entry("t", 10, 1L), entry("t", 20, 2L))))
+                .willReturn(Futures.immediateFuture(Collections.singletonList(entry("t", 30, 3L))))
+                .given(tsService).findAll(eq(tenantId), eq(deviceId), any());
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        exportService.export(tenantId, deviceId, List.of("t"), 0, 100, TsExportFormat.NDJSON, true, out);
+
+        assertThat(out.toString(StandardCharsets.UTF_8)).isEqualTo(
+                "{\"key\":\"t\",\"ts\":10,\"value\":1}\n" +
+                "{\"key\":\"t\",\"ts\":20,\"value\":2}\n" +
+                "{\"key\":\"t\",\"ts\":30,\"value\":3}\n");
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<ReadTsKvQuery>> captor = ArgumentCaptor.forClass(List.class);
+        verify(tsService, times(2)).findAll(eq(tenantId), eq(deviceId), captor.capture());
+        List<List<ReadTsKvQuery>> queries = captor.getAllValues();
+        assertThat(queries.get(0).get(0).getStartTs()).isEqualTo(0);
+        assertThat(queries.get(1).get(0).getStartTs()).isEqualTo(21);
+        assertThat(queries.get(1).get(0).getEndTs()).isEqualTo(100);
+        assertThat(queries.get(1).get(0).getOrder()).isEqualTo("ASC");
+    }
+
+    @Test
+    void givenJsonValue_whenExportStrict_thenJsonIsWrittenAsIs() throws Exception {
+        willReturn(Futures.immediateFuture(Collections.singletonList(new BasicTsKvEntry(5, new JsonDataEntry("j", "{\"a\":1}")))))
+                .given(tsService).findAll(eq(tenantId), eq(deviceId), any());
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        exportService.export(tenantId, deviceId, List.of("j"), 0, 100, TsExportFormat.NDJSON, true, out);
+
+        assertThat(out.toString(StandardCharsets.UTF_8)).isEqualTo("{\"key\":\"j\",\"ts\":5,\"value\":{\"a\":1}}\n");
+    }
+
+    @Test
+    void givenSpecialCharacters_whenExportCsv_thenValuesAreQuoted() throws Exception {
+        ReflectionTestUtils.setField(exportService, "pageSize", 10);
+        willReturn(Futures.immediateFuture(Arrays.asList(
+                new BasicTsKvEntry(1, new StringDataEntry("s", "plain")),
+                new BasicTsKvEntry(2, new StringDataEntry("s", "a,\"b\"")))))
+                .given(tsService).findAll(eq(tenantId), eq(deviceId), any());
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        exportService.export(tenantId, deviceId, List.of("s"), 0, 100, TsExportFormat.CSV, false, out);
+
+        assertThat(out.toString(StandardCharsets.UTF_8)).isEqualTo(
+                "key,ts,value\n" +
+                "s,1,plain\n" +
+                "s,2,\"a,\"\"b\"\"\"\n");
+        verify(tsService, times(1)).findAll(eq(tenantId), eq(deviceId), any());
+    }
+
+    private static TsKvEntry entry(String key, long ts, long value) {
+        return new BasicTsKvEntry(ts, new LongDataEntry(key, value));
+    }
+
+}
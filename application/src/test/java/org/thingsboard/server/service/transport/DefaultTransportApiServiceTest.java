@@ -0,0 +1,128 @@
+/**
+ * Copyright © 2016-2023 The Linkstuffs Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.service.transport;
+
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.common.util.concurrent.Futures;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.thingsboard.common.util.JacksonUtil;
+import org.thingsboard.server.common.data.DataConstants;
+import org.thingsboard.server.common.data.Device;
+import org.thingsboard.server.common.data.device.data.DefaultDeviceConfiguration;
+import org.thingsboard.server.common.data.device.data.DefaultDeviceTransportConfiguration;
+import org.thingsboard.server.common.data.device.data.DeviceData;
+import org.thingsboard.server.common.data.id.DeviceId;
+import org.thingsboard.server.common.data.id.DeviceProfileId;
+import org.thingsboard.server.common.data.id.TenantId;
+import org.thingsboard.server.dao.device.DeviceService;
+import org.thingsboard.server.gen.transport.TransportProtos.GetOrCreateDeviceFromGatewayRequestMsg;
+import org.thingsboard.server.gen.transport.TransportProtos.GetOrCreateDeviceFromGatewayResponseMsg;
+import org.thingsboard.server.gen.transport.TransportProtos.GetOrCreateDevicesFromGatewayRequestMsg;
+import org.thingsboard.server.gen.transport.TransportProtos.TransportApiRequestMsg;
+import org.thingsboard.server.gen.transport.TransportProtos.TransportApiResponseMsg;
+import org.thingsboard.server.queue.common.TbProtoQueueMsg;
+import org.thingsboard.server.service.executors.DbCallbackExecutorService;
+import org.thingsboard.server.service.profile.TbDeviceProfileCache;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.BDDMockito.willReturn;
+import static org.mockito.BDDMockito.willThrow;
+
+@RunWith(MockitoJUnitRunner.class)
+public class DefaultTransportApiServiceTest {
+
+    private static final TenantId TENANT_ID = TenantId.fromUUID(UUID.randomUUID());
+
+    @Mock
+    private DeviceService deviceService;
+    @Mock
+    private TbDeviceProfileCache deviceProfileCache;
+
+    private DbCallbackExecutorService dbCallbackExecutorService;
+    private DefaultTransportApiService service;
+
+    @Before
+    public void setUp() {
+        dbCallbackExecutorService = new DbCallbackExecutorService();
+        ReflectionTestUtils.setField(dbCallbackExecutorService, "dbCallbackExecutorThreadPoolSize", 4);
+        dbCallbackExecutorService.init();
+        service = new DefaultTransportApiService(deviceProfileCache, null, null, deviceService, null, null,
+                dbCallbackExecutorService, null, null, null, null, null, null, null);
+    }
+
+    @After
+    public void tearDown() {
+        dbCallbackExecutorService.destroy();
+    }
+
+    @Test
+    public void givenOneDeviceFails_whenGetOrCreateDevicesFromGateway_thenOnlyThatResponseHasNoDeviceInfo() throws Exception {
+        Device gateway = newDevice("Gateway", null);
+        willReturn(Futures.immediateFuture(gateway)).given(deviceService).findDeviceByIdAsync(TenantId.SYS_TENANT_ID, gateway.getId());
+        willReturn(newDevice("Device A", gateway.getId())).given(deviceService).findDeviceByTenantIdAndName(TENANT_ID, "Device A");
+        willThrow(new RuntimeException("Database is unavailable")).given(deviceService).findDeviceByTenantIdAndName(TENANT_ID, "Device B");
+        willReturn(newDevice("Device C", gateway.getId())).given(deviceService).findDeviceByTenantIdAndName(TENANT_ID, "Device C");
+
+        GetOrCreateDevicesFromGatewayRequestMsg.Builder requestMsg = GetOrCreateDevicesFromGatewayRequestMsg.newBuilder();
+        for (String deviceName : List.of("Device A", "Device B", "Device C")) {
+            requestMsg.addRequests(GetOrCreateDeviceFromGatewayRequestMsg.newBuilder()
+                    .setGatewayIdMSB(gateway.getUuidId().getMostSignificantBits())
+                    .setGatewayIdLSB(gateway.getUuidId().getLeastSignificantBits())
+                    .setDeviceName(deviceName)
+                    .setDeviceType("default"));
+        }
+        TransportApiRequestMsg request = TransportApiRequestMsg.newBuilder().setGetOrCreateDevicesRequestMsg(requestMsg).build();
+
+        TransportApiResponseMsg response = service.handle(new TbProtoQueueMsg<>(UUID.randomUUID(), request)).get(10, TimeUnit.SECONDS).getValue();
+
+        List<GetOrCreateDeviceFromGatewayResponseMsg> responses = response.getGetOrCreateDevicesResponseMsg().getResponsesList();
+        assertThat(responses).hasSize(3);
+        assertThat(responses.get(0).hasDeviceInfo()).isTrue();
+        assertThat(responses.get(0).getDeviceInfo().getDeviceName()).isEqualTo("Device A");
+        assertThat(responses.get(1).hasDeviceInfo()).isFalse();
+        assertThat(responses.get(2).hasDeviceInfo()).isTrue();
+        assertThat(responses.get(2).getDeviceInfo().getDeviceName()).isEqualTo("Device C");
+    }
+
+    private static Device newDevice(String name, DeviceId gatewayId) {
+        Device device = new Device(new DeviceId(UUID.randomUUID()));
+        device.setTenantId(TENANT_ID);
+        device.setName(name);
+        device.setType("default");
+        device.setDeviceProfileId(new DeviceProfileId(UUID.randomUUID()));
+        DeviceData deviceData = new DeviceData();
+        deviceData.setConfiguration(new DefaultDeviceConfiguration());
+        deviceData.setTransportConfiguration(new DefaultDeviceTransportConfiguration());
+        device.setDeviceData(deviceData);
+        ObjectNode additionalInfo = JacksonUtil.newObjectNode();
+        if (gatewayId != null) {
+            additionalInfo.put(DataConstants.LAST_CONNECTED_GATEWAY, gatewayId.toString());
+        }
+        device.setAdditionalInfo(additionalInfo);
+        return device;
+    }
+
+}
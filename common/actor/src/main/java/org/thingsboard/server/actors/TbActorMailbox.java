@@ -23,6 +23,7 @@ import org.thingsboard.server.common.msg.TbActorMsg;
 import org.thingsboard.server.common.msg.TbActorStopReason;
 
 import java.util.List;
+import java.util.Queue;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -47,13 +48,32 @@ public final class TbActorMailbox implements TbActorCtx {
     private final TbActorRef parentRef;
     private final TbActor actor;
     private final Dispatcher dispatcher;
-    private final ConcurrentLinkedQueue<TbActorMsg> highPriorityMsgs = new ConcurrentLinkedQueue<>();
-    private final ConcurrentLinkedQueue<TbActorMsg> normalPriorityMsgs = new ConcurrentLinkedQueue<>();
+    private final TbActorMailboxType mailboxType;
+    private final Queue<TbActorMsg> highPriorityMsgs;
+    private final Queue<TbActorMsg> normalPriorityMsgs;
     private final AtomicBoolean busy = new AtomicBoolean(FREE);
     private final AtomicBoolean ready = new AtomicBoolean(NOT_READY);
     private final AtomicBoolean destroyInProgress = new AtomicBoolean();
     private volatile TbActorStopReason stopReason;
 
+    public TbActorMailbox(TbActorSystem system, TbActorSystemSettings settings, TbActorId selfId, TbActorRef parentRef,
+                          TbActor actor, Dispatcher dispatcher) {
+        this.system = system;
+        this.settings = settings;
+        this.selfId = selfId;
+        this.parentRef = parentRef;
+        this.actor = actor;
+        this.dispatcher = dispatcher;
+        this.mailboxType = settings.getMailboxType(dispatcher.getDispatcherId());
+        if (mailboxType == TbActorMailboxType.MPSC) {
+            this.highPriorityMsgs = new TbMpscQueue<>();
+            this.normalPriorityMsgs = new TbMpscQueue<>();
+        } else {
+            this.highPriorityMsgs = new ConcurrentLinkedQueue<>();
+            this.normalPriorityMsgs = new ConcurrentLinkedQueue<>();
+        }
+    }
+
     public void initActor() {
         dispatcher.getExecutor().execute(() -> tryInit(1));
     }
@@ -115,7 +135,7 @@ public final class TbActorMailbox implements TbActorCtx {
 
     private void tryProcessQueue(boolean newMsg) {
         if (ready.get() == READY) {
-            if (newMsg || !highPriorityMsgs.isEmpty() || !normalPriorityMsgs.isEmpty()) {
+            if (newMsg || hasPendingMsgs()) {
                 if (busy.compareAndSet(FREE, BUSY)) {
                     dispatcher.getExecutor().execute(this::processMailbox);
                 } else {
@@ -130,26 +150,15 @@ public final class TbActorMailbox implements TbActorCtx {
     }
 
     private void processMailbox() {
+        if (mailboxType == TbActorMailboxType.MPSC) {
+            processMailboxBatch();
+            return;
+        }
         boolean noMoreElements = false;
         for (int i = 0; i < settings.getActorThroughput(); i++) {
-            TbActorMsg msg = highPriorityMsgs.poll();
-            if (msg == null) {
-                msg = normalPriorityMsgs.poll();
-            }
+            TbActorMsg msg = pollMsg();
             if (msg != null) {
-                try {
-                    log.debug("[{}] Going to process message: {}", selfId, msg);
-                    actor.process(msg);
-                } catch (TbRuleNodeUpdateException updateException) {
-                    stopReason = TbActorStopReason.INIT_FAILED;
-                    destroy();
-                } catch (Throwable t) {
-                    log.debug("[{}] Failed to process message: {}", selfId, msg, t);
-                    ProcessFailureStrategy strategy = actor.onProcessFailure(t);
-                    if (strategy.isStop()) {
-                        system.stop(selfId);
-                    }
-                }
+                processMsg(msg);
             } else {
                 noMoreElements = true;
                 break;
@@ -163,6 +172,57 @@ public final class TbActorMailbox implements TbActorCtx {
         }
     }
 
+    /**
+     * Drains up to mailboxBatchSize messages in one dispatcher task. When the mailbox runs empty it is released and re-acquired
+     * in place if new messages raced in, so the executor only sees a new task when the batch is exhausted.
+     */
+    private void processMailboxBatch() {
+        int batchSize = settings.getMailboxBatchSize();
+        int processed = 0;
+        while (processed < batchSize) {
+            TbActorMsg msg = pollMsg();
+            if (msg != null) {
+                processMsg(msg);
+                processed++;
+            } else {
+                busy.set(FREE);
+                if (ready.get() == READY && hasPendingMsgs() && busy.compareAndSet(FREE, BUSY)) {
+                    continue;
+                }
+                return;
+            }
+        }
+        dispatcher.getExecutor().execute(this::processMailbox);
+    }
+
+    private TbActorMsg pollMsg() {
+        TbActorMsg msg = highPriorityMsgs.poll();
+        if (msg == null) {
+            msg = normalPriorityMsgs.poll();
+        }
+        return msg;
+    }
+
+    private boolean hasPendingMsgs() {
+        return !highPriorityMsgs.isEmpty() || !normalPriorityMsgs.isEmpty();
+    }
+
+    private void processMsg(TbActorMsg msg) {
+        try {
+            log.debug("[{}] Going to process message: {}", selfId, msg);
+            actor.process(msg);
+        } catch (TbRuleNodeUpdateException updateException) {
+            stopReason = TbActorStopReason.INIT_FAILED;
+            destroy();
+        } catch (Throwable t) {
+            log.debug("[{}] Failed to process message: {}", selfId, msg, t);
+            ProcessFailureStrategy strategy = actor.onProcessFailure(t);
+            if (strategy.isStop()) {
+                system.stop(selfId);
+            }
+        }
+    }
+
     @Override
     public TbActorId getSelf() {
         return selfId;
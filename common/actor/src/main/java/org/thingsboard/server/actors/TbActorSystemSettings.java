@@ -17,11 +17,33 @@ package org.thingsboard.server.actors;
 
 import lombok.Data;
 
+import java.util.Collections;
+import java.util.Map;
+
 @Data
 public class TbActorSystemSettings {
 
     private final int actorThroughput;
     private final int schedulerPoolSize;
     private final int maxActorInitAttempts;
+    private final Map<String, TbActorMailboxType> mailboxTypes;
+    private final int mailboxBatchSize;
+
+    public TbActorSystemSettings(int actorThroughput, int schedulerPoolSize, int maxActorInitAttempts) {
+        this(actorThroughput, schedulerPoolSize, maxActorInitAttempts, Collections.emptyMap(), actorThroughput);
+    }
+
+    public TbActorSystemSettings(int actorThroughput, int schedulerPoolSize, int maxActorInitAttempts,
+                                 Map<String, TbActorMailboxType> mailboxTypes, int mailboxBatchSize) {
+        this.actorThroughput = actorThroughput;
+        this.schedulerPoolSize = schedulerPoolSize;
+        this.maxActorInitAttempts = maxActorInitAttempts;
+        this.mailboxTypes = mailboxTypes != null ? mailboxTypes : Collections.emptyMap();
+        this.mailboxBatchSize = mailboxBatchSize > 0 ? mailboxBatchSize : actorThroughput;
+    }
+
+    public TbActorMailboxType getMailboxType(String dispatcherId) {
+        return mailboxTypes.getOrDefault(dispatcherId, TbActorMailboxType.DEFAULT);
+    }
 
 }
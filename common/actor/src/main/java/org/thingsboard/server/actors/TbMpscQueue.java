@@ -0,0 +1,145 @@
+/**
+ * Copyright © 2016-2023 The Linkstuffs Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.actors;
+
+import java.util.AbstractQueue;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
+/**
+ * Unbounded multi-producer single-consumer linked queue (Vyukov). Producers publish with a single getAndSet on the tail,
+ * the consumer advances the head without any CAS. {@link #poll()} and {@link #peek()} must only be called by the single consumer,
+ * iteration is weakly consistent and may be done from any thread.
+ */
+final class TbMpscQueue<E> extends AbstractQueue<E> {
+
+    @SuppressWarnings("rawtypes")
+    private static final AtomicReferenceFieldUpdater<Node, Node> NEXT_UPDATER =
+            AtomicReferenceFieldUpdater.newUpdater(Node.class, Node.class, "next");
+
+    private final AtomicReference<Node<E>> tail;
+    private volatile Node<E> head;
+
+    TbMpscQueue() {
+        Node<E> stub = new Node<>(null);
+        head = stub;
+        tail = new AtomicReference<>(stub);
+    }
+
+    @Override
+    public boolean offer(E e) {
+        if (e == null) {
+            throw new NullPointerException();
+        }
+        Node<E> node = new Node<>(e);
+        Node<E> prev = tail.getAndSet(node);
+        NEXT_UPDATER.lazySet(prev, node);
+        return true;
+    }
+
+    @Override
+    public E poll() {
+        Node<E> next = nextOfHead();
+        if (next == null) {
+            return null;
+        }
+        E value = next.value;
+        next.value = null;
+        head = next;
+        return value;
+    }
+
+    @Override
+    public E peek() {
+        Node<E> next = nextOfHead();
+        return next != null ? next.value : null;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return head == tail.get();
+    }
+
+    @Override
+    public int size() {
+        int size = 0;
+        for (Node<E> node = head.next; node != null && size < Integer.MAX_VALUE; node = node.next) {
+            size++;
+        }
+        return size;
+    }
+
+    @Override
+    public Iterator<E> iterator() {
+        return new Iterator<>() {
+            private Node<E> node = head;
+            private E nextValue = advance();
+
+            @Override
+            public boolean hasNext() {
+                return nextValue != null;
+            }
+
+            @Override
+            public E next() {
+                E value = nextValue;
+                if (value == null) {
+                    throw new NoSuchElementException();
+                }
+                nextValue = advance();
+                return value;
+            }
+
+            private E advance() {
+                while (node != null) {
+                    node = node.next;
+                    if (node != null) {
+                        E value = node.value;
+                        if (value != null) {
+                            return value;
+                        }
+                    }
+                }
+                return null;
+            }
+        };
+    }
+
+    private Node<E> nextOfHead() {
+        Node<E> currentHead = head;
+        Node<E> next = currentHead.next;
+        if (next == null && currentHead != tail.get()) {
+            // A producer has swapped the tail but has not linked its node yet, wait for it instead of reporting an empty queue.
+            do {
+                Thread.onSpinWait();
+                next = currentHead.next;
+            } while (next == null);
+        }
+        return next;
+    }
+
+    private static final class Node<E> {
+        private volatile E value;
+        private volatile Node<E> next;
+
+        private Node(E value) {
+            this.value = value;
+        }
+    }
+
+}
@@ -54,11 +54,15 @@ public class ActorSystemTest {
     public void initActorSystem() {
         int cores = Runtime.getRuntime().availableProcessors();
         parallelism = Math.max(2, cores / 2);
-        TbActorSystemSettings settings = new TbActorSystemSettings(5, parallelism, 42);
+        TbActorSystemSettings settings = createSettings(parallelism);
         actorSystem = new DefaultTbActorSystem(settings);
         submitPool = Executors.newFixedThreadPool(parallelism, ThingsBoardThreadFactory.forName(getClass().getSimpleName() + "-submit-test-scope")); //order guaranteed
     }
 
+    protected TbActorSystemSettings createSettings(int parallelism) {
+        return new TbActorSystemSettings(5, parallelism, 42);
+    }
+
     @After
     public void shutdownActorSystem() {
         actorSystem.stop();
@@ -0,0 +1,198 @@
+/**
+ * Copyright © 2016-2023 The Linkstuffs Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.actors;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.thingsboard.common.util.ThingsBoardExecutors;
+import org.thingsboard.server.common.data.id.DeviceId;
+import org.thingsboard.server.common.msg.TbActorMsg;
+
+import java.util.Collections;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Tell throughput, fan-out to children and actor creation on {@link DefaultTbActorSystem} for each mailbox type.
+ * <p>
+ * Run with: mvn -pl common/actor test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=org.thingsboard.server.actors.DefaultTbActorSystemBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DefaultTbActorSystemBenchmark {
+
+    private static final String DISPATCHER = "benchmark-dispatcher";
+    private static final int MESSAGES = 10_000;
+    private static final int CHILDREN = 1_000;
+    private static final int CREATED_ACTORS = 1_000;
+
+    @Param({"DEFAULT", "MPSC"})
+    private TbActorMailboxType mailboxType;
+
+    @Param({"1", "100"})
+    private int actors;
+
+    @Param({"4"})
+    private int dispatcherThreads;
+
+    private final AtomicLong processed = new AtomicLong();
+    private final AtomicLong initialized = new AtomicLong();
+    private ExecutorService executor;
+    private TbActorSystem system;
+    private TbActorRef[] targets;
+    private TbActorId parentId;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        TbActorSystemSettings settings = new TbActorSystemSettings(5, 1, 0,
+                Collections.singletonMap(DISPATCHER, mailboxType), 100);
+        system = new DefaultTbActorSystem(settings);
+        executor = ThingsBoardExecutors.newWorkStealingPool(dispatcherThreads, getClass());
+        system.createDispatcher(DISPATCHER, executor);
+        targets = new TbActorRef[actors];
+        for (int i = 0; i < actors; i++) {
+            targets[i] = system.createRootActor(DISPATCHER, new CountingActor.Creator(newActorId(), processed, initialized));
+        }
+        parentId = newActorId();
+        system.createRootActor(DISPATCHER, new CountingActor.Creator(parentId, new AtomicLong(), initialized));
+        for (int i = 0; i < CHILDREN; i++) {
+            system.createChildActor(DISPATCHER, new CountingActor.Creator(newActorId(), processed, initialized), parentId);
+        }
+        awaitCount(initialized, actors + 1 + CHILDREN);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        system.stop();
+        executor.shutdownNow();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(MESSAGES)
+    public void tell() {
+        long target = processed.get() + MESSAGES;
+        TbActorMsg msg = new IntTbActorMsg(1);
+        for (int i = 0; i < MESSAGES; i++) {
+            targets[i % targets.length].tell(msg);
+        }
+        awaitCount(processed, target);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CHILDREN)
+    public void fanOut() {
+        long target = processed.get() + CHILDREN;
+        system.broadcastToChildren(parentId, new IntTbActorMsg(1));
+        awaitCount(processed, target);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CREATED_ACTORS)
+    public void createActor() {
+        long target = initialized.get() + CREATED_ACTORS;
+        TbActorId[] created = new TbActorId[CREATED_ACTORS];
+        for (int i = 0; i < CREATED_ACTORS; i++) {
+            created[i] = newActorId();
+            system.createRootActor(DISPATCHER, new CountingActor.Creator(created[i], new AtomicLong(), initialized));
+        }
+        awaitCount(initialized, target);
+        for (TbActorId actorId : created) {
+            system.stop(actorId);
+        }
+    }
+
+    private static void awaitCount(AtomicLong counter, long target) {
+        while (counter.get() < target) {
+            Thread.onSpinWait();
+        }
+    }
+
+    private static TbActorId newActorId() {
+        return new TbEntityActorId(new DeviceId(UUID.randomUUID()));
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(DefaultTbActorSystemBenchmark.class.getSimpleName()).build()).run();
+    }
+
+    private static class CountingActor extends AbstractTbActor {
+
+        private final AtomicLong processed;
+        private final AtomicLong initialized;
+
+        CountingActor(AtomicLong processed, AtomicLong initialized) {
+            this.processed = processed;
+            this.initialized = initialized;
+        }
+
+        @Override
+        public void init(TbActorCtx ctx) throws TbActorException {
+            super.init(ctx);
+            initialized.incrementAndGet();
+        }
+
+        @Override
+        public boolean process(TbActorMsg msg) {
+            processed.incrementAndGet();
+            return true;
+        }
+
+        private static class Creator implements TbActorCreator {
+
+            private final TbActorId actorId;
+            private final AtomicLong processed;
+            private final AtomicLong initialized;
+
+            Creator(TbActorId actorId, AtomicLong processed, AtomicLong initialized) {
+                this.actorId = actorId;
+                this.processed = processed;
+                this.initialized = initialized;
+            }
+
+            @Override
+            public TbActorId createActorId() {
+                return actorId;
+            }
+
+            @Override
+            public TbActor createActor() {
+                return new CountingActor(processed, initialized);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,106 @@
+/**
+ * Copyright © 2016-2023 The Linkstuffs Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.actors;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+public class TbMpscQueueTest {
+
+    @Test
+    public void testFifoOrder() {
+        TbMpscQueue<Integer> queue = new TbMpscQueue<>();
+        Assert.assertTrue(queue.isEmpty());
+        Assert.assertNull(queue.poll());
+        for (int i = 0; i < 10; i++) {
+            queue.offer(i);
+        }
+        Assert.assertFalse(queue.isEmpty());
+        Assert.assertEquals(10, queue.size());
+        Assert.assertEquals(Integer.valueOf(0), queue.peek());
+        for (int i = 0; i < 10; i++) {
+            Assert.assertEquals(Integer.valueOf(i), queue.poll());
+        }
+        Assert.assertTrue(queue.isEmpty());
+        Assert.assertNull(queue.poll());
+    }
+
+    @Test
+    public void testIteratorSkipsConsumed() {
+        TbMpscQueue<Integer> queue = new TbMpscQueue<>();
+        for (int i = 0; i < 5; i++) {
+            queue.offer(i);
+        }
+        queue.poll();
+        queue.poll();
+        List<Integer> remaining = new ArrayList<>();
+        queue.forEach(remaining::add);
+        Assert.assertEquals(List.of(2, 3, 4), remaining);
+    }
+
+    @Test
+    public void testConcurrentProducersKeepPerProducerOrder() throws InterruptedException {
+        int producers = 4;
+        int perProducer = 100_000;
+        TbMpscQueue<long[]> queue = new TbMpscQueue<>();
+        ExecutorService executor = Executors.newFixedThreadPool(producers);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            for (int p = 0; p < producers; p++) {
+                long producer = p;
+                executor.execute(() -> {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    for (int i = 0; i < perProducer; i++) {
+                        queue.offer(new long[]{producer, i});
+                    }
+                });
+            }
+            start.countDown();
+            long[] lastSeen = new long[producers];
+            Arrays.fill(lastSeen, -1);
+            int received = 0;
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(60);
+            while (received < producers * perProducer) {
+                long[] item = queue.poll();
+                if (item == null) {
+                    Assert.assertTrue("Timed out waiting for messages", System.nanoTime() < deadline);
+                    Thread.yield();
+                    continue;
+                }
+                int producer = (int) item[0];
+                Assert.assertEquals(lastSeen[producer] + 1, item[1]);
+                lastSeen[producer] = item[1];
+                received++;
+            }
+            Assert.assertTrue(queue.isEmpty());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+}
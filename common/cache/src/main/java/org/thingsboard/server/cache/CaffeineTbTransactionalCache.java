@@ -16,7 +16,6 @@
 package org.thingsboard.server.cache;
 
 import lombok.Getter;
-import lombok.RequiredArgsConstructor;
 import org.springframework.cache.CacheManager;
 
 import java.io.Serializable;
@@ -28,19 +27,50 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 
-@RequiredArgsConstructor
+/**
+ * Transactional cache on top of the local Caffeine cache.
+ * <p>
+ * Any write of a key fails all the transactions opened for that key, so a value loaded from the DB
+ * before the concurrent write is not put to the cache on commit. The bookkeeping of the transactions
+ * is split into lock stripes by the key hash, so writers of different keys do not wait for each other.
+ * Operations on several keys lock the stripes of those keys in the ascending order.
+ */
 public abstract class CaffeineTbTransactionalCache<K extends Serializable, V extends Serializable> implements TbTransactionalCache<K, V> {
 
+    public static final int DEFAULT_STRIPES = 64;
+
     private final CacheManager cacheManager;
     @Getter
     private final String cacheName;
 
-    private final Lock lock = new ReentrantLock();
-    private final Map<K, Set<UUID>> objectTransactions = new HashMap<>();
-    private final Map<UUID, CaffeineTbCacheTransaction<K, V>> transactions = new HashMap<>();
+    private final Lock[] locks;
+    private final Map<K, Set<UUID>>[] objectTransactions;
+    private final ConcurrentMap<UUID, CaffeineTbCacheTransaction<K, V>> transactions = new ConcurrentHashMap<>();
+
+    public CaffeineTbTransactionalCache(CacheManager cacheManager, String cacheName) {
+        this(cacheManager, cacheName, DEFAULT_STRIPES);
+    }
+
+    @SuppressWarnings("unchecked")
+    public CaffeineTbTransactionalCache(CacheManager cacheManager, String cacheName, int stripes) {
+        this.cacheManager = cacheManager;
+        this.cacheName = cacheName;
+        int size = Integer.highestOneBit(Math.max(1, stripes));
+        if (size < stripes) {
+            size <<= 1;
+        }
+        this.locks = new Lock[size];
+        this.objectTransactions = new Map[size];
+        for (int i = 0; i < size; i++) {
+            locks[i] = new ReentrantLock();
+            objectTransactions[i] = new HashMap<>();
+        }
+    }
 
     @Override
     public TbCacheValueWrapper<V> get(K key) {
@@ -49,48 +79,43 @@ public abstract class CaffeineTbTransactionalCache<K extends Serializable, V ext
 
     @Override
     public void put(K key, V value) {
-        lock.lock();
+        int stripe = stripe(key);
+        locks[stripe].lock();
         try {
-            failAllTransactionsByKey(key);
+            failAllTransactionsByKey(stripe, key);
             cacheManager.getCache(cacheName).put(key, value);
         } finally {
-            lock.unlock();
+            locks[stripe].unlock();
         }
     }
 
     @Override
     public void putIfAbsent(K key, V value) {
-        lock.lock();
+        int stripe = stripe(key);
+        locks[stripe].lock();
         try {
-            failAllTransactionsByKey(key);
+            failAllTransactionsByKey(stripe, key);
             doPutIfAbsent(key, value);
         } finally {
-            lock.unlock();
+            locks[stripe].unlock();
         }
     }
 
     @Override
     public void evict(K key) {
-        lock.lock();
+        int stripe = stripe(key);
+        locks[stripe].lock();
         try {
-            failAllTransactionsByKey(key);
+            failAllTransactionsByKey(stripe, key);
             doEvict(key);
         } finally {
-            lock.unlock();
+            locks[stripe].unlock();
         }
     }
 
     @Override
     public void evict(Collection<K> keys) {
-        lock.lock();
-        try {
-            keys.forEach(key -> {
-                failAllTransactionsByKey(key);
-                doEvict(key);
-            });
-        } finally {
-            lock.unlock();
-        }
+        keys.forEach(this::evict);
     }
 
     @Override
@@ -118,76 +143,114 @@ public abstract class CaffeineTbTransactionalCache<K extends Serializable, V ext
     }
 
     TbCacheTransaction<K, V> newTransaction(List<K> keys) {
-        lock.lock();
+        var transaction = new CaffeineTbCacheTransaction<>(this, keys);
+        var transactionId = transaction.getId();
+        transactions.put(transactionId, transaction);
+        int[] stripes = lockStripes(keys);
         try {
-            var transaction = new CaffeineTbCacheTransaction<>(this, keys);
-            var transactionId = transaction.getId();
             for (K key : keys) {
-                objectTransactions.computeIfAbsent(key, k -> new HashSet<>()).add(transactionId);
+                objectTransactions[stripe(key)].computeIfAbsent(key, k -> new HashSet<>()).add(transactionId);
             }
-            transactions.put(transactionId, transaction);
             return transaction;
         } finally {
-            lock.unlock();
+            unlockStripes(stripes);
         }
     }
 
     public boolean commit(UUID trId, Map<Object, Object> pendingPuts) {
-        lock.lock();
+        var tr = transactions.get(trId);
+        if (tr == null) {
+            return false;
+        }
+        int[] stripes = lockStripes(tr.getKeys());
         try {
-            var tr = transactions.get(trId);
             var success = !tr.isFailed();
             if (success) {
                 for (K key : tr.getKeys()) {
-                    Set<UUID> otherTransactions = objectTransactions.get(key);
+                    Set<UUID> otherTransactions = objectTransactions[stripe(key)].get(key);
                     if (otherTransactions != null) {
                         for (UUID otherTrId : otherTransactions) {
-                            if (trId == null || !trId.equals(otherTrId)) {
-                                transactions.get(otherTrId).setFailed(true);
+                            if (!trId.equals(otherTrId)) {
+                                setFailed(otherTrId);
                             }
                         }
                     }
                 }
                 pendingPuts.forEach(this::doPutIfAbsent);
             }
-            removeTransaction(trId);
+            removeTransaction(tr);
             return success;
         } finally {
-            lock.unlock();
+            unlockStripes(stripes);
         }
     }
 
     void rollback(UUID id) {
-        lock.lock();
+        var tr = transactions.get(id);
+        if (tr == null) {
+            return;
+        }
+        int[] stripes = lockStripes(tr.getKeys());
         try {
-            removeTransaction(id);
+            removeTransaction(tr);
         } finally {
-            lock.unlock();
+            unlockStripes(stripes);
         }
     }
 
-    private void removeTransaction(UUID id) {
-        CaffeineTbCacheTransaction<K, V> transaction = transactions.remove(id);
-        if (transaction != null) {
-            for (var key : transaction.getKeys()) {
-                Set<UUID> transactions = objectTransactions.get(key);
-                if (transactions != null) {
-                    transactions.remove(id);
-                    if (transactions.isEmpty()) {
-                        objectTransactions.remove(key);
-                    }
+    private void removeTransaction(CaffeineTbCacheTransaction<K, V> transaction) {
+        UUID id = transaction.getId();
+        for (var key : transaction.getKeys()) {
+            Map<K, Set<UUID>> stripeTransactions = objectTransactions[stripe(key)];
+            Set<UUID> transactions = stripeTransactions.get(key);
+            if (transactions != null) {
+                transactions.remove(id);
+                if (transactions.isEmpty()) {
+                    stripeTransactions.remove(key);
                 }
             }
         }
+        transactions.remove(id);
     }
 
-    private void failAllTransactionsByKey(K key) {
-        Set<UUID> transactionsIds = objectTransactions.get(key);
+    private void failAllTransactionsByKey(int stripe, K key) {
+        Set<UUID> transactionsIds = objectTransactions[stripe].get(key);
         if (transactionsIds != null) {
             for (UUID otherTrId : transactionsIds) {
-                transactions.get(otherTrId).setFailed(true);
+                setFailed(otherTrId);
             }
         }
     }
 
+    private void setFailed(UUID trId) {
+        var transaction = transactions.get(trId);
+        if (transaction != null) {
+            transaction.setFailed(true);
+        }
+    }
+
+    private int stripe(Object key) {
+        int h = key.hashCode();
+        return (h ^ (h >>> 16)) & (locks.length - 1);
+    }
+
+    private int[] lockStripes(List<K> keys) {
+        int[] stripes;
+        if (keys.size() == 1) {
+            stripes = new int[]{stripe(keys.get(0))};
+        } else {
+            stripes = keys.stream().mapToInt(this::stripe).distinct().sorted().toArray();
+        }
+        for (int stripe : stripes) {
+            locks[stripe].lock();
+        }
+        return stripes;
+    }
+
+    private void unlockStripes(int[] stripes) {
+        for (int i = stripes.length - 1; i >= 0; i--) {
+            locks[stripes[i]].unlock();
+        }
+    }
+
 }
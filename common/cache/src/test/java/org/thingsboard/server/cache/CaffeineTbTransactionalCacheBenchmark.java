@@ -0,0 +1,111 @@
+/**
+ * Copyright © 2016-2023 The Linkstuffs Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.cache;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Contended get/put/evict mixes against the transactional Caffeine cache.
+ * stripes=1 is the single lock layout of the previous implementation.
+ * <p>
+ * Run with: mvn -pl common/cache test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=org.thingsboard.server.cache.CaffeineTbTransactionalCacheBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(8)
+public class CaffeineTbTransactionalCacheBenchmark {
+
+    private static final String CACHE_NAME = "benchmark";
+
+    @Param({"1", "64"})
+    private int stripes;
+
+    @Param({"1000"})
+    private int keys;
+
+    /**
+     * Percentage of the operations that are writes (put or evict), the rest are reads with the load in transaction on a miss.
+     */
+    @Param({"5", "50"})
+    private int writePercent;
+
+    private CaffeineTbTransactionalCache<String, String> cache;
+    private String[] keyNames;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager(CACHE_NAME);
+        cacheManager.setCaffeine(Caffeine.newBuilder().maximumSize(keys));
+        cache = new CaffeineTbTransactionalCache<>(cacheManager, CACHE_NAME, stripes) {};
+        keyNames = new String[keys];
+        for (int i = 0; i < keys; i++) {
+            keyNames[i] = "key" + i;
+        }
+    }
+
+    @Benchmark
+    public void mixed(Blackhole blackhole) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        String key = keyNames[random.nextInt(keys)];
+        int op = random.nextInt(100);
+        if (op < writePercent / 2) {
+            cache.put(key, key);
+        } else if (op < writePercent) {
+            cache.evict(key);
+        } else {
+            blackhole.consume(cache.getAndPutInTransaction(key, () -> key, false));
+        }
+    }
+
+    @Benchmark
+    public void evictAndReload(Blackhole blackhole) {
+        String key = keyNames[ThreadLocalRandom.current().nextInt(keys)];
+        cache.evict(key);
+        blackhole.consume(cache.getAndPutInTransaction(key, () -> key, false));
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(CaffeineTbTransactionalCacheBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+
+}
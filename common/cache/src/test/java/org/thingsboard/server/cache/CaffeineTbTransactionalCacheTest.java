@@ -0,0 +1,168 @@
+/**
+ * Copyright © 2016-2023 The Linkstuffs Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.cache;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CaffeineTbTransactionalCacheTest {
+
+    private static final String CACHE_NAME = "test";
+
+    private TestCache cache;
+    private ExecutorService executor;
+
+    @BeforeEach
+    public void setUp() {
+        cache = new TestCache(4);
+        executor = Executors.newFixedThreadPool(8);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void givenNoConcurrentWrites_whenCommit_thenValueIsPut() {
+        TbCacheTransaction<String, String> transaction = cache.newTransactionForKey("a");
+        transaction.putIfAbsent("a", "db");
+
+        assertThat(transaction.commit()).isTrue();
+        assertThat(cache.get("a").get()).isEqualTo("db");
+    }
+
+    @Test
+    public void givenConcurrentEvict_whenCommit_thenTransactionFails() {
+        TbCacheTransaction<String, String> transaction = cache.newTransactionForKey("a");
+        transaction.putIfAbsent("a", "stale");
+        cache.evict("a");
+
+        assertThat(transaction.commit()).isFalse();
+        assertThat(cache.get("a")).isNull();
+    }
+
+    @Test
+    public void givenConcurrentPut_whenCommit_thenTransactionFailsAndPutValueIsKept() {
+        TbCacheTransaction<String, String> transaction = cache.newTransactionForKey("a");
+        transaction.putIfAbsent("a", "stale");
+        cache.put("a", "fresh");
+
+        assertThat(transaction.commit()).isFalse();
+        assertThat(cache.get("a").get()).isEqualTo("fresh");
+    }
+
+    @Test
+    public void givenWriteOfOtherKey_whenCommit_thenTransactionSucceeds() {
+        TbCacheTransaction<String, String> transaction = cache.newTransactionForKey("a");
+        transaction.putIfAbsent("a", "db");
+        cache.evict("b");
+
+        assertThat(transaction.commit()).isTrue();
+    }
+
+    @Test
+    public void givenTwoTransactionsForSameKey_whenFirstCommits_thenSecondFails() {
+        TbCacheTransaction<String, String> first = cache.newTransactionForKey("a");
+        TbCacheTransaction<String, String> second = cache.newTransactionForKey("a");
+        first.putIfAbsent("a", "first");
+        second.putIfAbsent("a", "second");
+
+        assertThat(first.commit()).isTrue();
+        assertThat(second.commit()).isFalse();
+        assertThat(cache.get("a").get()).isEqualTo("first");
+    }
+
+    @Test
+    public void givenMultiKeyTransaction_whenOneOfKeysIsEvicted_thenTransactionFails() {
+        TbCacheTransaction<String, String> transaction = cache.newTransactionForKeys(List.of("a", "b", "c", "d", "e"));
+        transaction.putIfAbsent("a", "a");
+        transaction.putIfAbsent("e", "e");
+        cache.evict(List.of("x", "e"));
+
+        assertThat(transaction.commit()).isFalse();
+        assertThat(cache.get("a")).isNull();
+    }
+
+    @Test
+    public void givenRolledBackTransaction_whenNewTransaction_thenItIsNotAffected() {
+        TbCacheTransaction<String, String> transaction = cache.newTransactionForKey("a");
+        transaction.rollback();
+        cache.evict("a");
+
+        TbCacheTransaction<String, String> next = cache.newTransactionForKey("a");
+        next.putIfAbsent("a", "db");
+        assertThat(next.commit()).isTrue();
+    }
+
+    @Test
+    public void givenConcurrentMultiKeyTransactionsAndWrites_whenRun_thenNoDeadlockAndNoLeakedTransactions() throws Exception {
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            futures.add(executor.submit(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int i = 0; i < 10000; i++) {
+                    String k1 = "key" + random.nextInt(32);
+                    String k2 = "key" + random.nextInt(32);
+                    switch (random.nextInt(3)) {
+                        case 0:
+                            TbCacheTransaction<String, String> transaction = cache.newTransactionForKeys(List.of(k2, k1));
+                            transaction.putIfAbsent(k1, k1);
+                            if (random.nextBoolean()) {
+                                transaction.commit();
+                            } else {
+                                transaction.rollback();
+                            }
+                            break;
+                        case 1:
+                            cache.put(k1, k1);
+                            break;
+                        default:
+                            cache.evict(k1);
+                    }
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+
+        TbCacheTransaction<String, String> transaction = cache.newTransactionForKey("key0");
+        transaction.putIfAbsent("key0", "db");
+        assertThat(transaction.commit()).isTrue();
+    }
+
+    private static class TestCache extends CaffeineTbTransactionalCache<String, String> {
+
+        TestCache(int stripes) {
+            super(new ConcurrentMapCacheManager(CACHE_NAME), CACHE_NAME, stripes);
+        }
+
+    }
+
+}
@@ -34,6 +34,23 @@ public interface TbQueueConsumer<T extends TbQueueMsg> {
 
     void commit();
 
+    /**
+     * Whether the consumer may poll ahead of the committed position and commit with {@link #commit(List)}.
+     */
+    default boolean isPartialCommitSupported() {
+        return false;
+    }
+
+    /**
+     * Commits the messages returned by the given poll and by all the polls before it.
+     * Messages returned by the later polls stay uncommitted.
+     *
+     * @param polledMsgs the list returned by {@link #poll(long)}
+     */
+    default void commit(List<T> polledMsgs) {
+        throw new UnsupportedOperationException("Partial commit is not supported by " + getClass().getSimpleName());
+    }
+
     boolean isStopped();
 
 }
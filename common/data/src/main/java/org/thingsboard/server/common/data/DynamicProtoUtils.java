@@ -18,6 +18,7 @@ package org.thingsboard.server.common.data;
 import com.github.os72.protobuf.dynamic.DynamicSchema;
 import com.github.os72.protobuf.dynamic.EnumDefinition;
 import com.github.os72.protobuf.dynamic.MessageDefinition;
+import com.google.protobuf.CodedInputStream;
 import com.google.protobuf.Descriptors;
 import com.google.protobuf.DynamicMessage;
 import com.google.protobuf.InvalidProtocolBufferException;
@@ -46,6 +47,8 @@ public class DynamicProtoUtils {
     public static final Location LOCATION = new Location("", "", -1, -1);
     public static final String PROTO_3_SYNTAX = "proto3";
 
+    private static final JsonFormat.Printer JSON_PRINTER = JsonFormat.printer().includingDefaultValueFields();
+
     public static Descriptors.Descriptor getDescriptor(String protoSchema, String schemaName) {
         try {
             DynamicMessage.Builder builder = getDynamicMessageBuilder(protoSchema, schemaName);
@@ -99,7 +102,12 @@ public class DynamicProtoUtils {
 
     public static String dynamicMsgToJson(Descriptors.Descriptor descriptor, byte[] payload) throws InvalidProtocolBufferException {
         DynamicMessage dynamicMessage = DynamicMessage.parseFrom(descriptor, payload);
-        return JsonFormat.printer().includingDefaultValueFields().print(dynamicMessage);
+        return JSON_PRINTER.print(dynamicMessage);
+    }
+
+    public static String dynamicMsgToJson(Descriptors.Descriptor descriptor, CodedInputStream payload) throws InvalidProtocolBufferException {
+        DynamicMessage dynamicMessage = DynamicMessage.getDefaultInstance(descriptor).getParserForType().parseFrom(payload);
+        return JSON_PRINTER.print(dynamicMessage);
     }
 
     public static DynamicMessage jsonToDynamicMessage(DynamicMessage.Builder builder, String payload) throws InvalidProtocolBufferException {
@@ -15,10 +15,18 @@
  */
 package org.thingsboard.server.common.data.queue;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.Data;
 
 @Data
 public class SubmitStrategy {
     private SubmitStrategyType type;
     private int batchSize;
+    private SubmitMode mode;
+    private int maxInFlightMsgs;
+
+    @JsonIgnore
+    public boolean isPipelined() {
+        return mode == SubmitMode.PIPELINED;
+    }
 }
\ No newline at end of file
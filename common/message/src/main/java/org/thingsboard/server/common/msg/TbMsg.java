@@ -16,12 +16,17 @@
 package org.thingsboard.server.common.msg;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.google.protobuf.ByteString;
 import com.google.protobuf.InvalidProtocolBufferException;
 import lombok.AccessLevel;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
 import lombok.extern.slf4j.Slf4j;
+import org.thingsboard.common.util.JacksonUtil;
 import org.thingsboard.server.common.data.StringUtils;
 import org.thingsboard.server.common.data.EntityType;
 import org.thingsboard.server.common.data.id.CustomerId;
@@ -33,6 +38,8 @@ import org.thingsboard.server.common.data.id.RuleNodeId;
 import org.thingsboard.server.common.msg.gen.MsgProtos;
 import org.thingsboard.server.common.msg.queue.TbMsgCallback;
 
+import java.io.IOException;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.util.UUID;
 
@@ -51,7 +58,9 @@ public final class TbMsg implements Serializable {
     private final CustomerId customerId;
     private final TbMsgMetaData metaData;
     private final TbMsgDataType dataType;
-    private final String data;
+    //May be null if the message was created from the parsed data. Built from the parsed data on the first request
+    @Setter(value = AccessLevel.NONE)
+    private volatile String data;
     private final RuleChainId ruleChainId;
     private final RuleNodeId ruleNodeId;
     @Getter(value = AccessLevel.NONE)
@@ -63,6 +72,21 @@ public final class TbMsg implements Serializable {
     @JsonIgnore
     transient private final TbMsgCallback callback;
 
+    //Parsed on the first request and shared with the copies of this message that keep the same data
+    @Getter(value = AccessLevel.NONE)
+    @Setter(value = AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    @JsonIgnore
+    transient private volatile JsonNode parsedData;
+
+    //Data received in the compact format. Decoded on the first request and passed to the next queue as is while the data stays the same
+    @Getter(value = AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    @JsonIgnore
+    transient private final ByteString compactData;
+
     public int getAndIncrementRuleNodeCounter() {
         return ctx.getAndIncrementRuleNodeCounter();
     }
@@ -76,6 +100,16 @@ public final class TbMsg implements Serializable {
                 metaData.copy(), TbMsgDataType.JSON, data, ruleChainId, ruleNodeId, null, TbMsgCallback.EMPTY);
     }
 
+    /**
+     * Creates a message from the parsed data. The JSON text is built only if it is requested, so the data may be sent to the queue
+     * in the compact format without being converted to text at all. The node must not be modified after the call.
+     */
+    public static TbMsg newMsg(String queueName, String type, EntityId originator, CustomerId customerId, TbMsgMetaData metaData, JsonNode data,
+                               RuleChainId ruleChainId, RuleNodeId ruleNodeId) {
+        return new TbMsg(queueName, UUID.randomUUID(), System.currentTimeMillis(), type, originator, customerId,
+                metaData.copy(), TbMsgDataType.JSON, null, ruleChainId, ruleNodeId, null, TbMsgCallback.EMPTY, data);
+    }
+
     public static TbMsg newMsg(String type, EntityId originator, TbMsgMetaData metaData, String data) {
         return newMsg(type, originator, null, metaData, data);
     }
@@ -119,47 +153,71 @@ public final class TbMsg implements Serializable {
 
     public static TbMsg transformMsg(TbMsg tbMsg, String type, EntityId originator, TbMsgMetaData metaData, String data) {
         return new TbMsg(tbMsg.queueName, tbMsg.id, tbMsg.ts, type, originator, tbMsg.customerId, metaData.copy(), tbMsg.dataType,
-                data, tbMsg.ruleChainId, tbMsg.ruleNodeId, tbMsg.ctx.copy(), tbMsg.callback);
+                data, tbMsg.ruleChainId, tbMsg.ruleNodeId, tbMsg.ctx.copy(), tbMsg.callback, tbMsg.getParsedDataIfSame(data));
+    }
+
+    /**
+     * Same as {@link #transformMsg(TbMsg, String, EntityId, TbMsgMetaData, String)}, but keeps the given JSON as the parsed data
+     * of the new message, so the next rule nodes do not need to parse it again. The node must not be modified afterwards.
+     */
+    public static TbMsg transformMsg(TbMsg tbMsg, String type, EntityId originator, TbMsgMetaData metaData, JsonNode data) {
+        return new TbMsg(tbMsg.queueName, tbMsg.id, tbMsg.ts, type, originator, tbMsg.customerId, metaData.copy(), tbMsg.dataType,
+                null, tbMsg.ruleChainId, tbMsg.ruleNodeId, tbMsg.ctx.copy(), tbMsg.callback, data);
     }
 
     public static TbMsg transformMsgData(TbMsg tbMsg, String data) {
         return new TbMsg(tbMsg.queueName, tbMsg.id, tbMsg.ts, tbMsg.type, tbMsg.originator, tbMsg.customerId, tbMsg.metaData, tbMsg.dataType,
-                data, tbMsg.ruleChainId, tbMsg.ruleNodeId, tbMsg.ctx.copy(), tbMsg.getCallback());
+                data, tbMsg.ruleChainId, tbMsg.ruleNodeId, tbMsg.ctx.copy(), tbMsg.getCallback(), tbMsg.getParsedDataIfSame(data));
+    }
+
+    public static TbMsg transformMsgData(TbMsg tbMsg, JsonNode data) {
+        return new TbMsg(tbMsg.queueName, tbMsg.id, tbMsg.ts, tbMsg.type, tbMsg.originator, tbMsg.customerId, tbMsg.metaData, tbMsg.dataType,
+                null, tbMsg.ruleChainId, tbMsg.ruleNodeId, tbMsg.ctx.copy(), tbMsg.getCallback(), data);
     }
 
     public static TbMsg transformMsg(TbMsg tbMsg, TbMsgMetaData metadata) {
         return new TbMsg(tbMsg.queueName, tbMsg.id, tbMsg.ts, tbMsg.type, tbMsg.originator, tbMsg.customerId, metadata.copy(), tbMsg.dataType,
-                tbMsg.data, tbMsg.ruleChainId, tbMsg.ruleNodeId, tbMsg.ctx.copy(), tbMsg.getCallback());
+                tbMsg.data, tbMsg.ruleChainId, tbMsg.ruleNodeId, tbMsg.ctx.copy(), tbMsg.getCallback(), tbMsg.parsedData, tbMsg.compactData);
     }
 
     public static TbMsg transformMsg(TbMsg tbMsg, CustomerId customerId) {
         return new TbMsg(tbMsg.queueName, tbMsg.id, tbMsg.ts, tbMsg.type, tbMsg.originator, customerId, tbMsg.metaData, tbMsg.dataType,
-                tbMsg.data, tbMsg.ruleChainId, tbMsg.ruleNodeId, tbMsg.ctx.copy(), tbMsg.getCallback());
+                tbMsg.data, tbMsg.ruleChainId, tbMsg.ruleNodeId, tbMsg.ctx.copy(), tbMsg.getCallback(), tbMsg.parsedData, tbMsg.compactData);
     }
 
     public static TbMsg transformMsg(TbMsg tbMsg, RuleChainId ruleChainId) {
         return new TbMsg(tbMsg.queueName, tbMsg.id, tbMsg.ts, tbMsg.type, tbMsg.originator, tbMsg.customerId, tbMsg.metaData, tbMsg.dataType,
-                tbMsg.data, ruleChainId, null, tbMsg.ctx.copy(), tbMsg.getCallback());
+                tbMsg.data, ruleChainId, null, tbMsg.ctx.copy(), tbMsg.getCallback(), tbMsg.parsedData, tbMsg.compactData);
     }
 
     public static TbMsg transformMsg(TbMsg tbMsg, String queueName) {
         return new TbMsg(queueName, tbMsg.id, tbMsg.ts, tbMsg.type, tbMsg.originator, tbMsg.customerId, tbMsg.metaData, tbMsg.dataType,
-                tbMsg.data, tbMsg.getRuleChainId(), null, tbMsg.ctx.copy(), tbMsg.getCallback());
+                tbMsg.data, tbMsg.getRuleChainId(), null, tbMsg.ctx.copy(), tbMsg.getCallback(), tbMsg.parsedData, tbMsg.compactData);
     }
 
     public static TbMsg transformMsg(TbMsg tbMsg, RuleChainId ruleChainId, String queueName) {
         return new TbMsg(queueName, tbMsg.id, tbMsg.ts, tbMsg.type, tbMsg.originator, tbMsg.customerId, tbMsg.metaData, tbMsg.dataType,
-                tbMsg.data, ruleChainId, null, tbMsg.ctx.copy(), tbMsg.getCallback());
+                tbMsg.data, ruleChainId, null, tbMsg.ctx.copy(), tbMsg.getCallback(), tbMsg.parsedData, tbMsg.compactData);
     }
 
     //used for enqueueForTellNext
     public static TbMsg newMsg(TbMsg tbMsg, String queueName, RuleChainId ruleChainId, RuleNodeId ruleNodeId) {
         return new TbMsg(queueName, UUID.randomUUID(), tbMsg.getTs(), tbMsg.getType(), tbMsg.getOriginator(), tbMsg.customerId, tbMsg.getMetaData().copy(),
-                tbMsg.getDataType(), tbMsg.getData(), ruleChainId, ruleNodeId, tbMsg.ctx.copy(), TbMsgCallback.EMPTY);
+                tbMsg.getDataType(), tbMsg.data, ruleChainId, ruleNodeId, tbMsg.ctx.copy(), TbMsgCallback.EMPTY, tbMsg.parsedData, tbMsg.compactData);
     }
 
     private TbMsg(String queueName, UUID id, long ts, String type, EntityId originator, CustomerId customerId, TbMsgMetaData metaData, TbMsgDataType dataType, String data,
                   RuleChainId ruleChainId, RuleNodeId ruleNodeId, TbMsgProcessingCtx ctx, TbMsgCallback callback) {
+        this(queueName, id, ts, type, originator, customerId, metaData, dataType, data, ruleChainId, ruleNodeId, ctx, callback, null);
+    }
+
+    private TbMsg(String queueName, UUID id, long ts, String type, EntityId originator, CustomerId customerId, TbMsgMetaData metaData, TbMsgDataType dataType, String data,
+                  RuleChainId ruleChainId, RuleNodeId ruleNodeId, TbMsgProcessingCtx ctx, TbMsgCallback callback, JsonNode parsedData) {
+        this(queueName, id, ts, type, originator, customerId, metaData, dataType, data, ruleChainId, ruleNodeId, ctx, callback, parsedData, null);
+    }
+
+    private TbMsg(String queueName, UUID id, long ts, String type, EntityId originator, CustomerId customerId, TbMsgMetaData metaData, TbMsgDataType dataType, String data,
+                  RuleChainId ruleChainId, RuleNodeId ruleNodeId, TbMsgProcessingCtx ctx, TbMsgCallback callback, JsonNode parsedData, ByteString compactData) {
         this.id = id;
         this.queueName = queueName;
         if (ts > 0) {
@@ -189,13 +247,28 @@ public final class TbMsg implements Serializable {
         } else {
             this.callback = TbMsgCallback.EMPTY;
         }
+        this.parsedData = parsedData;
+        this.compactData = compactData;
     }
 
     public static ByteString toByteString(TbMsg msg) {
-        return ByteString.copyFrom(toByteArray(msg));
+        return toByteString(msg, false);
+    }
+
+    public static ByteString toByteString(TbMsg msg, boolean compact) {
+        return ByteString.copyFrom(toByteArray(msg, compact));
     }
 
     public static byte[] toByteArray(TbMsg msg) {
+        return toByteArray(msg, false);
+    }
+
+    /**
+     * @param compact whether to use the compact format for the data and metadata. The compact format is smaller and does not
+     *                need the JSON text on both sides, but can be read only by the versions that support it.
+     *                See {@link TbMsgCompactFormat}.
+     */
+    public static byte[] toByteArray(TbMsg msg, boolean compact) {
         MsgProtos.TbMsgProto.Builder builder = MsgProtos.TbMsgProto.newBuilder();
         builder.setId(msg.getId().toString());
         builder.setTs(msg.getTs());
@@ -220,20 +293,54 @@ public final class TbMsg implements Serializable {
         }
 
         if (msg.getMetaData() != null) {
-            builder.setMetaData(MsgProtos.TbMsgMetaDataProto.newBuilder().putAllData(msg.getMetaData().getData()).build());
+            if (compact) {
+                builder.setCompactMetaData(TbMsgCompactFormat.encodeMetaData(msg.getMetaData().getData()));
+            } else {
+                builder.setMetaData(MsgProtos.TbMsgMetaDataProto.newBuilder().putAllData(msg.getMetaData().getData()).build());
+            }
         }
 
         builder.setDataType(msg.getDataType().ordinal());
-        builder.setData(msg.getData());
+        ByteString compactData = compact ? toCompactData(msg) : null;
+        if (compactData != null) {
+            builder.setCompactData(compactData);
+        } else {
+            builder.setData(msg.getData());
+        }
 
         builder.setCtx(msg.ctx.toProto());
         return builder.build().toByteArray();
     }
 
+    private static ByteString toCompactData(TbMsg msg) {
+        if (msg.compactData != null) {
+            return msg.compactData;
+        }
+        if (msg.getDataType() != TbMsgDataType.JSON) {
+            return null;
+        }
+        try {
+            // the data shared with the rule nodes keeps the decimals exact, so it is encoded as is
+            JsonNode data = msg.parsedData;
+            if (data == null) {
+                String text = msg.data;
+                if (text == null || text.isEmpty()) {
+                    return null;
+                }
+                data = TbMsgCompactFormat.DATA_READER.readTree(text);
+            }
+            return TbMsgCompactFormat.encodeData(data);
+        } catch (IOException | IllegalArgumentException e) {
+            log.trace("[{}] Failed to encode msg data in the compact format, falling back to the text", msg.getId(), e);
+            return null;
+        }
+    }
+
     public static TbMsg fromBytes(String queueName, byte[] data, TbMsgCallback callback) {
         try {
             MsgProtos.TbMsgProto proto = MsgProtos.TbMsgProto.parseFrom(data);
-            TbMsgMetaData metaData = new TbMsgMetaData(proto.getMetaData().getDataMap());
+            TbMsgMetaData metaData = new TbMsgMetaData(proto.hasCompactMetaData() ?
+                    TbMsgCompactFormat.decodeMetaData(proto.getCompactMetaData()) : proto.getMetaData().getDataMap());
             EntityId entityId = EntityIdFactory.getByTypeAndUuid(proto.getEntityType(), new UUID(proto.getEntityIdMSB(), proto.getEntityIdLSB()));
             CustomerId customerId = null;
             RuleChainId ruleChainId = null;
@@ -257,8 +364,15 @@ public final class TbMsg implements Serializable {
             }
 
             TbMsgDataType dataType = TbMsgDataType.values()[proto.getDataType()];
+            String msgData = null;
+            ByteString compactData = null;
+            if (!proto.getCompactData().isEmpty()) {
+                compactData = proto.getCompactData();
+            } else {
+                msgData = proto.getData();
+            }
             return new TbMsg(queueName, UUID.fromString(proto.getId()), proto.getTs(), proto.getType(), entityId, customerId,
-                    metaData, dataType, proto.getData(), ruleChainId, ruleNodeId, ctx, callback);
+                    metaData, dataType, msgData, ruleChainId, ruleNodeId, ctx, callback, null, compactData);
         } catch (InvalidProtocolBufferException e) {
             throw new IllegalStateException("Could not parse protobuf for TbMsg", e);
         }
@@ -270,12 +384,71 @@ public final class TbMsg implements Serializable {
 
     public TbMsg copyWithRuleChainId(RuleChainId ruleChainId, UUID msgId) {
         return new TbMsg(this.queueName, msgId, this.ts, this.type, this.originator, this.customerId,
-                this.metaData, this.dataType, this.data, ruleChainId, null, this.ctx, callback);
+                this.metaData, this.dataType, this.data, ruleChainId, null, this.ctx, callback, this.parsedData, this.compactData);
     }
 
     public TbMsg copyWithRuleNodeId(RuleChainId ruleChainId, RuleNodeId ruleNodeId, UUID msgId) {
         return new TbMsg(this.queueName, msgId, this.ts, this.type, this.originator, this.customerId,
-                this.metaData, this.dataType, this.data, ruleChainId, ruleNodeId, this.ctx, callback);
+                this.metaData, this.dataType, this.data, ruleChainId, ruleNodeId, this.ctx, callback, this.parsedData, this.compactData);
+    }
+
+    public String getData() {
+        String result = data;
+        if (result == null && (parsedData != null || compactData != null)) {
+            result = JacksonUtil.toString(parseData());
+            data = result;
+        }
+        return result;
+    }
+
+    /**
+     * Returns the message data parsed as JSON, or null if the data is empty. The data is parsed on the first call only and the result
+     * is shared with the following rule nodes while the data stays the same, so the returned node must not be modified.
+     * Use {@link JsonNode#deepCopy()} to build a new body from it. Decimals are parsed as {@link java.math.BigDecimal}, so the values
+     * stay exact, e.g. for the telemetry and attributes saved from the node.
+     *
+     * @throws IllegalArgumentException if the data is not a valid JSON
+     */
+    @JsonIgnore
+    public JsonNode getDataAsJson() {
+        JsonNode result = parsedData;
+        if (result != null) {
+            TbMsgDataParseStats.onReused();
+            return result;
+        }
+        return parseData();
+    }
+
+    private JsonNode parseData() {
+        JsonNode result = parsedData;
+        if (result != null) {
+            return result;
+        }
+        if (compactData != null) {
+            result = TbMsgCompactFormat.decodeData(compactData);
+        } else if (data == null || data.isEmpty()) {
+            return null;
+        } else {
+            try {
+                result = TbMsgCompactFormat.DATA_READER.readTree(data);
+            } catch (IOException e) {
+                throw new IllegalArgumentException(e);
+            }
+        }
+        TbMsgDataParseStats.onParsed();
+        parsedData = result;
+        return result;
+    }
+
+    private JsonNode getParsedDataIfSame(String newData) {
+        JsonNode result = parsedData;
+        return result != null && newData != null && newData.equals(getData()) ? result : null;
+    }
+
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        // The parsed and compact data are not serialized
+        getData();
+        out.defaultWriteObject();
     }
 
     public TbMsgCallback getCallback() {
@@ -0,0 +1,269 @@
+/**
+ * Copyright © 2016-2023 The Linkstuffs Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.common.msg;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.BigIntegerNode;
+import com.fasterxml.jackson.databind.node.DecimalNode;
+import com.fasterxml.jackson.databind.node.IntNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.LongNode;
+import com.fasterxml.jackson.databind.node.NullNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.protobuf.ByteString;
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.CodedOutputStream;
+import org.thingsboard.common.util.JacksonUtil;
+import org.thingsboard.server.common.msg.gen.MsgProtos;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact encoding of the message data and metadata, see {@link TbMsg#toByteArray(TbMsg, boolean)}.
+ * <p>
+ * The JSON data is written as a stream of typed values: a type byte followed by the value. Numbers are written as varints or
+ * floats when it is lossless and as text otherwise, and every object field name is written once per message and referenced
+ * by id afterwards. The data has to be parsed with {@link #DATA_READER}, so that decimals are not rounded to doubles before
+ * they are encoded.
+ * The well-known metadata keys are written as ids.
+ */
+final class TbMsgCompactFormat {
+
+    // Do not change ordering or remove keys, only add new ones to the end. We use the index as the key id on serialization
+    private static final String[] KNOWN_META_DATA_KEYS = {
+            "deviceName", "deviceType", "ts", "customerId", "sessionId", "serviceId", "requestId", "requestUUID", "originServiceId",
+            "userId", "userName", "userEmail", "userFirstName", "userLastName", "scope", "notifyDevice", "oneway", "expirationTime",
+            "retries", "persistent", "gatewayId", "tenantId", "edgeId", "edgeName", "edgeType", "assetName", "assetType",
+            "entityViewName", "entityViewType", "ruleNodeId", "customerName", "customerTitle", "entityName", "entityType"
+    };
+    private static final Map<String, Integer> KNOWN_META_DATA_KEY_IDS = new HashMap<>();
+
+    static {
+        for (int i = 0; i < KNOWN_META_DATA_KEYS.length; i++) {
+            KNOWN_META_DATA_KEY_IDS.put(KNOWN_META_DATA_KEYS[i], i);
+        }
+    }
+
+    // Do not change the values, they are part of the format
+    private static final int NULL = 0;
+    private static final int FALSE = 1;
+    private static final int TRUE = 2;
+    private static final int INTEGER = 3;
+    private static final int FLOAT = 4;
+    private static final int DOUBLE = 5;
+    private static final int STRING = 6;
+    private static final int NUMBER = 7;
+    private static final int OBJECT = 8;
+    private static final int ARRAY = 9;
+
+    // Fails on the trailing tokens that the default parser ignores, and keeps the decimals exact including the trailing zeros
+    static final ObjectReader DATA_READER = JacksonUtil.OBJECT_MAPPER.reader()
+            .with(DeserializationFeature.FAIL_ON_TRAILING_TOKENS, DeserializationFeature.USE_BIG_DECIMAL_FOR_FLOATS)
+            .with(JsonNodeFactory.withExactBigDecimals(true));
+
+    private TbMsgCompactFormat() {
+    }
+
+    static MsgProtos.TbMsgCompactMetaDataProto encodeMetaData(Map<String, String> metaData) {
+        MsgProtos.TbMsgCompactMetaDataProto.Builder builder = MsgProtos.TbMsgCompactMetaDataProto.newBuilder();
+        metaData.forEach((key, value) -> {
+            Integer keyId = KNOWN_META_DATA_KEY_IDS.get(key);
+            if (keyId != null) {
+                builder.addKnownKeys(keyId);
+                builder.addKnownValues(value);
+            } else {
+                builder.putData(key, value);
+            }
+        });
+        return builder.build();
+    }
+
+    static Map<String, String> decodeMetaData(MsgProtos.TbMsgCompactMetaDataProto proto) {
+        Map<String, String> metaData = new HashMap<>(proto.getDataMap());
+        for (int i = 0; i < proto.getKnownKeysCount(); i++) {
+            int keyId = proto.getKnownKeys(i);
+            if (keyId < KNOWN_META_DATA_KEYS.length) {
+                metaData.put(KNOWN_META_DATA_KEYS[keyId], proto.getKnownValues(i));
+            }
+        }
+        return metaData;
+    }
+
+    /**
+     * @throws IllegalArgumentException if the JSON contains nodes that can not be encoded, like binary or POJO nodes or not finite numbers
+     */
+    static ByteString encodeData(JsonNode data) {
+        try {
+            ByteString.Output bytes = ByteString.newOutput();
+            CodedOutputStream output = CodedOutputStream.newInstance(bytes);
+            writeValue(output, data, new HashMap<>());
+            output.flush();
+            return bytes.toByteString();
+        } catch (IOException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+
+    /**
+     * @throws IllegalArgumentException if the data is corrupted
+     */
+    static JsonNode decodeData(ByteString data) {
+        try {
+            return readValue(data.newCodedInput(), new ArrayList<>());
+        } catch (IOException | IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Failed to decode msg data", e);
+        }
+    }
+
+    private static void writeValue(CodedOutputStream output, JsonNode node, Map<String, Integer> keyIds) throws IOException {
+        switch (node.getNodeType()) {
+            case OBJECT:
+                output.writeUInt32NoTag(OBJECT);
+                output.writeUInt32NoTag(node.size());
+                Iterator<Map.Entry<String, JsonNode>> fields = node.fields();
+                while (fields.hasNext()) {
+                    Map.Entry<String, JsonNode> field = fields.next();
+                    Integer keyId = keyIds.get(field.getKey());
+                    if (keyId != null) {
+                        output.writeUInt32NoTag(keyId + 1);
+                    } else {
+                        // 0 means a new key written inline, the following fields refer to it by id
+                        keyIds.put(field.getKey(), keyIds.size());
+                        output.writeUInt32NoTag(0);
+                        output.writeStringNoTag(field.getKey());
+                    }
+                    writeValue(output, field.getValue(), keyIds);
+                }
+                break;
+            case ARRAY:
+                output.writeUInt32NoTag(ARRAY);
+                output.writeUInt32NoTag(node.size());
+                for (JsonNode element : node) {
+                    writeValue(output, element, keyIds);
+                }
+                break;
+            case STRING:
+                output.writeUInt32NoTag(STRING);
+                output.writeStringNoTag(node.textValue());
+                break;
+            case BOOLEAN:
+                output.writeUInt32NoTag(node.booleanValue() ? TRUE : FALSE);
+                break;
+            case NUMBER:
+                writeNumber(output, node);
+                break;
+            case NULL:
+                output.writeUInt32NoTag(NULL);
+                break;
+            default:
+                throw new IllegalArgumentException("Unsupported JSON node type: " + node.getNodeType());
+        }
+    }
+
+    private static void writeNumber(CodedOutputStream output, JsonNode node) throws IOException {
+        if (node.isIntegralNumber() && node.canConvertToLong()) {
+            output.writeUInt32NoTag(INTEGER);
+            output.writeSInt64NoTag(node.longValue());
+        } else if (node.isDouble() || node.isFloat() || (node.isBigDecimal() && isExactDouble(node.decimalValue()))) {
+            double value = node.doubleValue();
+            if (!Double.isFinite(value)) {
+                // the parser reads the decimals out of the double range as infinity even with USE_BIG_DECIMAL_FOR_FLOATS
+                throw new IllegalArgumentException("Not a finite number: " + value);
+            }
+            if ((float) value == value) {
+                output.writeUInt32NoTag(FLOAT);
+                output.writeFloatNoTag((float) value);
+            } else {
+                output.writeUInt32NoTag(DOUBLE);
+                output.writeDoubleNoTag(value);
+            }
+        } else {
+            // big integers and decimals that are not exact doubles keep their text
+            output.writeUInt32NoTag(NUMBER);
+            output.writeStringNoTag(node.asText());
+        }
+    }
+
+    private static boolean isExactDouble(BigDecimal value) {
+        double doubleValue = value.doubleValue();
+        // the scale is compared as well, so that the decoded decimal has the same text, e.g. 2.50 is kept as text
+        return Double.isFinite(doubleValue) && new BigDecimal(Double.toString(doubleValue)).equals(value);
+    }
+
+    private static JsonNode readValue(CodedInputStream input, List<String> keys) throws IOException {
+        int type = input.readUInt32();
+        switch (type) {
+            case OBJECT:
+                int fieldsCount = input.readUInt32();
+                ObjectNode object = JsonNodeFactory.instance.objectNode();
+                for (int i = 0; i < fieldsCount; i++) {
+                    int keyId = input.readUInt32();
+                    String key;
+                    if (keyId == 0) {
+                        key = input.readStringRequireUtf8();
+                        keys.add(key);
+                    } else {
+                        key = keys.get(keyId - 1);
+                    }
+                    object.set(key, readValue(input, keys));
+                }
+                return object;
+            case ARRAY:
+                int size = input.readUInt32();
+                ArrayNode array = JsonNodeFactory.instance.arrayNode(size);
+                for (int i = 0; i < size; i++) {
+                    array.add(readValue(input, keys));
+                }
+                return array;
+            case STRING:
+                return JsonNodeFactory.instance.textNode(input.readStringRequireUtf8());
+            case TRUE:
+                return JsonNodeFactory.instance.booleanNode(true);
+            case FALSE:
+                return JsonNodeFactory.instance.booleanNode(false);
+            case INTEGER:
+                // Same node types as the ones produced by the JSON parser
+                long longValue = input.readSInt64();
+                return longValue == (int) longValue ? IntNode.valueOf((int) longValue) : LongNode.valueOf(longValue);
+            case FLOAT:
+                return DecimalNode.valueOf(new BigDecimal(Double.toString(input.readFloat())));
+            case DOUBLE:
+                return DecimalNode.valueOf(new BigDecimal(Double.toString(input.readDouble())));
+            case NUMBER:
+                String number = input.readStringRequireUtf8();
+                if (number.indexOf('.') >= 0 || number.indexOf('e') >= 0 || number.indexOf('E') >= 0) {
+                    return DecimalNode.valueOf(new BigDecimal(number));
+                } else {
+                    return BigIntegerNode.valueOf(new BigInteger(number));
+                }
+            case NULL:
+                return NullNode.getInstance();
+            default:
+                throw new IllegalArgumentException("Unknown value type: " + type);
+        }
+    }
+
+}
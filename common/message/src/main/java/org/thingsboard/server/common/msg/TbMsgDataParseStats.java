@@ -0,0 +1,48 @@
+/**
+ * Copyright © 2016-2023 The Linkstuffs Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.common.msg;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts how many times the rule nodes parsed the message data and how many times they reused the data parsed by
+ * the previous nodes. See {@link TbMsg#getDataAsJson()}.
+ */
+public final class TbMsgDataParseStats {
+
+    private static final LongAdder parsed = new LongAdder();
+    private static final LongAdder reused = new LongAdder();
+
+    private TbMsgDataParseStats() {
+    }
+
+    static void onParsed() {
+        parsed.increment();
+    }
+
+    static void onReused() {
+        reused.increment();
+    }
+
+    public static long getAndResetParsed() {
+        return parsed.sumThenReset();
+    }
+
+    public static long getAndResetReused() {
+        return reused.sumThenReset();
+    }
+
+}
@@ -0,0 +1,124 @@
+/**
+ * Copyright © 2016-2023 The Linkstuffs Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.common.msg;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.thingsboard.server.common.data.id.DeviceId;
+import org.thingsboard.server.common.msg.queue.TbMsgCallback;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the default (JSON text) and the compact TbMsg formats on a telemetry message.
+ * <ul>
+ * <li>encode - serialization of a message that was not parsed yet, as after a script node</li>
+ * <li>encodeParsed - serialization of a message that was parsed by a rule node or created from the parsed data, as on the transport</li>
+ * <li>decode - deserialization only, the data is not used</li>
+ * <li>decodeAndParse - deserialization and {@link TbMsg#getDataAsJson()}, as done by most of the rule nodes</li>
+ * </ul>
+ * The encoded sizes are printed on setup.
+ * Run with: mvn -pl common/message test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=org.thingsboard.server.common.msg.TbMsgFormatBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 2, time = 3)
+@Measurement(iterations = 5, time = 3)
+@Fork(1)
+public class TbMsgFormatBenchmark {
+
+    @Param({"5", "50"})
+    private int keys;
+
+    @Param({"false", "true"})
+    private boolean compact;
+
+    private TbMsg msg;
+    private byte[] encoded;
+
+    @Setup
+    public void setup() {
+        TbMsgMetaData metaData = new TbMsgMetaData();
+        metaData.putValue("deviceName", "Thermostat " + UUID.randomUUID());
+        metaData.putValue("deviceType", "thermostat");
+        metaData.putValue("ts", Long.toString(System.currentTimeMillis()));
+        StringBuilder data = new StringBuilder("{");
+        for (int i = 0; i < keys; i++) {
+            if (i > 0) {
+                data.append(',');
+            }
+            data.append("\"key").append(i).append("\":");
+            switch (i % 4) {
+                case 0:
+                    data.append(i * 1000L);
+                    break;
+                case 1:
+                    data.append(i + 0.25);
+                    break;
+                case 2:
+                    data.append(i % 2 == 0);
+                    break;
+                default:
+                    data.append("\"value").append(i).append('"');
+            }
+        }
+        data.append('}');
+        msg = TbMsg.newMsg("POST_TELEMETRY_REQUEST", new DeviceId(UUID.randomUUID()), metaData, data.toString());
+        msg.getDataAsJson();
+        encoded = TbMsg.toByteArray(msg, compact);
+    }
+
+    @Benchmark
+    public byte[] encode() {
+        TbMsg notParsed = TbMsg.newMsg(msg.getType(), msg.getOriginator(), msg.getMetaData(), msg.getData());
+        return TbMsg.toByteArray(notParsed, compact);
+    }
+
+    @Benchmark
+    public byte[] encodeParsed() {
+        TbMsg parsed = TbMsg.transformMsgData(msg, msg.getDataAsJson());
+        return TbMsg.toByteArray(parsed, compact);
+    }
+
+    @Benchmark
+    public TbMsg decode() {
+        return TbMsg.fromBytes("Main", encoded, TbMsgCallback.EMPTY);
+    }
+
+    @Benchmark
+    public Object decodeAndParse() {
+        return TbMsg.fromBytes("Main", encoded, TbMsgCallback.EMPTY).getDataAsJson();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(TbMsgFormatBenchmark.class.getSimpleName()).build()).run();
+    }
+
+}
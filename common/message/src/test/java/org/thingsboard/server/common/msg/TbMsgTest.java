@@ -0,0 +1,225 @@
+/**
+ * Copyright © 2016-2023 The Linkstuffs Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.common.msg;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.junit.Test;
+import org.thingsboard.server.common.data.id.DeviceId;
+import org.thingsboard.server.common.msg.queue.TbMsgCallback;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class TbMsgTest {
+
+    private final DeviceId deviceId = new DeviceId(UUID.randomUUID());
+
+    @Test
+    public void testDataAsJson_whenCalledTwice_thenParsedOnce() {
+        TbMsg msg = TbMsg.newMsg("POST_TELEMETRY_REQUEST", deviceId, new TbMsgMetaData(), "{\"temperature\":42}");
+        TbMsgDataParseStats.getAndResetParsed();
+        TbMsgDataParseStats.getAndResetReused();
+
+        JsonNode first = msg.getDataAsJson();
+        JsonNode second = msg.getDataAsJson();
+
+        assertSame(first, second);
+        assertEquals(42, first.get("temperature").asInt());
+        assertEquals(1, TbMsgDataParseStats.getAndResetParsed());
+        assertEquals(1, TbMsgDataParseStats.getAndResetReused());
+    }
+
+    @Test
+    public void testDataAsJson_whenMetaDataTransformed_thenParsedDataShared() {
+        TbMsg msg = TbMsg.newMsg("POST_TELEMETRY_REQUEST", deviceId, new TbMsgMetaData(), "{\"temperature\":42}");
+        JsonNode parsed = msg.getDataAsJson();
+
+        TbMsg transformed = TbMsg.transformMsg(msg, new TbMsgMetaData());
+        TbMsg sameData = TbMsg.transformMsg(msg, msg.getType(), msg.getOriginator(), msg.getMetaData(), "{\"temperature\":42}");
+
+        assertSame(parsed, transformed.getDataAsJson());
+        assertSame(parsed, sameData.getDataAsJson());
+    }
+
+    @Test
+    public void testDataAsJson_whenDataTransformed_thenParsedDataInvalidated() {
+        TbMsg msg = TbMsg.newMsg("POST_TELEMETRY_REQUEST", deviceId, new TbMsgMetaData(), "{\"temperature\":42}");
+        JsonNode parsed = msg.getDataAsJson();
+
+        TbMsg transformed = TbMsg.transformMsgData(msg, "{\"temperature\":43}");
+
+        assertNotSame(parsed, transformed.getDataAsJson());
+        assertEquals(43, transformed.getDataAsJson().get("temperature").asInt());
+    }
+
+    @Test
+    public void testDataAsJson_whenTransformedWithJson_thenDataSerializedAndNodeKept() {
+        TbMsg msg = TbMsg.newMsg("POST_TELEMETRY_REQUEST", deviceId, new TbMsgMetaData(), "{\"temperature\":42}");
+        ObjectNode newData = (ObjectNode) msg.getDataAsJson().deepCopy();
+        newData.put("humidity", 10);
+
+        TbMsg transformed = TbMsg.transformMsgData(msg, newData);
+
+        assertEquals("{\"temperature\":42,\"humidity\":10}", transformed.getData());
+        assertSame(newData, transformed.getDataAsJson());
+        assertEquals("{\"temperature\":42}", msg.getData());
+    }
+
+    @Test
+    public void testDataAsJson_whenDataEmpty_thenNull() {
+        TbMsg msg = TbMsg.newMsg("POST_TELEMETRY_REQUEST", deviceId, new TbMsgMetaData(), "");
+
+        assertNull(msg.getDataAsJson());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testDataAsJson_whenDataNotJson_thenIllegalArgumentException() {
+        TbMsg msg = TbMsg.newMsg("POST_TELEMETRY_REQUEST", deviceId, new TbMsgMetaData(), "not a json");
+
+        msg.getDataAsJson();
+    }
+
+    @Test
+    public void testCompactFormat_whenDecoded_thenSameDataAndMetaData() {
+        TbMsgMetaData metaData = new TbMsgMetaData();
+        metaData.putValue("deviceName", "Thermostat A");
+        metaData.putValue("deviceType", "thermostat");
+        metaData.putValue("customKey", "customValue");
+        String data = "{\"temperature\":42,\"humidity\":10.5,\"big\":12345678901234,\"huge\":123456789012345678901234567890," +
+                "\"enabled\":true,\"name\":\"A\",\"none\":null,\"values\":[{\"ts\":1,\"value\":2},{\"ts\":3,\"value\":4}]}";
+        TbMsg msg = TbMsg.newMsg("POST_TELEMETRY_REQUEST", deviceId, metaData, data);
+
+        TbMsg decoded = TbMsg.fromBytes("Main", TbMsg.toByteArray(msg, true), TbMsgCallback.EMPTY);
+
+        assertEquals(msg.getMetaData(), decoded.getMetaData());
+        assertEquals(msg.getDataAsJson(), decoded.getDataAsJson());
+        assertEquals(data, decoded.getData());
+        assertEquals(msg.getId(), decoded.getId());
+    }
+
+    @Test
+    public void testCompactFormat_whenDecimals_thenSameText() {
+        String data = "{\"a\":2.0,\"b\":2.50,\"c\":0.1,\"d\":1E+1,\"e\":1.23456789012345678}";
+        TbMsg msg = TbMsg.newMsg("POST_TELEMETRY_REQUEST", deviceId, new TbMsgMetaData(), data);
+
+        TbMsg decoded = TbMsg.fromBytes("Main", TbMsg.toByteArray(msg, true), TbMsgCallback.EMPTY);
+
+        assertEquals(msg.getData(), decoded.getData());
+        assertEquals("2.0", decoded.getDataAsJson().get("a").asText());
+        assertEquals("2.50", decoded.getDataAsJson().get("b").asText());
+    }
+
+    @Test
+    public void testCompactFormat_whenTelemetry_thenSmallerThanDefault() {
+        TbMsgMetaData metaData = new TbMsgMetaData();
+        metaData.putValue("deviceName", "Thermostat A");
+        metaData.putValue("deviceType", "thermostat");
+        metaData.putValue("ts", "1679000000000");
+        TbMsg msg = TbMsg.newMsg("POST_TELEMETRY_REQUEST", deviceId, metaData,
+                "{\"temperature\":42.5,\"humidity\":73,\"pressure\":1013,\"battery\":96,\"active\":true}");
+
+        assertTrue(TbMsg.toByteArray(msg, true).length < TbMsg.toByteArray(msg, false).length);
+    }
+
+    @Test
+    public void testCompactFormat_whenDataNotUsed_thenForwardedWithoutDecoding() {
+        TbMsg msg = TbMsg.newMsg("POST_TELEMETRY_REQUEST", deviceId, new TbMsgMetaData(), "{\"temperature\":42}");
+        byte[] encoded = TbMsg.toByteArray(msg, true);
+        TbMsgDataParseStats.getAndResetParsed();
+
+        TbMsg received = TbMsg.fromBytes("Main", encoded, TbMsgCallback.EMPTY);
+        TbMsg forwarded = TbMsg.fromBytes("Main", TbMsg.toByteArray(TbMsg.transformMsg(received, "HighPriority"), true), TbMsgCallback.EMPTY);
+
+        assertEquals(0, TbMsgDataParseStats.getAndResetParsed());
+        assertEquals("{\"temperature\":42}", forwarded.getData());
+    }
+
+    @Test
+    public void testCompactFormat_whenDataNotJson_thenSentAsText() {
+        TbMsg msg = TbMsg.newMsg("TEXT_MSG", deviceId, new TbMsgMetaData(), TbMsgDataType.TEXT, "not a json");
+        TbMsg invalidJsonMsg = TbMsg.newMsg("JSON_MSG", deviceId, new TbMsgMetaData(), "{not a json");
+
+        assertEquals("not a json", TbMsg.fromBytes("Main", TbMsg.toByteArray(msg, true), TbMsgCallback.EMPTY).getData());
+        assertEquals("{not a json", TbMsg.fromBytes("Main", TbMsg.toByteArray(invalidJsonMsg, true), TbMsgCallback.EMPTY).getData());
+    }
+
+    @Test
+    public void testCompactFormat_whenTrailingTokens_thenSentAsText() {
+        TbMsg msg = TbMsg.newMsg("JSON_MSG", deviceId, new TbMsgMetaData(), "123 abc");
+
+        assertEquals("123 abc", TbMsg.fromBytes("Main", TbMsg.toByteArray(msg, true), TbMsgCallback.EMPTY).getData());
+    }
+
+    @Test
+    public void testCompactFormat_whenDecimalsNotExactDoubles_thenValuesKept() throws Exception {
+        String data = "{\"long\":0.1000000000000000055511151231257827,\"tiny\":-1.5E-400," +
+                "\"big\":12345678901234567890.5,\"double\":21.5,\"array\":[1.10,3.141592653589793238462643383279]}";
+        TbMsg msg = TbMsg.newMsg("POST_TELEMETRY_REQUEST", deviceId, new TbMsgMetaData(), data);
+
+        String decoded = TbMsg.fromBytes("Main", TbMsg.toByteArray(msg, true), TbMsgCallback.EMPTY).getData();
+        JsonNode result = TbMsgCompactFormat.DATA_READER.readTree(decoded);
+
+        assertSameNumber("0.1000000000000000055511151231257827", result.get("long"));
+        assertSameNumber("-1.5E-400", result.get("tiny"));
+        assertSameNumber("12345678901234567890.5", result.get("big"));
+        assertSameNumber("21.5", result.get("double"));
+        assertSameNumber("1.10", result.get("array").get(0));
+        assertSameNumber("3.141592653589793238462643383279", result.get("array").get(1));
+    }
+
+    @Test
+    public void testCompactFormat_whenDecimalOutOfDoubleRange_thenSentAsText() {
+        String data = "{\"huge\":1e400}";
+        TbMsg msg = TbMsg.newMsg("POST_TELEMETRY_REQUEST", deviceId, new TbMsgMetaData(), data);
+
+        assertEquals(data, TbMsg.fromBytes("Main", TbMsg.toByteArray(msg, true), TbMsgCallback.EMPTY).getData());
+    }
+
+    private static void assertSameNumber(String expected, JsonNode actual) {
+        assertTrue(actual + " is not " + expected, actual.isNumber() && new BigDecimal(expected).compareTo(actual.decimalValue()) == 0);
+    }
+
+    @Test
+    public void testNewMsg_whenCreatedFromJson_thenTextBuiltOnRequest() {
+        ObjectNode data = JsonNodeFactory.instance.objectNode().put("temperature", 42);
+
+        TbMsg msg = TbMsg.newMsg("Main", "POST_TELEMETRY_REQUEST", deviceId, null, new TbMsgMetaData(), data, null, null);
+        TbMsg decoded = TbMsg.fromBytes("Main", TbMsg.toByteArray(msg, true), TbMsgCallback.EMPTY);
+
+        assertSame(data, msg.getDataAsJson());
+        assertEquals("{\"temperature\":42}", msg.getData());
+        assertEquals("{\"temperature\":42}", decoded.getData());
+    }
+
+    @Test
+    public void testEquals_whenOnlyOneMsgParsed_thenEqual() {
+        TbMsg msg = TbMsg.newMsg("POST_TELEMETRY_REQUEST", deviceId, new TbMsgMetaData(), "{\"temperature\":42}");
+        TbMsg copy = msg.copyWithRuleChainId(null);
+        msg.getDataAsJson();
+
+        assertEquals(copy, msg.copyWithRuleChainId(null));
+        assertEquals(copy.hashCode(), msg.copyWithRuleChainId(null).hashCode());
+    }
+
+}
@@ -105,7 +105,9 @@ public abstract class AbstractTbQueueConsumerTemplate<R, T extends TbQueueMsg> i
 
         if (records.isEmpty()) { return sleepAndReturnEmpty(startNanos, durationInMillis); }
 
-        return decodeRecords(records);
+        List<T> msgs = decodeRecords(records);
+        onPolled(records, msgs);
+        return msgs;
     }
 
     @Nonnull
@@ -114,7 +116,7 @@ public abstract class AbstractTbQueueConsumerTemplate<R, T extends TbQueueMsg> i
         records.forEach(record -> {
             try {
                 if (record != null) {
-                    result.add(decode(record));
+                    decode(record, result);
                 }
             } catch (IOException e) {
                 log.error("Failed decode record: [{}]", record);
@@ -160,6 +162,16 @@ public abstract class AbstractTbQueueConsumerTemplate<R, T extends TbQueueMsg> i
         }
     }
 
+    @Override
+    public void commit(List<T> polledMsgs) {
+        consumerLock.lock();
+        try {
+            doCommit(polledMsgs);
+        } finally {
+            consumerLock.unlock();
+        }
+    }
+
     @Override
     public void unsubscribe() {
         log.info("unsubscribe topic and stop consumer {}", getTopic());
@@ -181,10 +193,27 @@ public abstract class AbstractTbQueueConsumerTemplate<R, T extends TbQueueMsg> i
 
     abstract protected T decode(R record) throws IOException;
 
+    /**
+     * Decodes the record into one or more messages, consumers that receive batches of messages unpack them here.
+     */
+    protected void decode(R record, List<T> result) throws IOException {
+        result.add(decode(record));
+    }
+
     abstract protected void doSubscribe(List<String> topicNames);
 
     abstract protected void doCommit();
 
+    /**
+     * Called for every non-empty poll, consumers that support partial commits remember the positions of the polled records here.
+     */
+    protected void onPolled(List<R> records, List<T> msgs) {
+    }
+
+    protected void doCommit(List<T> polledMsgs) {
+        throw new UnsupportedOperationException("Partial commit is not supported by " + getClass().getSimpleName());
+    }
+
     abstract protected void doUnsubscribe();
 
 }
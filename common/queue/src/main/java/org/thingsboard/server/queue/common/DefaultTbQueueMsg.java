@@ -15,12 +15,14 @@
  */
 package org.thingsboard.server.queue.common;
 
+import lombok.AllArgsConstructor;
 import lombok.Data;
 import org.thingsboard.server.queue.TbQueueMsg;
 
 import java.util.UUID;
 
 @Data
+@AllArgsConstructor
 public class DefaultTbQueueMsg implements TbQueueMsg {
     private final UUID key;
     private final byte[] data;
@@ -0,0 +1,168 @@
+/**
+ * Copyright © 2016-2023 The Linkstuffs Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.queue.common;
+
+import lombok.Builder;
+import lombok.extern.slf4j.Slf4j;
+import org.thingsboard.common.util.ThingsBoardThreadFactory;
+import org.thingsboard.server.common.msg.queue.TopicPartitionInfo;
+import org.thingsboard.server.queue.TbQueueCallback;
+import org.thingsboard.server.queue.TbQueueMsg;
+import org.thingsboard.server.queue.TbQueueMsgMetadata;
+import org.thingsboard.server.queue.TbQueueProducer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coalesces the messages sent to the same partition within the linger time into a single record, see {@link TbQueueMsgBatch}.
+ * The batch is sent once the linger time passes or the batch reaches maxBatchSize messages or maxBatchBytes bytes.
+ * A single message is sent as is. Callbacks of the batched messages are completed with the result of the batch record.
+ * Consumers must unpack the batches, so use it only with the queue implementations that do it.
+ */
+@Slf4j
+public class TbQueueBatchingProducer<T extends TbQueueMsg> implements TbQueueProducer<T> {
+
+    private final TbQueueProducer<TbQueueMsg> delegate;
+    private final long lingerMs;
+    private final int maxBatchSize;
+    private final int maxBatchBytes;
+
+    private final ConcurrentMap<TopicPartitionInfo, PendingBatch> batches = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService scheduler;
+
+    @Builder
+    private TbQueueBatchingProducer(TbQueueProducer<TbQueueMsg> delegate, long lingerMs, int maxBatchSize, int maxBatchBytes) {
+        this.delegate = delegate;
+        this.lingerMs = lingerMs;
+        this.maxBatchSize = maxBatchSize;
+        this.maxBatchBytes = maxBatchBytes;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(ThingsBoardThreadFactory.forName("batching-producer-" + delegate.getDefaultTopic()));
+    }
+
+    @Override
+    public void init() {
+        delegate.init();
+    }
+
+    @Override
+    public String getDefaultTopic() {
+        return delegate.getDefaultTopic();
+    }
+
+    @Override
+    public void send(TopicPartitionInfo tpi, T msg, TbQueueCallback callback) {
+        batches.computeIfAbsent(tpi, PendingBatch::new).add(msg, callback);
+    }
+
+    @Override
+    public void stop() {
+        batches.values().forEach(PendingBatch::flush);
+        scheduler.shutdownNow();
+        delegate.stop();
+    }
+
+    private class PendingBatch {
+
+        private final TopicPartitionInfo tpi;
+        private List<TbQueueMsg> msgs = new ArrayList<>();
+        private List<TbQueueCallback> callbacks = new ArrayList<>();
+        private int bytes;
+        private ScheduledFuture<?> flushFuture;
+
+        private PendingBatch(TopicPartitionInfo tpi) {
+            this.tpi = tpi;
+        }
+
+        synchronized void add(TbQueueMsg msg, TbQueueCallback callback) {
+            byte[] data = msg.getData();
+            if (!msgs.isEmpty() && bytes + data.length > maxBatchBytes) {
+                flush();
+            }
+            DefaultTbQueueMsgHeaders headers = new DefaultTbQueueMsgHeaders();
+            msg.getHeaders().getData().forEach(headers::put);
+            msgs.add(new DefaultTbQueueMsg(msg.getKey(), data, headers));
+            callbacks.add(callback);
+            bytes += data.length;
+            if (msgs.size() >= maxBatchSize || bytes >= maxBatchBytes) {
+                flush();
+            } else if (flushFuture == null) {
+                flushFuture = scheduler.schedule(this::flush, lingerMs, TimeUnit.MILLISECONDS);
+            }
+        }
+
+        synchronized void flush() {
+            if (flushFuture != null) {
+                flushFuture.cancel(false);
+                flushFuture = null;
+            }
+            if (msgs.isEmpty()) {
+                return;
+            }
+            List<TbQueueMsg> batchMsgs = msgs;
+            List<TbQueueCallback> batchCallbacks = callbacks;
+            msgs = new ArrayList<>();
+            callbacks = new ArrayList<>();
+            bytes = 0;
+            try {
+                if (batchMsgs.size() == 1) {
+                    delegate.send(tpi, batchMsgs.get(0), batchCallbacks.get(0));
+                } else {
+                    delegate.send(tpi, TbQueueMsgBatch.pack(batchMsgs), new BatchCallback(batchCallbacks));
+                }
+            } catch (Exception e) {
+                // the delegate reports the failure to the callback as well
+                log.debug("[{}] Failed to send batch of {} messages", tpi.getFullTopicName(), batchMsgs.size(), e);
+            }
+        }
+
+    }
+
+    private static class BatchCallback implements TbQueueCallback {
+
+        private final List<TbQueueCallback> callbacks;
+
+        private BatchCallback(List<TbQueueCallback> callbacks) {
+            this.callbacks = callbacks;
+        }
+
+        @Override
+        public void onSuccess(TbQueueMsgMetadata metadata) {
+            for (TbQueueCallback callback : callbacks) {
+                if (callback != null) {
+                    callback.onSuccess(metadata);
+                }
+            }
+        }
+
+        @Override
+        public void onFailure(Throwable t) {
+            for (TbQueueCallback callback : callbacks) {
+                if (callback != null) {
+                    callback.onFailure(t);
+                }
+            }
+        }
+
+    }
+
+}
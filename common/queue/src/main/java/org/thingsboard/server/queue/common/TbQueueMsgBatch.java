@@ -0,0 +1,84 @@
+/**
+ * Copyright © 2016-2023 The Linkstuffs Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.queue.common;
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.UnsafeByteOperations;
+import org.thingsboard.server.gen.transport.TransportProtos.QueueMsgBatchProto;
+import org.thingsboard.server.gen.transport.TransportProtos.QueueMsgHeaderProto;
+import org.thingsboard.server.gen.transport.TransportProtos.QueueMsgProto;
+import org.thingsboard.server.queue.TbQueueMsg;
+import org.thingsboard.server.queue.TbQueueMsgHeaders;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Packs several queue messages into a single envelope message and back.
+ * The envelope is marked with the {@link #HEADER} header, so the consumers tell it from a regular message.
+ */
+public final class TbQueueMsgBatch {
+
+    public static final String HEADER = "tb-msg-batch";
+    private static final byte[] HEADER_VALUE = {1};
+
+    private TbQueueMsgBatch() {
+    }
+
+    public static boolean isBatch(TbQueueMsgHeaders headers) {
+        return headers.get(HEADER) != null;
+    }
+
+    public static TbQueueMsg pack(List<? extends TbQueueMsg> msgs) {
+        QueueMsgBatchProto.Builder batch = QueueMsgBatchProto.newBuilder();
+        for (TbQueueMsg msg : msgs) {
+            QueueMsgProto.Builder msgProto = QueueMsgProto.newBuilder()
+                    .setKeyMSB(msg.getKey().getMostSignificantBits())
+                    .setKeyLSB(msg.getKey().getLeastSignificantBits())
+                    .setData(UnsafeByteOperations.unsafeWrap(msg.getData()));
+            for (Map.Entry<String, byte[]> header : msg.getHeaders().getData().entrySet()) {
+                msgProto.addHeaders(QueueMsgHeaderProto.newBuilder().setKey(header.getKey()).setValue(ByteString.copyFrom(header.getValue())));
+            }
+            batch.addMsgs(msgProto);
+        }
+        DefaultTbQueueMsgHeaders headers = new DefaultTbQueueMsgHeaders();
+        headers.put(HEADER, HEADER_VALUE);
+        return new DefaultTbQueueMsg(msgs.get(0).getKey(), batch.build().toByteArray(), headers);
+    }
+
+    public static List<TbQueueMsg> unpack(byte[] data) throws IOException {
+        QueueMsgBatchProto batch;
+        try {
+            batch = QueueMsgBatchProto.parseFrom(data);
+        } catch (InvalidProtocolBufferException e) {
+            throw new IOException("Failed to parse message batch", e);
+        }
+        List<TbQueueMsg> msgs = new ArrayList<>(batch.getMsgsCount());
+        for (QueueMsgProto msgProto : batch.getMsgsList()) {
+            DefaultTbQueueMsgHeaders headers = new DefaultTbQueueMsgHeaders();
+            for (QueueMsgHeaderProto header : msgProto.getHeadersList()) {
+                headers.put(header.getKey(), header.getValue().toByteArray());
+            }
+            msgs.add(new DefaultTbQueueMsg(new UUID(msgProto.getKeyMSB(), msgProto.getKeyLSB()), msgProto.getData().toByteArray(), headers));
+        }
+        return msgs;
+    }
+
+}
@@ -19,6 +19,7 @@ import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.thingsboard.server.queue.TbQueueMsg;
 import org.thingsboard.server.queue.TbQueueMsgHeaders;
 import org.thingsboard.server.queue.common.DefaultTbQueueMsgHeaders;
+import org.thingsboard.server.queue.common.TbQueueMsgBatch;
 
 import java.util.UUID;
 
@@ -28,13 +29,19 @@ public class KafkaTbQueueMsg implements TbQueueMsg {
     private final byte[] data;
 
     public KafkaTbQueueMsg(ConsumerRecord<String, byte[]> record) {
+        this(record, record.value());
+    }
+
+    public KafkaTbQueueMsg(ConsumerRecord<String, byte[]> record, byte[] data) {
         this.key = UUID.fromString(record.key());
         TbQueueMsgHeaders headers = new DefaultTbQueueMsgHeaders();
         record.headers().forEach(header -> {
-            headers.put(header.key(), header.value());
+            if (!TbKafkaPayloadCodec.HEADER.equals(header.key()) && !TbQueueMsgBatch.HEADER.equals(header.key())) {
+                headers.put(header.key(), header.value());
+            }
         });
         this.headers = headers;
-        this.data = record.value();
+        this.data = data;
     }
 
     @Override
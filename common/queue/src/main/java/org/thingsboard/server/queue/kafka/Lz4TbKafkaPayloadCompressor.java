@@ -0,0 +1,77 @@
+/**
+ * Copyright © 2016-2023 The Linkstuffs Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.queue.kafka;
+
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Exception;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.lz4.LZ4SafeDecompressor;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * LZ4 block prefixed with the 4-byte length of the uncompressed payload.
+ */
+class Lz4TbKafkaPayloadCompressor implements TbKafkaPayloadCompressor {
+
+    private static final int LENGTH_SIZE = 4;
+
+    private final LZ4Compressor compressor;
+    private final LZ4SafeDecompressor decompressor;
+
+    Lz4TbKafkaPayloadCompressor(int level) {
+        LZ4Factory factory = LZ4Factory.fastestInstance();
+        this.compressor = level > 0 ? factory.highCompressor(level) : factory.fastCompressor();
+        // the fast decompressor trusts the input and may read out of the block on the malformed payloads
+        this.decompressor = factory.safeDecompressor();
+    }
+
+    @Override
+    public byte[] compress(byte[] data) {
+        int maxLength = compressor.maxCompressedLength(data.length);
+        byte[] result = new byte[LENGTH_SIZE + maxLength];
+        result[0] = (byte) (data.length >>> 24);
+        result[1] = (byte) (data.length >>> 16);
+        result[2] = (byte) (data.length >>> 8);
+        result[3] = (byte) data.length;
+        int length = compressor.compress(data, 0, data.length, result, LENGTH_SIZE, maxLength);
+        return Arrays.copyOf(result, LENGTH_SIZE + length);
+    }
+
+    @Override
+    public byte[] decompress(byte[] data, int maxSize) throws IOException {
+        if (data.length < LENGTH_SIZE) {
+            throw new IOException("LZ4 payload is too short: " + data.length);
+        }
+        int length = ((data[0] & 0xFF) << 24) | ((data[1] & 0xFF) << 16) | ((data[2] & 0xFF) << 8) | (data[3] & 0xFF);
+        if (length < 0 || length > maxSize) {
+            throw new IOException("Invalid LZ4 payload length: " + length);
+        }
+        byte[] result = new byte[length];
+        int size;
+        try {
+            size = decompressor.decompress(data, LENGTH_SIZE, data.length - LENGTH_SIZE, result, 0, length);
+        } catch (LZ4Exception e) {
+            throw new IOException("Failed to decompress LZ4 payload", e);
+        }
+        if (size != length) {
+            throw new IOException("LZ4 payload length mismatch: expected " + length + ", actual " + size);
+        }
+        return result;
+    }
+
+}
@@ -21,17 +21,25 @@ import org.apache.kafka.clients.consumer.ConsumerConfig;
 import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.apache.kafka.clients.consumer.ConsumerRecords;
 import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
 import org.springframework.util.StopWatch;
 import org.thingsboard.server.queue.TbQueueAdmin;
 import org.thingsboard.server.queue.TbQueueMsg;
 import org.thingsboard.server.queue.common.AbstractTbQueueConsumerTemplate;
+import org.thingsboard.server.queue.common.TbQueueMsgBatch;
 
 import java.io.IOException;
 import java.time.Duration;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
+import java.util.Set;
 
 /**
  * Created by ashvayka on 24.09.18.
@@ -42,20 +50,29 @@ public class TbKafkaConsumerTemplate<T extends TbQueueMsg> extends AbstractTbQue
     private final TbQueueAdmin admin;
     private final KafkaConsumer<String, byte[]> consumer;
     private final TbKafkaDecoder<T> decoder;
+    private final TbKafkaPayloadCodecService payloadCodecs;
 
     private final TbKafkaConsumerStatsService statsService;
     private final String groupId;
+    private final boolean partialCommit;
+    private final Deque<PolledOffsets<T>> uncommittedPolls = new ArrayDeque<>();
 
     @Builder
     private TbKafkaConsumerTemplate(TbKafkaSettings settings, TbKafkaDecoder<T> decoder,
                                     String clientId, String groupId, String topic,
-                                    TbQueueAdmin admin, TbKafkaConsumerStatsService statsService) {
+                                    TbQueueAdmin admin, TbKafkaConsumerStatsService statsService, boolean partialCommit,
+                                    TbKafkaPayloadCodecService payloadCodecs) {
         super(topic);
         Properties props = settings.toConsumerProps(topic);
         props.put(ConsumerConfig.CLIENT_ID_CONFIG, clientId);
         if (groupId != null) {
             props.put(ConsumerConfig.GROUP_ID_CONFIG, groupId);
         }
+        this.partialCommit = partialCommit;
+        if (partialCommit) {
+            // auto commit would commit the position of the records that are polled ahead and not processed yet
+            props.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+        }
 
         this.statsService = statsService;
         this.groupId = groupId;
@@ -67,6 +84,7 @@ public class TbKafkaConsumerTemplate<T extends TbQueueMsg> extends AbstractTbQue
         this.admin = admin;
         this.consumer = new KafkaConsumer<>(props);
         this.decoder = decoder;
+        this.payloadCodecs = payloadCodecs;
     }
 
     @Override
@@ -74,6 +92,7 @@ public class TbKafkaConsumerTemplate<T extends TbQueueMsg> extends AbstractTbQue
         if (!topicNames.isEmpty()) {
             topicNames.forEach(admin::createTopicIfNotExists);
             log.info("subscribe topics {}", topicNames);
+            uncommittedPolls.clear();
             consumer.subscribe(topicNames);
         } else {
             log.info("unsubscribe due to empty topic list");
@@ -104,14 +123,69 @@ public class TbKafkaConsumerTemplate<T extends TbQueueMsg> extends AbstractTbQue
 
     @Override
     public T decode(ConsumerRecord<String, byte[]> record) throws IOException {
-        return decoder.decode(new KafkaTbQueueMsg(record));
+        return decoder.decode(new KafkaTbQueueMsg(record, decodePayload(record)));
+    }
+
+    @Override
+    protected void decode(ConsumerRecord<String, byte[]> record, List<T> result) throws IOException {
+        if (record.headers().lastHeader(TbQueueMsgBatch.HEADER) == null) {
+            result.add(decode(record));
+            return;
+        }
+        for (TbQueueMsg msg : TbQueueMsgBatch.unpack(decodePayload(record))) {
+            result.add(decoder.decode(msg));
+        }
+    }
+
+    private byte[] decodePayload(ConsumerRecord<String, byte[]> record) throws IOException {
+        if (payloadCodecs == null) {
+            return record.value();
+        }
+        return payloadCodecs.decode(getTopic(), record.headers(), record.value());
     }
 
     @Override
     protected void doCommit() {
+        uncommittedPolls.clear();
         consumer.commitSync();
     }
 
+    @Override
+    public boolean isPartialCommitSupported() {
+        return partialCommit;
+    }
+
+    @Override
+    protected void onPolled(List<ConsumerRecord<String, byte[]>> records, List<T> msgs) {
+        if (partialCommit) {
+            Map<TopicPartition, OffsetAndMetadata> offsets = new HashMap<>();
+            for (ConsumerRecord<String, byte[]> record : records) {
+                offsets.merge(new TopicPartition(record.topic(), record.partition()), new OffsetAndMetadata(record.offset() + 1),
+                        (a, b) -> a.offset() >= b.offset() ? a : b);
+            }
+            uncommittedPolls.add(new PolledOffsets<>(msgs, offsets));
+        }
+    }
+
+    @Override
+    protected void doCommit(List<T> polledMsgs) {
+        if (uncommittedPolls.stream().noneMatch(polled -> polled.msgs == polledMsgs)) {
+            log.debug("[{}] Polled messages are already committed or were polled before the last subscribe", getTopic());
+            return;
+        }
+        Map<TopicPartition, OffsetAndMetadata> offsets = new HashMap<>();
+        PolledOffsets<T> polled;
+        do {
+            polled = uncommittedPolls.poll();
+            offsets.putAll(polled.offsets);
+        } while (polled.msgs != polledMsgs);
+        Set<TopicPartition> assignment = consumer.assignment();
+        offsets.keySet().retainAll(assignment);
+        if (!offsets.isEmpty()) {
+            consumer.commitSync(offsets);
+        }
+    }
+
     @Override
     protected void doUnsubscribe() {
         log.info("unsubscribe topic and close consumer for topic {}", getTopic());
@@ -123,4 +197,14 @@ public class TbKafkaConsumerTemplate<T extends TbQueueMsg> extends AbstractTbQue
             statsService.unregisterClientGroup(groupId);
         }
     }
+
+    private static class PolledOffsets<T> {
+        private final List<T> msgs;
+        private final Map<TopicPartition, OffsetAndMetadata> offsets;
+
+        private PolledOffsets(List<T> msgs, Map<TopicPartition, OffsetAndMetadata> offsets) {
+            this.msgs = msgs;
+            this.offsets = offsets;
+        }
+    }
 }
@@ -0,0 +1,107 @@
+/**
+ * Copyright © 2016-2023 The Linkstuffs Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.queue.kafka;
+
+import io.micrometer.core.instrument.Timer;
+import lombok.Getter;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.internals.RecordHeader;
+import org.thingsboard.server.common.stats.DefaultCounter;
+import org.thingsboard.server.common.stats.StatsFactory;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compresses the record payloads of a single topic and tracks the compression ratio and the time spent.
+ */
+public class TbKafkaPayloadCodec {
+
+    public static final String HEADER = "tb-payload-codec";
+    static final char DICTIONARY_ID_SEPARATOR = ':';
+    private static final String STATS_KEY = "kafkaPayloadCodec";
+    private static final int MAX_DECOMPRESSED_SIZE = 64 * 1024 * 1024;
+
+    @Getter
+    private final TbKafkaPayloadCodecType type;
+    private final TbKafkaPayloadCompressor compressor;
+    private final int minSize;
+    private final Header header;
+
+    private final DefaultCounter rawBytes;
+    private final DefaultCounter encodedBytes;
+    private final Timer encodeTimer;
+    private final Timer decodeTimer;
+
+    TbKafkaPayloadCodec(String topic, TbKafkaPayloadCodecType type, TbKafkaPayloadCompressor compressor, long dictionaryId, int minSize, StatsFactory statsFactory) {
+        this.type = type;
+        this.compressor = compressor;
+        this.minSize = minSize;
+        this.header = new RecordHeader(HEADER, toHeaderValue(type, dictionaryId).getBytes(StandardCharsets.UTF_8));
+        String codec = type.name().toLowerCase();
+        this.rawBytes = statsFactory.createDefaultCounter(STATS_KEY, "topic", topic, "codec", codec, "statsName", "rawBytes");
+        this.encodedBytes = statsFactory.createDefaultCounter(STATS_KEY, "topic", topic, "codec", codec, "statsName", "encodedBytes");
+        this.encodeTimer = statsFactory.createTimer(STATS_KEY + ".encode", "topic", topic, "codec", codec);
+        this.decodeTimer = statsFactory.createTimer(STATS_KEY + ".decode", "topic", topic, "codec", codec);
+    }
+
+    /**
+     * @return the compressed payload, or null if the payload should be sent as is
+     */
+    public byte[] encode(byte[] data) {
+        if (data.length < minSize) {
+            return null;
+        }
+        long startTs = System.nanoTime();
+        byte[] encoded = compressor.compress(data);
+        encodeTimer.record(System.nanoTime() - startTs, TimeUnit.NANOSECONDS);
+        rawBytes.add(data.length);
+        if (encoded.length >= data.length) {
+            encodedBytes.add(data.length);
+            return null;
+        }
+        encodedBytes.add(encoded.length);
+        return encoded;
+    }
+
+    public byte[] decode(byte[] data) throws IOException {
+        long startTs = System.nanoTime();
+        byte[] decoded = compressor.decompress(data, MAX_DECOMPRESSED_SIZE);
+        decodeTimer.record(System.nanoTime() - startTs, TimeUnit.NANOSECONDS);
+        return decoded;
+    }
+
+    public Header getHeader() {
+        return header;
+    }
+
+    /**
+     * The codec name, followed by the id of the zstd dictionary if any: "ZSTD:1234567".
+     */
+    static String toHeaderValue(TbKafkaPayloadCodecType type, long dictionaryId) {
+        return dictionaryId != 0 ? type.name() + DICTIONARY_ID_SEPARATOR + dictionaryId : type.name();
+    }
+
+    public int getRawBytes() {
+        return rawBytes.get();
+    }
+
+    public int getEncodedBytes() {
+        return encodedBytes.get();
+    }
+
+}
@@ -0,0 +1,31 @@
+/**
+ * Copyright © 2016-2023 The Linkstuffs Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.queue.kafka;
+
+import lombok.Data;
+
+@Data
+public class TbKafkaPayloadCodecConfig {
+
+    private TbKafkaPayloadCodecType type = TbKafkaPayloadCodecType.NONE;
+    // Compression level, 0 means the default level of the codec
+    private int level;
+    // Payloads smaller than this are sent uncompressed
+    private int minSize = 64;
+    // Path to a zstd dictionary file trained on samples of the topic payloads
+    private String dictionary;
+
+}
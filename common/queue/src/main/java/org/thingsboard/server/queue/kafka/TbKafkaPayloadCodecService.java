@@ -0,0 +1,152 @@
+/**
+ * Copyright © 2016-2023 The Linkstuffs Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.queue.kafka;
+
+import com.github.luben.zstd.Zstd;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.Headers;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.thingsboard.server.common.data.StringUtils;
+import org.thingsboard.server.common.stats.StatsFactory;
+
+import javax.annotation.PostConstruct;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Resolves the payload codec of a topic, configured with queue.kafka.payload-codec-per-topic.
+ * Compressed records carry the codec name and the id of the zstd dictionary, if any, in the {@link TbKafkaPayloadCodec#HEADER} header.
+ * Consumers decode them regardless of their own codec configuration, as long as they know the dictionary:
+ * the dictionaries of all the configured topics and the ones listed in queue.kafka.payload-codec-dictionaries are looked up by id.
+ * Uncompressed records stay readable.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "queue", value = "type", havingValue = "kafka")
+public class TbKafkaPayloadCodecService {
+
+    private final TbKafkaSettings kafkaSettings;
+    private final StatsFactory statsFactory;
+
+    private final Map<String, TbKafkaPayloadCodec> encoders = new HashMap<>();
+    private final Map<Long, byte[]> dictionaries = new HashMap<>();
+    private final ConcurrentMap<String, TbKafkaPayloadCodec> decoders = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() throws IOException {
+        for (String path : kafkaSettings.getPayloadCodecDictionaries()) {
+            if (StringUtils.isNotBlank(path)) {
+                loadDictionary(path.trim());
+            }
+        }
+        for (Map.Entry<String, TbKafkaPayloadCodecConfig> entry : kafkaSettings.getPayloadCodecPerTopic().entrySet()) {
+            String topic = entry.getKey();
+            TbKafkaPayloadCodecConfig config = entry.getValue();
+            if (config.getType() == null || config.getType() == TbKafkaPayloadCodecType.NONE) {
+                continue;
+            }
+            long dictionaryId = 0;
+            if (StringUtils.isNotEmpty(config.getDictionary())) {
+                if (config.getType() != TbKafkaPayloadCodecType.ZSTD) {
+                    throw new IllegalArgumentException("Dictionary is supported only by the ZSTD payload codec, topic: " + topic);
+                }
+                dictionaryId = loadDictionary(config.getDictionary());
+            }
+            TbKafkaPayloadCodec codec = createCodec(topic, config.getType(), config.getLevel(), dictionaryId, config.getMinSize());
+            encoders.put(topic, codec);
+            decoders.put(decoderKey(topic, config.getType(), dictionaryId), codec);
+            log.info("[{}] Using {} payload codec, level: {}, min size: {}, dictionary: {}",
+                    topic, config.getType(), config.getLevel(), config.getMinSize(), config.getDictionary());
+        }
+    }
+
+    /**
+     * @return the codec to compress the payloads of the topic with, or null if the topic is not compressed
+     */
+    public TbKafkaPayloadCodec getEncoder(String topic) {
+        return encoders.get(topic);
+    }
+
+    public byte[] decode(String topic, Headers headers, byte[] data) throws IOException {
+        Header header = headers.lastHeader(TbKafkaPayloadCodec.HEADER);
+        if (header == null) {
+            return data;
+        }
+        String value = new String(header.value(), StandardCharsets.UTF_8);
+        int separatorIdx = value.indexOf(TbKafkaPayloadCodec.DICTIONARY_ID_SEPARATOR);
+        TbKafkaPayloadCodecType type;
+        long dictionaryId;
+        try {
+            type = TbKafkaPayloadCodecType.valueOf(separatorIdx < 0 ? value : value.substring(0, separatorIdx));
+            dictionaryId = separatorIdx < 0 ? 0 : Long.parseLong(value.substring(separatorIdx + 1));
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Unsupported payload codec: " + value);
+        }
+        if (type == TbKafkaPayloadCodecType.NONE) {
+            return data;
+        }
+        if (type == TbKafkaPayloadCodecType.ZSTD && separatorIdx < 0) {
+            // records produced before the dictionary id was added to the header
+            dictionaryId = Zstd.getDictIdFromFrame(data);
+        }
+        if (dictionaryId != 0 && !dictionaries.containsKey(dictionaryId)) {
+            throw new IOException("Unknown zstd dictionary id " + dictionaryId + " of the topic " + topic +
+                    ", add the dictionary file to queue.kafka.payload-codec-dictionaries");
+        }
+        long id = dictionaryId;
+        return decoders.computeIfAbsent(decoderKey(topic, type, id), key -> createCodec(topic, type, 0, id, 0)).decode(data);
+    }
+
+    private long loadDictionary(String path) throws IOException {
+        byte[] dictionary = Files.readAllBytes(Paths.get(path));
+        long dictionaryId = Zstd.getDictIdFromDict(dictionary);
+        if (dictionaryId == 0) {
+            throw new IllegalArgumentException("Zstd dictionary has no id, train it with 'zstd --train': " + path);
+        }
+        dictionaries.put(dictionaryId, dictionary);
+        return dictionaryId;
+    }
+
+    private TbKafkaPayloadCodec createCodec(String topic, TbKafkaPayloadCodecType type, int level, long dictionaryId, int minSize) {
+        TbKafkaPayloadCompressor compressor;
+        switch (type) {
+            case LZ4:
+                compressor = new Lz4TbKafkaPayloadCompressor(level);
+                break;
+            case ZSTD:
+                compressor = new ZstdTbKafkaPayloadCompressor(level, dictionaryId != 0 ? dictionaries.get(dictionaryId) : null);
+                break;
+            default:
+                throw new IllegalArgumentException("Unsupported payload codec: " + type);
+        }
+        return new TbKafkaPayloadCodec(topic, type, compressor, dictionaryId, minSize, statsFactory);
+    }
+
+    private static String decoderKey(String topic, TbKafkaPayloadCodecType type, long dictionaryId) {
+        return topic + ":" + type + ":" + dictionaryId;
+    }
+
+}
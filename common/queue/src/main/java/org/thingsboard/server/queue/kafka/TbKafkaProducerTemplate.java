@@ -30,6 +30,8 @@ import org.thingsboard.server.queue.TbQueueCallback;
 import org.thingsboard.server.queue.TbQueueMsg;
 import org.thingsboard.server.queue.TbQueueProducer;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Properties;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
@@ -53,8 +55,11 @@ public class TbKafkaProducerTemplate<T extends TbQueueMsg> implements TbQueuePro
 
     private final Set<TopicPartitionInfo> topics;
 
+    private final TbKafkaPayloadCodecService payloadCodecs;
+
     @Builder
-    private TbKafkaProducerTemplate(TbKafkaSettings settings, String defaultTopic, String clientId, TbQueueAdmin admin) {
+    private TbKafkaProducerTemplate(TbKafkaSettings settings, String defaultTopic, String clientId, TbQueueAdmin admin,
+                                    TbKafkaPayloadCodecService payloadCodecs) {
         Properties props = settings.toProducerProps();
 
         if (!StringUtils.isEmpty(clientId)) {
@@ -65,6 +70,7 @@ public class TbKafkaProducerTemplate<T extends TbQueueMsg> implements TbQueuePro
         this.producer = new KafkaProducer<>(props);
         this.defaultTopic = defaultTopic;
         this.admin = admin;
+        this.payloadCodecs = payloadCodecs;
         topics = ConcurrentHashMap.newKeySet();
     }
 
@@ -79,7 +85,17 @@ public class TbKafkaProducerTemplate<T extends TbQueueMsg> implements TbQueuePro
             String key = msg.getKey().toString();
             byte[] data = msg.getData();
             ProducerRecord<String, byte[]> record;
-            Iterable<Header> headers = msg.getHeaders().getData().entrySet().stream().map(e -> new RecordHeader(e.getKey(), e.getValue())).collect(Collectors.toList());
+            List<Header> headers = msg.getHeaders().getData().entrySet().stream()
+                    .filter(e -> !TbKafkaPayloadCodec.HEADER.equals(e.getKey()))
+                    .map(e -> new RecordHeader(e.getKey(), e.getValue())).collect(Collectors.toCollection(ArrayList::new));
+            TbKafkaPayloadCodec codec = payloadCodecs != null ? payloadCodecs.getEncoder(tpi.getTopic()) : null;
+            if (codec != null) {
+                byte[] encoded = codec.encode(data);
+                if (encoded != null) {
+                    data = encoded;
+                    headers.add(codec.getHeader());
+                }
+            }
             record = new ProducerRecord<>(tpi.getFullTopicName(), null, key, data, headers);
             producer.send(record, (metadata, exception) -> {
                 if (exception == null) {
@@ -89,6 +89,22 @@ public class TbKafkaSettings {
     @Value("${queue.kafka.fetch_max_bytes:134217728}")
     private int fetchMaxBytes;
 
+    @Value("${queue.kafka.msg-batching.enabled:false}")
+    @Getter
+    private boolean msgBatchingEnabled;
+
+    @Value("${queue.kafka.msg-batching.linger-ms:5}")
+    @Getter
+    private long msgBatchingLingerMs;
+
+    @Value("${queue.kafka.msg-batching.max-msgs:500}")
+    @Getter
+    private int msgBatchingMaxMsgs;
+
+    @Value("${queue.kafka.msg-batching.max-bytes:262144}")
+    @Getter
+    private int msgBatchingMaxBytes;
+
     @Value("${queue.kafka.use_confluent_cloud:false}")
     private boolean useConfluent;
 
@@ -110,6 +126,14 @@ public class TbKafkaSettings {
     @Setter
     private Map<String, List<TbProperty>> consumerPropertiesPerTopic = Collections.emptyMap();
 
+    @Setter
+    @Getter
+    private Map<String, TbKafkaPayloadCodecConfig> payloadCodecPerTopic = Collections.emptyMap();
+
+    @Setter
+    @Getter
+    private List<String> payloadCodecDictionaries = Collections.emptyList();
+
     public Properties toAdminProps() {
         Properties props = toProps();
         props.put(AdminClientConfig.BOOTSTRAP_SERVERS_CONFIG, servers);
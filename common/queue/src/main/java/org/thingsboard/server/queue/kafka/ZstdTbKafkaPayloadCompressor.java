@@ -0,0 +1,64 @@
+/**
+ * Copyright © 2016-2023 The Linkstuffs Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.queue.kafka;
+
+import com.github.luben.zstd.Zstd;
+import com.github.luben.zstd.ZstdDictCompress;
+import com.github.luben.zstd.ZstdDictDecompress;
+import com.github.luben.zstd.ZstdException;
+
+import java.io.IOException;
+
+/**
+ * Zstd frame with the content size, optionally compressed with a pre-trained dictionary.
+ * A dictionary makes a big difference for payloads of a few hundred bytes that share the same keys.
+ */
+class ZstdTbKafkaPayloadCompressor implements TbKafkaPayloadCompressor {
+
+    private final int level;
+    private final ZstdDictCompress dictCompress;
+    private final ZstdDictDecompress dictDecompress;
+
+    ZstdTbKafkaPayloadCompressor(int level, byte[] dictionary) {
+        this.level = level > 0 ? level : Zstd.defaultCompressionLevel();
+        if (dictionary != null) {
+            this.dictCompress = new ZstdDictCompress(dictionary, this.level);
+            this.dictDecompress = new ZstdDictDecompress(dictionary);
+        } else {
+            this.dictCompress = null;
+            this.dictDecompress = null;
+        }
+    }
+
+    @Override
+    public byte[] compress(byte[] data) {
+        return dictCompress != null ? Zstd.compress(data, dictCompress) : Zstd.compress(data, level);
+    }
+
+    @Override
+    public byte[] decompress(byte[] data, int maxSize) throws IOException {
+        long length = Zstd.decompressedSize(data);
+        if (length < 0 || length > maxSize) {
+            throw new IOException("Invalid Zstd payload length: " + length);
+        }
+        try {
+            return dictDecompress != null ? Zstd.decompress(data, dictDecompress, (int) length) : Zstd.decompress(data, (int) length);
+        } catch (ZstdException e) {
+            throw new IOException("Failed to decompress Zstd payload", e);
+        }
+    }
+
+}
@@ -98,6 +98,15 @@ public class InMemoryTbQueueConsumer<T extends TbQueueMsg> implements TbQueueCon
     public void commit() {
     }
 
+    @Override
+    public boolean isPartialCommitSupported() {
+        return true;
+    }
+
+    @Override
+    public void commit(List<T> polledMsgs) {
+    }
+
     @Override
     public boolean isStopped() {
         return stopped;
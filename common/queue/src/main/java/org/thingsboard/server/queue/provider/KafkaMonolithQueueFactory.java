@@ -34,16 +34,19 @@ import org.thingsboard.server.gen.transport.TransportProtos.TransportApiRequestM
 import org.thingsboard.server.gen.transport.TransportProtos.TransportApiResponseMsg;
 import org.thingsboard.server.queue.TbQueueAdmin;
 import org.thingsboard.server.queue.TbQueueConsumer;
+import org.thingsboard.server.queue.TbQueueMsg;
 import org.thingsboard.server.queue.TbQueueProducer;
 import org.thingsboard.server.queue.TbQueueRequestTemplate;
 import org.thingsboard.server.queue.common.DefaultTbQueueRequestTemplate;
 import org.thingsboard.server.queue.common.TbProtoJsQueueMsg;
 import org.thingsboard.server.queue.common.TbProtoQueueMsg;
+import org.thingsboard.server.queue.common.TbQueueBatchingProducer;
 import org.thingsboard.server.queue.discovery.NotificationsTopicService;
 import org.thingsboard.server.queue.discovery.TbServiceInfoProvider;
 import org.thingsboard.server.queue.kafka.TbKafkaAdmin;
 import org.thingsboard.server.queue.kafka.TbKafkaConsumerStatsService;
 import org.thingsboard.server.queue.kafka.TbKafkaConsumerTemplate;
+import org.thingsboard.server.queue.kafka.TbKafkaPayloadCodecService;
 import org.thingsboard.server.queue.kafka.TbKafkaProducerTemplate;
 import org.thingsboard.server.queue.kafka.TbKafkaSettings;
 import org.thingsboard.server.queue.kafka.TbKafkaTopicConfigs;
@@ -64,6 +67,7 @@ public class KafkaMonolithQueueFactory implements TbCoreQueueFactory, TbRuleEngi
 
     private final NotificationsTopicService notificationsTopicService;
     private final TbKafkaSettings kafkaSettings;
+    private final TbKafkaPayloadCodecService payloadCodecService;
     private final TbServiceInfoProvider serviceInfoProvider;
     private final TbQueueCoreSettings coreSettings;
     private final TbQueueRuleEngineSettings ruleEngineSettings;
@@ -94,9 +98,11 @@ public class KafkaMonolithQueueFactory implements TbCoreQueueFactory, TbRuleEngi
                                      TbQueueRemoteJsInvokeSettings jsInvokeSettings,
                                      TbQueueVersionControlSettings vcSettings,
                                      TbKafkaConsumerStatsService consumerStatsService,
-                                     TbKafkaTopicConfigs kafkaTopicConfigs) {
+                                     TbKafkaTopicConfigs kafkaTopicConfigs,
+                                     TbKafkaPayloadCodecService payloadCodecService) {
         this.notificationsTopicService = notificationsTopicService;
         this.kafkaSettings = kafkaSettings;
+        this.payloadCodecService = payloadCodecService;
         this.serviceInfoProvider = serviceInfoProvider;
         this.coreSettings = coreSettings;
         this.ruleEngineSettings = ruleEngineSettings;
@@ -124,17 +130,13 @@ public class KafkaMonolithQueueFactory implements TbCoreQueueFactory, TbRuleEngi
         requestBuilder.clientId("monolith-transport-notifications-" + serviceInfoProvider.getServiceId());
         requestBuilder.defaultTopic(transportNotificationSettings.getNotificationsTopic());
         requestBuilder.admin(notificationAdmin);
+        requestBuilder.payloadCodecs(payloadCodecService);
         return requestBuilder.build();
     }
 
     @Override
     public TbQueueProducer<TbProtoQueueMsg<ToRuleEngineMsg>> createRuleEngineMsgProducer() {
-        TbKafkaProducerTemplate.TbKafkaProducerTemplateBuilder<TbProtoQueueMsg<ToRuleEngineMsg>> requestBuilder = TbKafkaProducerTemplate.builder();
-        requestBuilder.settings(kafkaSettings);
-        requestBuilder.clientId("monolith-rule-engine-" + serviceInfoProvider.getServiceId());
-        requestBuilder.defaultTopic(ruleEngineSettings.getTopic());
-        requestBuilder.admin(ruleEngineAdmin);
-        return requestBuilder.build();
+        return createBatchingProducer("monolith-rule-engine-" + serviceInfoProvider.getServiceId(), ruleEngineSettings.getTopic(), ruleEngineAdmin);
     }
 
     @Override
@@ -144,17 +146,13 @@ public class KafkaMonolithQueueFactory implements TbCoreQueueFactory, TbRuleEngi
         requestBuilder.clientId("monolith-rule-engine-notifications-" + serviceInfoProvider.getServiceId());
         requestBuilder.defaultTopic(ruleEngineSettings.getTopic());
         requestBuilder.admin(notificationAdmin);
+        requestBuilder.payloadCodecs(payloadCodecService);
         return requestBuilder.build();
     }
 
     @Override
     public TbQueueProducer<TbProtoQueueMsg<ToCoreMsg>> createTbCoreMsgProducer() {
-        TbKafkaProducerTemplate.TbKafkaProducerTemplateBuilder<TbProtoQueueMsg<ToCoreMsg>> requestBuilder = TbKafkaProducerTemplate.builder();
-        requestBuilder.settings(kafkaSettings);
-        requestBuilder.clientId("monolith-core-" + serviceInfoProvider.getServiceId());
-        requestBuilder.defaultTopic(coreSettings.getTopic());
-        requestBuilder.admin(coreAdmin);
-        return requestBuilder.build();
+        return createBatchingProducer("monolith-core-" + serviceInfoProvider.getServiceId(), coreSettings.getTopic(), coreAdmin);
     }
 
     @Override
@@ -164,6 +162,7 @@ public class KafkaMonolithQueueFactory implements TbCoreQueueFactory, TbRuleEngi
         requestBuilder.clientId("monolith-core-notifications-" + serviceInfoProvider.getServiceId());
         requestBuilder.defaultTopic(coreSettings.getTopic());
         requestBuilder.admin(notificationAdmin);
+        requestBuilder.payloadCodecs(payloadCodecService);
         return requestBuilder.build();
     }
 
@@ -176,6 +175,7 @@ public class KafkaMonolithQueueFactory implements TbCoreQueueFactory, TbRuleEngi
         consumerBuilder.groupId("monolith-vc-node");
         consumerBuilder.decoder(msg -> new TbProtoQueueMsg<>(msg.getKey(), TransportProtos.ToVersionControlServiceMsg.parseFrom(msg.getData()), msg.getHeaders()));
         consumerBuilder.admin(vcAdmin);
+        consumerBuilder.payloadCodecs(payloadCodecService);
         consumerBuilder.statsService(consumerStatsService);
         return consumerBuilder.build();
     }
@@ -190,7 +190,9 @@ public class KafkaMonolithQueueFactory implements TbCoreQueueFactory, TbRuleEngi
         consumerBuilder.groupId("re-" + queueName + "-consumer");
         consumerBuilder.decoder(msg -> new TbProtoQueueMsg<>(msg.getKey(), ToRuleEngineMsg.parseFrom(msg.getData()), msg.getHeaders()));
         consumerBuilder.admin(ruleEngineAdmin);
+        consumerBuilder.payloadCodecs(payloadCodecService);
         consumerBuilder.statsService(consumerStatsService);
+        consumerBuilder.partialCommit(configuration.getSubmitStrategy() != null && configuration.getSubmitStrategy().isPipelined());
         return consumerBuilder.build();
     }
 
@@ -203,6 +205,7 @@ public class KafkaMonolithQueueFactory implements TbCoreQueueFactory, TbRuleEngi
         consumerBuilder.groupId("monolith-rule-engine-notifications-consumer-" + serviceInfoProvider.getServiceId());
         consumerBuilder.decoder(msg -> new TbProtoQueueMsg<>(msg.getKey(), ToRuleEngineNotificationMsg.parseFrom(msg.getData()), msg.getHeaders()));
         consumerBuilder.admin(notificationAdmin);
+        consumerBuilder.payloadCodecs(payloadCodecService);
         consumerBuilder.statsService(consumerStatsService);
         return consumerBuilder.build();
     }
@@ -216,6 +219,7 @@ public class KafkaMonolithQueueFactory implements TbCoreQueueFactory, TbRuleEngi
         consumerBuilder.groupId("monolith-core-consumer");
         consumerBuilder.decoder(msg -> new TbProtoQueueMsg<>(msg.getKey(), ToCoreMsg.parseFrom(msg.getData()), msg.getHeaders()));
         consumerBuilder.admin(coreAdmin);
+        consumerBuilder.payloadCodecs(payloadCodecService);
         consumerBuilder.statsService(consumerStatsService);
         return consumerBuilder.build();
     }
@@ -229,6 +233,7 @@ public class KafkaMonolithQueueFactory implements TbCoreQueueFactory, TbRuleEngi
         consumerBuilder.groupId("monolith-core-notifications-consumer-" + serviceInfoProvider.getServiceId());
         consumerBuilder.decoder(msg -> new TbProtoQueueMsg<>(msg.getKey(), ToCoreNotificationMsg.parseFrom(msg.getData()), msg.getHeaders()));
         consumerBuilder.admin(notificationAdmin);
+        consumerBuilder.payloadCodecs(payloadCodecService);
         consumerBuilder.statsService(consumerStatsService);
         return consumerBuilder.build();
     }
@@ -242,6 +247,7 @@ public class KafkaMonolithQueueFactory implements TbCoreQueueFactory, TbRuleEngi
         consumerBuilder.groupId("monolith-transport-api-consumer");
         consumerBuilder.decoder(msg -> new TbProtoQueueMsg<>(msg.getKey(), TransportApiRequestMsg.parseFrom(msg.getData()), msg.getHeaders()));
         consumerBuilder.admin(transportApiRequestAdmin);
+        consumerBuilder.payloadCodecs(payloadCodecService);
         consumerBuilder.statsService(consumerStatsService);
         return consumerBuilder.build();
     }
@@ -253,6 +259,7 @@ public class KafkaMonolithQueueFactory implements TbCoreQueueFactory, TbRuleEngi
         requestBuilder.clientId("monolith-transport-api-producer-" + serviceInfoProvider.getServiceId());
         requestBuilder.defaultTopic(transportApiSettings.getResponsesTopic());
         requestBuilder.admin(transportApiResponseAdmin);
+        requestBuilder.payloadCodecs(payloadCodecService);
         return requestBuilder.build();
     }
 
@@ -264,6 +271,7 @@ public class KafkaMonolithQueueFactory implements TbCoreQueueFactory, TbRuleEngi
         requestBuilder.clientId("producer-js-invoke-" + serviceInfoProvider.getServiceId());
         requestBuilder.defaultTopic(jsInvokeSettings.getRequestTopic());
         requestBuilder.admin(jsExecutorRequestAdmin);
+        requestBuilder.payloadCodecs(payloadCodecService);
 
         TbKafkaConsumerTemplate.TbKafkaConsumerTemplateBuilder<TbProtoQueueMsg<JsInvokeProtos.RemoteJsResponse>> responseBuilder = TbKafkaConsumerTemplate.builder();
         responseBuilder.settings(kafkaSettings);
@@ -278,6 +286,7 @@ public class KafkaMonolithQueueFactory implements TbCoreQueueFactory, TbRuleEngi
         );
         responseBuilder.statsService(consumerStatsService);
         responseBuilder.admin(jsExecutorResponseAdmin);
+        responseBuilder.payloadCodecs(payloadCodecService);
 
         DefaultTbQueueRequestTemplate.DefaultTbQueueRequestTemplateBuilder
                 <TbProtoJsQueueMsg<JsInvokeProtos.RemoteJsRequest>, TbProtoQueueMsg<JsInvokeProtos.RemoteJsResponse>> builder = DefaultTbQueueRequestTemplate.builder();
@@ -299,6 +308,7 @@ public class KafkaMonolithQueueFactory implements TbCoreQueueFactory, TbRuleEngi
         consumerBuilder.groupId("monolith-us-consumer");
         consumerBuilder.decoder(msg -> new TbProtoQueueMsg<>(msg.getKey(), ToUsageStatsServiceMsg.parseFrom(msg.getData()), msg.getHeaders()));
         consumerBuilder.admin(coreAdmin);
+        consumerBuilder.payloadCodecs(payloadCodecService);
         consumerBuilder.statsService(consumerStatsService);
         return consumerBuilder.build();
     }
@@ -312,6 +322,7 @@ public class KafkaMonolithQueueFactory implements TbCoreQueueFactory, TbRuleEngi
         consumerBuilder.groupId("monolith-ota-consumer");
         consumerBuilder.decoder(msg -> new TbProtoQueueMsg<>(msg.getKey(), ToOtaPackageStateServiceMsg.parseFrom(msg.getData()), msg.getHeaders()));
         consumerBuilder.admin(fwUpdatesAdmin);
+        consumerBuilder.payloadCodecs(payloadCodecService);
         consumerBuilder.statsService(consumerStatsService);
         return consumerBuilder.build();
     }
@@ -323,6 +334,7 @@ public class KafkaMonolithQueueFactory implements TbCoreQueueFactory, TbRuleEngi
         requestBuilder.clientId("monolith-ota-producer-" + serviceInfoProvider.getServiceId());
         requestBuilder.defaultTopic(coreSettings.getOtaPackageTopic());
         requestBuilder.admin(fwUpdatesAdmin);
+        requestBuilder.payloadCodecs(payloadCodecService);
         return requestBuilder.build();
     }
 
@@ -333,6 +345,7 @@ public class KafkaMonolithQueueFactory implements TbCoreQueueFactory, TbRuleEngi
         requestBuilder.clientId("monolith-us-producer-" + serviceInfoProvider.getServiceId());
         requestBuilder.defaultTopic(coreSettings.getUsageStatsTopic());
         requestBuilder.admin(coreAdmin);
+        requestBuilder.payloadCodecs(payloadCodecService);
         return requestBuilder.build();
     }
 
@@ -343,6 +356,29 @@ public class KafkaMonolithQueueFactory implements TbCoreQueueFactory, TbRuleEngi
         requestBuilder.clientId("monolith-vc-producer-" + serviceInfoProvider.getServiceId());
         requestBuilder.defaultTopic(vcSettings.getTopic());
         requestBuilder.admin(vcAdmin);
+        requestBuilder.payloadCodecs(payloadCodecService);
+        return requestBuilder.build();
+    }
+
+    private <T extends TbQueueMsg> TbQueueProducer<T> createBatchingProducer(String clientId, String defaultTopic, TbQueueAdmin admin) {
+        if (!kafkaSettings.isMsgBatchingEnabled()) {
+            return createProducer(clientId, defaultTopic, admin);
+        }
+        TbQueueBatchingProducer.TbQueueBatchingProducerBuilder<T> batchingBuilder = TbQueueBatchingProducer.builder();
+        batchingBuilder.delegate(createProducer(clientId, defaultTopic, admin));
+        batchingBuilder.lingerMs(kafkaSettings.getMsgBatchingLingerMs());
+        batchingBuilder.maxBatchSize(kafkaSettings.getMsgBatchingMaxMsgs());
+        batchingBuilder.maxBatchBytes(kafkaSettings.getMsgBatchingMaxBytes());
+        return batchingBuilder.build();
+    }
+
+    private <T extends TbQueueMsg> TbKafkaProducerTemplate<T> createProducer(String clientId, String defaultTopic, TbQueueAdmin admin) {
+        TbKafkaProducerTemplate.TbKafkaProducerTemplateBuilder<T> requestBuilder = TbKafkaProducerTemplate.builder();
+        requestBuilder.settings(kafkaSettings);
+        requestBuilder.clientId(clientId);
+        requestBuilder.defaultTopic(defaultTopic);
+        requestBuilder.admin(admin);
+        requestBuilder.payloadCodecs(payloadCodecService);
         return requestBuilder.build();
     }
 
@@ -43,6 +43,7 @@ import org.thingsboard.server.queue.discovery.TbServiceInfoProvider;
 import org.thingsboard.server.queue.kafka.TbKafkaAdmin;
 import org.thingsboard.server.queue.kafka.TbKafkaConsumerStatsService;
 import org.thingsboard.server.queue.kafka.TbKafkaConsumerTemplate;
+import org.thingsboard.server.queue.kafka.TbKafkaPayloadCodecService;
 import org.thingsboard.server.queue.kafka.TbKafkaProducerTemplate;
 import org.thingsboard.server.queue.kafka.TbKafkaSettings;
 import org.thingsboard.server.queue.kafka.TbKafkaTopicConfigs;
@@ -62,6 +63,7 @@ public class KafkaTbCoreQueueFactory implements TbCoreQueueFactory {
 
     private final NotificationsTopicService notificationsTopicService;
     private final TbKafkaSettings kafkaSettings;
+    private final TbKafkaPayloadCodecService payloadCodecService;
     private final TbServiceInfoProvider serviceInfoProvider;
     private final TbQueueCoreSettings coreSettings;
     private final TbQueueRuleEngineSettings ruleEngineSettings;
@@ -91,9 +93,11 @@ public class KafkaTbCoreQueueFactory implements TbCoreQueueFactory {
                                    TbQueueVersionControlSettings vcSettings,
                                    TbKafkaConsumerStatsService consumerStatsService,
                                    TbQueueTransportNotificationSettings transportNotificationSettings,
-                                   TbKafkaTopicConfigs kafkaTopicConfigs) {
+                                   TbKafkaTopicConfigs kafkaTopicConfigs,
+                                   TbKafkaPayloadCodecService payloadCodecService) {
         this.notificationsTopicService = notificationsTopicService;
         this.kafkaSettings = kafkaSettings;
+        this.payloadCodecService = payloadCodecService;
         this.serviceInfoProvider = serviceInfoProvider;
         this.coreSettings = coreSettings;
         this.ruleEngineSettings = ruleEngineSettings;
@@ -121,6 +125,7 @@ public class KafkaTbCoreQueueFactory implements TbCoreQueueFactory {
         requestBuilder.clientId("tb-core-transport-notifications-" + serviceInfoProvider.getServiceId());
         requestBuilder.defaultTopic(transportNotificationSettings.getNotificationsTopic());
         requestBuilder.admin(notificationAdmin);
+        requestBuilder.payloadCodecs(payloadCodecService);
         return requestBuilder.build();
     }
 
@@ -131,6 +136,7 @@ public class KafkaTbCoreQueueFactory implements TbCoreQueueFactory {
         requestBuilder.clientId("tb-core-rule-engine-" + serviceInfoProvider.getServiceId());
         requestBuilder.defaultTopic(coreSettings.getTopic());
         requestBuilder.admin(coreAdmin);
+        requestBuilder.payloadCodecs(payloadCodecService);
         return requestBuilder.build();
     }
 
@@ -141,6 +147,7 @@ public class KafkaTbCoreQueueFactory implements TbCoreQueueFactory {
         requestBuilder.clientId("tb-core-rule-engine-notifications-" + serviceInfoProvider.getServiceId());
         requestBuilder.defaultTopic(ruleEngineSettings.getTopic());
         requestBuilder.admin(notificationAdmin);
+        requestBuilder.payloadCodecs(payloadCodecService);
         return requestBuilder.build();
     }
 
@@ -151,6 +158,7 @@ public class KafkaTbCoreQueueFactory implements TbCoreQueueFactory {
         requestBuilder.clientId("tb-core-to-core-" + serviceInfoProvider.getServiceId());
         requestBuilder.defaultTopic(coreSettings.getTopic());
         requestBuilder.admin(coreAdmin);
+        requestBuilder.payloadCodecs(payloadCodecService);
         return requestBuilder.build();
     }
 
@@ -161,6 +169,7 @@ public class KafkaTbCoreQueueFactory implements TbCoreQueueFactory {
         requestBuilder.clientId("tb-core-to-core-notifications-" + serviceInfoProvider.getServiceId());
         requestBuilder.defaultTopic(coreSettings.getTopic());
         requestBuilder.admin(notificationAdmin);
+        requestBuilder.payloadCodecs(payloadCodecService);
         return requestBuilder.build();
     }
 
@@ -173,6 +182,7 @@ public class KafkaTbCoreQueueFactory implements TbCoreQueueFactory {
         consumerBuilder.groupId("tb-core-node");
         consumerBuilder.decoder(msg -> new TbProtoQueueMsg<>(msg.getKey(), ToCoreMsg.parseFrom(msg.getData()), msg.getHeaders()));
         consumerBuilder.admin(coreAdmin);
+        consumerBuilder.payloadCodecs(payloadCodecService);
         consumerBuilder.statsService(consumerStatsService);
         return consumerBuilder.build();
     }
@@ -186,6 +196,7 @@ public class KafkaTbCoreQueueFactory implements TbCoreQueueFactory {
         consumerBuilder.groupId("tb-core-notifications-node-" + serviceInfoProvider.getServiceId());
         consumerBuilder.decoder(msg -> new TbProtoQueueMsg<>(msg.getKey(), ToCoreNotificationMsg.parseFrom(msg.getData()), msg.getHeaders()));
         consumerBuilder.admin(notificationAdmin);
+        consumerBuilder.payloadCodecs(payloadCodecService);
         consumerBuilder.statsService(consumerStatsService);
         return consumerBuilder.build();
     }
@@ -199,6 +210,7 @@ public class KafkaTbCoreQueueFactory implements TbCoreQueueFactory {
         consumerBuilder.groupId("tb-core-transport-api-consumer");
         consumerBuilder.decoder(msg -> new TbProtoQueueMsg<>(msg.getKey(), TransportApiRequestMsg.parseFrom(msg.getData()), msg.getHeaders()));
         consumerBuilder.admin(transportApiRequestAdmin);
+        consumerBuilder.payloadCodecs(payloadCodecService);
         consumerBuilder.statsService(consumerStatsService);
         return consumerBuilder.build();
     }
@@ -210,6 +222,7 @@ public class KafkaTbCoreQueueFactory implements TbCoreQueueFactory {
         requestBuilder.clientId("tb-core-transport-api-producer-" + serviceInfoProvider.getServiceId());
         requestBuilder.defaultTopic(transportApiSettings.getResponsesTopic());
         requestBuilder.admin(transportApiResponseAdmin);
+        requestBuilder.payloadCodecs(payloadCodecService);
         return requestBuilder.build();
     }
 
@@ -221,6 +234,7 @@ public class KafkaTbCoreQueueFactory implements TbCoreQueueFactory {
         requestBuilder.clientId("producer-js-invoke-" + serviceInfoProvider.getServiceId());
         requestBuilder.defaultTopic(jsInvokeSettings.getRequestTopic());
         requestBuilder.admin(jsExecutorRequestAdmin);
+        requestBuilder.payloadCodecs(payloadCodecService);
 
         TbKafkaConsumerTemplate.TbKafkaConsumerTemplateBuilder<TbProtoQueueMsg<JsInvokeProtos.RemoteJsResponse>> responseBuilder = TbKafkaConsumerTemplate.builder();
         responseBuilder.settings(kafkaSettings);
@@ -234,6 +248,7 @@ public class KafkaTbCoreQueueFactory implements TbCoreQueueFactory {
                 }
         );
         responseBuilder.admin(jsExecutorResponseAdmin);
+        responseBuilder.payloadCodecs(payloadCodecService);
         responseBuilder.statsService(consumerStatsService);
 
         DefaultTbQueueRequestTemplate.DefaultTbQueueRequestTemplateBuilder
@@ -256,6 +271,7 @@ public class KafkaTbCoreQueueFactory implements TbCoreQueueFactory {
         consumerBuilder.groupId("tb-core-us-consumer");
         consumerBuilder.decoder(msg -> new TbProtoQueueMsg<>(msg.getKey(), ToUsageStatsServiceMsg.parseFrom(msg.getData()), msg.getHeaders()));
         consumerBuilder.admin(coreAdmin);
+        consumerBuilder.payloadCodecs(payloadCodecService);
         consumerBuilder.statsService(consumerStatsService);
         return consumerBuilder.build();
     }
@@ -269,6 +285,7 @@ public class KafkaTbCoreQueueFactory implements TbCoreQueueFactory {
         consumerBuilder.groupId("tb-core-ota-consumer");
         consumerBuilder.decoder(msg -> new TbProtoQueueMsg<>(msg.getKey(), ToOtaPackageStateServiceMsg.parseFrom(msg.getData()), msg.getHeaders()));
         consumerBuilder.admin(fwUpdatesAdmin);
+        consumerBuilder.payloadCodecs(payloadCodecService);
         consumerBuilder.statsService(consumerStatsService);
         return consumerBuilder.build();
     }
@@ -280,6 +297,7 @@ public class KafkaTbCoreQueueFactory implements TbCoreQueueFactory {
         requestBuilder.clientId("tb-core-ota-producer-" + serviceInfoProvider.getServiceId());
         requestBuilder.defaultTopic(coreSettings.getOtaPackageTopic());
         requestBuilder.admin(fwUpdatesAdmin);
+        requestBuilder.payloadCodecs(payloadCodecService);
         return requestBuilder.build();
     }
 
@@ -290,6 +308,7 @@ public class KafkaTbCoreQueueFactory implements TbCoreQueueFactory {
         requestBuilder.clientId("tb-core-us-producer-" + serviceInfoProvider.getServiceId());
         requestBuilder.defaultTopic(coreSettings.getUsageStatsTopic());
         requestBuilder.admin(coreAdmin);
+        requestBuilder.payloadCodecs(payloadCodecService);
         return requestBuilder.build();
     }
 
@@ -300,6 +319,7 @@ public class KafkaTbCoreQueueFactory implements TbCoreQueueFactory {
         requestBuilder.clientId("tb-core-vc-producer-" + serviceInfoProvider.getServiceId());
         requestBuilder.defaultTopic(vcSettings.getTopic());
         requestBuilder.admin(vcAdmin);
+        requestBuilder.payloadCodecs(payloadCodecService);
         return requestBuilder.build();
     }
 
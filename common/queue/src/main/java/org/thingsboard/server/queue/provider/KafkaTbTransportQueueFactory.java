@@ -26,14 +26,17 @@ import org.thingsboard.server.gen.transport.TransportProtos.TransportApiRequestM
 import org.thingsboard.server.gen.transport.TransportProtos.TransportApiResponseMsg;
 import org.thingsboard.server.queue.TbQueueAdmin;
 import org.thingsboard.server.queue.TbQueueConsumer;
+import org.thingsboard.server.queue.TbQueueMsg;
 import org.thingsboard.server.queue.TbQueueProducer;
 import org.thingsboard.server.queue.TbQueueRequestTemplate;
 import org.thingsboard.server.queue.common.DefaultTbQueueRequestTemplate;
 import org.thingsboard.server.queue.common.TbProtoQueueMsg;
+import org.thingsboard.server.queue.common.TbQueueBatchingProducer;
 import org.thingsboard.server.queue.discovery.TbServiceInfoProvider;
 import org.thingsboard.server.queue.kafka.TbKafkaAdmin;
 import org.thingsboard.server.queue.kafka.TbKafkaConsumerStatsService;
 import org.thingsboard.server.queue.kafka.TbKafkaConsumerTemplate;
+import org.thingsboard.server.queue.kafka.TbKafkaPayloadCodecService;
 import org.thingsboard.server.queue.kafka.TbKafkaProducerTemplate;
 import org.thingsboard.server.queue.kafka.TbKafkaSettings;
 import org.thingsboard.server.queue.kafka.TbKafkaTopicConfigs;
@@ -50,6 +53,7 @@ import javax.annotation.PreDestroy;
 public class KafkaTbTransportQueueFactory implements TbTransportQueueFactory {
 
     private final TbKafkaSettings kafkaSettings;
+    private final TbKafkaPayloadCodecService payloadCodecService;
     private final TbServiceInfoProvider serviceInfoProvider;
     private final TbQueueCoreSettings coreSettings;
     private final TbQueueRuleEngineSettings ruleEngineSettings;
@@ -70,8 +74,10 @@ public class KafkaTbTransportQueueFactory implements TbTransportQueueFactory {
                                         TbQueueTransportApiSettings transportApiSettings,
                                         TbQueueTransportNotificationSettings transportNotificationSettings,
                                         TbKafkaConsumerStatsService consumerStatsService,
-                                        TbKafkaTopicConfigs kafkaTopicConfigs) {
+                                        TbKafkaTopicConfigs kafkaTopicConfigs,
+                                        TbKafkaPayloadCodecService payloadCodecService) {
         this.kafkaSettings = kafkaSettings;
+        this.payloadCodecService = payloadCodecService;
         this.serviceInfoProvider = serviceInfoProvider;
         this.coreSettings = coreSettings;
         this.ruleEngineSettings = ruleEngineSettings;
@@ -93,6 +99,7 @@ public class KafkaTbTransportQueueFactory implements TbTransportQueueFactory {
         requestBuilder.clientId("transport-api-request-" + serviceInfoProvider.getServiceId());
         requestBuilder.defaultTopic(transportApiSettings.getRequestsTopic());
         requestBuilder.admin(transportApiRequestAdmin);
+        requestBuilder.payloadCodecs(payloadCodecService);
 
         TbKafkaConsumerTemplate.TbKafkaConsumerTemplateBuilder<TbProtoQueueMsg<TransportApiResponseMsg>> responseBuilder = TbKafkaConsumerTemplate.builder();
         responseBuilder.settings(kafkaSettings);
@@ -101,6 +108,7 @@ public class KafkaTbTransportQueueFactory implements TbTransportQueueFactory {
         responseBuilder.groupId("transport-node-" + serviceInfoProvider.getServiceId());
         responseBuilder.decoder(msg -> new TbProtoQueueMsg<>(msg.getKey(), TransportApiResponseMsg.parseFrom(msg.getData()), msg.getHeaders()));
         responseBuilder.admin(transportApiResponseAdmin);
+        responseBuilder.payloadCodecs(payloadCodecService);
         responseBuilder.statsService(consumerStatsService);
 
         DefaultTbQueueRequestTemplate.DefaultTbQueueRequestTemplateBuilder
@@ -116,22 +124,12 @@ public class KafkaTbTransportQueueFactory implements TbTransportQueueFactory {
 
     @Override
     public TbQueueProducer<TbProtoQueueMsg<ToRuleEngineMsg>> createRuleEngineMsgProducer() {
-        TbKafkaProducerTemplate.TbKafkaProducerTemplateBuilder<TbProtoQueueMsg<ToRuleEngineMsg>> requestBuilder = TbKafkaProducerTemplate.builder();
-        requestBuilder.settings(kafkaSettings);
-        requestBuilder.clientId("transport-node-rule-engine-" + serviceInfoProvider.getServiceId());
-        requestBuilder.defaultTopic(ruleEngineSettings.getTopic());
-        requestBuilder.admin(ruleEngineAdmin);
-        return requestBuilder.build();
+        return createBatchingProducer("transport-node-rule-engine-" + serviceInfoProvider.getServiceId(), ruleEngineSettings.getTopic(), ruleEngineAdmin);
     }
 
     @Override
     public TbQueueProducer<TbProtoQueueMsg<ToCoreMsg>> createTbCoreMsgProducer() {
-        TbKafkaProducerTemplate.TbKafkaProducerTemplateBuilder<TbProtoQueueMsg<ToCoreMsg>> requestBuilder = TbKafkaProducerTemplate.builder();
-        requestBuilder.settings(kafkaSettings);
-        requestBuilder.clientId("transport-node-core-" + serviceInfoProvider.getServiceId());
-        requestBuilder.defaultTopic(coreSettings.getTopic());
-        requestBuilder.admin(coreAdmin);
-        return requestBuilder.build();
+        return createBatchingProducer("transport-node-core-" + serviceInfoProvider.getServiceId(), coreSettings.getTopic(), coreAdmin);
     }
 
     @Override
@@ -143,6 +141,7 @@ public class KafkaTbTransportQueueFactory implements TbTransportQueueFactory {
         responseBuilder.groupId("transport-node-" + serviceInfoProvider.getServiceId());
         responseBuilder.decoder(msg -> new TbProtoQueueMsg<>(msg.getKey(), ToTransportMsg.parseFrom(msg.getData()), msg.getHeaders()));
         responseBuilder.admin(notificationAdmin);
+        responseBuilder.payloadCodecs(payloadCodecService);
         responseBuilder.statsService(consumerStatsService);
         return responseBuilder.build();
     }
@@ -154,6 +153,29 @@ public class KafkaTbTransportQueueFactory implements TbTransportQueueFactory {
         requestBuilder.clientId("transport-node-us-producer-" + serviceInfoProvider.getServiceId());
         requestBuilder.defaultTopic(coreSettings.getUsageStatsTopic());
         requestBuilder.admin(coreAdmin);
+        requestBuilder.payloadCodecs(payloadCodecService);
+        return requestBuilder.build();
+    }
+
+    private <T extends TbQueueMsg> TbQueueProducer<T> createBatchingProducer(String clientId, String defaultTopic, TbQueueAdmin admin) {
+        if (!kafkaSettings.isMsgBatchingEnabled()) {
+            return createProducer(clientId, defaultTopic, admin);
+        }
+        TbQueueBatchingProducer.TbQueueBatchingProducerBuilder<T> batchingBuilder = TbQueueBatchingProducer.builder();
+        batchingBuilder.delegate(createProducer(clientId, defaultTopic, admin));
+        batchingBuilder.lingerMs(kafkaSettings.getMsgBatchingLingerMs());
+        batchingBuilder.maxBatchSize(kafkaSettings.getMsgBatchingMaxMsgs());
+        batchingBuilder.maxBatchBytes(kafkaSettings.getMsgBatchingMaxBytes());
+        return batchingBuilder.build();
+    }
+
+    private <T extends TbQueueMsg> TbKafkaProducerTemplate<T> createProducer(String clientId, String defaultTopic, TbQueueAdmin admin) {
+        TbKafkaProducerTemplate.TbKafkaProducerTemplateBuilder<T> requestBuilder = TbKafkaProducerTemplate.builder();
+        requestBuilder.settings(kafkaSettings);
+        requestBuilder.clientId(clientId);
+        requestBuilder.defaultTopic(defaultTopic);
+        requestBuilder.admin(admin);
+        requestBuilder.payloadCodecs(payloadCodecService);
         return requestBuilder.build();
     }
 
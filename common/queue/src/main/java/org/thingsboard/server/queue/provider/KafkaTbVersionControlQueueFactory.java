@@ -28,6 +28,7 @@ import org.thingsboard.server.queue.discovery.TbServiceInfoProvider;
 import org.thingsboard.server.queue.kafka.TbKafkaAdmin;
 import org.thingsboard.server.queue.kafka.TbKafkaConsumerStatsService;
 import org.thingsboard.server.queue.kafka.TbKafkaConsumerTemplate;
+import org.thingsboard.server.queue.kafka.TbKafkaPayloadCodecService;
 import org.thingsboard.server.queue.kafka.TbKafkaProducerTemplate;
 import org.thingsboard.server.queue.kafka.TbKafkaSettings;
 import org.thingsboard.server.queue.kafka.TbKafkaTopicConfigs;
@@ -41,6 +42,7 @@ import javax.annotation.PreDestroy;
 public class KafkaTbVersionControlQueueFactory implements TbVersionControlQueueFactory {
 
     private final TbKafkaSettings kafkaSettings;
+    private final TbKafkaPayloadCodecService payloadCodecService;
     private final TbServiceInfoProvider serviceInfoProvider;
     private final TbQueueCoreSettings coreSettings;
     private final TbQueueVersionControlSettings vcSettings;
@@ -55,8 +57,10 @@ public class KafkaTbVersionControlQueueFactory implements TbVersionControlQueueF
                                              TbQueueCoreSettings coreSettings,
                                              TbQueueVersionControlSettings vcSettings,
                                              TbKafkaConsumerStatsService consumerStatsService,
-                                             TbKafkaTopicConfigs kafkaTopicConfigs) {
+                                             TbKafkaTopicConfigs kafkaTopicConfigs,
+                                             TbKafkaPayloadCodecService payloadCodecService) {
         this.kafkaSettings = kafkaSettings;
+        this.payloadCodecService = payloadCodecService;
         this.serviceInfoProvider = serviceInfoProvider;
         this.coreSettings = coreSettings;
         this.vcSettings = vcSettings;
@@ -75,6 +79,7 @@ public class KafkaTbVersionControlQueueFactory implements TbVersionControlQueueF
         requestBuilder.clientId("tb-vc-to-core-notifications-" + serviceInfoProvider.getServiceId());
         requestBuilder.defaultTopic(coreSettings.getTopic());
         requestBuilder.admin(notificationAdmin);
+        requestBuilder.payloadCodecs(payloadCodecService);
         return requestBuilder.build();
     }
 
@@ -87,6 +92,7 @@ public class KafkaTbVersionControlQueueFactory implements TbVersionControlQueueF
         consumerBuilder.groupId("tb-vc-node");
         consumerBuilder.decoder(msg -> new TbProtoQueueMsg<>(msg.getKey(), ToVersionControlServiceMsg.parseFrom(msg.getData()), msg.getHeaders()));
         consumerBuilder.admin(vcAdmin);
+        consumerBuilder.payloadCodecs(payloadCodecService);
         consumerBuilder.statsService(consumerStatsService);
         return consumerBuilder.build();
     }
@@ -98,6 +104,7 @@ public class KafkaTbVersionControlQueueFactory implements TbVersionControlQueueF
         requestBuilder.clientId("tb-vc-us-producer-" + serviceInfoProvider.getServiceId());
         requestBuilder.defaultTopic(coreSettings.getUsageStatsTopic());
         requestBuilder.admin(coreAdmin);
+        requestBuilder.payloadCodecs(payloadCodecService);
         return requestBuilder.build();
     }
 
@@ -19,6 +19,9 @@ import lombok.Data;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Lazy;
 import org.springframework.stereotype.Component;
+import org.thingsboard.server.common.data.DataConstants;
+
+import java.util.Set;
 
 @Lazy
 @Data
@@ -28,4 +31,15 @@ public class TbQueueRuleEngineSettings {
     @Value("${queue.rule-engine.topic}")
     private String topic;
 
+    @Value("${queue.rule-engine.compact-msg-queues:}")
+    private Set<String> compactMsgQueues;
+
+    /**
+     * Whether the messages pushed to the given rule engine queue use the compact TbMsg format. Every service that consumes the queue
+     * must support the format, so it should be enabled only when all the services are updated.
+     */
+    public boolean isCompactMsgFormat(String queueName) {
+        return compactMsgQueues.contains(queueName != null ? queueName : DataConstants.MAIN_QUEUE_NAME);
+    }
+
 }
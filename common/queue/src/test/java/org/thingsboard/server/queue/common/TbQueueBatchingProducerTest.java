@@ -0,0 +1,190 @@
+/**
+ * Copyright © 2016-2023 The Linkstuffs Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.queue.common;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.thingsboard.server.common.msg.queue.TopicPartitionInfo;
+import org.thingsboard.server.queue.TbQueueCallback;
+import org.thingsboard.server.queue.TbQueueMsg;
+import org.thingsboard.server.queue.TbQueueMsgMetadata;
+import org.thingsboard.server.queue.TbQueueProducer;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+class TbQueueBatchingProducerTest {
+
+    private final TopicPartitionInfo tpi1 = new TopicPartitionInfo("tb_rule_engine.main", null, 1, true);
+    private final TopicPartitionInfo tpi2 = new TopicPartitionInfo("tb_rule_engine.main", null, 2, true);
+    private final RecordingProducer delegate = new RecordingProducer();
+    private TbQueueBatchingProducer<TbQueueMsg> producer;
+
+    @AfterEach
+    void tearDown() {
+        if (producer != null) {
+            producer.stop();
+        }
+    }
+
+    @Test
+    void testMessagesToSamePartitionAreSentAsBatch() throws IOException {
+        producer = createProducer(60000, 3, Integer.MAX_VALUE);
+        List<TbQueueMsg> msgs = List.of(msg("a"), msg("b"), msg("c"));
+        CountingCallback callback = new CountingCallback();
+
+        msgs.forEach(msg -> producer.send(tpi1, msg, callback));
+
+        assertThat(delegate.sent).hasSize(1);
+        Sent sent = delegate.sent.get(0);
+        assertThat(sent.tpi).isEqualTo(tpi1);
+        assertThat(TbQueueMsgBatch.isBatch(sent.msg.getHeaders())).isTrue();
+        List<TbQueueMsg> unpacked = TbQueueMsgBatch.unpack(sent.msg.getData());
+        assertThat(unpacked).hasSize(3);
+        for (int i = 0; i < msgs.size(); i++) {
+            assertThat(unpacked.get(i).getKey()).isEqualTo(msgs.get(i).getKey());
+            assertThat(unpacked.get(i).getData()).isEqualTo(msgs.get(i).getData());
+            assertThat(unpacked.get(i).getHeaders().get("h")).isEqualTo(msgs.get(i).getHeaders().get("h"));
+            assertThat(TbQueueMsgBatch.isBatch(unpacked.get(i).getHeaders())).isFalse();
+        }
+
+        sent.callback.onSuccess(null);
+        assertThat(callback.success).hasValue(3);
+        assertThat(callback.failure).hasValue(0);
+    }
+
+    @Test
+    void testBatchIsSentAfterLingerTime() {
+        producer = createProducer(20, 100, Integer.MAX_VALUE);
+
+        producer.send(tpi1, msg("a"), null);
+        producer.send(tpi1, msg("b"), null);
+        producer.send(tpi2, msg("c"), null);
+        assertThat(delegate.sent).isEmpty();
+
+        await().atMost(5, TimeUnit.SECONDS).until(() -> delegate.sent.size() == 2);
+        Sent batch = delegate.sent.stream().filter(sent -> sent.tpi.equals(tpi1)).findFirst().orElseThrow();
+        Sent single = delegate.sent.stream().filter(sent -> sent.tpi.equals(tpi2)).findFirst().orElseThrow();
+        assertThat(TbQueueMsgBatch.isBatch(batch.msg.getHeaders())).isTrue();
+        assertThat(TbQueueMsgBatch.isBatch(single.msg.getHeaders())).isFalse();
+        assertThat(new String(single.msg.getData(), StandardCharsets.UTF_8)).isEqualTo("c");
+    }
+
+    @Test
+    void testBatchIsLimitedByBytes() throws IOException {
+        producer = createProducer(60000, 100, 10);
+
+        producer.send(tpi1, msg("12345"), null);
+        producer.send(tpi1, msg("1234"), null);
+        producer.send(tpi1, msg("123"), null);
+
+        assertThat(delegate.sent).hasSize(1);
+        assertThat(TbQueueMsgBatch.unpack(delegate.sent.get(0).msg.getData())).hasSize(2);
+
+        producer.stop();
+        producer = null;
+        assertThat(delegate.sent).hasSize(2);
+        assertThat(delegate.sent.get(1).msg.getData()).isEqualTo("123".getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void testBatchFailureIsReportedToEveryCallback() {
+        producer = createProducer(60000, 2, Integer.MAX_VALUE);
+        CountingCallback callback = new CountingCallback();
+
+        producer.send(tpi1, msg("a"), callback);
+        producer.send(tpi1, msg("b"), callback);
+        delegate.sent.get(0).callback.onFailure(new RuntimeException("test"));
+
+        assertThat(callback.failure).hasValue(2);
+        assertThat(callback.success).hasValue(0);
+    }
+
+    private TbQueueBatchingProducer<TbQueueMsg> createProducer(long lingerMs, int maxBatchSize, int maxBatchBytes) {
+        TbQueueBatchingProducer.TbQueueBatchingProducerBuilder<TbQueueMsg> builder = TbQueueBatchingProducer.builder();
+        builder.delegate(delegate);
+        builder.lingerMs(lingerMs);
+        builder.maxBatchSize(maxBatchSize);
+        builder.maxBatchBytes(maxBatchBytes);
+        return builder.build();
+    }
+
+    private static TbQueueMsg msg(String data) {
+        DefaultTbQueueMsgHeaders headers = new DefaultTbQueueMsgHeaders();
+        headers.put("h", ("header-" + data).getBytes(StandardCharsets.UTF_8));
+        return new DefaultTbQueueMsg(UUID.randomUUID(), data.getBytes(StandardCharsets.UTF_8), headers);
+    }
+
+    private static class Sent {
+        private final TopicPartitionInfo tpi;
+        private final TbQueueMsg msg;
+        private final TbQueueCallback callback;
+
+        private Sent(TopicPartitionInfo tpi, TbQueueMsg msg, TbQueueCallback callback) {
+            this.tpi = tpi;
+            this.msg = msg;
+            this.callback = callback;
+        }
+    }
+
+    private static class RecordingProducer implements TbQueueProducer<TbQueueMsg> {
+
+        private final List<Sent> sent = new CopyOnWriteArrayList<>();
+
+        @Override
+        public void init() {
+        }
+
+        @Override
+        public String getDefaultTopic() {
+            return "tb_rule_engine.main";
+        }
+
+        @Override
+        public void send(TopicPartitionInfo tpi, TbQueueMsg msg, TbQueueCallback callback) {
+            sent.add(new Sent(tpi, msg, callback));
+        }
+
+        @Override
+        public void stop() {
+        }
+    }
+
+    private static class CountingCallback implements TbQueueCallback {
+
+        private final AtomicInteger success = new AtomicInteger();
+        private final AtomicInteger failure = new AtomicInteger();
+
+        @Override
+        public void onSuccess(TbQueueMsgMetadata metadata) {
+            success.incrementAndGet();
+        }
+
+        @Override
+        public void onFailure(Throwable t) {
+            failure.incrementAndGet();
+        }
+    }
+
+}
@@ -0,0 +1,249 @@
+/**
+ * Copyright © 2016-2023 The Linkstuffs Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.queue.kafka;
+
+import com.github.luben.zstd.Zstd;
+import com.github.luben.zstd.ZstdDictTrainer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.thingsboard.server.common.stats.DefaultStatsFactory;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TbKafkaPayloadCodecServiceTest {
+
+    private static final String TOPIC = "tb_rule_engine.main";
+
+    private final Map<String, TbKafkaPayloadCodecConfig> configs = new HashMap<>();
+    private DefaultStatsFactory statsFactory;
+
+    @BeforeEach
+    void setUp() {
+        statsFactory = new DefaultStatsFactory();
+        ReflectionTestUtils.setField(statsFactory, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(statsFactory, "metricsEnabled", true);
+    }
+
+    @Test
+    void testLz4Roundtrip() throws IOException {
+        addConfig(TOPIC, TbKafkaPayloadCodecType.LZ4, null);
+        testRoundtrip(createService());
+    }
+
+    @Test
+    void testZstdRoundtrip() throws IOException {
+        addConfig(TOPIC, TbKafkaPayloadCodecType.ZSTD, null);
+        testRoundtrip(createService());
+    }
+
+    @Test
+    void testZstdDictionaryCompressesSmallPayloadsBetter(@TempDir Path dir) throws IOException {
+        Random random = new Random(42);
+        Path dictionary = trainDictionary(dir, random);
+
+        addConfig(TOPIC, TbKafkaPayloadCodecType.ZSTD, null);
+        addConfig("tb_core", TbKafkaPayloadCodecType.ZSTD, dictionary.toString());
+        TbKafkaPayloadCodecService service = createService();
+
+        byte[] data = telemetry(random);
+        byte[] plain = service.getEncoder(TOPIC).encode(data);
+        byte[] withDictionary = service.getEncoder("tb_core").encode(data);
+
+        assertThat(withDictionary).isNotNull();
+        assertThat(withDictionary.length).isLessThan(plain != null ? plain.length : data.length);
+        assertThat(decode(service, "tb_core", service.getEncoder("tb_core"), withDictionary)).isEqualTo(data);
+    }
+
+    @Test
+    void testSmallAndIncompressiblePayloadsAreSentAsIs() {
+        addConfig(TOPIC, TbKafkaPayloadCodecType.LZ4, null);
+        TbKafkaPayloadCodec codec = createService().getEncoder(TOPIC);
+
+        assertThat(codec.encode(new byte[10])).isNull();
+
+        byte[] random = new byte[1024];
+        new Random(42).nextBytes(random);
+        assertThat(codec.encode(random)).isNull();
+        assertThat(codec.getRawBytes()).isEqualTo(1024);
+        assertThat(codec.getEncodedBytes()).isEqualTo(1024);
+    }
+
+    @Test
+    void testRecordsWithoutHeaderAreNotDecoded() throws IOException {
+        TbKafkaPayloadCodecService service = createService();
+        byte[] data = "raw".getBytes(StandardCharsets.UTF_8);
+
+        assertThat(service.getEncoder(TOPIC)).isNull();
+        assertThat(service.decode(TOPIC, new RecordHeaders(), data)).isSameAs(data);
+    }
+
+    @Test
+    void testConsumerDecodesCodecItIsNotConfiguredWith() throws IOException {
+        addConfig(TOPIC, TbKafkaPayloadCodecType.ZSTD, null);
+        TbKafkaPayloadCodec producerCodec = createService().getEncoder(TOPIC);
+        configs.clear();
+        TbKafkaPayloadCodecService consumerService = createService();
+
+        byte[] data = telemetryBatch(new Random(42));
+        assertThat(decode(consumerService, TOPIC, producerCodec, producerCodec.encode(data))).isEqualTo(data);
+    }
+
+    @Test
+    void testConsumerDecodesDictionaryRecordsWithDictionaryResolvedById(@TempDir Path dir) throws IOException {
+        Random random = new Random(42);
+        Path dictionary = trainDictionary(dir, random);
+        addConfig(TOPIC, TbKafkaPayloadCodecType.ZSTD, dictionary.toString());
+        TbKafkaPayloadCodec producerCodec = createService().getEncoder(TOPIC);
+        long dictionaryId = Zstd.getDictIdFromDict(Files.readAllBytes(dictionary));
+        assertThat(new String(producerCodec.getHeader().value(), StandardCharsets.UTF_8)).isEqualTo("ZSTD:" + dictionaryId);
+
+        configs.clear();
+        addConfig(TOPIC, TbKafkaPayloadCodecType.ZSTD, null);
+        TbKafkaPayloadCodecService consumerService = createService(List.of(dictionary.toString()));
+
+        byte[] data = telemetry(random);
+        assertThat(decode(consumerService, TOPIC, producerCodec, producerCodec.encode(data))).isEqualTo(data);
+    }
+
+    @Test
+    void testConsumerWithoutDictionaryFailsWithIOException(@TempDir Path dir) throws IOException {
+        Random random = new Random(42);
+        addConfig(TOPIC, TbKafkaPayloadCodecType.ZSTD, trainDictionary(dir, random).toString());
+        TbKafkaPayloadCodec producerCodec = createService().getEncoder(TOPIC);
+        configs.clear();
+        TbKafkaPayloadCodecService consumerService = createService();
+
+        byte[] encoded = producerCodec.encode(telemetry(random));
+        assertThatThrownBy(() -> decode(consumerService, TOPIC, producerCodec, encoded))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("dictionary");
+    }
+
+    @Test
+    void testCorruptedPayloadFailsWithIOException() {
+        addConfig(TOPIC, TbKafkaPayloadCodecType.LZ4, null);
+        TbKafkaPayloadCodecService service = createService();
+        TbKafkaPayloadCodec codec = service.getEncoder(TOPIC);
+
+        assertThatThrownBy(() -> decode(service, TOPIC, codec, new byte[]{0x7F, 0, 0, 0, 1})).isInstanceOf(IOException.class);
+    }
+
+    @Test
+    void testTruncatedOrShorterLz4PayloadFailsWithIOException() throws IOException {
+        addConfig(TOPIC, TbKafkaPayloadCodecType.LZ4, null);
+        TbKafkaPayloadCodecService service = createService();
+        TbKafkaPayloadCodec codec = service.getEncoder(TOPIC);
+        byte[] encoded = codec.encode(telemetryBatch(new Random(42)));
+
+        byte[] truncated = Arrays.copyOf(encoded, encoded.length / 2);
+        assertThatThrownBy(() -> decode(service, TOPIC, codec, truncated)).isInstanceOf(IOException.class);
+
+        byte[] longerLength = encoded.clone();
+        longerLength[3]++;
+        assertThatThrownBy(() -> decode(service, TOPIC, codec, longerLength))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("mismatch");
+    }
+
+    private void testRoundtrip(TbKafkaPayloadCodecService service) throws IOException {
+        TbKafkaPayloadCodec codec = service.getEncoder(TOPIC);
+        byte[] data = telemetryBatch(new Random(42));
+
+        byte[] encoded = codec.encode(data);
+
+        assertThat(encoded).isNotNull();
+        assertThat(encoded.length).isLessThan(data.length);
+        assertThat(decode(service, TOPIC, codec, encoded)).isEqualTo(data);
+        assertThat(codec.getRawBytes()).isEqualTo(data.length);
+        assertThat(codec.getEncodedBytes()).isEqualTo(encoded.length);
+    }
+
+    private byte[] decode(TbKafkaPayloadCodecService service, String topic, TbKafkaPayloadCodec codec, byte[] encoded) throws IOException {
+        RecordHeaders headers = new RecordHeaders();
+        headers.add(codec.getHeader());
+        return service.decode(topic, headers, encoded);
+    }
+
+    private void addConfig(String topic, TbKafkaPayloadCodecType type, String dictionary) {
+        TbKafkaPayloadCodecConfig config = new TbKafkaPayloadCodecConfig();
+        config.setType(type);
+        config.setDictionary(dictionary);
+        configs.put(topic, config);
+    }
+
+    private TbKafkaPayloadCodecService createService() {
+        return createService(Collections.emptyList());
+    }
+
+    private TbKafkaPayloadCodecService createService(List<String> dictionaries) {
+        TbKafkaSettings settings = new TbKafkaSettings();
+        settings.setPayloadCodecPerTopic(new HashMap<>(configs));
+        settings.setPayloadCodecDictionaries(dictionaries);
+        TbKafkaPayloadCodecService service = new TbKafkaPayloadCodecService(settings, statsFactory);
+        try {
+            service.init();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        return service;
+    }
+
+    private static Path trainDictionary(Path dir, Random random) throws IOException {
+        ZstdDictTrainer trainer = new ZstdDictTrainer(1024 * 1024, 4 * 1024);
+        for (int i = 0; i < 2000; i++) {
+            trainer.addSample(telemetry(random));
+        }
+        Path dictionary = dir.resolve("telemetry.dict");
+        Files.write(dictionary, trainer.trainSamples());
+        return dictionary;
+    }
+
+    private static byte[] telemetryBatch(Random random) {
+        StringBuilder batch = new StringBuilder("[");
+        for (int i = 0; i < 20; i++) {
+            if (i > 0) {
+                batch.append(',');
+            }
+            batch.append(new String(telemetry(random), StandardCharsets.UTF_8));
+        }
+        return batch.append(']').toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] telemetry(Random random) {
+        return ("{\"temperature\":" + random.nextInt(100) + "." + random.nextInt(10)
+                + ",\"humidity\":" + random.nextInt(100)
+                + ",\"batteryLevel\":" + random.nextInt(100)
+                + ",\"deviceName\":\"Thermostat " + random.nextInt(1000) + "\""
+                + ",\"active\":" + random.nextBoolean() + "}").getBytes(StandardCharsets.UTF_8);
+    }
+
+}
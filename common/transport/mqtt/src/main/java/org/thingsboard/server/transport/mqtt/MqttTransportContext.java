@@ -26,6 +26,7 @@ import org.springframework.stereotype.Component;
 import org.thingsboard.server.common.transport.TransportContext;
 import org.thingsboard.server.transport.mqtt.adaptors.JsonMqttAdaptor;
 import org.thingsboard.server.transport.mqtt.adaptors.ProtoMqttAdaptor;
+import org.thingsboard.server.transport.mqtt.limits.MqttConnectAdmissionController;
 
 import javax.annotation.PostConstruct;
 import java.net.InetSocketAddress;
@@ -75,12 +76,40 @@ public class MqttTransportContext extends TransportContext {
     @Value("${transport.mqtt.proxy_enabled:false}")
     private boolean proxyEnabled;
 
+    @Getter
+    @Value("${transport.mqtt.gateway.batch_enabled:false}")
+    private boolean gatewayBatchEnabled;
+
+    @Getter
+    @Value("${transport.mqtt.gateway.batch_max_devices:100}")
+    private int gatewayBatchMaxDevices;
+
+    @Value("${transport.mqtt.connect_admission.enabled:false}")
+    private boolean connectAdmissionEnabled;
+
+    @Value("${transport.mqtt.connect_admission.min_limit:10}")
+    private int connectAdmissionMinLimit;
+
+    @Value("${transport.mqtt.connect_admission.max_limit:1000}")
+    private int connectAdmissionMaxLimit;
+
+    @Value("${transport.mqtt.connect_admission.target_latency_ms:500}")
+    private long connectAdmissionTargetLatencyMs;
+
+    @Getter
+    private MqttConnectAdmissionController connectAdmissionController;
+
     private final AtomicInteger connectionsCounter = new AtomicInteger();
 
     @PostConstruct
     public void init() {
         super.init();
         transportService.createGaugeStats("openConnections", connectionsCounter);
+        connectAdmissionController = new MqttConnectAdmissionController(connectAdmissionEnabled,
+                connectAdmissionMinLimit, connectAdmissionMaxLimit, connectAdmissionTargetLatencyMs);
+        transportService.createGaugeStats("pendingConnects", connectAdmissionController.getPendingHandshakes());
+        transportService.createGaugeStats("pendingConnectsLimit", connectAdmissionController.getLimit());
+        transportService.createGaugeStats("rejectedConnects", connectAdmissionController.getRejectedHandshakes());
     }
 
     public void channelRegistered() {
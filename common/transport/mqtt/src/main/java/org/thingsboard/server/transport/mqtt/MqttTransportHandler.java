@@ -69,6 +69,7 @@ import org.thingsboard.server.gen.transport.TransportProtos.ProvisionDeviceRespo
 import org.thingsboard.server.gen.transport.TransportProtos.ValidateDeviceX509CertRequestMsg;
 import org.thingsboard.server.queue.scheduler.SchedulerComponent;
 import org.thingsboard.server.transport.mqtt.adaptors.MqttTransportAdaptor;
+import org.thingsboard.server.transport.mqtt.limits.MqttConnectAdmissionController;
 import org.thingsboard.server.transport.mqtt.session.DeviceSessionCtx;
 import org.thingsboard.server.transport.mqtt.session.GatewaySessionHandler;
 import org.thingsboard.server.transport.mqtt.session.MqttTopicMatcher;
@@ -86,6 +87,7 @@ import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -138,6 +140,9 @@ public class MqttTransportHandler extends ChannelInboundHandlerAdapter implement
     private TopicType attrReqTopicType;
     private TopicType toServerRpcSubTopicType;
 
+    private final AtomicBoolean connectAdmitted = new AtomicBoolean();
+    private volatile long connectStartNanos;
+
     MqttTransportHandler(MqttTransportContext context, SslHandler sslHandler) {
         this.sessionId = UUID.randomUUID();
         this.context = context;
@@ -788,6 +793,12 @@ public class MqttTransportHandler extends ChannelInboundHandlerAdapter implement
             deviceSessionCtx.setProvisionOnly(true);
             ctx.writeAndFlush(createMqttConnAckMsg(CONNECTION_ACCEPTED, msg));
         } else {
+            if (!admitConnect()) {
+                log.debug("[{}][{}] Too many pending connect handshakes, rejecting client: {}", address, sessionId, clientId);
+                ctx.writeAndFlush(createMqttConnAckMsg(MqttConnectReturnCode.CONNECTION_REFUSED_SERVER_UNAVAILABLE, msg));
+                ctx.close();
+                return;
+            }
             X509Certificate cert;
             if (sslHandler != null && (cert = getX509Certificate()) != null) {
                 processX509CertConnect(ctx, cert, msg);
@@ -820,6 +831,7 @@ public class MqttTransportHandler extends ChannelInboundHandlerAdapter implement
                     @Override
                     public void onError(Throwable e) {
                         log.trace("[{}] Failed to process credentials: {}", address, userName, e);
+                        onConnectHandshakeDone(false);
                         ctx.writeAndFlush(createMqttConnAckMsg(MqttConnectReturnCode.CONNECTION_REFUSED_SERVER_UNAVAILABLE, connectMessage));
                         ctx.close();
                     }
@@ -843,12 +855,14 @@ public class MqttTransportHandler extends ChannelInboundHandlerAdapter implement
                         @Override
                         public void onError(Throwable e) {
                             log.trace("[{}] Failed to process credentials: {}", address, sha3Hash, e);
+                            onConnectHandshakeDone(false);
                             ctx.writeAndFlush(createMqttConnAckMsg(MqttConnectReturnCode.CONNECTION_REFUSED_SERVER_UNAVAILABLE, connectMessage));
                             ctx.close();
                         }
                     });
         } catch (Exception e) {
             context.onAuthFailure(address);
+            onConnectHandshakeDone(true);
             ctx.writeAndFlush(createMqttConnAckMsg(CONNECTION_REFUSED_NOT_AUTHORIZED, connectMessage));
             log.trace("[{}] X509 auth failure: {}", sessionId, address, e);
             ctx.close();
@@ -868,6 +882,30 @@ public class MqttTransportHandler extends ChannelInboundHandlerAdapter implement
         return null;
     }
 
+    private boolean admitConnect() {
+        MqttConnectAdmissionController admissionController = context.getConnectAdmissionController();
+        if (!admissionController.tryAcquire()) {
+            return false;
+        }
+        connectStartNanos = System.nanoTime();
+        if (!connectAdmitted.compareAndSet(false, true)) {
+            // repeated CONNECT while the previous handshake is still pending: keep a single permit per channel
+            admissionController.onHandshakeAborted();
+        }
+        return true;
+    }
+
+    private void onConnectHandshakeDone(boolean responded) {
+        if (connectAdmitted.compareAndSet(true, false)) {
+            MqttConnectAdmissionController admissionController = context.getConnectAdmissionController();
+            if (responded) {
+                admissionController.onHandshakeCompleted(System.nanoTime() - connectStartNanos);
+            } else {
+                admissionController.onHandshakeFailed();
+            }
+        }
+    }
+
     private MqttConnAckMessage createMqttConnAckMsg(MqttConnectReturnCode returnCode, MqttConnectMessage msg) {
         MqttFixedHeader mqttFixedHeader =
                 new MqttFixedHeader(CONNACK, false, AT_MOST_ONCE, false, 0);
@@ -960,6 +998,9 @@ public class MqttTransportHandler extends ChannelInboundHandlerAdapter implement
     }
 
     public void doDisconnect() {
+        if (connectAdmitted.compareAndSet(true, false)) {
+            context.getConnectAdmissionController().onHandshakeAborted();
+        }
         if (deviceSessionCtx.isConnected()) {
             log.debug("[{}] Client disconnected!", sessionId);
             transportService.process(deviceSessionCtx.getSessionInfo(), SESSION_EVENT_MSG_CLOSED, null);
@@ -976,6 +1017,7 @@ public class MqttTransportHandler extends ChannelInboundHandlerAdapter implement
     private void onValidateDeviceResponse(ValidateDeviceCredentialsResponse msg, ChannelHandlerContext ctx, MqttConnectMessage connectMessage) {
         if (!msg.hasDeviceInfo()) {
             context.onAuthFailure(address);
+            onConnectHandshakeDone(true);
             ctx.writeAndFlush(createMqttConnAckMsg(CONNECTION_REFUSED_NOT_AUTHORIZED, connectMessage));
             ctx.close();
         } else {
@@ -986,6 +1028,7 @@ public class MqttTransportHandler extends ChannelInboundHandlerAdapter implement
             transportService.process(deviceSessionCtx.getSessionInfo(), SESSION_EVENT_MSG_OPEN, new TransportServiceCallback<Void>() {
                 @Override
                 public void onSuccess(Void msg) {
+                    onConnectHandshakeDone(true);
                     SessionMetaData sessionMetaData = transportService.registerAsyncSession(deviceSessionCtx.getSessionInfo(), MqttTransportHandler.this);
                     checkGatewaySession(sessionMetaData);
                     ctx.writeAndFlush(createMqttConnAckMsg(CONNECTION_ACCEPTED, connectMessage));
@@ -1001,6 +1044,8 @@ public class MqttTransportHandler extends ChannelInboundHandlerAdapter implement
                     } else {
                         log.warn("[{}] Failed to submit session event", sessionId, e);
                     }
+                    // rate limits are per tenant and say nothing about the transport API health
+                    onConnectHandshakeDone(e instanceof TbRateLimitsException);
                     ctx.writeAndFlush(createMqttConnAckMsg(MqttConnectReturnCode.CONNECTION_REFUSED_SERVER_UNAVAILABLE, connectMessage));
                     ctx.close();
                 }
@@ -17,6 +17,7 @@ package org.thingsboard.server.transport.mqtt.adaptors;
 
 import com.google.gson.JsonElement;
 import com.google.gson.JsonParser;
+import com.google.protobuf.CodedInputStream;
 import com.google.protobuf.Descriptors;
 import com.google.protobuf.DynamicMessage;
 import com.google.protobuf.InvalidProtocolBufferException;
@@ -47,10 +48,9 @@ public class ProtoMqttAdaptor implements MqttTransportAdaptor {
     @Override
     public TransportProtos.PostTelemetryMsg convertToPostTelemetry(MqttDeviceAwareSessionContext ctx, MqttPublishMessage inbound) throws AdaptorException {
         DeviceSessionCtx deviceSessionCtx = (DeviceSessionCtx) ctx;
-        byte[] bytes = toBytes(inbound.payload());
         Descriptors.Descriptor telemetryDynamicMsgDescriptor = ProtoConverter.validateDescriptor(deviceSessionCtx.getTelemetryDynamicMsgDescriptor());
         try {
-            return JsonConverter.convertToTelemetryProto(new JsonParser().parse(ProtoConverter.dynamicMsgToJson(bytes, telemetryDynamicMsgDescriptor)));
+            return JsonConverter.convertToTelemetryProto(new JsonParser().parse(ProtoConverter.dynamicMsgToJson(toCodedInputStream(inbound.payload()), telemetryDynamicMsgDescriptor)));
         } catch (Exception e) {
             log.debug("Failed to decode post telemetry request", e);
             throw new AdaptorException(e);
@@ -60,10 +60,9 @@ public class ProtoMqttAdaptor implements MqttTransportAdaptor {
     @Override
     public TransportProtos.PostAttributeMsg convertToPostAttributes(MqttDeviceAwareSessionContext ctx, MqttPublishMessage inbound) throws AdaptorException {
         DeviceSessionCtx deviceSessionCtx = (DeviceSessionCtx) ctx;
-        byte[] bytes = toBytes(inbound.payload());
         Descriptors.Descriptor attributesDynamicMessageDescriptor = ProtoConverter.validateDescriptor(deviceSessionCtx.getAttributesDynamicMessageDescriptor());
         try {
-            return JsonConverter.convertToAttributesProto(new JsonParser().parse(ProtoConverter.dynamicMsgToJson(bytes, attributesDynamicMessageDescriptor)));
+            return JsonConverter.convertToAttributesProto(new JsonParser().parse(ProtoConverter.dynamicMsgToJson(toCodedInputStream(inbound.payload()), attributesDynamicMessageDescriptor)));
         } catch (Exception e) {
             log.debug("Failed to decode post attributes request", e);
             throw new AdaptorException(e);
@@ -98,11 +97,10 @@ public class ProtoMqttAdaptor implements MqttTransportAdaptor {
     public TransportProtos.ToDeviceRpcResponseMsg convertToDeviceRpcResponse(MqttDeviceAwareSessionContext ctx, MqttPublishMessage mqttMsg, String topicBase) throws AdaptorException {
         DeviceSessionCtx deviceSessionCtx = (DeviceSessionCtx) ctx;
         String topicName = mqttMsg.variableHeader().topicName();
-        byte[] bytes = toBytes(mqttMsg.payload());
         Descriptors.Descriptor rpcResponseDynamicMessageDescriptor = ProtoConverter.validateDescriptor(deviceSessionCtx.getRpcResponseDynamicMessageDescriptor());
         try {
             int requestId = getRequestId(topicName, topicBase);
-            JsonElement response = new JsonParser().parse(ProtoConverter.dynamicMsgToJson(bytes, rpcResponseDynamicMessageDescriptor));
+            JsonElement response = new JsonParser().parse(ProtoConverter.dynamicMsgToJson(toCodedInputStream(mqttMsg.payload()), rpcResponseDynamicMessageDescriptor));
             return TransportProtos.ToDeviceRpcResponseMsg.newBuilder().setRequestId(requestId).setPayload(response.toString()).build();
         } catch (Exception e) {
             log.debug("Failed to decode rpc response", e);
@@ -209,6 +207,21 @@ public class ProtoMqttAdaptor implements MqttTransportAdaptor {
         return Optional.of(createMqttPublishMsg(ctx, MqttTopics.GATEWAY_RPC_TOPIC, payloadBytes));
     }
 
+    /**
+     * Reads the payload in place instead of copying it to a byte[] first: heap buffers are wrapped by their backing array
+     * and pooled direct buffers are read through their NIO view. Only multi-component buffers fall back to a copy.
+     * The stream must be consumed before the message is released.
+     */
+    public static CodedInputStream toCodedInputStream(ByteBuf inbound) {
+        if (inbound.hasArray()) {
+            return CodedInputStream.newInstance(inbound.array(), inbound.arrayOffset() + inbound.readerIndex(), inbound.readableBytes());
+        } else if (inbound.nioBufferCount() == 1) {
+            return CodedInputStream.newInstance(inbound.nioBuffer());
+        } else {
+            return CodedInputStream.newInstance(toBytes(inbound));
+        }
+    }
+
     public static byte[] toBytes(ByteBuf inbound) {
         byte[] bytes = new byte[inbound.readableBytes()];
         int readerIndex = inbound.readerIndex();
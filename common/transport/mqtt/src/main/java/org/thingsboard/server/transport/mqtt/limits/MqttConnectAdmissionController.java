@@ -0,0 +1,114 @@
+/**
+ * Copyright © 2016-2023 The Linkstuffs Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.transport.mqtt.limits;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Caps the number of MQTT CONNECT handshakes (credentials validation + session registration) that are in flight
+ * against the transport API at the same time. The cap follows an AIMD scheme: it grows by one for every handshake
+ * that completes within the target latency and shrinks multiplicatively (at most once per target latency window)
+ * when handshakes are slow or fail, so a mass reconnect is admitted at the pace the core is able to serve it.
+ */
+@Slf4j
+public class MqttConnectAdmissionController {
+
+    private static final double DECREASE_RATIO = 0.75;
+
+    private final boolean enabled;
+    private final int minLimit;
+    private final int maxLimit;
+    private final long targetLatencyNanos;
+
+    private final AtomicInteger pendingHandshakes = new AtomicInteger();
+    private final AtomicInteger limit;
+    private final AtomicInteger rejectedHandshakes = new AtomicInteger();
+
+    private long lastDecreaseNanos;
+
+    public MqttConnectAdmissionController(boolean enabled, int minLimit, int maxLimit, long targetLatencyMs) {
+        if (minLimit <= 0 || maxLimit < minLimit) {
+            throw new IllegalArgumentException("Invalid connect admission limits: min " + minLimit + ", max " + maxLimit);
+        }
+        this.enabled = enabled;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.targetLatencyNanos = TimeUnit.MILLISECONDS.toNanos(targetLatencyMs);
+        this.limit = new AtomicInteger(maxLimit);
+        this.lastDecreaseNanos = System.nanoTime() - targetLatencyNanos;
+    }
+
+    /**
+     * @return true if the handshake is admitted; the caller must then report exactly one of
+     * {@link #onHandshakeCompleted(long)}, {@link #onHandshakeFailed()} or {@link #onHandshakeAborted()}.
+     */
+    public boolean tryAcquire() {
+        while (true) {
+            int current = pendingHandshakes.get();
+            if (enabled && current >= limit.get()) {
+                rejectedHandshakes.incrementAndGet();
+                return false;
+            }
+            if (pendingHandshakes.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    public void onHandshakeCompleted(long latencyNanos) {
+        pendingHandshakes.decrementAndGet();
+        if (latencyNanos > targetLatencyNanos) {
+            decrease();
+        } else {
+            limit.getAndUpdate(l -> Math.min(maxLimit, l + 1));
+        }
+    }
+
+    public void onHandshakeFailed() {
+        pendingHandshakes.decrementAndGet();
+        decrease();
+    }
+
+    public void onHandshakeAborted() {
+        pendingHandshakes.decrementAndGet();
+    }
+
+    private synchronized void decrease() {
+        long now = System.nanoTime();
+        if (now - lastDecreaseNanos < targetLatencyNanos) {
+            return;
+        }
+        lastDecreaseNanos = now;
+        int newLimit = limit.updateAndGet(l -> Math.max(minLimit, (int) (l * DECREASE_RATIO)));
+        log.debug("Connect admission limit decreased to {}, pending handshakes: {}", newLimit, pendingHandshakes.get());
+    }
+
+    public AtomicInteger getPendingHandshakes() {
+        return pendingHandshakes;
+    }
+
+    public AtomicInteger getLimit() {
+        return limit;
+    }
+
+    public AtomicInteger getRejectedHandshakes() {
+        return rejectedHandshakes;
+    }
+
+}
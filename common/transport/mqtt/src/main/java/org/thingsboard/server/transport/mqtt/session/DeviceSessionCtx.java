@@ -246,8 +246,12 @@ public class DeviceSessionCtx extends MqttDeviceAwareSessionContext {
     public void release() {
         if (!msgQueue.isEmpty()) {
             log.warn("doDisconnect for device {} but unprocessed messages {} left in the msg queue", getDeviceId(), msgQueue.size());
-            msgQueue.forEach(ReferenceCountUtil::safeRelease);
-            msgQueue.clear();
+            // poll instead of forEach + clear, so a message taken concurrently by the queue processor is never released twice
+            MqttMessage msg;
+            while ((msg = msgQueue.poll()) != null) {
+                msgQueueSize.decrementAndGet();
+                ReferenceCountUtil.safeRelease(msg);
+            }
         }
     }
 
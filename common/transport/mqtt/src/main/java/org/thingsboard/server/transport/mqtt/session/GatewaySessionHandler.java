@@ -16,15 +16,18 @@
 package org.thingsboard.server.transport.mqtt.session;
 
 
+import com.google.common.collect.Iterables;
 import com.google.common.util.concurrent.FutureCallback;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
 import com.google.common.util.concurrent.SettableFuture;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonNull;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonSyntaxException;
+import com.google.protobuf.CodedInputStream;
 import com.google.protobuf.InvalidProtocolBufferException;
 import com.google.protobuf.ProtocolStringList;
 import io.netty.buffer.ByteBuf;
@@ -47,6 +50,7 @@ import org.thingsboard.server.common.transport.auth.TransportDeviceInfo;
 import org.thingsboard.server.gen.transport.TransportApiProtos;
 import org.thingsboard.server.gen.transport.TransportProtos;
 import org.thingsboard.server.gen.transport.TransportProtos.GetOrCreateDeviceFromGatewayRequestMsg;
+import org.thingsboard.server.gen.transport.TransportProtos.GetOrCreateDevicesFromGatewayRequestMsg;
 import org.thingsboard.server.gen.transport.TransportProtos.SessionInfoProto;
 import org.thingsboard.server.transport.mqtt.MqttTransportContext;
 import org.thingsboard.server.transport.mqtt.MqttTransportHandler;
@@ -55,16 +59,22 @@ import org.thingsboard.server.transport.mqtt.adaptors.MqttTransportAdaptor;
 import org.thingsboard.server.transport.mqtt.adaptors.ProtoMqttAdaptor;
 
 import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
 
 import static org.springframework.util.ConcurrentReferenceHashMap.ReferenceType;
 import static org.thingsboard.server.common.transport.service.DefaultTransportService.SESSION_EVENT_MSG_CLOSED;
@@ -259,27 +269,11 @@ public class GatewaySessionHandler {
             return future;
         }
             try {
-                transportService.process(GetOrCreateDeviceFromGatewayRequestMsg.newBuilder()
-                                .setDeviceName(deviceName)
-                                .setDeviceType(deviceType)
-                                .setGatewayIdMSB(gateway.getDeviceId().getId().getMostSignificantBits())
-                                .setGatewayIdLSB(gateway.getDeviceId().getId().getLeastSignificantBits()).build(),
+                transportService.process(toGetOrCreateDeviceRequestMsg(deviceName, deviceType),
                         new TransportServiceCallback<GetOrCreateDeviceFromGatewayResponse>() {
                             @Override
                             public void onSuccess(GetOrCreateDeviceFromGatewayResponse msg) {
-                                GatewayDeviceSessionCtx deviceSessionCtx = new GatewayDeviceSessionCtx(GatewaySessionHandler.this, msg.getDeviceInfo(), msg.getDeviceProfile(), mqttQoSMap, transportService);
-                                if (devices.putIfAbsent(deviceName, deviceSessionCtx) == null) {
-                                    log.trace("[{}] First got or created device [{}], type [{}] for the gateway session", sessionId, deviceName, deviceType);
-                                    SessionInfoProto deviceSessionInfo = deviceSessionCtx.getSessionInfo();
-                                    transportService.registerAsyncSession(deviceSessionInfo, deviceSessionCtx);
-                                    transportService.process(TransportProtos.TransportToDeviceActorMsg.newBuilder()
-                                            .setSessionInfo(deviceSessionInfo)
-                                            .setSessionEvent(SESSION_EVENT_MSG_OPEN)
-                                            .setSubscribeToAttributes(SUBSCRIBE_TO_ATTRIBUTE_UPDATES_ASYNC_MSG)
-                                            .setSubscribeToRPC(SUBSCRIBE_TO_RPC_ASYNC_MSG)
-                                            .build(), null);
-                                }
-                                futureToSet.set(devices.get(deviceName));
+                                futureToSet.set(registerDeviceSession(deviceName, deviceType, msg));
                                 deviceFutures.remove(deviceName);
                             }
 
@@ -297,6 +291,120 @@ public class GatewaySessionHandler {
             }
     }
 
+    private GatewayDeviceSessionCtx registerDeviceSession(String deviceName, String deviceType, GetOrCreateDeviceFromGatewayResponse msg) {
+        GatewayDeviceSessionCtx deviceSessionCtx = new GatewayDeviceSessionCtx(GatewaySessionHandler.this, msg.getDeviceInfo(), msg.getDeviceProfile(), mqttQoSMap, transportService);
+        if (devices.putIfAbsent(deviceName, deviceSessionCtx) == null) {
+            log.trace("[{}] First got or created device [{}], type [{}] for the gateway session", sessionId, deviceName, deviceType);
+            SessionInfoProto deviceSessionInfo = deviceSessionCtx.getSessionInfo();
+            transportService.registerAsyncSession(deviceSessionInfo, deviceSessionCtx);
+            transportService.process(TransportProtos.TransportToDeviceActorMsg.newBuilder()
+                    .setSessionInfo(deviceSessionInfo)
+                    .setSessionEvent(SESSION_EVENT_MSG_OPEN)
+                    .setSubscribeToAttributes(SUBSCRIBE_TO_ATTRIBUTE_UPDATES_ASYNC_MSG)
+                    .setSubscribeToRPC(SUBSCRIBE_TO_RPC_ASYNC_MSG)
+                    .build(), null);
+        }
+        return devices.get(deviceName);
+    }
+
+    private GetOrCreateDeviceFromGatewayRequestMsg toGetOrCreateDeviceRequestMsg(String deviceName, String deviceType) {
+        return GetOrCreateDeviceFromGatewayRequestMsg.newBuilder()
+                .setDeviceName(deviceName)
+                .setDeviceType(deviceType)
+                .setGatewayIdMSB(gateway.getDeviceId().getId().getMostSignificantBits())
+                .setGatewayIdLSB(gateway.getDeviceId().getId().getLeastSignificantBits()).build();
+    }
+
+    /**
+     * Resolves all the devices of a gateway publish at once: known devices are taken from the session,
+     * devices that are already being created are awaited and the rest are got or created with bulk requests.
+     * Devices that failed to be resolved are logged and left out of the result, so the rest of the publish is still processed.
+     */
+    private ListenableFuture<Map<String, GatewayDeviceSessionCtx>> checkDevicesConnected(Collection<String> deviceNames) {
+        Map<String, ListenableFuture<GatewayDeviceSessionCtx>> deviceCtxFutures = new LinkedHashMap<>();
+        Map<String, SettableFuture<GatewayDeviceSessionCtx>> devicesToCreate = new LinkedHashMap<>();
+        for (String deviceName : deviceNames) {
+            if (deviceCtxFutures.containsKey(deviceName)) {
+                continue;
+            }
+            GatewayDeviceSessionCtx deviceCtx = devices.get(deviceName);
+            if (deviceCtx != null) {
+                deviceCtxFutures.put(deviceName, Futures.immediateFuture(deviceCtx));
+                continue;
+            }
+            SettableFuture<GatewayDeviceSessionCtx> futureToSet = SettableFuture.create();
+            ListenableFuture<GatewayDeviceSessionCtx> future = deviceFutures.putIfAbsent(deviceName, futureToSet);
+            if (future != null) {
+                deviceCtxFutures.put(deviceName, future);
+            } else {
+                deviceCtxFutures.put(deviceName, futureToSet);
+                devicesToCreate.put(deviceName, futureToSet);
+            }
+        }
+        if (!devicesToCreate.isEmpty()) {
+            log.debug("[{}] Missing {} devices for the gateway session", sessionId, devicesToCreate.size());
+            Iterables.partition(devicesToCreate.entrySet(), Math.max(1, context.getGatewayBatchMaxDevices())).forEach(this::getOrCreateDevices);
+        }
+        List<String> names = new ArrayList<>(deviceCtxFutures.keySet());
+        List<ListenableFuture<GatewayDeviceSessionCtx>> futures = new ArrayList<>(names.size());
+        deviceCtxFutures.forEach((deviceName, future) -> futures.add(Futures.catching(future, Throwable.class, t -> {
+            log.warn("[{}][{}] Failed to get or create device, skipping its messages", sessionId, deviceName, t);
+            return null;
+        }, MoreExecutors.directExecutor())));
+        return Futures.transform(Futures.allAsList(futures), deviceCtxs -> {
+            Map<String, GatewayDeviceSessionCtx> result = new HashMap<>();
+            for (int i = 0; i < names.size(); i++) {
+                if (deviceCtxs.get(i) != null) {
+                    result.put(names.get(i), deviceCtxs.get(i));
+                }
+            }
+            return result;
+        }, MoreExecutors.directExecutor());
+    }
+
+    private void getOrCreateDevices(List<Map.Entry<String, SettableFuture<GatewayDeviceSessionCtx>>> batch) {
+        GetOrCreateDevicesFromGatewayRequestMsg.Builder request = GetOrCreateDevicesFromGatewayRequestMsg.newBuilder();
+        batch.forEach(entry -> request.addRequests(toGetOrCreateDeviceRequestMsg(entry.getKey(), DEFAULT_DEVICE_TYPE)));
+        try {
+            transportService.process(request.build(), new TransportServiceCallback<>() {
+                @Override
+                public void onSuccess(List<GetOrCreateDeviceFromGatewayResponse> responses) {
+                    for (int i = 0; i < batch.size(); i++) {
+                        String deviceName = batch.get(i).getKey();
+                        SettableFuture<GatewayDeviceSessionCtx> futureToSet = batch.get(i).getValue();
+                        try {
+                            GetOrCreateDeviceFromGatewayResponse response = responses.get(i);
+                            if (response.getDeviceInfo() == null) {
+                                throw new IllegalStateException("Failed to get or create device: " + deviceName);
+                            }
+                            futureToSet.set(registerDeviceSession(deviceName, DEFAULT_DEVICE_TYPE, response));
+                        } catch (Throwable e) {
+                            futureToSet.setException(e);
+                        } finally {
+                            deviceFutures.remove(deviceName, futureToSet);
+                        }
+                    }
+                }
+
+                @Override
+                public void onError(Throwable e) {
+                    log.warn("[{}] Failed to get or create {} devices for the gateway session", sessionId, batch.size(), e);
+                    failDeviceCreation(batch, e);
+                }
+            });
+        } catch (Throwable e) {
+            failDeviceCreation(batch, e);
+            throw e;
+        }
+    }
+
+    private void failDeviceCreation(List<Map.Entry<String, SettableFuture<GatewayDeviceSessionCtx>>> batch, Throwable e) {
+        batch.forEach(entry -> {
+            entry.getValue().setException(e);
+            deviceFutures.remove(entry.getKey(), entry.getValue());
+        });
+    }
+
     private int getMsgId(MqttPublishMessage mqttMsg) {
         return mqttMsg.variableHeader().packetId();
     }
@@ -310,7 +418,7 @@ public class GatewaySessionHandler {
 
     private void onDeviceConnectProto(MqttPublishMessage mqttMsg) throws AdaptorException {
         try {
-            TransportApiProtos.ConnectMsg connectProto = TransportApiProtos.ConnectMsg.parseFrom(getBytes(mqttMsg.payload()));
+            TransportApiProtos.ConnectMsg connectProto = TransportApiProtos.ConnectMsg.parser().parseFrom(toCodedInputStream(mqttMsg.payload()));
             String deviceName = checkDeviceName(connectProto.getDeviceName());
             String deviceType = StringUtils.isEmpty(connectProto.getDeviceType()) ? DEFAULT_DEVICE_TYPE : connectProto.getDeviceType();
             processOnConnect(mqttMsg, deviceName, deviceType);
@@ -326,7 +434,7 @@ public class GatewaySessionHandler {
 
     private void onDeviceDisconnectProto(MqttPublishMessage mqttMsg) throws AdaptorException {
         try {
-            TransportApiProtos.DisconnectMsg connectProto = TransportApiProtos.DisconnectMsg.parseFrom(getBytes(mqttMsg.payload()));
+            TransportApiProtos.DisconnectMsg connectProto = TransportApiProtos.DisconnectMsg.parser().parseFrom(toCodedInputStream(mqttMsg.payload()));
             String deviceName = checkDeviceName(connectProto.getDeviceName());
             processOnDisconnect(mqttMsg, deviceName);
         } catch (RuntimeException | InvalidProtocolBufferException e) {
@@ -343,6 +451,10 @@ public class GatewaySessionHandler {
         JsonElement json = JsonMqttAdaptor.validateJsonPayload(sessionId, payload);
         if (json.isJsonObject()) {
             JsonObject jsonObj = json.getAsJsonObject();
+            if (context.isGatewayBatchEnabled()) {
+                onDeviceTelemetryJsonBatch(msgId, jsonObj);
+                return;
+            }
             for (Map.Entry<String, JsonElement> deviceEntry : jsonObj.entrySet()) {
                 String deviceName = deviceEntry.getKey();
                 Futures.addCallback(checkDeviceConnected(deviceName),
@@ -374,9 +486,11 @@ public class GatewaySessionHandler {
 
     private void onDeviceTelemetryProto(int msgId, ByteBuf payload) throws AdaptorException {
         try {
-            TransportApiProtos.GatewayTelemetryMsg telemetryMsgProto = TransportApiProtos.GatewayTelemetryMsg.parseFrom(getBytes(payload));
+            TransportApiProtos.GatewayTelemetryMsg telemetryMsgProto = TransportApiProtos.GatewayTelemetryMsg.parser().parseFrom(toCodedInputStream(payload));
             List<TransportApiProtos.TelemetryMsg> deviceMsgList = telemetryMsgProto.getMsgList();
-            if (!CollectionUtils.isEmpty(deviceMsgList)) {
+            if (!CollectionUtils.isEmpty(deviceMsgList) && context.isGatewayBatchEnabled()) {
+                onDeviceTelemetryProtoBatch(msgId, deviceMsgList);
+            } else if (!CollectionUtils.isEmpty(deviceMsgList)) {
                 deviceMsgList.forEach(telemetryMsg -> {
                     String deviceName = checkDeviceName(telemetryMsg.getDeviceName());
                     Futures.addCallback(checkDeviceConnected(deviceName),
@@ -385,7 +499,7 @@ public class GatewaySessionHandler {
                                 public void onSuccess(@Nullable GatewayDeviceSessionCtx deviceCtx) {
                                     TransportProtos.PostTelemetryMsg msg = telemetryMsg.getMsg();
                                     try {
-                                        TransportProtos.PostTelemetryMsg postTelemetryMsg = ProtoConverter.validatePostTelemetryMsg(msg.toByteArray());
+                                        TransportProtos.PostTelemetryMsg postTelemetryMsg = ProtoConverter.validatePostTelemetryMsg(msg);
                                         processPostTelemetryMsg(deviceCtx, postTelemetryMsg, deviceName, msgId);
                                     } catch (Throwable e) {
                                         log.warn("[{}][{}] Failed to convert telemetry: {}", gateway.getDeviceId(), deviceName, msg, e);
@@ -408,6 +522,81 @@ public class GatewaySessionHandler {
         }
     }
 
+    private void onDeviceTelemetryJsonBatch(int msgId, JsonObject jsonObj) {
+        Set<String> deviceNames = jsonObj.keySet();
+        Futures.addCallback(checkDevicesConnected(deviceNames),
+                new FutureCallback<>() {
+                    @Override
+                    public void onSuccess(Map<String, GatewayDeviceSessionCtx> deviceCtxs) {
+                        if (deviceCtxs.isEmpty()) {
+                            log.warn("[{}] Skipped telemetry of {} devices, none of them was got or created", sessionId, deviceNames.size());
+                            return;
+                        }
+                        TransportServiceCallback<Void> callback = getBatchPubAckCallback(channel, msgId, deviceCtxs.size());
+                        for (Map.Entry<String, JsonElement> deviceEntry : jsonObj.entrySet()) {
+                            String deviceName = deviceEntry.getKey();
+                            GatewayDeviceSessionCtx deviceCtx = deviceCtxs.get(deviceName);
+                            if (deviceCtx == null) {
+                                continue;
+                            }
+                            try {
+                                if (!deviceEntry.getValue().isJsonArray()) {
+                                    throw new JsonSyntaxException(CAN_T_PARSE_VALUE + deviceEntry.getValue());
+                                }
+                                TransportProtos.PostTelemetryMsg postTelemetryMsg = JsonConverter.convertToTelemetryProto(deviceEntry.getValue().getAsJsonArray());
+                                transportService.process(deviceCtx.getSessionInfo(), postTelemetryMsg, callback);
+                            } catch (Throwable e) {
+                                log.warn("[{}][{}] Failed to convert telemetry: {}", gateway.getDeviceId(), deviceName, deviceEntry.getValue(), e);
+                                channel.close();
+                                return;
+                            }
+                        }
+                    }
+
+                    @Override
+                    public void onFailure(Throwable t) {
+                        log.warn("[{}] Failed to process telemetry command of {} devices", sessionId, deviceNames.size(), t);
+                    }
+                }, context.getExecutor());
+    }
+
+    private void onDeviceTelemetryProtoBatch(int msgId, List<TransportApiProtos.TelemetryMsg> deviceMsgList) {
+        List<String> deviceNames = deviceMsgList.stream().map(msg -> checkDeviceName(msg.getDeviceName())).collect(Collectors.toList());
+        Futures.addCallback(checkDevicesConnected(deviceNames),
+                new FutureCallback<>() {
+                    @Override
+                    public void onSuccess(Map<String, GatewayDeviceSessionCtx> deviceCtxs) {
+                        int msgCount = (int) deviceNames.stream().filter(deviceCtxs::containsKey).count();
+                        if (msgCount == 0) {
+                            log.warn("[{}] Skipped telemetry of {} devices, none of them was got or created", sessionId, deviceMsgList.size());
+                            return;
+                        }
+                        TransportServiceCallback<Void> callback = getBatchPubAckCallback(channel, msgId, msgCount);
+                        for (TransportApiProtos.TelemetryMsg telemetryMsg : deviceMsgList) {
+                            String deviceName = telemetryMsg.getDeviceName();
+                            GatewayDeviceSessionCtx deviceCtx = deviceCtxs.get(deviceName);
+                            if (deviceCtx == null) {
+                                continue;
+                            }
+                            TransportProtos.PostTelemetryMsg msg = telemetryMsg.getMsg();
+                            try {
+                                TransportProtos.PostTelemetryMsg postTelemetryMsg = ProtoConverter.validatePostTelemetryMsg(msg);
+                                transportService.process(deviceCtx.getSessionInfo(), postTelemetryMsg, callback);
+                            } catch (Throwable e) {
+                                log.warn("[{}][{}] Failed to convert telemetry: {}", gateway.getDeviceId(), deviceName, msg, e);
+                                channel.close();
+                                return;
+                            }
+                        }
+                    }
+
+                    @Override
+                    public void onFailure(Throwable t) {
+                        log.warn("[{}] Failed to process telemetry command of {} devices", sessionId, deviceMsgList.size(), t);
+                    }
+                }, context.getExecutor());
+    }
+
     private void processPostTelemetryMsg(GatewayDeviceSessionCtx deviceCtx, TransportProtos.PostTelemetryMsg postTelemetryMsg, String deviceName, int msgId) {
         transportService.process(deviceCtx.getSessionInfo(), postTelemetryMsg, getPubAckCallback(channel, deviceName, msgId, postTelemetryMsg));
     }
@@ -447,7 +636,7 @@ public class GatewaySessionHandler {
 
     private void onDeviceClaimProto(int msgId, ByteBuf payload) throws AdaptorException {
         try {
-            TransportApiProtos.GatewayClaimMsg claimMsgProto = TransportApiProtos.GatewayClaimMsg.parseFrom(getBytes(payload));
+            TransportApiProtos.GatewayClaimMsg claimMsgProto = TransportApiProtos.GatewayClaimMsg.parser().parseFrom(toCodedInputStream(payload));
             List<TransportApiProtos.ClaimDeviceMsg> claimMsgList = claimMsgProto.getMsgList();
             if (!CollectionUtils.isEmpty(claimMsgList)) {
                 claimMsgList.forEach(claimDeviceMsg -> {
@@ -518,7 +707,7 @@ public class GatewaySessionHandler {
 
     private void onDeviceAttributesProto(int msgId, ByteBuf payload) throws AdaptorException {
         try {
-            TransportApiProtos.GatewayAttributesMsg attributesMsgProto = TransportApiProtos.GatewayAttributesMsg.parseFrom(getBytes(payload));
+            TransportApiProtos.GatewayAttributesMsg attributesMsgProto = TransportApiProtos.GatewayAttributesMsg.parser().parseFrom(toCodedInputStream(payload));
             List<TransportApiProtos.AttributesMsg> attributesMsgList = attributesMsgProto.getMsgList();
             if (!CollectionUtils.isEmpty(attributesMsgList)) {
                 attributesMsgList.forEach(attributesMsg -> {
@@ -532,7 +721,7 @@ public class GatewaySessionHandler {
                                         throw new IllegalArgumentException("Attributes List for device: " + deviceName + " is empty!");
                                     }
                                     try {
-                                        TransportProtos.PostAttributeMsg postAttributeMsg = ProtoConverter.validatePostAttributeMsg(kvListProto.toByteArray());
+                                        TransportProtos.PostAttributeMsg postAttributeMsg = ProtoConverter.validatePostAttributeMsg(kvListProto);
                                         processPostAttributesMsg(deviceCtx, postAttributeMsg, deviceName, msgId);
                                     } catch (Throwable e) {
                                         log.warn("[{}][{}] Failed to process device attributes command: {}", gateway.getDeviceId(), deviceName, kvListProto, e);
@@ -584,7 +773,7 @@ public class GatewaySessionHandler {
 
     private void onDeviceAttributesRequestProto(MqttPublishMessage mqttMsg) throws AdaptorException {
         try {
-            TransportApiProtos.GatewayAttributesRequestMsg gatewayAttributesRequestMsg = TransportApiProtos.GatewayAttributesRequestMsg.parseFrom(getBytes(mqttMsg.payload()));
+            TransportApiProtos.GatewayAttributesRequestMsg gatewayAttributesRequestMsg = TransportApiProtos.GatewayAttributesRequestMsg.parser().parseFrom(toCodedInputStream(mqttMsg.payload()));
             String deviceName = checkDeviceName(gatewayAttributesRequestMsg.getDeviceName());
             int requestId = gatewayAttributesRequestMsg.getId();
             boolean clientScope = gatewayAttributesRequestMsg.getClient();
@@ -625,7 +814,7 @@ public class GatewaySessionHandler {
 
     private void onDeviceRpcResponseProto(int msgId, ByteBuf payload) throws AdaptorException {
         try {
-            TransportApiProtos.GatewayRpcResponseMsg gatewayRpcResponseMsg = TransportApiProtos.GatewayRpcResponseMsg.parseFrom(getBytes(payload));
+            TransportApiProtos.GatewayRpcResponseMsg gatewayRpcResponseMsg = TransportApiProtos.GatewayRpcResponseMsg.parser().parseFrom(toCodedInputStream(payload));
             String deviceName = checkDeviceName(gatewayRpcResponseMsg.getDeviceName());
             Futures.addCallback(checkDeviceConnected(deviceName),
                     new FutureCallback<GatewayDeviceSessionCtx>() {
@@ -712,8 +901,8 @@ public class GatewaySessionHandler {
         return JsonMqttAdaptor.validateJsonPayload(sessionId, mqttMsg.payload());
     }
 
-    private byte[] getBytes(ByteBuf payload) {
-        return ProtoMqttAdaptor.toBytes(payload);
+    private CodedInputStream toCodedInputStream(ByteBuf payload) {
+        return ProtoMqttAdaptor.toCodedInputStream(payload);
     }
 
     private void ack(MqttPublishMessage msg) {
@@ -729,6 +918,29 @@ public class GatewaySessionHandler {
         log.debug("[{}] Removed device [{}] from the gateway session", sessionId, deviceName);
     }
 
+    private TransportServiceCallback<Void> getBatchPubAckCallback(final ChannelHandlerContext ctx, final int msgId, final int msgCount) {
+        final AtomicInteger remaining = new AtomicInteger(msgCount);
+        return new TransportServiceCallback<Void>() {
+            @Override
+            public void onSuccess(Void dummy) {
+                if (remaining.decrementAndGet() == 0) {
+                    log.trace("[{}] Published {} device messages", sessionId, msgCount);
+                    if (msgId > 0) {
+                        ctx.writeAndFlush(MqttTransportHandler.createMqttPubAckMsg(msgId));
+                    }
+                }
+            }
+
+            @Override
+            public void onError(Throwable e) {
+                if (remaining.getAndSet(-1) > 0) {
+                    log.trace("[{}] Failed to publish {} device messages", sessionId, msgCount, e);
+                    ctx.close();
+                }
+            }
+        };
+    }
+
     private <T> TransportServiceCallback<Void> getPubAckCallback(final ChannelHandlerContext ctx, final String deviceName, final int msgId, final T msg) {
         return new TransportServiceCallback<Void>() {
             @Override
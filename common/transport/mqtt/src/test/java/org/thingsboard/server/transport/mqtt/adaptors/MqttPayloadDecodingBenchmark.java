@@ -0,0 +1,114 @@
+/**
+ * Copyright © 2016-2023 The Linkstuffs Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.transport.mqtt.adaptors;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.thingsboard.server.common.transport.adaptor.ProtoConverter;
+import org.thingsboard.server.gen.transport.TransportApiProtos;
+import org.thingsboard.server.gen.transport.TransportProtos;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decoding of a gateway telemetry PUBLISH held in a pooled direct buffer, as it comes from the Netty decoder:
+ * copy to byte[] and re-serialize every device message (previous path) versus reading the buffer in place.
+ * The gc profiler reports gc.alloc.rate.norm, the bytes allocated per decoded publish.
+ * <p>
+ * Run with: mvn -pl common/transport/mqtt test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=org.thingsboard.server.transport.mqtt.adaptors.MqttPayloadDecodingBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MqttPayloadDecodingBenchmark {
+
+    @Param({"10", "1000"})
+    private int devices;
+
+    private ByteBuf payload;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        TransportApiProtos.GatewayTelemetryMsg.Builder builder = TransportApiProtos.GatewayTelemetryMsg.newBuilder();
+        for (int i = 0; i < devices; i++) {
+            builder.addMsg(TransportApiProtos.TelemetryMsg.newBuilder()
+                    .setDeviceName("Modbus device " + i)
+                    .setMsg(TransportProtos.PostTelemetryMsg.newBuilder()
+                            .addTsKvList(TransportProtos.TsKvListProto.newBuilder()
+                                    .setTs(System.currentTimeMillis())
+                                    .addKv(TransportProtos.KeyValueProto.newBuilder().setKey("temperature").setType(TransportProtos.KeyValueType.DOUBLE_V).setDoubleV(21.5 + i))
+                                    .addKv(TransportProtos.KeyValueProto.newBuilder().setKey("status").setType(TransportProtos.KeyValueType.STRING_V).setStringV("OK")))));
+        }
+        byte[] bytes = builder.build().toByteArray();
+        payload = PooledByteBufAllocator.DEFAULT.directBuffer(bytes.length);
+        payload.writeBytes(bytes);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        payload.release();
+    }
+
+    @Benchmark
+    public List<TransportProtos.PostTelemetryMsg> copyToByteArray() throws Exception {
+        TransportApiProtos.GatewayTelemetryMsg msg = TransportApiProtos.GatewayTelemetryMsg.parseFrom(ProtoMqttAdaptor.toBytes(payload));
+        List<TransportProtos.PostTelemetryMsg> result = new ArrayList<>(msg.getMsgCount());
+        for (TransportApiProtos.TelemetryMsg telemetryMsg : msg.getMsgList()) {
+            result.add(ProtoConverter.validatePostTelemetryMsg(telemetryMsg.getMsg().toByteArray()));
+        }
+        return result;
+    }
+
+    @Benchmark
+    public List<TransportProtos.PostTelemetryMsg> readInPlace() throws Exception {
+        TransportApiProtos.GatewayTelemetryMsg msg = TransportApiProtos.GatewayTelemetryMsg.parser().parseFrom(ProtoMqttAdaptor.toCodedInputStream(payload));
+        List<TransportProtos.PostTelemetryMsg> result = new ArrayList<>(msg.getMsgCount());
+        for (TransportApiProtos.TelemetryMsg telemetryMsg : msg.getMsgList()) {
+            result.add(ProtoConverter.validatePostTelemetryMsg(telemetryMsg.getMsg()));
+        }
+        return result;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(MqttPayloadDecodingBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+
+}
@@ -0,0 +1,77 @@
+/**
+ * Copyright © 2016-2023 The Linkstuffs Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.transport.mqtt.adaptors;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.buffer.Unpooled;
+import org.junit.Test;
+import org.thingsboard.server.gen.transport.TransportApiProtos;
+import org.thingsboard.server.gen.transport.TransportProtos;
+
+import static org.junit.Assert.assertEquals;
+
+public class ProtoMqttAdaptorTest {
+
+    private static final TransportApiProtos.GatewayTelemetryMsg MSG = TransportApiProtos.GatewayTelemetryMsg.newBuilder()
+            .addMsg(TransportApiProtos.TelemetryMsg.newBuilder()
+                    .setDeviceName("Device A")
+                    .setMsg(TransportProtos.PostTelemetryMsg.newBuilder()
+                            .addTsKvList(TransportProtos.TsKvListProto.newBuilder()
+                                    .setTs(42)
+                                    .addKv(TransportProtos.KeyValueProto.newBuilder()
+                                            .setKey("temperature")
+                                            .setType(TransportProtos.KeyValueType.DOUBLE_V)
+                                            .setDoubleV(21.5)))))
+            .build();
+
+    @Test
+    public void givenPooledDirectBuffer_whenParseFromCodedInputStream_thenSameMessage() throws Exception {
+        ByteBuf buf = PooledByteBufAllocator.DEFAULT.directBuffer();
+        try {
+            buf.writeBytes(new byte[]{1, 2, 3}).skipBytes(3);
+            buf.writeBytes(MSG.toByteArray());
+            assertEquals(MSG, TransportApiProtos.GatewayTelemetryMsg.parser().parseFrom(ProtoMqttAdaptor.toCodedInputStream(buf)));
+        } finally {
+            buf.release();
+        }
+    }
+
+    @Test
+    public void givenHeapBufferSlice_whenParseFromCodedInputStream_thenSameMessage() throws Exception {
+        byte[] bytes = MSG.toByteArray();
+        byte[] padded = new byte[bytes.length + 10];
+        System.arraycopy(bytes, 0, padded, 5, bytes.length);
+        ByteBuf buf = Unpooled.wrappedBuffer(padded).slice(5, bytes.length);
+        assertEquals(MSG, TransportApiProtos.GatewayTelemetryMsg.parser().parseFrom(ProtoMqttAdaptor.toCodedInputStream(buf)));
+    }
+
+    @Test
+    public void givenCompositeBuffer_whenParseFromCodedInputStream_thenSameMessage() throws Exception {
+        byte[] bytes = MSG.toByteArray();
+        int half = bytes.length / 2;
+        CompositeByteBuf buf = Unpooled.compositeBuffer();
+        buf.addComponent(true, Unpooled.directBuffer().writeBytes(bytes, 0, half));
+        buf.addComponent(true, Unpooled.directBuffer().writeBytes(bytes, half, bytes.length - half));
+        try {
+            assertEquals(MSG, TransportApiProtos.GatewayTelemetryMsg.parser().parseFrom(ProtoMqttAdaptor.toCodedInputStream(buf)));
+        } finally {
+            buf.release();
+        }
+    }
+
+}
@@ -0,0 +1,79 @@
+/**
+ * Copyright © 2016-2023 The Linkstuffs Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.transport.mqtt.limits;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class MqttConnectAdmissionControllerTest {
+
+    @Test
+    public void givenLimitReached_whenTryAcquire_thenRejectedUntilReleased() {
+        MqttConnectAdmissionController controller = new MqttConnectAdmissionController(true, 1, 2, 1000);
+
+        assertThat(controller.tryAcquire()).isTrue();
+        assertThat(controller.tryAcquire()).isTrue();
+        assertThat(controller.tryAcquire()).isFalse();
+        assertThat(controller.getPendingHandshakes().get()).isEqualTo(2);
+        assertThat(controller.getRejectedHandshakes().get()).isEqualTo(1);
+
+        controller.onHandshakeAborted();
+        assertThat(controller.tryAcquire()).isTrue();
+    }
+
+    @Test
+    public void givenDisabled_whenTryAcquire_thenAlwaysAdmittedAndCounted() {
+        MqttConnectAdmissionController controller = new MqttConnectAdmissionController(false, 1, 1, 1000);
+
+        for (int i = 0; i < 10; i++) {
+            assertThat(controller.tryAcquire()).isTrue();
+        }
+        assertThat(controller.getPendingHandshakes().get()).isEqualTo(10);
+    }
+
+    @Test
+    public void givenSlowHandshake_whenCompleted_thenLimitDecreasedOncePerWindowAndRecovers() {
+        MqttConnectAdmissionController controller = new MqttConnectAdmissionController(true, 10, 100, 1000);
+        long slow = TimeUnit.SECONDS.toNanos(5);
+
+        controller.tryAcquire();
+        controller.tryAcquire();
+        controller.onHandshakeCompleted(slow);
+        controller.onHandshakeCompleted(slow);
+        assertThat(controller.getLimit().get()).isEqualTo(75);
+
+        controller.tryAcquire();
+        controller.onHandshakeCompleted(TimeUnit.MILLISECONDS.toNanos(10));
+        assertThat(controller.getLimit().get()).isEqualTo(76);
+        assertThat(controller.getPendingHandshakes().get()).isZero();
+    }
+
+    @Test
+    public void givenFailures_whenLimitShrinks_thenNotBelowMinLimit() throws InterruptedException {
+        MqttConnectAdmissionController controller = new MqttConnectAdmissionController(true, 10, 20, 1);
+
+        for (int i = 0; i < 5; i++) {
+            controller.tryAcquire();
+            Thread.sleep(2);
+            controller.onHandshakeFailed();
+        }
+        assertThat(controller.getLimit().get()).isEqualTo(10);
+    }
+
+}
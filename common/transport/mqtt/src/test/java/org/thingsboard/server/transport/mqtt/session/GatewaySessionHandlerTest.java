@@ -15,18 +15,50 @@
  */
 package org.thingsboard.server.transport.mqtt.session;
 
+import com.google.common.util.concurrent.MoreExecutors;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.mqtt.MqttFixedHeader;
+import io.netty.handler.codec.mqtt.MqttMessage;
+import io.netty.handler.codec.mqtt.MqttMessageType;
+import io.netty.handler.codec.mqtt.MqttPublishMessage;
+import io.netty.handler.codec.mqtt.MqttPublishVariableHeader;
+import io.netty.handler.codec.mqtt.MqttQoS;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.thingsboard.server.common.data.id.CustomerId;
+import org.thingsboard.server.common.data.id.DeviceId;
+import org.thingsboard.server.common.data.id.DeviceProfileId;
+import org.thingsboard.server.common.data.id.TenantId;
+import org.thingsboard.server.common.transport.TransportService;
+import org.thingsboard.server.common.transport.TransportServiceCallback;
+import org.thingsboard.server.common.transport.auth.GetOrCreateDeviceFromGatewayResponse;
+import org.thingsboard.server.common.transport.auth.TransportDeviceInfo;
+import org.thingsboard.server.gen.transport.TransportProtos;
+import org.thingsboard.server.transport.mqtt.MqttTransportContext;
 
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.UUID;
 import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
 
 import static org.awaitility.Awaitility.await;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.BDDMockito.willCallRealMethod;
+import static org.mockito.BDDMockito.willAnswer;
+import static org.mockito.BDDMockito.willReturn;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 
 public class GatewaySessionHandlerTest {
 
@@ -58,4 +90,123 @@ public class GatewaySessionHandlerTest {
         await().atMost(10, TimeUnit.SECONDS).until(() -> !map.containsKey("device"));
     }
 
-}
\ No newline at end of file
+    @Test
+    public void givenBatchMode_whenGatewayTelemetry_thenUnknownDevicesResolvedInBulkAndSinglePubAck() throws Exception {
+        MqttTransportContext context = mock(MqttTransportContext.class);
+        TransportService transportService = mock(TransportService.class);
+        ChannelHandlerContext channel = mock(ChannelHandlerContext.class);
+        DeviceSessionCtx deviceSessionCtx = mock(DeviceSessionCtx.class);
+        willReturn("tb-transport").given(context).getNodeId();
+        willReturn(transportService).given(context).getTransportService();
+        willReturn(MoreExecutors.newDirectExecutorService()).given(context).getExecutor();
+        willReturn(true).given(context).isGatewayBatchEnabled();
+        willReturn(2).given(context).getGatewayBatchMaxDevices();
+        willReturn(context).given(deviceSessionCtx).getContext();
+        willReturn(newDeviceInfo("gateway")).given(deviceSessionCtx).getDeviceInfo();
+        willReturn(new ConcurrentHashMap<>()).given(deviceSessionCtx).getMqttQoSMap();
+        willReturn(channel).given(deviceSessionCtx).getChannel();
+        willReturn(true).given(deviceSessionCtx).isJsonPayloadType();
+
+        willAnswer(invocation -> {
+            TransportProtos.GetOrCreateDevicesFromGatewayRequestMsg request = invocation.getArgument(0);
+            TransportServiceCallback<List<GetOrCreateDeviceFromGatewayResponse>> callback = invocation.getArgument(1);
+            callback.onSuccess(request.getRequestsList().stream()
+                    .map(r -> GetOrCreateDeviceFromGatewayResponse.builder().deviceInfo(newDeviceInfo(r.getDeviceName())).build())
+                    .collect(Collectors.toList()));
+            return null;
+        }).given(transportService).process(any(TransportProtos.GetOrCreateDevicesFromGatewayRequestMsg.class), any());
+        willAnswer(invocation -> {
+            TransportServiceCallback<Void> callback = invocation.getArgument(2);
+            callback.onSuccess(null);
+            return null;
+        }).given(transportService).process(any(TransportProtos.SessionInfoProto.class), any(TransportProtos.PostTelemetryMsg.class), any());
+
+        GatewaySessionHandler handler = new GatewaySessionHandler(deviceSessionCtx, UUID.randomUUID());
+        handler.onDeviceTelemetry(newPublishMsg("{\"d1\":[{\"t\":1}],\"d2\":[{\"t\":2}],\"d3\":[{\"t\":3}]}"));
+
+        ArgumentCaptor<TransportProtos.GetOrCreateDevicesFromGatewayRequestMsg> bulkRequests = ArgumentCaptor.forClass(TransportProtos.GetOrCreateDevicesFromGatewayRequestMsg.class);
+        verify(transportService, times(2)).process(bulkRequests.capture(), any());
+        assertEquals(List.of(2, 1), bulkRequests.getAllValues().stream().map(TransportProtos.GetOrCreateDevicesFromGatewayRequestMsg::getRequestsCount).collect(Collectors.toList()));
+        verify(transportService, never()).process(any(TransportProtos.GetOrCreateDeviceFromGatewayRequestMsg.class), any());
+
+        ArgumentCaptor<TransportProtos.SessionInfoProto> sessions = ArgumentCaptor.forClass(TransportProtos.SessionInfoProto.class);
+        verify(transportService, times(3)).process(sessions.capture(), any(TransportProtos.PostTelemetryMsg.class), any());
+        assertEquals(List.of("d1", "d2", "d3"), sessions.getAllValues().stream().map(TransportProtos.SessionInfoProto::getDeviceName).collect(Collectors.toList()));
+        verify(channel, times(1)).writeAndFlush(any(MqttMessage.class));
+
+        handler.onDeviceTelemetry(newPublishMsg("{\"d1\":[{\"t\":4}]}"));
+        verify(transportService, times(2)).process(any(TransportProtos.GetOrCreateDevicesFromGatewayRequestMsg.class), any());
+        verify(channel, times(2)).writeAndFlush(any(MqttMessage.class));
+    }
+
+    @Test
+    public void givenBatchMode_whenOneDeviceNotCreated_thenOtherDevicesProcessedAndPublishAcked() throws Exception {
+        MqttTransportContext context = mock(MqttTransportContext.class);
+        TransportService transportService = mock(TransportService.class);
+        ChannelHandlerContext channel = mock(ChannelHandlerContext.class);
+        DeviceSessionCtx deviceSessionCtx = mock(DeviceSessionCtx.class);
+        willReturn("tb-transport").given(context).getNodeId();
+        willReturn(transportService).given(context).getTransportService();
+        willReturn(MoreExecutors.newDirectExecutorService()).given(context).getExecutor();
+        willReturn(true).given(context).isGatewayBatchEnabled();
+        willReturn(10).given(context).getGatewayBatchMaxDevices();
+        willReturn(context).given(deviceSessionCtx).getContext();
+        willReturn(newDeviceInfo("gateway")).given(deviceSessionCtx).getDeviceInfo();
+        willReturn(new ConcurrentHashMap<>()).given(deviceSessionCtx).getMqttQoSMap();
+        willReturn(channel).given(deviceSessionCtx).getChannel();
+        willReturn(true).given(deviceSessionCtx).isJsonPayloadType();
+
+        willAnswer(invocation -> {
+            TransportProtos.GetOrCreateDevicesFromGatewayRequestMsg request = invocation.getArgument(0);
+            TransportServiceCallback<List<GetOrCreateDeviceFromGatewayResponse>> callback = invocation.getArgument(1);
+            callback.onSuccess(request.getRequestsList().stream()
+                    .map(r -> "d2".equals(r.getDeviceName()) ? GetOrCreateDeviceFromGatewayResponse.builder().build()
+                            : GetOrCreateDeviceFromGatewayResponse.builder().deviceInfo(newDeviceInfo(r.getDeviceName())).build())
+                    .collect(Collectors.toList()));
+            return null;
+        }).given(transportService).process(any(TransportProtos.GetOrCreateDevicesFromGatewayRequestMsg.class), any());
+        willAnswer(invocation -> {
+            TransportServiceCallback<Void> callback = invocation.getArgument(2);
+            callback.onSuccess(null);
+            return null;
+        }).given(transportService).process(any(TransportProtos.SessionInfoProto.class), any(TransportProtos.PostTelemetryMsg.class), any());
+
+        GatewaySessionHandler handler = new GatewaySessionHandler(deviceSessionCtx, UUID.randomUUID());
+        handler.onDeviceTelemetry(newPublishMsg("{\"d1\":[{\"t\":1}],\"d2\":[{\"t\":2}],\"d3\":[{\"t\":3}]}"));
+
+        verify(transportService, times(1)).process(any(TransportProtos.GetOrCreateDevicesFromGatewayRequestMsg.class), any());
+        ArgumentCaptor<TransportProtos.SessionInfoProto> sessions = ArgumentCaptor.forClass(TransportProtos.SessionInfoProto.class);
+        verify(transportService, times(2)).process(sessions.capture(), any(TransportProtos.PostTelemetryMsg.class), any());
+        assertEquals(List.of("d1", "d3"), sessions.getAllValues().stream().map(TransportProtos.SessionInfoProto::getDeviceName).collect(Collectors.toList()));
+        verify(channel, times(1)).writeAndFlush(any(MqttMessage.class));
+        verify(channel, never()).close();
+
+        // the failed device is requested again with the next publish, the created ones are taken from the session
+        handler.onDeviceTelemetry(newPublishMsg("{\"d1\":[{\"t\":4}],\"d2\":[{\"t\":5}]}"));
+
+        ArgumentCaptor<TransportProtos.GetOrCreateDevicesFromGatewayRequestMsg> bulkRequests = ArgumentCaptor.forClass(TransportProtos.GetOrCreateDevicesFromGatewayRequestMsg.class);
+        verify(transportService, times(2)).process(bulkRequests.capture(), any());
+        assertEquals(List.of("d2"), bulkRequests.getAllValues().get(1).getRequestsList().stream()
+                .map(TransportProtos.GetOrCreateDeviceFromGatewayRequestMsg::getDeviceName).collect(Collectors.toList()));
+        verify(transportService, times(3)).process(sessions.capture(), any(TransportProtos.PostTelemetryMsg.class), any());
+        assertEquals("d1", sessions.getValue().getDeviceName());
+        verify(channel, times(2)).writeAndFlush(any(MqttMessage.class));
+    }
+
+    private static MqttPublishMessage newPublishMsg(String payload) {
+        return new MqttPublishMessage(new MqttFixedHeader(MqttMessageType.PUBLISH, false, MqttQoS.AT_LEAST_ONCE, false, 0),
+                new MqttPublishVariableHeader("v1/gateway/telemetry", 1), Unpooled.wrappedBuffer(payload.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static TransportDeviceInfo newDeviceInfo(String deviceName) {
+        TransportDeviceInfo deviceInfo = new TransportDeviceInfo();
+        deviceInfo.setTenantId(TenantId.fromUUID(UUID.randomUUID()));
+        deviceInfo.setCustomerId(new CustomerId(UUID.randomUUID()));
+        deviceInfo.setDeviceId(new DeviceId(UUID.randomUUID()));
+        deviceInfo.setDeviceProfileId(new DeviceProfileId(UUID.randomUUID()));
+        deviceInfo.setDeviceName(deviceName);
+        deviceInfo.setDeviceType("default");
+        return deviceInfo;
+    }
+
+}
@@ -0,0 +1,45 @@
+/**
+ * Copyright © 2016-2023 The Linkstuffs Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.common.transport;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import org.thingsboard.server.common.data.id.DeviceId;
+import org.thingsboard.server.common.data.id.DeviceProfileId;
+import org.thingsboard.server.common.data.id.TenantId;
+import org.thingsboard.server.common.transport.auth.ValidateDeviceCredentialsResponse;
+
+import java.util.function.Supplier;
+
+public interface TransportCredentialsCache {
+
+    String TOKEN = "token";
+    String BASIC_MQTT = "basic";
+    String X509 = "x509";
+
+    /**
+     * Returns the cached response for the given credentials or fetches it with the given supplier.
+     * Only the successful validations are cached.
+     */
+    ListenableFuture<ValidateDeviceCredentialsResponse> getOrFetch(String credentialsType, String[] credentials,
+                                                                   Supplier<ListenableFuture<ValidateDeviceCredentialsResponse>> fetcher);
+
+    void evict(DeviceId deviceId);
+
+    void evict(DeviceProfileId deviceProfileId);
+
+    void evict(TenantId tenantId);
+
+}
@@ -15,9 +15,11 @@
  */
 package org.thingsboard.server.common.transport.adaptor;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.google.gson.Gson;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
+import com.google.gson.JsonIOException;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
 import com.google.gson.JsonPrimitive;
@@ -51,10 +53,15 @@ import org.thingsboard.server.gen.transport.TransportProtos.ValidateBasicMqttCre
 import org.thingsboard.server.gen.transport.TransportProtos.ValidateDeviceTokenRequestMsg;
 import org.thingsboard.server.gen.transport.TransportProtos.ValidateDeviceX509CertRequestMsg;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -74,6 +81,8 @@ public class JsonConverter {
 
     private static int maxStringValueLength = 0;
 
+    private static boolean isStreamingParserEnabled = false;
+
     public static PostTelemetryMsg convertToTelemetryProto(JsonElement jsonElement, long ts) throws JsonSyntaxException {
         PostTelemetryMsg.Builder builder = PostTelemetryMsg.newBuilder();
         convertToTelemetry(jsonElement, ts, null, builder);
@@ -84,6 +93,32 @@ public class JsonConverter {
         return convertToTelemetryProto(jsonElement, System.currentTimeMillis());
     }
 
+    public static PostTelemetryMsg convertToTelemetryProto(String json) throws JsonSyntaxException {
+        long ts = System.currentTimeMillis();
+        if (isStreamingParserEnabled) {
+            PostTelemetryMsg result = StreamingJsonConverter.convertToTelemetryProto(json, ts);
+            if (result != null) {
+                return result;
+            }
+        }
+        return convertToTelemetryProto(JSON_PARSER.parse(json), ts);
+    }
+
+    public static PostTelemetryMsg convertToTelemetryProto(InputStream json) throws JsonSyntaxException {
+        long ts = System.currentTimeMillis();
+        try {
+            if (isStreamingParserEnabled && json.markSupported()) {
+                PostTelemetryMsg result = StreamingJsonConverter.convertToTelemetryProto(json, ts);
+                if (result != null) {
+                    return result;
+                }
+            }
+        } catch (IOException e) {
+            throw new JsonIOException(e);
+        }
+        return convertToTelemetryProto(JSON_PARSER.parse(new InputStreamReader(json, StandardCharsets.UTF_8)), ts);
+    }
+
     private static void convertToTelemetry(JsonElement jsonElement, long systemTs, Map<Long, List<KvEntry>> result, PostTelemetryMsg.Builder builder) {
         if (jsonElement.isJsonObject()) {
             parseObject(systemTs, result, builder, jsonElement.getAsJsonObject());
@@ -154,6 +189,30 @@ public class JsonConverter {
         }
     }
 
+    public static PostAttributeMsg convertToAttributesProto(String json) throws JsonSyntaxException {
+        if (isStreamingParserEnabled) {
+            PostAttributeMsg result = StreamingJsonConverter.convertToAttributesProto(json);
+            if (result != null) {
+                return result;
+            }
+        }
+        return convertToAttributesProto(JSON_PARSER.parse(json));
+    }
+
+    public static PostAttributeMsg convertToAttributesProto(InputStream json) throws JsonSyntaxException {
+        try {
+            if (isStreamingParserEnabled && json.markSupported()) {
+                PostAttributeMsg result = StreamingJsonConverter.convertToAttributesProto(json);
+                if (result != null) {
+                    return result;
+                }
+            }
+        } catch (IOException e) {
+            throw new JsonIOException(e);
+        }
+        return convertToAttributesProto(JSON_PARSER.parse(new InputStreamReader(json, StandardCharsets.UTF_8)));
+    }
+
     public static JsonElement toJson(TransportProtos.ToDeviceRpcRequestMsg msg, boolean includeRequestId) {
         JsonObject result = new JsonObject();
         if (includeRequestId) {
@@ -193,26 +252,12 @@ public class JsonConverter {
             if (element.isJsonPrimitive()) {
                 JsonPrimitive value = element.getAsJsonPrimitive();
                 if (value.isString()) {
-                    if (maxStringValueLength > 0 && value.getAsString().length() > maxStringValueLength) {
-                        String message = String.format("String value length [%d] for key [%s] is greater than maximum allowed [%d]", value.getAsString().length(), valueEntry.getKey(), maxStringValueLength);
-                        throw new JsonSyntaxException(message);
-                    }
-                    if (isTypeCastEnabled && NumberUtils.isParsable(value.getAsString())) {
-                        try {
-                            result.add(buildNumericKeyValueProto(value, valueEntry.getKey()));
-                        } catch (RuntimeException th) {
-                            result.add(KeyValueProto.newBuilder().setKey(valueEntry.getKey()).setType(KeyValueType.STRING_V)
-                                    .setStringV(value.getAsString()).build());
-                        }
-                    } else {
-                        result.add(KeyValueProto.newBuilder().setKey(valueEntry.getKey()).setType(KeyValueType.STRING_V)
-                                .setStringV(value.getAsString()).build());
-                    }
+                    result.add(buildStringKeyValueProto(value.getAsString(), valueEntry.getKey()));
                 } else if (value.isBoolean()) {
                     result.add(KeyValueProto.newBuilder().setKey(valueEntry.getKey()).setType(KeyValueType.BOOLEAN_V)
                             .setBoolV(value.getAsBoolean()).build());
                 } else if (value.isNumber()) {
-                    result.add(buildNumericKeyValueProto(value, valueEntry.getKey()));
+                    result.add(buildNumericKeyValueProto(value.getAsString(), valueEntry.getKey()));
                 } else if (!value.isJsonNull()) {
                     throw new JsonSyntaxException(CAN_T_PARSE_VALUE + value);
                 }
@@ -225,8 +270,22 @@ public class JsonConverter {
         return result;
     }
 
-    private static KeyValueProto buildNumericKeyValueProto(JsonPrimitive value, String key) {
-        String valueAsString = value.getAsString();
+    static KeyValueProto buildStringKeyValueProto(String value, String key) {
+        if (maxStringValueLength > 0 && value.length() > maxStringValueLength) {
+            String message = String.format("String value length [%d] for key [%s] is greater than maximum allowed [%d]", value.length(), key, maxStringValueLength);
+            throw new JsonSyntaxException(message);
+        }
+        if (isTypeCastEnabled && NumberUtils.isParsable(value)) {
+            try {
+                return buildNumericKeyValueProto(value, key);
+            } catch (RuntimeException th) {
+                return KeyValueProto.newBuilder().setKey(key).setType(KeyValueType.STRING_V).setStringV(value).build();
+            }
+        }
+        return KeyValueProto.newBuilder().setKey(key).setType(KeyValueType.STRING_V).setStringV(value).build();
+    }
+
+    static KeyValueProto buildNumericKeyValueProto(String valueAsString, String key) {
         KeyValueProto.Builder builder = KeyValueProto.newBuilder().setKey(key);
         var bd = new BigDecimal(valueAsString);
         if (bd.stripTrailingZeros().scale() <= 0 && !isSimpleDouble(valueAsString)) {
@@ -260,9 +319,7 @@ public class JsonConverter {
         return TransportProtos.ToServerRpcRequestMsg.newBuilder().setRequestId(requestId).setMethodName(object.get("method").getAsString()).setParams(GSON.toJson(object.get("params"))).build();
     }
 
-    private static void parseNumericValue(List<KvEntry> result, Entry<String, JsonElement> valueEntry, JsonPrimitive value) {
-        String valueAsString = value.getAsString();
-        String key = valueEntry.getKey();
+    private static void parseNumericValue(List<KvEntry> result, String key, String valueAsString) {
         var bd = new BigDecimal(valueAsString);
         if (bd.stripTrailingZeros().scale() <= 0 && !isSimpleDouble(valueAsString)) {
             try {
@@ -502,23 +559,11 @@ public class JsonConverter {
             if (element.isJsonPrimitive()) {
                 JsonPrimitive value = element.getAsJsonPrimitive();
                 if (value.isString()) {
-                    if (maxStringValueLength > 0 && value.getAsString().length() > maxStringValueLength) {
-                        String message = String.format("String value length [%d] for key [%s] is greater than maximum allowed [%d]", value.getAsString().length(), valueEntry.getKey(), maxStringValueLength);
-                        throw new JsonSyntaxException(message);
-                    }
-                    if (isTypeCastEnabled && NumberUtils.isParsable(value.getAsString())) {
-                        try {
-                            parseNumericValue(result, valueEntry, value);
-                        } catch (RuntimeException th) {
-                            result.add(new StringDataEntry(valueEntry.getKey(), value.getAsString()));
-                        }
-                    } else {
-                        result.add(new StringDataEntry(valueEntry.getKey(), value.getAsString()));
-                    }
+                    parseStringValue(result, valueEntry.getKey(), value.getAsString());
                 } else if (value.isBoolean()) {
                     result.add(new BooleanDataEntry(valueEntry.getKey(), value.getAsBoolean()));
                 } else if (value.isNumber()) {
-                    parseNumericValue(result, valueEntry, value);
+                    parseNumericValue(result, valueEntry.getKey(), value.getAsString());
                 } else {
                     throw new JsonSyntaxException(CAN_T_PARSE_VALUE + value);
                 }
@@ -531,6 +576,107 @@ public class JsonConverter {
         return result;
     }
 
+    private static void parseStringValue(List<KvEntry> result, String key, String value) {
+        if (maxStringValueLength > 0 && value.length() > maxStringValueLength) {
+            String message = String.format("String value length [%d] for key [%s] is greater than maximum allowed [%d]", value.length(), key, maxStringValueLength);
+            throw new JsonSyntaxException(message);
+        }
+        if (isTypeCastEnabled && NumberUtils.isParsable(value)) {
+            try {
+                parseNumericValue(result, key, value);
+            } catch (RuntimeException th) {
+                result.add(new StringDataEntry(key, value));
+            }
+        } else {
+            result.add(new StringDataEntry(key, value));
+        }
+    }
+
+    /**
+     * Same as {@link #convertToAttributes(JsonElement)} for the JSON parsed by Jackson, e.g. the msg data shared by the rule nodes.
+     * Numbers are converted from their text, so decimals have to be parsed as {@link BigDecimal} to keep the values exact.
+     */
+    public static Set<AttributeKvEntry> convertToAttributes(JsonNode node) {
+        if (node == null || !node.isObject()) {
+            throw new IllegalStateException("Not a JSON Object: " + node);
+        }
+        long ts = System.currentTimeMillis();
+        return parseValues(node).stream().map(kv -> new BaseAttributeKvEntry(kv, ts)).collect(Collectors.toSet());
+    }
+
+    /**
+     * Same as {@link #convertToTelemetry(JsonElement, long)} for the JSON parsed by Jackson, see {@link #convertToAttributes(JsonNode)}.
+     */
+    public static Map<Long, List<KvEntry>> convertToTelemetry(JsonNode node, long systemTs) throws JsonSyntaxException {
+        Map<Long, List<KvEntry>> result = new HashMap<>();
+        if (node != null && node.isObject()) {
+            parseObject(result, systemTs, node);
+        } else if (node != null && node.isArray()) {
+            for (JsonNode item : node) {
+                if (item.isObject()) {
+                    parseObject(result, systemTs, item);
+                } else {
+                    throw new JsonSyntaxException(CAN_T_PARSE_VALUE + item);
+                }
+            }
+        } else {
+            throw new JsonSyntaxException(CAN_T_PARSE_VALUE + node);
+        }
+        return result;
+    }
+
+    private static void parseObject(Map<Long, List<KvEntry>> result, long systemTs, JsonNode node) {
+        long ts = systemTs;
+        JsonNode valuesNode = node;
+        if (node.has("ts") && node.has("values")) {
+            ts = getAsLong(node.get("ts"));
+            valuesNode = node.get("values");
+            if (!valuesNode.isObject()) {
+                throw new IllegalStateException("Not a JSON Object: " + valuesNode);
+            }
+        }
+        for (KvEntry entry : parseValues(valuesNode)) {
+            result.computeIfAbsent(ts, tmp -> new ArrayList<>()).add(entry);
+        }
+    }
+
+    // fails the same way as the JsonElement.getAsLong
+    private static long getAsLong(JsonNode node) {
+        if (node.isNumber()) {
+            return node.longValue();
+        } else if (node.isValueNode() && !node.isNull()) {
+            return Long.parseLong(node.asText());
+        } else if (node.isArray()) {
+            if (node.size() != 1) {
+                throw new IllegalStateException("Array must have size 1, but has size " + node.size());
+            }
+            return getAsLong(node.get(0));
+        } else {
+            throw new UnsupportedOperationException(node.getNodeType().name());
+        }
+    }
+
+    private static List<KvEntry> parseValues(JsonNode valuesNode) {
+        List<KvEntry> result = new ArrayList<>();
+        Iterator<Entry<String, JsonNode>> fields = valuesNode.fields();
+        while (fields.hasNext()) {
+            Entry<String, JsonNode> field = fields.next();
+            JsonNode value = field.getValue();
+            if (value.isTextual()) {
+                parseStringValue(result, field.getKey(), value.textValue());
+            } else if (value.isBoolean()) {
+                result.add(new BooleanDataEntry(field.getKey(), value.booleanValue()));
+            } else if (value.isNumber()) {
+                parseNumericValue(result, field.getKey(), value.asText());
+            } else if (value.isObject() || value.isArray()) {
+                result.add(new JsonDataEntry(field.getKey(), value.toString()));
+            } else {
+                throw new JsonSyntaxException(CAN_T_PARSE_VALUE + value);
+            }
+        }
+        return result;
+    }
+
     public static Map<Long, List<KvEntry>> convertToTelemetry(JsonElement jsonElement, long systemTs) throws
             JsonSyntaxException {
         return convertToTelemetry(jsonElement, systemTs, false);
@@ -599,6 +745,10 @@ public class JsonConverter {
         maxStringValueLength = length;
     }
 
+    public static void setStreamingParserEnabled(boolean enabled) {
+        isStreamingParserEnabled = enabled;
+    }
+
     public static TransportProtos.ProvisionDeviceRequestMsg convertToProvisionRequestMsg(String json) {
         JsonElement jsonElement = JSON_PARSER.parse(json);
         if (jsonElement.isJsonObject()) {
@@ -19,6 +19,7 @@ import com.google.gson.Gson;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
+import com.google.protobuf.CodedInputStream;
 import com.google.protobuf.Descriptors;
 import com.google.protobuf.DynamicMessage;
 import com.google.protobuf.InvalidProtocolBufferException;
@@ -51,7 +52,10 @@ public class ProtoConverter {
     }
 
     public static TransportProtos.PostTelemetryMsg validatePostTelemetryMsg(byte[] payload) throws InvalidProtocolBufferException, IllegalArgumentException {
-        TransportProtos.PostTelemetryMsg msg = TransportProtos.PostTelemetryMsg.parseFrom(payload);
+        return validatePostTelemetryMsg(TransportProtos.PostTelemetryMsg.parseFrom(payload));
+    }
+
+    public static TransportProtos.PostTelemetryMsg validatePostTelemetryMsg(TransportProtos.PostTelemetryMsg msg) throws IllegalArgumentException {
         TransportProtos.PostTelemetryMsg.Builder postTelemetryMsgBuilder = TransportProtos.PostTelemetryMsg.newBuilder();
         List<TransportProtos.TsKvListProto> tsKvListProtoList = msg.getTsKvListList();
         if (!CollectionUtils.isEmpty(tsKvListProtoList)) {
@@ -68,7 +72,10 @@ public class ProtoConverter {
     }
 
     public static TransportProtos.PostAttributeMsg validatePostAttributeMsg(byte[] bytes) throws IllegalArgumentException, InvalidProtocolBufferException {
-        TransportProtos.PostAttributeMsg proto = TransportProtos.PostAttributeMsg.parseFrom(bytes);
+        return validatePostAttributeMsg(TransportProtos.PostAttributeMsg.parseFrom(bytes));
+    }
+
+    public static TransportProtos.PostAttributeMsg validatePostAttributeMsg(TransportProtos.PostAttributeMsg proto) throws IllegalArgumentException {
         List<TransportProtos.KeyValueProto> kvList = proto.getKvList();
         if (!CollectionUtils.isEmpty(kvList)) {
             List<TransportProtos.KeyValueProto> keyValueProtos = validateKeyValueProtos(kvList);
@@ -203,4 +210,8 @@ public class ProtoConverter {
         return DynamicProtoUtils.dynamicMsgToJson(descriptor, bytes);
     }
 
+    public static String dynamicMsgToJson(CodedInputStream input, Descriptors.Descriptor descriptor) throws InvalidProtocolBufferException {
+        return DynamicProtoUtils.dynamicMsgToJson(descriptor, input);
+    }
+
 }
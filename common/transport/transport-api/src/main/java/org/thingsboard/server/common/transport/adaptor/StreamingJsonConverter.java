@@ -0,0 +1,418 @@
+/**
+ * Copyright © 2016-2023 The Linkstuffs Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.common.transport.adaptor;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.StreamReadFeature;
+import org.thingsboard.server.gen.transport.TransportProtos.KeyValueProto;
+import org.thingsboard.server.gen.transport.TransportProtos.KeyValueType;
+import org.thingsboard.server.gen.transport.TransportProtos.PostAttributeMsg;
+import org.thingsboard.server.gen.transport.TransportProtos.PostTelemetryMsg;
+import org.thingsboard.server.gen.transport.TransportProtos.TsKvListProto;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Converts telemetry and attributes JSON to protobuf messages with a Jackson streaming parser, without building
+ * an intermediate Gson tree. Key/value conversion rules are shared with {@link JsonConverter}.
+ * <p>
+ * Every method returns {@code null} when the payload is not a strict UTF-8 JSON document or when the tree based
+ * converter would reject it: the caller then falls back to {@link JsonConverter}, which keeps the lenient parsing
+ * of Gson and reports the same errors as before. Duplicate keys are rejected by the parser for the same reason.
+ */
+final class StreamingJsonConverter {
+
+    private static final String TS = "ts";
+    private static final String VALUES = "values";
+
+    private static final JsonFactory JSON_FACTORY = JsonFactory.builder()
+            .disable(StreamReadFeature.AUTO_CLOSE_SOURCE)
+            .enable(StreamReadFeature.STRICT_DUPLICATE_DETECTION)
+            .build();
+
+    private static final String[] REPLACEMENT_CHARS;
+
+    static {
+        // same escaping as com.google.gson.stream.JsonWriter, so JSON_V values match JsonElement.toString()
+        REPLACEMENT_CHARS = new String[128];
+        for (int i = 0; i <= 0x1f; i++) {
+            REPLACEMENT_CHARS[i] = String.format("\\u%04x", i);
+        }
+        REPLACEMENT_CHARS['"'] = "\\\"";
+        REPLACEMENT_CHARS['\\'] = "\\\\";
+        REPLACEMENT_CHARS['\t'] = "\\t";
+        REPLACEMENT_CHARS['\b'] = "\\b";
+        REPLACEMENT_CHARS['\n'] = "\\n";
+        REPLACEMENT_CHARS['\r'] = "\\r";
+        REPLACEMENT_CHARS['\f'] = "\\f";
+    }
+
+    private StreamingJsonConverter() {
+    }
+
+    static PostTelemetryMsg convertToTelemetryProto(String json, long systemTs) {
+        if (json == null || json.isEmpty() || json.charAt(0) == '\uFEFF') {
+            return null;
+        }
+        try (JsonParser parser = JSON_FACTORY.createParser(json)) {
+            return parseTelemetry(parser, systemTs);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * The stream must support mark/reset; it is reset to its initial position when {@code null} is returned.
+     */
+    static PostTelemetryMsg convertToTelemetryProto(InputStream json, long systemTs) throws IOException {
+        json.mark(Integer.MAX_VALUE);
+        PostTelemetryMsg result = null;
+        if (isUtf8WithoutBom(json)) {
+            try (JsonParser parser = JSON_FACTORY.createParser(json)) {
+                result = parseTelemetry(parser, systemTs);
+            } catch (IOException e) {
+                result = null;
+            }
+        }
+        if (result == null) {
+            json.reset();
+        }
+        return result;
+    }
+
+    static PostAttributeMsg convertToAttributesProto(String json) {
+        if (json == null || json.isEmpty() || json.charAt(0) == '\uFEFF') {
+            return null;
+        }
+        try (JsonParser parser = JSON_FACTORY.createParser(json)) {
+            return parseAttributes(parser);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * The stream must support mark/reset; it is reset to its initial position when {@code null} is returned.
+     */
+    static PostAttributeMsg convertToAttributesProto(InputStream json) throws IOException {
+        json.mark(Integer.MAX_VALUE);
+        PostAttributeMsg result = null;
+        if (isUtf8WithoutBom(json)) {
+            try (JsonParser parser = JSON_FACTORY.createParser(json)) {
+                result = parseAttributes(parser);
+            } catch (IOException e) {
+                result = null;
+            }
+        }
+        if (result == null) {
+            json.reset();
+        }
+        return result;
+    }
+
+    /*
+     * Jackson detects UTF-16/UTF-32 and skips the byte order mark, while the tree based converter always decodes
+     * the payload as UTF-8. Such payloads are left to the tree based converter.
+     */
+    private static boolean isUtf8WithoutBom(InputStream json) throws IOException {
+        try {
+            int first = json.read();
+            if (first <= 0 || first == 0xEF || first == 0xFE || first == 0xFF) {
+                return false;
+            }
+            for (int i = 0; i < 3; i++) {
+                int b = json.read();
+                if (b < 0) {
+                    break;
+                } else if (b == 0) {
+                    return false;
+                }
+            }
+            return true;
+        } finally {
+            json.reset();
+        }
+    }
+
+    private static PostTelemetryMsg parseTelemetry(JsonParser parser, long systemTs) throws IOException {
+        PostTelemetryMsg.Builder builder = PostTelemetryMsg.newBuilder();
+        JsonToken token = parser.nextToken();
+        if (token == JsonToken.START_OBJECT) {
+            if (!parseTsKvList(parser, systemTs, builder)) {
+                return null;
+            }
+        } else if (token == JsonToken.START_ARRAY) {
+            while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+                if (token != JsonToken.START_OBJECT || !parseTsKvList(parser, systemTs, builder)) {
+                    return null;
+                }
+            }
+        } else {
+            return null;
+        }
+        return parser.nextToken() == null ? builder.build() : null;
+    }
+
+    private static PostAttributeMsg parseAttributes(JsonParser parser) throws IOException {
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            return null;
+        }
+        List<KeyValueProto> values = parseValues(parser, null);
+        if (values == null || parser.nextToken() != null) {
+            return null;
+        }
+        return PostAttributeMsg.newBuilder().addAllKv(values).build();
+    }
+
+    /*
+     * The object is either {"ts": ..., "values": {...}} or a plain set of values stamped with the system time, which
+     * is only known once the whole object is read. Until both "ts" and "values" are seen the values of the object
+     * are collected as plain ones too, and invalid values of the interpretation that is not taken are ignored.
+     */
+    private static boolean parseTsKvList(JsonParser parser, long systemTs, PostTelemetryMsg.Builder builder) throws IOException {
+        List<KeyValueProto> plainValues = new ArrayList<>();
+        boolean plainValuesValid = true;
+        boolean hasTs = false;
+        boolean tsValid = false;
+        long ts = 0L;
+        boolean hasValues = false;
+        List<KeyValueProto> tsValues = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String key = parser.getCurrentName();
+            JsonToken token = parser.nextToken();
+            if (VALUES.equals(key) && token == JsonToken.START_OBJECT) {
+                hasValues = true;
+                StringBuilder json = plainValues != null && !hasTs ? new StringBuilder() : null;
+                tsValues = parseValues(parser, json);
+                if (json != null) {
+                    plainValues.add(KeyValueProto.newBuilder().setKey(key).setType(KeyValueType.JSON_V).setJsonV(json.toString()).build());
+                }
+            } else {
+                if (TS.equals(key)) {
+                    hasTs = true;
+                    tsValid = true;
+                    try {
+                        ts = parseTs(parser, token);
+                    } catch (NumberFormatException e) {
+                        tsValid = false;
+                    }
+                } else if (VALUES.equals(key)) {
+                    hasValues = true;
+                }
+                if (plainValues != null) {
+                    plainValuesValid &= parseValue(parser, token, key, plainValues, null);
+                } else {
+                    parser.skipChildren();
+                }
+            }
+            if (hasTs && hasValues) {
+                plainValues = null;
+            }
+        }
+        TsKvListProto.Builder tsKvList = TsKvListProto.newBuilder();
+        if (hasTs && hasValues) {
+            if (!tsValid || tsValues == null) {
+                return false;
+            }
+            tsKvList.setTs(ts).addAllKv(tsValues);
+        } else {
+            if (!plainValuesValid) {
+                return false;
+            }
+            tsKvList.setTs(systemTs).addAllKv(plainValues);
+        }
+        builder.addTsKvList(tsKvList.build());
+        return true;
+    }
+
+    // mirrors JsonPrimitive.getAsLong() of the tree based converter
+    private static long parseTs(JsonParser parser, JsonToken token) throws IOException {
+        switch (token) {
+            case VALUE_NUMBER_INT:
+            case VALUE_NUMBER_FLOAT:
+                String text = parser.getText();
+                try {
+                    return Long.parseLong(text);
+                } catch (NumberFormatException e) {
+                    return new BigDecimal(text).longValue();
+                }
+            case VALUE_STRING:
+                return Long.parseLong(parser.getText());
+            default:
+                throw new NumberFormatException();
+        }
+    }
+
+    /**
+     * Reads the fields of an object whose start token is already consumed. When {@code json} is not null the object
+     * is also written to it the way Gson serializes it.
+     *
+     * @return the key/values of the object or {@code null} if some value can't be converted
+     */
+    private static List<KeyValueProto> parseValues(JsonParser parser, StringBuilder json) throws IOException {
+        List<KeyValueProto> result = new ArrayList<>();
+        boolean valid = true;
+        boolean firstField = true;
+        if (json != null) {
+            json.append('{');
+        }
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String key = parser.getCurrentName();
+            if (json != null) {
+                if (!firstField) {
+                    json.append(',');
+                }
+                firstField = false;
+                appendString(json, key);
+                json.append(':');
+            }
+            valid &= parseValue(parser, parser.nextToken(), key, result, json);
+        }
+        if (json != null) {
+            json.append('}');
+        }
+        return valid ? result : null;
+    }
+
+    private static boolean parseValue(JsonParser parser, JsonToken token, String key, List<KeyValueProto> result, StringBuilder json) throws IOException {
+        switch (token) {
+            case VALUE_STRING:
+                String text = parser.getText();
+                if (json != null) {
+                    appendString(json, text);
+                }
+                try {
+                    result.add(JsonConverter.buildStringKeyValueProto(text, key));
+                } catch (RuntimeException e) {
+                    return false;
+                }
+                return true;
+            case VALUE_NUMBER_INT:
+            case VALUE_NUMBER_FLOAT:
+                String number = parser.getText();
+                if (json != null) {
+                    json.append(number);
+                }
+                try {
+                    result.add(JsonConverter.buildNumericKeyValueProto(number, key));
+                } catch (RuntimeException e) {
+                    return false;
+                }
+                return true;
+            case VALUE_TRUE:
+            case VALUE_FALSE:
+                boolean value = token == JsonToken.VALUE_TRUE;
+                if (json != null) {
+                    json.append(value);
+                }
+                result.add(KeyValueProto.newBuilder().setKey(key).setType(KeyValueType.BOOLEAN_V).setBoolV(value).build());
+                return true;
+            case VALUE_NULL:
+                if (json != null) {
+                    json.append("null");
+                }
+                return true;
+            case START_OBJECT:
+            case START_ARRAY:
+                String tree = writeTree(parser, token, new StringBuilder()).toString();
+                if (json != null) {
+                    json.append(tree);
+                }
+                result.add(KeyValueProto.newBuilder().setKey(key).setType(KeyValueType.JSON_V).setJsonV(tree).build());
+                return true;
+            default:
+                throw new IOException("Unexpected token: " + token);
+        }
+    }
+
+    private static StringBuilder writeTree(JsonParser parser, JsonToken token, StringBuilder json) throws IOException {
+        switch (token) {
+            case START_OBJECT:
+                json.append('{');
+                boolean firstField = true;
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    if (!firstField) {
+                        json.append(',');
+                    }
+                    firstField = false;
+                    appendString(json, parser.getCurrentName());
+                    json.append(':');
+                    writeTree(parser, parser.nextToken(), json);
+                }
+                return json.append('}');
+            case START_ARRAY:
+                json.append('[');
+                boolean firstElement = true;
+                while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+                    if (!firstElement) {
+                        json.append(',');
+                    }
+                    firstElement = false;
+                    writeTree(parser, token, json);
+                }
+                return json.append(']');
+            case VALUE_STRING:
+                appendString(json, parser.getText());
+                return json;
+            case VALUE_NUMBER_INT:
+            case VALUE_NUMBER_FLOAT:
+            case VALUE_TRUE:
+            case VALUE_FALSE:
+            case VALUE_NULL:
+                return json.append(parser.getText());
+            default:
+                throw new IOException("Unexpected token: " + token);
+        }
+    }
+
+    private static void appendString(StringBuilder json, String value) {
+        json.append('"');
+        int last = 0;
+        int length = value.length();
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            String replacement;
+            if (c < 128) {
+                replacement = REPLACEMENT_CHARS[c];
+                if (replacement == null) {
+                    continue;
+                }
+            } else if (c == '\u2028') {
+                replacement = "\\u2028";
+            } else if (c == '\u2029') {
+                replacement = "\\u2029";
+            } else {
+                continue;
+            }
+            if (last < i) {
+                json.append(value, last, i);
+            }
+            json.append(replacement);
+            last = i + 1;
+        }
+        if (last < length) {
+            json.append(value, last, length);
+        }
+        json.append('"');
+    }
+
+}
@@ -0,0 +1,201 @@
+/**
+ * Copyright © 2016-2023 The Linkstuffs Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.common.transport.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.thingsboard.server.common.data.id.DeviceId;
+import org.thingsboard.server.common.data.id.DeviceProfileId;
+import org.thingsboard.server.common.data.id.TenantId;
+import org.thingsboard.server.common.stats.DefaultCounter;
+import org.thingsboard.server.common.stats.StatsFactory;
+import org.thingsboard.server.common.stats.StatsType;
+import org.thingsboard.server.common.transport.TransportCredentialsCache;
+import org.thingsboard.server.common.transport.auth.TransportDeviceInfo;
+import org.thingsboard.server.common.transport.auth.ValidateDeviceCredentialsResponse;
+import org.thingsboard.server.queue.util.TbTransportComponent;
+
+import javax.annotation.PostConstruct;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Caches the successful credentials validations, so reconnecting devices are authenticated by the transport
+ * without the request to the core service. The entries are evicted on the device, device credentials,
+ * device profile and tenant notifications from the core.
+ * <p>
+ * Response that was requested before the eviction of its device may arrive after the eviction.
+ * To not cache such stale response, the time of the last eviction is tracked per stripe of device ids
+ * and the response is cached only if there were no evictions of its stripe since the request was sent.
+ */
+@Slf4j
+@Component
+@TbTransportComponent
+public class DefaultTransportCredentialsCache implements TransportCredentialsCache {
+
+    private static final int EVICTION_STRIPES = 1024;
+    private static final char SEPARATOR = '\u0000';
+
+    @Value("${transport.credentials_cache.enabled:false}")
+    private boolean enabled;
+    @Value("${transport.credentials_cache.max_size:100000}")
+    private long maxSize;
+    @Value("${transport.credentials_cache.time_to_live_sec:600}")
+    private long timeToLiveSec;
+
+    private final StatsFactory statsFactory;
+
+    private final ConcurrentMap<DeviceId, Set<String>> keysByDevice = new ConcurrentHashMap<>();
+    private final AtomicLongArray lastEvictionTimes = new AtomicLongArray(EVICTION_STRIPES + 1);
+
+    private Cache<String, ValidateDeviceCredentialsResponse> cache;
+    private DefaultCounter hits;
+    private DefaultCounter misses;
+
+    public DefaultTransportCredentialsCache(StatsFactory statsFactory) {
+        this.statsFactory = statsFactory;
+        long now = System.nanoTime();
+        for (int i = 0; i < lastEvictionTimes.length(); i++) {
+            lastEvictionTimes.set(i, now);
+        }
+    }
+
+    @PostConstruct
+    public void init() {
+        if (enabled) {
+            cache = Caffeine.newBuilder()
+                    .maximumSize(maxSize)
+                    .expireAfterWrite(timeToLiveSec, TimeUnit.SECONDS)
+                    .executor(MoreExecutors.directExecutor())
+                    .<String, ValidateDeviceCredentialsResponse>removalListener((key, response, cause) -> {
+                        if (key != null && response != null && cause != RemovalCause.REPLACED) {
+                            removeFromIndex(key, response.getDeviceInfo().getDeviceId());
+                        }
+                    })
+                    .build();
+            String statsKey = StatsType.TRANSPORT.getName() + ".credentialsCache";
+            hits = statsFactory.createDefaultCounter(statsKey, "result", "hit");
+            misses = statsFactory.createDefaultCounter(statsKey, "result", "miss");
+        }
+    }
+
+    @Override
+    public ListenableFuture<ValidateDeviceCredentialsResponse> getOrFetch(String credentialsType, String[] credentials,
+                                                                          Supplier<ListenableFuture<ValidateDeviceCredentialsResponse>> fetcher) {
+        if (cache == null) {
+            return fetcher.get();
+        }
+        String key = toKey(credentialsType, credentials);
+        ValidateDeviceCredentialsResponse cached = cache.getIfPresent(key);
+        if (cached != null) {
+            hits.increment();
+            return Futures.immediateFuture(cached);
+        }
+        misses.increment();
+        long requestTime = System.nanoTime();
+        ListenableFuture<ValidateDeviceCredentialsResponse> future = fetcher.get();
+        return Futures.transform(future, response -> {
+            if (response != null && response.hasDeviceInfo()) {
+                put(key, response, requestTime);
+            }
+            return response;
+        }, MoreExecutors.directExecutor());
+    }
+
+    @Override
+    public void evict(DeviceId deviceId) {
+        if (cache != null) {
+            lastEvictionTimes.set(stripe(deviceId), System.nanoTime());
+            Set<String> keys = keysByDevice.remove(deviceId);
+            if (keys != null) {
+                cache.invalidateAll(keys);
+            }
+        }
+    }
+
+    @Override
+    public void evict(DeviceProfileId deviceProfileId) {
+        evictIf(deviceInfo -> deviceProfileId.equals(deviceInfo.getDeviceProfileId()));
+    }
+
+    @Override
+    public void evict(TenantId tenantId) {
+        evictIf(deviceInfo -> tenantId.equals(deviceInfo.getTenantId()));
+    }
+
+    private void evictIf(Predicate<TransportDeviceInfo> predicate) {
+        if (cache != null) {
+            lastEvictionTimes.set(EVICTION_STRIPES, System.nanoTime());
+            cache.asMap().values().removeIf(response -> predicate.test(response.getDeviceInfo()));
+        }
+    }
+
+    private void put(String key, ValidateDeviceCredentialsResponse response, long requestTime) {
+        DeviceId deviceId = response.getDeviceInfo().getDeviceId();
+        keysByDevice.computeIfAbsent(deviceId, id -> ConcurrentHashMap.newKeySet()).add(key);
+        if (isEvictedAfter(deviceId, requestTime)) {
+            removeFromIndex(key, deviceId);
+            return;
+        }
+        cache.put(key, response);
+        if (isEvictedAfter(deviceId, requestTime)) {
+            cache.invalidate(key);
+        }
+    }
+
+    private boolean isEvictedAfter(DeviceId deviceId, long requestTime) {
+        return lastEvictionTimes.get(stripe(deviceId)) - requestTime >= 0
+                || lastEvictionTimes.get(EVICTION_STRIPES) - requestTime >= 0;
+    }
+
+    private void removeFromIndex(String key, DeviceId deviceId) {
+        keysByDevice.computeIfPresent(deviceId, (id, keys) -> {
+            keys.remove(key);
+            return keys.isEmpty() ? null : keys;
+        });
+    }
+
+    private static int stripe(DeviceId deviceId) {
+        return Math.floorMod(deviceId.hashCode(), EVICTION_STRIPES);
+    }
+
+    private static String toKey(String credentialsType, String[] credentials) {
+        Hasher hasher = Hashing.sha256().newHasher().putString(credentialsType, StandardCharsets.UTF_8);
+        for (String credential : credentials) {
+            hasher.putChar(SEPARATOR);
+            if (credential != null) {
+                hasher.putString(credential, StandardCharsets.UTF_8);
+            }
+        }
+        return hasher.hash().toString();
+    }
+
+}
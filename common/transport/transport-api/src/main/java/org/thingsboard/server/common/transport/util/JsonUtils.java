@@ -15,13 +15,23 @@
  */
 package org.thingsboard.server.common.transport.util;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
+import com.google.gson.JsonPrimitive;
 import org.thingsboard.server.gen.transport.TransportProtos.KeyValueProto;
 
+import java.math.BigDecimal;
+import java.math.BigInteger;
 import java.util.List;
+import java.util.Map;
 
 public class JsonUtils {
 
@@ -52,6 +62,63 @@ public class JsonUtils {
         return json;
     }
 
+    /**
+     * Converts the Gson tree to the Jackson one without writing it to text
+     */
+    public static JsonNode toJsonNode(JsonElement element) {
+        if (element == null || element.isJsonNull()) {
+            return JsonNodeFactory.instance.nullNode();
+        } else if (element.isJsonObject()) {
+            ObjectNode object = JsonNodeFactory.instance.objectNode();
+            for (Map.Entry<String, JsonElement> field : element.getAsJsonObject().entrySet()) {
+                object.set(field.getKey(), toJsonNode(field.getValue()));
+            }
+            return object;
+        } else if (element.isJsonArray()) {
+            JsonArray elements = element.getAsJsonArray();
+            ArrayNode array = JsonNodeFactory.instance.arrayNode(elements.size());
+            for (JsonElement arrayElement : elements) {
+                array.add(toJsonNode(arrayElement));
+            }
+            return array;
+        }
+        JsonPrimitive primitive = element.getAsJsonPrimitive();
+        if (primitive.isBoolean()) {
+            return JsonNodeFactory.instance.booleanNode(primitive.getAsBoolean());
+        } else if (primitive.isString()) {
+            return JsonNodeFactory.instance.textNode(primitive.getAsString());
+        }
+        Number number = primitive.getAsNumber();
+        if (number instanceof Integer || number instanceof Short || number instanceof Byte) {
+            return JsonNodeFactory.instance.numberNode(number.intValue());
+        } else if (number instanceof Long) {
+            long value = number.longValue();
+            return value == (int) value ? JsonNodeFactory.instance.numberNode((int) value) : JsonNodeFactory.instance.numberNode(value);
+        } else if (number instanceof Double || number instanceof Float) {
+            return JsonNodeFactory.instance.numberNode(number.doubleValue());
+        } else if (number instanceof BigInteger) {
+            return JsonNodeFactory.instance.numberNode((BigInteger) number);
+        } else if (number instanceof BigDecimal) {
+            return JsonNodeFactory.instance.numberNode((BigDecimal) number);
+        }
+        // Lazily parsed number of the Gson parser, parsed the same way as the JSON text
+        String text = number.toString();
+        if (text.indexOf('.') < 0 && text.indexOf('e') < 0 && text.indexOf('E') < 0) {
+            try {
+                return json.readTree(text);
+            } catch (JsonProcessingException e) {
+                throw new IllegalArgumentException(e);
+            }
+        }
+        // decimals that are not exact doubles (too long, out of the double range) are kept as they are
+        BigDecimal value = new BigDecimal(text);
+        double doubleValue = value.doubleValue();
+        if (Double.isFinite(doubleValue) && new BigDecimal(Double.toString(doubleValue)).compareTo(value) == 0) {
+            return JsonNodeFactory.instance.numberNode(doubleValue);
+        }
+        return JsonNodeFactory.instance.numberNode(value);
+    }
+
     public static JsonElement parse(String params) {
         return jsonParser.parse(params);
     }
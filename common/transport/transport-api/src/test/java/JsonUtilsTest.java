@@ -0,0 +1,73 @@
+/**
+ * Copyright © 2016-2023 The Linkstuffs Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+import org.junit.Assert;
+import org.junit.Test;
+import org.thingsboard.server.common.transport.util.JsonUtils;
+import org.thingsboard.server.gen.transport.TransportProtos.KeyValueProto;
+import org.thingsboard.server.gen.transport.TransportProtos.KeyValueType;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+public class JsonUtilsTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final Gson GSON = new Gson();
+
+    @Test
+    public void testToJsonNodeFromKvList() throws Exception {
+        JsonElement json = JsonUtils.getJsonObject(List.of(
+                KeyValueProto.newBuilder().setKey("bool").setType(KeyValueType.BOOLEAN_V).setBoolV(true).build(),
+                KeyValueProto.newBuilder().setKey("int").setType(KeyValueType.LONG_V).setLongV(42).build(),
+                KeyValueProto.newBuilder().setKey("long").setType(KeyValueType.LONG_V).setLongV(12345678901234L).build(),
+                KeyValueProto.newBuilder().setKey("double").setType(KeyValueType.DOUBLE_V).setDoubleV(42.5).build(),
+                KeyValueProto.newBuilder().setKey("string").setType(KeyValueType.STRING_V).setStringV("value").build(),
+                KeyValueProto.newBuilder().setKey("json").setType(KeyValueType.JSON_V).setJsonV("{\"a\":[1,2.5,null,\"b\"]}").build()
+        ));
+
+        JsonNode result = JsonUtils.toJsonNode(json);
+
+        Assert.assertEquals(MAPPER.readTree(GSON.toJson(json)), result);
+        Assert.assertEquals(GSON.toJson(json), MAPPER.writeValueAsString(result));
+    }
+
+    @Test
+    public void testToJsonNodeFromParsedJson() throws Exception {
+        String text = "{\"int\":1,\"double\":1.5,\"big\":123456789012345678901234567890,\"array\":[{\"nested\":false}]}";
+
+        JsonNode result = JsonUtils.toJsonNode(new JsonParser().parse(text));
+
+        Assert.assertEquals(MAPPER.readTree(text), result);
+    }
+
+    @Test
+    public void testToJsonNodeFromParsedJsonWithInexactDecimals() throws Exception {
+        String text = "{\"huge\":1e400,\"long\":0.1000000000000000055511151231257827,\"double\":1.5}";
+
+        JsonNode result = JsonUtils.toJsonNode(new JsonParser().parse(text));
+
+        Assert.assertEquals(0, new BigDecimal("1e400").compareTo(result.get("huge").decimalValue()));
+        Assert.assertEquals(0, new BigDecimal("0.1000000000000000055511151231257827").compareTo(result.get("long").decimalValue()));
+        Assert.assertTrue(result.get("double").isDouble());
+        Assert.assertFalse(MAPPER.writeValueAsString(result).contains("Infinity"));
+    }
+
+}
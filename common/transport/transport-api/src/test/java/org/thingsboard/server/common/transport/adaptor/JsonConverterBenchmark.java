@@ -0,0 +1,101 @@
+/**
+ * Copyright © 2016-2023 The Linkstuffs Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.common.transport.adaptor;
+
+import com.google.gson.JsonParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.thingsboard.server.gen.transport.TransportProtos;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Conversion of a telemetry payload received as bytes: decode to String and build a Gson tree (previous path)
+ * versus the streaming parser reading the bytes. The gc profiler reports gc.alloc.rate.norm, the bytes allocated
+ * per converted payload.
+ * <p>
+ * Run with: mvn -pl common/transport/transport-api test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=org.thingsboard.server.common.transport.adaptor.JsonConverterBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JsonConverterBenchmark {
+
+    @Param({"1", "100"})
+    private int entries;
+
+    private byte[] payload;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < entries; i++) {
+            json.append(i > 0 ? "," : "")
+                    .append("{\"ts\":").append(1600000000000L + i).append(",\"values\":{")
+                    .append("\"temperature\":").append(21.5 + i).append(',')
+                    .append("\"humidity\":").append(40 + i % 20).append(',')
+                    .append("\"voltage\":\"").append(220 + i % 10).append("\",")
+                    .append("\"active\":true,")
+                    .append("\"status\":\"OK\",")
+                    .append("\"location\":{\"lat\":50.45,\"lng\":30.52}}}");
+        }
+        payload = json.append(']').toString().getBytes(StandardCharsets.UTF_8);
+        JsonConverter.setStreamingParserEnabled(true);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        JsonConverter.setStreamingParserEnabled(false);
+    }
+
+    @Benchmark
+    public TransportProtos.PostTelemetryMsg tree() {
+        return JsonConverter.convertToTelemetryProto(JsonParser.parseString(new String(payload, StandardCharsets.UTF_8)));
+    }
+
+    @Benchmark
+    public TransportProtos.PostTelemetryMsg streaming() {
+        return JsonConverter.convertToTelemetryProto(new ByteArrayInputStream(payload));
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(JsonConverterBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+
+}
@@ -0,0 +1,140 @@
+/**
+ * Copyright © 2016-2023 The Linkstuffs Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.common.transport.adaptor;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.google.gson.JsonParser;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import org.thingsboard.common.util.JacksonUtil;
+import org.thingsboard.server.common.data.kv.DataType;
+import org.thingsboard.server.common.data.kv.KvEntry;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+/**
+ * Checks that the JSON parsed by Jackson with exact decimals, like the msg data of the rule nodes,
+ * is converted to the same entries as the Gson tree.
+ */
+public class JsonNodeConverterTest {
+
+    private static final long TS = 1600000000000L;
+
+    private static final ObjectReader READER = JacksonUtil.OBJECT_MAPPER.reader()
+            .with(DeserializationFeature.FAIL_ON_TRAILING_TOKENS, DeserializationFeature.USE_BIG_DECIMAL_FOR_FLOATS)
+            .with(JsonNodeFactory.withExactBigDecimals(true));
+
+    @After
+    public void after() {
+        JsonConverter.setTypeCastEnabled(true);
+        JsonConverter.setMaxStringValueLength(0);
+    }
+
+    @Test
+    public void testConformance() {
+        for (boolean typeCast : new boolean[]{true, false}) {
+            for (int maxLength : new int[]{0, 10}) {
+                JsonConverter.setTypeCastEnabled(typeCast);
+                JsonConverter.setMaxStringValueLength(maxLength);
+                StreamingJsonConverterTest.TELEMETRY.forEach(JsonNodeConverterTest::assertConforms);
+            }
+        }
+    }
+
+    @Test
+    public void testRandomPayloadsConformance() {
+        Random random = new Random(42);
+        for (int i = 0; i < 5000; i++) {
+            JsonConverter.setTypeCastEnabled(random.nextBoolean());
+            JsonConverter.setMaxStringValueLength(random.nextInt(4) == 0 ? 8 : 0);
+            assertConforms(StreamingJsonConverterTest.randomTelemetry(random));
+        }
+    }
+
+    @Test
+    public void testDecimalsAreExact() throws IOException {
+        JsonNode data = READER.readTree("{\"a\":1.23456789012345678,\"b\":42.0,\"c\":0.1}");
+        Map<Long, List<KvEntry>> telemetry = JsonConverter.convertToTelemetry(data, TS);
+        List<KvEntry> entries = telemetry.get(TS);
+        Assert.assertEquals(DataType.STRING, entries.get(0).getDataType());
+        Assert.assertEquals("1.23456789012345678", entries.get(0).getValueAsString());
+        Assert.assertEquals(DataType.DOUBLE, entries.get(1).getDataType());
+        Assert.assertEquals(42.0, entries.get(1).getDoubleValue().get(), 0);
+        Assert.assertEquals(0.1, entries.get(2).getDoubleValue().get(), 0);
+    }
+
+    private static void assertConforms(String json) {
+        JsonNode node;
+        try {
+            node = READER.readTree(json);
+        } catch (IOException e) {
+            // not a strict JSON, so it never reaches the rule nodes as the parsed msg data
+            return;
+        }
+        Assert.assertEquals(json, convert(() -> JsonConverter.convertToTelemetry(JsonParser.parseString(json), TS)),
+                convert(() -> JsonConverter.convertToTelemetry(node, TS)));
+        Assert.assertEquals(json, convert(() -> JsonConverter.convertToAttributes(JsonParser.parseString(json))),
+                convert(() -> JsonConverter.convertToAttributes(node)));
+    }
+
+    private static Object convert(ThrowingSupplier converter) {
+        Object result;
+        try {
+            result = converter.get();
+        } catch (Exception e) {
+            return e.getClass().getName();
+        }
+        if (result instanceof Map) {
+            Map<Object, Object> telemetry = new TreeMap<>();
+            ((Map<?, ?>) result).forEach((ts, entries) -> telemetry.put(ts, toComparable((Collection<?>) entries)));
+            return telemetry;
+        }
+        return toComparable((Set<?>) result).stream().sorted().collect(Collectors.toList());
+    }
+
+    private static List<String> toComparable(Collection<?> entries) {
+        return entries.stream().map(entry -> toComparable((KvEntry) entry)).collect(Collectors.toList());
+    }
+
+    // JSON values are compared as trees, the serializers escape some characters differently
+    private static String toComparable(KvEntry entry) {
+        Object value = entry.getValue();
+        if (entry.getDataType() == DataType.JSON) {
+            try {
+                value = READER.readTree(entry.getValueAsString());
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+        return entry.getKey() + ":" + entry.getDataType() + ":" + value;
+    }
+
+    private interface ThrowingSupplier {
+        Object get() throws Exception;
+    }
+
+}
@@ -0,0 +1,317 @@
+/**
+ * Copyright © 2016-2023 The Linkstuffs Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.common.transport.adaptor;
+
+import com.google.gson.JsonParser;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import org.thingsboard.server.gen.transport.TransportProtos.PostAttributeMsg;
+import org.thingsboard.server.gen.transport.TransportProtos.PostTelemetryMsg;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Checks that the streaming converter produces exactly the same messages as the Gson tree based converter.
+ */
+public class StreamingJsonConverterTest {
+
+    private static final long TS = 1600000000000L;
+
+    static final List<String> TELEMETRY = Arrays.asList(
+            "{\"temperature\":42,\"humidity\":73.5,\"active\":true,\"name\":\"sensor\"}",
+            "{\"ts\":1451649600512,\"values\":{\"key1\":\"value1\",\"key2\":\"value2\"}}",
+            "{\"values\":{\"key1\":1,\"key2\":2.0},\"ts\":1451649600512}",
+            "{\"ts\":\"1451649600512\",\"values\":{\"key1\":1}}",
+            "{\"ts\":1.451649600512E12,\"values\":{\"key1\":1}}",
+            "{\"ts\":1451649600512,\"values\":{\"key1\":1},\"other\":\"" + "x".repeat(100) + "\"}",
+            "{\"values\":{\"key1\":\"" + "x".repeat(100) + "\"},\"other\":1}",
+            "{\"ts\":1451649600512}",
+            "{\"values\":{\"a\":{\"b\":[1,2.5,\"c\",null,true,{}]},\"d\":null}}",
+            "[{\"ts\":1451649600512,\"values\":{\"key1\":1}},{\"ts\":1451649600513,\"values\":{\"key1\":2}},{\"key2\":3}]",
+            "[]",
+            "{}",
+            "{\"meterReadingDelta\":1E+1,\"b\":101E-1,\"c\":42.0,\"d\":9.9701010061400066E19,\"e\":10000000000000000000}",
+            "{\"a\":\"1E+1\",\"b\":\"42.0\",\"c\":\"10000000000000000000\",\"d\":\"0x1F\",\"e\":\"-7\",\"f\":\"1.23456789012345678\"}",
+            "{\"a\":1.23456789012345678,\"b\":-0,\"c\":-0.0,\"d\":123456789012345678901234567890.5}",
+            "{\"json\":{\"s\":\"quote\\\" backslash\\\\ tab\\t nl\\n cr\\r ff\\f bs\\b ctl\\u0001\\u001f\",\"u\":\"\\u2028\\u2029\\u00e9<>&='\"}}",
+            "{\"array\":[[1,[2]],{\"x\":{\"y\":\"z\"}}],\"empty\":[],\"nested\":{\"ts\":1,\"values\":{}}}",
+            "{\"unicode\":\"Привет, 世界 \\ud83d\\ude00\",\"ключ\":\"значение\"}",
+            // malformed or lenient payloads are left to the tree based converter
+            "",
+            "   ",
+            "42",
+            "\"value\"",
+            "[1,2]",
+            "[{\"a\":1},2]",
+            "{\"a\":1,\"a\":2}",
+            "{\"a\":{\"b\":1,\"b\":null}}",
+            "{\"a\":null,\"a\":1}",
+            "{a:1}",
+            "{'a':'b'}",
+            "{\"a\":NaN}",
+            "{\"a\":1}{\"b\":2}",
+            "{\"a\":1",
+            "{\"ts\":true,\"values\":{\"a\":1}}",
+            "{\"ts\":\"now\",\"values\":{\"a\":1}}",
+            "{\"ts\":null,\"values\":{\"a\":1}}",
+            "{\"ts\":1,\"values\":[1]}",
+            "{\"ts\":1,\"values\":null}",
+            "{\"ts\":99999999999999999999,\"values\":{\"a\":1}}",
+            "\uFEFF{\"a\":1}"
+    );
+
+    private static final List<String> HANDLED_BY_STREAMING = TELEMETRY.subList(0, 18);
+
+    @After
+    public void after() {
+        JsonConverter.setTypeCastEnabled(true);
+        JsonConverter.setMaxStringValueLength(0);
+        JsonConverter.setStreamingParserEnabled(false);
+    }
+
+    @Test
+    public void testTelemetryConformance() {
+        for (boolean typeCast : new boolean[]{true, false}) {
+            for (int maxLength : new int[]{0, 10}) {
+                JsonConverter.setTypeCastEnabled(typeCast);
+                JsonConverter.setMaxStringValueLength(maxLength);
+                TELEMETRY.forEach(StreamingJsonConverterTest::assertTelemetryConforms);
+            }
+        }
+    }
+
+    @Test
+    public void testAttributesConformance() {
+        for (boolean typeCast : new boolean[]{true, false}) {
+            for (int maxLength : new int[]{0, 10}) {
+                JsonConverter.setTypeCastEnabled(typeCast);
+                JsonConverter.setMaxStringValueLength(maxLength);
+                TELEMETRY.forEach(StreamingJsonConverterTest::assertAttributesConforms);
+            }
+        }
+    }
+
+    @Test
+    public void testStrictPayloadsAreNotDelegated() throws Exception {
+        for (String json : HANDLED_BY_STREAMING) {
+            Assert.assertNotNull(json, StreamingJsonConverter.convertToTelemetryProto(json, TS));
+            Assert.assertNotNull(json, StreamingJsonConverter.convertToTelemetryProto(toStream(json), TS));
+        }
+    }
+
+    @Test
+    public void testStreamIsResetWhenDelegated() throws Exception {
+        String json = "{a:1}";
+        InputStream in = toStream(json);
+        Assert.assertNull(StreamingJsonConverter.convertToTelemetryProto(in, TS));
+        Assert.assertEquals(json, new String(in.readAllBytes(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testDelegatedPayloadsAreConvertedByTree() {
+        JsonConverter.setStreamingParserEnabled(true);
+        PostTelemetryMsg telemetry = JsonConverter.convertToTelemetryProto(toStream("{'ts':1,'values':{a:1}}"));
+        Assert.assertEquals(1L, telemetry.getTsKvList(0).getTs());
+        Assert.assertEquals(1L, telemetry.getTsKvList(0).getKv(0).getLongV());
+        PostAttributeMsg attributes = JsonConverter.convertToAttributesProto("{\"a\":1,\"a\":\"b\"}");
+        Assert.assertEquals("b", attributes.getKv(0).getStringV());
+    }
+
+    @Test
+    public void testRandomPayloadsConformance() {
+        Random random = new Random(42);
+        for (int i = 0; i < 5000; i++) {
+            JsonConverter.setTypeCastEnabled(random.nextBoolean());
+            JsonConverter.setMaxStringValueLength(random.nextInt(4) == 0 ? 8 : 0);
+            String json = randomTelemetry(random);
+            assertTelemetryConforms(json);
+            assertAttributesConforms(json);
+        }
+    }
+
+    private static void assertTelemetryConforms(String json) {
+        Object expected = convert(() -> JsonConverter.convertToTelemetryProto(JsonParser.parseString(json), TS));
+        assertConforms(json, expected, StreamingJsonConverter.convertToTelemetryProto(json, TS));
+        assertConforms(json, expected, convert(() -> StreamingJsonConverter.convertToTelemetryProto(toStream(json), TS)));
+        JsonConverter.setStreamingParserEnabled(true);
+        try {
+            Object actual = convert(() -> JsonConverter.convertToTelemetryProto(toStream(json)));
+            if (expected instanceof PostTelemetryMsg) {
+                Assert.assertEquals(json, ((PostTelemetryMsg) expected).getTsKvListCount(), ((PostTelemetryMsg) actual).getTsKvListCount());
+            } else {
+                Assert.assertEquals(json, expected, actual);
+            }
+        } finally {
+            JsonConverter.setStreamingParserEnabled(false);
+        }
+    }
+
+    private static void assertAttributesConforms(String json) {
+        Object expected = convert(() -> JsonConverter.convertToAttributesProto(JsonParser.parseString(json)));
+        assertConforms(json, expected, StreamingJsonConverter.convertToAttributesProto(json));
+        assertConforms(json, expected, convert(() -> StreamingJsonConverter.convertToAttributesProto(toStream(json))));
+        JsonConverter.setStreamingParserEnabled(true);
+        try {
+            Assert.assertEquals(json, expected, convert(() -> JsonConverter.convertToAttributesProto(json)));
+            Assert.assertEquals(json, expected, convert(() -> JsonConverter.convertToAttributesProto(toStream(json))));
+        } finally {
+            JsonConverter.setStreamingParserEnabled(false);
+        }
+    }
+
+    private static void assertConforms(String json, Object expected, Object actual) {
+        if (actual != null) {
+            Assert.assertEquals(json, expected, actual);
+        }
+    }
+
+    private static Object convert(ThrowingSupplier converter) {
+        try {
+            return converter.get();
+        } catch (Exception e) {
+            return e.getClass().getName() + ": " + e.getMessage();
+        }
+    }
+
+    private static InputStream toStream(String json) {
+        return new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static String randomTelemetry(Random random) {
+        StringBuilder json = new StringBuilder();
+        switch (random.nextInt(4)) {
+            case 0:
+                json.append('[');
+                int count = random.nextInt(3);
+                for (int i = 0; i < count; i++) {
+                    json.append(i > 0 ? "," : "").append(randomTsKvList(random));
+                }
+                return json.append(']').toString();
+            case 1:
+                return randomTsKvList(random);
+            default:
+                return randomObject(random, 0);
+        }
+    }
+
+    private static String randomTsKvList(Random random) {
+        String ts = "\"ts\":" + (random.nextInt(5) == 0 ? randomValue(random, 2) : String.valueOf(random.nextInt(Integer.MAX_VALUE)));
+        String values = "\"values\":" + (random.nextInt(5) == 0 ? randomValue(random, 2) : randomObject(random, 1));
+        String extra = "\"extra\":" + randomValue(random, 2);
+        switch (random.nextInt(4)) {
+            case 0:
+                return "{" + values + "," + ts + "}";
+            case 1:
+                return "{" + ts + "," + extra + "," + values + "}";
+            case 2:
+                return "{" + values + "," + extra + "}";
+            default:
+                return "{" + ts + "," + values + "}";
+        }
+    }
+
+    private static String randomObject(Random random, int depth) {
+        StringBuilder json = new StringBuilder("{");
+        int count = random.nextInt(6);
+        for (int i = 0; i < count; i++) {
+            json.append(i > 0 ? "," : "").append("\"key").append(i).append("\":").append(randomValue(random, depth + 1));
+        }
+        return json.append('}').toString();
+    }
+
+    private static String randomValue(Random random, int depth) {
+        switch (random.nextInt(depth < 3 ? 12 : 10)) {
+            case 0:
+                return "null";
+            case 1:
+                return String.valueOf(random.nextBoolean());
+            case 2:
+                return String.valueOf(random.nextLong());
+            case 3:
+                return String.valueOf(random.nextDouble() * Math.pow(10, random.nextInt(40) - 20));
+            case 4:
+                return randomNumber(random);
+            case 5:
+                return "\"" + randomNumber(random) + "\"";
+            case 6:
+            case 7:
+            case 8:
+                return randomString(random);
+            case 9:
+                return "\"" + random.nextInt(1000) + "\"";
+            case 10:
+                return randomObject(random, depth);
+            default:
+                StringBuilder json = new StringBuilder("[");
+                int count = random.nextInt(4);
+                for (int i = 0; i < count; i++) {
+                    json.append(i > 0 ? "," : "").append(randomValue(random, depth + 1));
+                }
+                return json.append(']').toString();
+        }
+    }
+
+    private static String randomNumber(Random random) {
+        StringBuilder number = new StringBuilder();
+        if (random.nextBoolean()) {
+            number.append('-');
+        }
+        number.append(1 + random.nextInt(9));
+        int digits = random.nextInt(25);
+        for (int i = 0; i < digits; i++) {
+            number.append(random.nextInt(10));
+        }
+        if (random.nextBoolean()) {
+            number.append('.');
+            int fraction = 1 + random.nextInt(20);
+            for (int i = 0; i < fraction; i++) {
+                number.append(random.nextInt(10));
+            }
+        }
+        if (random.nextInt(3) == 0) {
+            number.append(random.nextBoolean() ? 'e' : 'E').append(random.nextBoolean() ? "-" : "+").append(random.nextInt(30));
+        }
+        return number.toString();
+    }
+
+    private static String randomString(Random random) {
+        String alphabet = "abc \"\\/\t\n\u0001\u001f\u007f\u00e9\u2028\u2029<>&='\u4e16";
+        StringBuilder json = new StringBuilder("\"");
+        int length = random.nextInt(12);
+        for (int i = 0; i < length; i++) {
+            char c = alphabet.charAt(random.nextInt(alphabet.length()));
+            if (c == '"' || c == '\\') {
+                json.append('\\').append(c);
+            } else if (c < 0x20) {
+                json.append(String.format("\\u%04x", (int) c));
+            } else {
+                json.append(c);
+            }
+        }
+        return json.append('"').toString();
+    }
+
+    private interface ThrowingSupplier {
+        Object get() throws Exception;
+    }
+
+}
@@ -0,0 +1,144 @@
+/**
+ * Copyright © 2016-2023 The Linkstuffs Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.common.transport.service;
+
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Answers;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.thingsboard.server.common.data.id.CustomerId;
+import org.thingsboard.server.common.data.id.DeviceId;
+import org.thingsboard.server.common.data.id.DeviceProfileId;
+import org.thingsboard.server.common.data.id.TenantId;
+import org.thingsboard.server.common.stats.StatsFactory;
+import org.thingsboard.server.common.transport.TransportCredentialsCache;
+import org.thingsboard.server.common.transport.auth.TransportDeviceInfo;
+import org.thingsboard.server.common.transport.auth.ValidateDeviceCredentialsResponse;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+public class DefaultTransportCredentialsCacheTest {
+
+    private final TenantId tenantId = TenantId.fromUUID(UUID.randomUUID());
+    private final DeviceProfileId deviceProfileId = new DeviceProfileId(UUID.randomUUID());
+
+    private DefaultTransportCredentialsCache cache;
+    private AtomicInteger fetches;
+
+    @Before
+    public void setUp() {
+        cache = new DefaultTransportCredentialsCache(mock(StatsFactory.class, Answers.RETURNS_MOCKS));
+        ReflectionTestUtils.setField(cache, "enabled", true);
+        ReflectionTestUtils.setField(cache, "maxSize", 100000L);
+        ReflectionTestUtils.setField(cache, "timeToLiveSec", 600L);
+        cache.init();
+        fetches = new AtomicInteger();
+    }
+
+    @Test
+    public void testReconnectStormIsServedFromCache() throws Exception {
+        List<DeviceId> devices = new ArrayList<>();
+        for (int i = 0; i < 10000; i++) {
+            devices.add(new DeviceId(UUID.randomUUID()));
+        }
+        for (int reconnect = 0; reconnect < 5; reconnect++) {
+            for (DeviceId deviceId : devices) {
+                ValidateDeviceCredentialsResponse response = validateToken(deviceId.toString(), () -> fetch(deviceId)).get();
+                assertThat(response.getDeviceInfo().getDeviceId()).isEqualTo(deviceId);
+            }
+        }
+        assertThat(fetches.get()).isEqualTo(devices.size());
+    }
+
+    @Test
+    public void testFailedValidationIsNotCached() throws Exception {
+        Supplier<ListenableFuture<ValidateDeviceCredentialsResponse>> fetcher = () -> {
+            fetches.incrementAndGet();
+            return Futures.immediateFuture(ValidateDeviceCredentialsResponse.builder().build());
+        };
+        validateToken("unknown", fetcher).get();
+        validateToken("unknown", fetcher).get();
+        assertThat(fetches.get()).isEqualTo(2);
+    }
+
+    @Test
+    public void testEvictByDeviceProfileAndTenant() throws Exception {
+        DeviceId deviceId = new DeviceId(UUID.randomUUID());
+        validateToken("token", () -> fetch(deviceId)).get();
+        validateToken("token", () -> fetch(deviceId)).get();
+        assertThat(fetches.get()).isEqualTo(1);
+
+        cache.evict(new DeviceProfileId(UUID.randomUUID()));
+        validateToken("token", () -> fetch(deviceId)).get();
+        assertThat(fetches.get()).isEqualTo(1);
+
+        cache.evict(deviceProfileId);
+        validateToken("token", () -> fetch(deviceId)).get();
+        assertThat(fetches.get()).isEqualTo(2);
+
+        cache.evict(tenantId);
+        validateToken("token", () -> fetch(deviceId)).get();
+        assertThat(fetches.get()).isEqualTo(3);
+    }
+
+    @Test
+    public void testResponseRequestedBeforeDeviceEvictionIsNotCached() throws Exception {
+        DeviceId deviceId = new DeviceId(UUID.randomUUID());
+        SettableFuture<ValidateDeviceCredentialsResponse> inFlight = SettableFuture.create();
+        ListenableFuture<ValidateDeviceCredentialsResponse> result = validateToken("token", () -> inFlight);
+
+        cache.evict(deviceId);
+        inFlight.set(response(deviceId));
+        assertThat(result.get().getDeviceInfo().getDeviceId()).isEqualTo(deviceId);
+
+        validateToken("token", () -> fetch(deviceId)).get();
+        validateToken("token", () -> fetch(deviceId)).get();
+        assertThat(fetches.get()).isEqualTo(1);
+
+        cache.evict(deviceId);
+        validateToken("token", () -> fetch(deviceId)).get();
+        assertThat(fetches.get()).isEqualTo(2);
+    }
+
+    private ListenableFuture<ValidateDeviceCredentialsResponse> validateToken(String token, Supplier<ListenableFuture<ValidateDeviceCredentialsResponse>> fetcher) {
+        return cache.getOrFetch(TransportCredentialsCache.TOKEN, new String[]{token}, fetcher);
+    }
+
+    private ListenableFuture<ValidateDeviceCredentialsResponse> fetch(DeviceId deviceId) {
+        fetches.incrementAndGet();
+        return Futures.immediateFuture(response(deviceId));
+    }
+
+    private ValidateDeviceCredentialsResponse response(DeviceId deviceId) {
+        TransportDeviceInfo deviceInfo = new TransportDeviceInfo();
+        deviceInfo.setTenantId(tenantId);
+        deviceInfo.setCustomerId(new CustomerId(CustomerId.NULL_UUID));
+        deviceInfo.setDeviceId(deviceId);
+        deviceInfo.setDeviceProfileId(deviceProfileId);
+        return ValidateDeviceCredentialsResponse.builder().deviceInfo(deviceInfo).build();
+    }
+
+}
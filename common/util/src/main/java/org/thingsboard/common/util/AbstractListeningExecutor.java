@@ -34,7 +34,8 @@ public abstract class AbstractListeningExecutor implements ListeningExecutor {
 
     @PostConstruct
     public void init() {
-        this.service = MoreExecutors.listeningDecorator(ThingsBoardExecutors.newWorkStealingPool(getThreadPollSize(), getClass()));
+        this.service = MoreExecutors.listeningDecorator(ThingsBoardExecutors.newWorkStealingPool(getThreadPollSize(), getClass().getSimpleName(),
+                isVirtualThreads(), isVirtualThreadsLimited()));
     }
 
     @PreDestroy
@@ -64,4 +65,19 @@ public abstract class AbstractListeningExecutor implements ListeningExecutor {
 
     protected abstract int getThreadPollSize();
 
+    /**
+     * When enabled and supported by the runtime, every task runs on its own virtual thread and the pool size is ignored,
+     * unless {@link #isVirtualThreadsLimited()} is set.
+     */
+    protected boolean isVirtualThreads() {
+        return false;
+    }
+
+    /**
+     * When enabled, the pool size still caps the number of tasks running on virtual threads at the same time.
+     */
+    protected boolean isVirtualThreadsLimited() {
+        return false;
+    }
+
 }
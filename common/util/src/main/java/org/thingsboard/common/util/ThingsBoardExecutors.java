@@ -16,14 +16,21 @@
 package org.thingsboard.common.util;
 
 import com.google.common.util.concurrent.MoreExecutors;
+import lombok.extern.slf4j.Slf4j;
 
 import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
+import java.lang.reflect.Method;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ThreadFactory;
 
+@Slf4j
 public class ThingsBoardExecutors {
 
+    private static final int VIRTUAL_THREADS_MIN_JAVA_VERSION = 21;
+
     /**
      * Method forked from ExecutorService to provide thread poll name
      *
@@ -52,4 +59,57 @@ public class ThingsBoardExecutors {
         return newWorkStealingPool(parallelism, clazz.getSimpleName());
     }
 
+    /**
+     * Same as {@link #newWorkStealingPool(int, String)}, but creates a virtual thread per task executor when virtualThreads is set
+     * and the runtime supports it (JDK 21+). Falls back to the work stealing pool with a warning otherwise.
+     */
+    public static ExecutorService newWorkStealingPool(int parallelism, String namePrefix, boolean virtualThreads) {
+        if (virtualThreads) {
+            if (isVirtualThreadsSupported()) {
+                return newVirtualThreadPerTaskExecutor(namePrefix);
+            }
+            log.warn("[{}] Virtual threads require Java {}+, current version is {}. Falling back to the work stealing pool with parallelism {}",
+                    namePrefix, VIRTUAL_THREADS_MIN_JAVA_VERSION, Runtime.version().feature(), parallelism);
+        }
+        return newWorkStealingPool(parallelism, namePrefix);
+    }
+
+    /**
+     * Same as {@link #newWorkStealingPool(int, String, boolean)}, but when limitVirtualThreads is set the virtual thread executor
+     * runs at most parallelism tasks at the same time, e.g. to not queue more DB calls than the connection pool can serve.
+     */
+    public static ExecutorService newWorkStealingPool(int parallelism, String namePrefix, boolean virtualThreads, boolean limitVirtualThreads) {
+        ExecutorService executor = newWorkStealingPool(parallelism, namePrefix, virtualThreads);
+        if (limitVirtualThreads && !(executor instanceof ForkJoinPool)) {
+            return new ConcurrencyLimitedExecutorService(executor, parallelism);
+        }
+        return executor;
+    }
+
+    public static boolean isVirtualThreadsSupported() {
+        return Runtime.version().feature() >= VIRTUAL_THREADS_MIN_JAVA_VERSION;
+    }
+
+    /**
+     * Creates an executor that starts a new virtual thread for each task. Threads are named namePrefix-N.
+     * Resolved reflectively since the project is compiled for Java 11.
+     *
+     * @throws UnsupportedOperationException if the runtime does not support virtual threads
+     */
+    public static ExecutorService newVirtualThreadPerTaskExecutor(String namePrefix) {
+        if (!isVirtualThreadsSupported()) {
+            throw new UnsupportedOperationException("Virtual threads are not supported by Java " + Runtime.version().feature());
+        }
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder$OfVirtual");
+            builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, namePrefix + "-", 0L);
+            ThreadFactory threadFactory = (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+            Method factoryMethod = Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+            return (ExecutorService) factoryMethod.invoke(null, threadFactory);
+        } catch (ReflectiveOperationException e) {
+            throw new UnsupportedOperationException("Failed to create virtual thread executor", e);
+        }
+    }
+
 }
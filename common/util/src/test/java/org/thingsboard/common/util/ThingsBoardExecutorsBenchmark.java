@@ -0,0 +1,124 @@
+/**
+ * Copyright © 2016-2023 The Linkstuffs Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.common.util;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Load test of the dispatcher and service executors with a mix of blocking (simulated DB or HTTP call) and CPU bound tasks.
+ * <ul>
+ * <li>FIXED - fixed thread pool, as used for the single threaded dispatchers</li>
+ * <li>WORK_STEALING - {@link ThingsBoardExecutors#newWorkStealingPool(int, String)}, used by the dispatchers and AbstractListeningExecutor</li>
+ * <li>VIRTUAL - virtual thread per task executor, falls back to WORK_STEALING on Java below 21</li>
+ * </ul>
+ * Run with: mvn -pl common/util test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=org.thingsboard.common.util.ThingsBoardExecutorsBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 3)
+@Measurement(iterations = 5, time = 3)
+@Fork(1)
+public class ThingsBoardExecutorsBenchmark {
+
+    private static final int TASKS = 1000;
+
+    @Param({"FIXED", "WORK_STEALING", "VIRTUAL"})
+    private String executorType;
+
+    @Param({"8"})
+    private int poolSize;
+
+    @Param({"1000"})
+    private long blockingMicros;
+
+    @Param({"90"})
+    private int blockingPercent;
+
+    private ExecutorService executor;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        switch (executorType) {
+            case "FIXED":
+                executor = Executors.newFixedThreadPool(poolSize, ThingsBoardThreadFactory.forName("benchmark-fixed"));
+                break;
+            case "WORK_STEALING":
+                executor = ThingsBoardExecutors.newWorkStealingPool(poolSize, "benchmark-work-stealing");
+                break;
+            case "VIRTUAL":
+                executor = ThingsBoardExecutors.newWorkStealingPool(poolSize, "benchmark-virtual", true);
+                break;
+            default:
+                throw new IllegalArgumentException("Unsupported executor type: " + executorType);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(TASKS)
+    public void mixedTasks(Blackhole blackhole) throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(TASKS);
+        for (int i = 0; i < TASKS; i++) {
+            boolean blocking = i % 100 < blockingPercent;
+            executor.execute(() -> {
+                try {
+                    if (blocking) {
+                        TimeUnit.MICROSECONDS.sleep(blockingMicros);
+                    } else {
+                        Blackhole.consumeCPU(10_000);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    latch.countDown();
+                }
+            });
+        }
+        blackhole.consume(latch.await(1, TimeUnit.MINUTES));
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(ThingsBoardExecutorsBenchmark.class.getSimpleName()).build()).run();
+    }
+
+}
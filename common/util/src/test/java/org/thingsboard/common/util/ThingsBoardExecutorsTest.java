@@ -0,0 +1,134 @@
+/**
+ * Copyright © 2016-2023 The Linkstuffs Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.common.util;
+
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.startsWith;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class ThingsBoardExecutorsTest {
+
+    @Test
+    public void givenVirtualThreadsDisabled_whenCreatePool_thenWorkStealingPool() {
+        ExecutorService executor = ThingsBoardExecutors.newWorkStealingPool(2, "test", false);
+        try {
+            assertThat(executor, instanceOf(ForkJoinPool.class));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void givenUnsupportedRuntime_whenCreateVirtualPool_thenFallbackToWorkStealingPool() {
+        Assume.assumeFalse(ThingsBoardExecutors.isVirtualThreadsSupported());
+        ExecutorService executor = ThingsBoardExecutors.newWorkStealingPool(2, "test", true);
+        try {
+            assertThat(executor, instanceOf(ForkJoinPool.class));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void givenUnsupportedRuntime_whenCreateVirtualExecutor_thenException() {
+        Assume.assumeFalse(ThingsBoardExecutors.isVirtualThreadsSupported());
+        ThingsBoardExecutors.newVirtualThreadPerTaskExecutor("test");
+    }
+
+    @Test
+    public void givenSupportedRuntime_whenCreateVirtualPool_thenTasksRunOnNamedVirtualThreads() throws Exception {
+        Assume.assumeTrue(ThingsBoardExecutors.isVirtualThreadsSupported());
+        ExecutorService executor = ThingsBoardExecutors.newWorkStealingPool(2, "test", true);
+        try {
+            assertThat(executor, not(instanceOf(ForkJoinPool.class)));
+            Thread thread = executor.submit(Thread::currentThread).get(10, TimeUnit.SECONDS);
+            assertThat(thread.getName(), startsWith("test-"));
+            assertThat(Thread.class.getMethod("isVirtual").invoke(thread), is(true));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void givenLimitedVirtualThreadsOnUnsupportedRuntime_whenCreatePool_thenWorkStealingPool() {
+        Assume.assumeFalse(ThingsBoardExecutors.isVirtualThreadsSupported());
+        ExecutorService executor = ThingsBoardExecutors.newWorkStealingPool(2, "test", true, true);
+        try {
+            assertThat(executor, instanceOf(ForkJoinPool.class));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void givenSupportedRuntime_whenCreateLimitedVirtualPool_thenConcurrencyIsLimited() {
+        Assume.assumeTrue(ThingsBoardExecutors.isVirtualThreadsSupported());
+        ExecutorService executor = ThingsBoardExecutors.newWorkStealingPool(2, "test", true, true);
+        try {
+            assertThat(executor, instanceOf(ConcurrencyLimitedExecutorService.class));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void givenConcurrencyLimit_whenSubmitMoreTasks_thenRunAtMostLimitAtOnce() throws Exception {
+        ExecutorService executor = new ConcurrencyLimitedExecutorService(Executors.newCachedThreadPool(), 3);
+        try {
+            AtomicInteger running = new AtomicInteger();
+            AtomicInteger maxRunning = new AtomicInteger();
+            CountDownLatch started = new CountDownLatch(3);
+            CountDownLatch release = new CountDownLatch(1);
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < 20; i++) {
+                futures.add(executor.submit(() -> {
+                    maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                    started.countDown();
+                    release.await(10, TimeUnit.SECONDS);
+                    running.decrementAndGet();
+                    return null;
+                }));
+            }
+            assertThat(started.await(10, TimeUnit.SECONDS), is(true));
+            Thread.sleep(100);
+            assertThat(running.get(), is(3));
+            release.countDown();
+            for (Future<?> future : futures) {
+                future.get(10, TimeUnit.SECONDS);
+            }
+            assertThat(maxRunning.get(), lessThanOrEqualTo(3));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+}
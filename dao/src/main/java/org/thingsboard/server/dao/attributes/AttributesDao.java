@@ -24,6 +24,7 @@ import org.thingsboard.server.common.data.kv.AttributeKvEntry;
 
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 /**
@@ -35,6 +36,8 @@ public interface AttributesDao {
 
     List<AttributeKvEntry> find(TenantId tenantId, EntityId entityId, String attributeType, Collection<String> attributeKey);
 
+    Map<EntityId, List<AttributeKvEntry>> findByEntityIds(TenantId tenantId, Collection<EntityId> entityIds, String attributeType, Collection<String> attributeKeys);
+
     List<AttributeKvEntry> findAll(TenantId tenantId, EntityId entityId, String attributeType);
 
     ListenableFuture<String> save(TenantId tenantId, EntityId entityId, String attributeType, AttributeKvEntry attribute);
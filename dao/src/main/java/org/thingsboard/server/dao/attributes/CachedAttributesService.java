@@ -15,15 +15,18 @@
  */
 package org.thingsboard.server.dao.attributes;
 
+import com.google.common.collect.Iterables;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.ListeningExecutorService;
 import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.Striped;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Primary;
 import org.springframework.stereotype.Service;
+import org.thingsboard.server.cache.TbCacheTransaction;
 import org.thingsboard.server.cache.TbCacheValueWrapper;
 import org.thingsboard.server.cache.TbTransactionalCache;
 import org.thingsboard.server.common.data.EntityType;
@@ -40,13 +43,16 @@ import org.thingsboard.server.dao.service.Validator;
 import javax.annotation.PostConstruct;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.locks.Lock;
 import java.util.stream.Collectors;
 
 import static org.thingsboard.server.dao.attributes.AttributeUtils.validate;
@@ -57,7 +63,10 @@ import static org.thingsboard.server.dao.attributes.AttributeUtils.validate;
 @Slf4j
 public class CachedAttributesService implements AttributesService {
     private static final String STATS_NAME = "attributes.cache";
+    // every redis cache transaction holds a pooled connection until commit
+    private static final int MAX_ENTITIES_PER_FETCH = 100;
     public static final String LOCAL_CACHE_TYPE = "caffeine";
+    private static final int WRITE_THROUGH_LOCK_STRIPES = 1024;
 
     private final AttributesDao attributesDao;
     private final CacheExecutorService cacheExecutorService;
@@ -65,10 +74,14 @@ public class CachedAttributesService implements AttributesService {
     private final DefaultCounter missCounter;
     private final TbTransactionalCache<AttributeCacheKey, AttributeKvEntry> cache;
     private ListeningExecutorService cacheExecutor;
+    private final Striped<Lock> writeThroughLocks = Striped.lock(WRITE_THROUGH_LOCK_STRIPES);
 
     @Value("${cache.type}")
     private String cacheType;
 
+    @Value("${cache.attributes.write_through:false}")
+    private boolean writeThrough;
+
     public CachedAttributesService(AttributesDao attributesDao,
                                    StatsFactory statsFactory,
                                    CacheExecutorService cacheExecutorService,
@@ -175,6 +188,75 @@ public class CachedAttributesService implements AttributesService {
         });
     }
 
+    @Override
+    public ListenableFuture<Map<EntityId, List<AttributeKvEntry>>> findByEntityIds(TenantId tenantId, Collection<EntityId> entityIds, String scope, Collection<String> attributeKeys) {
+        entityIds.forEach(entityId -> validate(entityId, scope));
+        attributeKeys.forEach(attributeKey -> Validator.validateString(attributeKey, "Incorrect attribute key " + attributeKey));
+
+        Map<EntityId, List<AttributeKvEntry>> result = new HashMap<>();
+        Map<EntityId, Set<String>> notFoundAttributeKeys = new LinkedHashMap<>();
+        for (EntityId entityId : entityIds) {
+            Map<String, TbCacheValueWrapper<AttributeKvEntry>> wrappedCachedAttributes = findCachedAttributes(entityId, scope, attributeKeys);
+            result.put(entityId, wrappedCachedAttributes.values().stream()
+                    .map(TbCacheValueWrapper::get)
+                    .filter(Objects::nonNull)
+                    .collect(Collectors.toCollection(ArrayList::new)));
+            if (wrappedCachedAttributes.size() < attributeKeys.size()) {
+                Set<String> notFoundKeys = new HashSet<>(attributeKeys);
+                notFoundKeys.removeAll(wrappedCachedAttributes.keySet());
+                notFoundAttributeKeys.put(entityId, notFoundKeys);
+            }
+        }
+        if (notFoundAttributeKeys.isEmpty()) {
+            log.trace("[{}] Found all attributes of {} entities from cache: {}", scope, entityIds.size(), attributeKeys);
+            return Futures.immediateFuture(result);
+        }
+
+        return cacheExecutor.submit(() -> {
+            for (List<EntityId> batch : Iterables.partition(notFoundAttributeKeys.keySet(), MAX_ENTITIES_PER_FETCH)) {
+                findAndCache(tenantId, batch, scope, notFoundAttributeKeys, result);
+            }
+            return result;
+        });
+    }
+
+    private void findAndCache(TenantId tenantId, List<EntityId> entityIds, String scope,
+                              Map<EntityId, Set<String>> notFoundAttributeKeys, Map<EntityId, List<AttributeKvEntry>> result) {
+        // keys of a single entity share the redis cache slot, so there is a cache transaction per entity
+        Map<EntityId, TbCacheTransaction<AttributeCacheKey, AttributeKvEntry>> cacheTransactions = new HashMap<>();
+        try {
+            Set<String> keys = new HashSet<>();
+            for (EntityId entityId : entityIds) {
+                Set<String> notFoundKeys = notFoundAttributeKeys.get(entityId);
+                keys.addAll(notFoundKeys);
+                cacheTransactions.put(entityId, cache.newTransactionForKeys(notFoundKeys.stream()
+                        .map(key -> new AttributeCacheKey(scope, entityId, key))
+                        .collect(Collectors.toList())));
+            }
+            log.trace("[{}] Lookup attributes of {} entities from db: {}", scope, entityIds.size(), keys);
+            Map<EntityId, List<AttributeKvEntry>> foundInDb = attributesDao.findByEntityIds(tenantId, entityIds, scope, keys);
+            for (EntityId entityId : entityIds) {
+                Set<String> notFoundKeys = notFoundAttributeKeys.get(entityId);
+                var cacheTransaction = cacheTransactions.get(entityId);
+                for (AttributeKvEntry foundInDbAttribute : foundInDb.getOrDefault(entityId, Collections.emptyList())) {
+                    if (notFoundKeys.remove(foundInDbAttribute.getKey())) {
+                        cacheTransaction.putIfAbsent(new AttributeCacheKey(scope, entityId, foundInDbAttribute.getKey()), foundInDbAttribute);
+                        result.get(entityId).add(foundInDbAttribute);
+                    }
+                }
+                for (String key : notFoundKeys) {
+                    cacheTransaction.putIfAbsent(new AttributeCacheKey(scope, entityId, key), null);
+                }
+            }
+            for (EntityId entityId : entityIds) {
+                cacheTransactions.remove(entityId).commit();
+            }
+        } catch (Throwable e) {
+            cacheTransactions.values().forEach(TbCacheTransaction::rollback);
+            throw e;
+        }
+    }
+
     private Map<String, TbCacheValueWrapper<AttributeKvEntry>> findCachedAttributes(EntityId entityId, String scope, Collection<String> attributeKeys) {
         Map<String, TbCacheValueWrapper<AttributeKvEntry>> cachedAttributes = new HashMap<>();
         for (String attributeKey : attributeKeys) {
@@ -210,7 +292,7 @@ public class CachedAttributesService implements AttributesService {
         validate(entityId, scope);
         AttributeUtils.validate(attribute);
         ListenableFuture<String> future = attributesDao.save(tenantId, entityId, scope, attribute);
-        return Futures.transform(future, key -> evict(entityId, scope, attribute, key), cacheExecutor);
+        return Futures.transform(future, key -> updateCache(entityId, scope, attribute, key), cacheExecutor);
     }
 
     @Override
@@ -221,19 +303,48 @@ public class CachedAttributesService implements AttributesService {
         List<ListenableFuture<String>> futures = new ArrayList<>(attributes.size());
         for (var attribute : attributes) {
             ListenableFuture<String> future = attributesDao.save(tenantId, entityId, scope, attribute);
-            futures.add(Futures.transform(future, key -> evict(entityId, scope, attribute, key), cacheExecutor));
+            futures.add(Futures.transform(future, key -> updateCache(entityId, scope, attribute, key), cacheExecutor));
         }
 
         return Futures.allAsList(futures);
     }
 
-    private String evict(EntityId entityId, String scope, AttributeKvEntry attribute, String key) {
-        log.trace("[{}][{}][{}] Before cache evict: {}", entityId, scope, key, attribute);
-        cache.evictOrPut(new AttributeCacheKey(scope, entityId, key), attribute);
-        log.trace("[{}][{}][{}] after cache evict.", entityId, scope, key);
+    private String updateCache(EntityId entityId, String scope, AttributeKvEntry attribute, String key) {
+        AttributeCacheKey attributeCacheKey = new AttributeCacheKey(scope, entityId, key);
+        if (writeThrough) {
+            log.trace("[{}][{}][{}] Before cache put: {}", entityId, scope, key, attribute);
+            put(attributeCacheKey, attribute);
+            log.trace("[{}][{}][{}] after cache put.", entityId, scope, key);
+        } else {
+            log.trace("[{}][{}][{}] Before cache evict: {}", entityId, scope, key, attribute);
+            cache.evictOrPut(attributeCacheKey, attribute);
+            log.trace("[{}][{}][{}] after cache evict.", entityId, scope, key);
+        }
         return key;
     }
 
+    /**
+     * Put fails the concurrent cache transactions of the key, so a value loaded from the DB before this save is not cached.
+     * Callbacks of the saves of the same key may complete out of order, so the entry is evicted instead of
+     * replacing the more recent cached one. The check and the write are done under the lock of the key, otherwise
+     * an older save could read the cache before a newer one writes it and then overwrite it.
+     */
+    private void put(AttributeCacheKey attributeCacheKey, AttributeKvEntry attribute) {
+        Lock lock = writeThroughLocks.get(attributeCacheKey);
+        lock.lock();
+        try {
+            TbCacheValueWrapper<AttributeKvEntry> cachedAttributeValue = cache.get(attributeCacheKey);
+            AttributeKvEntry cachedAttribute = cachedAttributeValue != null ? cachedAttributeValue.get() : null;
+            if (cachedAttribute != null && cachedAttribute.getLastUpdateTs() > attribute.getLastUpdateTs()) {
+                cache.evict(attributeCacheKey);
+            } else {
+                cache.put(attributeCacheKey, attribute);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
     @Override
     public ListenableFuture<List<String>> removeAll(TenantId tenantId, EntityId entityId, String scope, List<String> attributeKeys) {
         validate(entityId, scope);
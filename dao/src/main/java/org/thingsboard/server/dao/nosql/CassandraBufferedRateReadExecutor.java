@@ -46,6 +46,7 @@ public class CassandraBufferedRateReadExecutor extends AbstractBufferedRateExecu
 
     public CassandraBufferedRateReadExecutor(
             @Value("${cassandra.query.buffer_size}") int queueLimit,
+            @Value("${cassandra.query.tenant_buffer_size:0}") int tenantQueueLimit,
             @Value("${cassandra.query.concurrent_limit}") int concurrencyLimit,
             @Value("${cassandra.query.permit_max_wait_time}") long maxWaitTime,
             @Value("${cassandra.query.dispatcher_threads:2}") int dispatcherThreads,
@@ -56,7 +57,7 @@ public class CassandraBufferedRateReadExecutor extends AbstractBufferedRateExecu
             @Autowired StatsFactory statsFactory,
             @Autowired EntityService entityService,
             @Autowired TbTenantProfileCache tenantProfileCache) {
-        super(queueLimit, concurrencyLimit, maxWaitTime, dispatcherThreads, callbackThreads, pollMs, printQueriesFreq, statsFactory,
+        super(queueLimit, tenantQueueLimit, concurrencyLimit, maxWaitTime, dispatcherThreads, callbackThreads, pollMs, printQueriesFreq, statsFactory,
                 entityService, tenantProfileCache, printTenantNames);
     }
 
@@ -95,6 +95,9 @@ public class QueueValidator extends DataValidator<Queue> {
         if (submitStrategy.getType() == SubmitStrategyType.BATCH && submitStrategy.getBatchSize() < 1) {
             throw new DataValidationException("Queue submit strategy batch size should be more then 0!");
         }
+        if (submitStrategy.isPipelined() && submitStrategy.getMaxInFlightMsgs() < 1) {
+            throw new DataValidationException("Queue submit strategy max in flight messages should be more then 0!");
+        }
         ProcessingStrategy processingStrategy = queue.getProcessingStrategy();
         if (processingStrategy == null) {
             throw new DataValidationException("Queue processing strategy can't be null!");
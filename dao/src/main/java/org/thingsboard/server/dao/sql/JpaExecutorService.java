@@ -25,9 +25,22 @@ public class JpaExecutorService extends AbstractListeningExecutor {
     @Value("${spring.datasource.hikari.maximumPoolSize}")
     private int poolSize;
 
+    @Value("${sql.virtual_threads:false}")
+    private boolean virtualThreads;
+
     @Override
     protected int getThreadPollSize() {
         return poolSize;
     }
 
+    @Override
+    protected boolean isVirtualThreads() {
+        return virtualThreads;
+    }
+
+    @Override
+    protected boolean isVirtualThreadsLimited() {
+        return true;
+    }
+
 }
@@ -0,0 +1,87 @@
+/**
+ * Copyright © 2016-2023 The Linkstuffs Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.dao.sql;
+
+import io.micrometer.core.instrument.Timer;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Adjusts the batch size and the flush delay of a sql write queue after every saved batch.
+ * <p>
+ * The configured batch size and max delay of the queue are the upper bounds:
+ * <ul>
+ *     <li>insert slower than the target latency - the batch size shrinks;</li>
+ *     <li>backlog in the queue (full batch or queue depth above the batch size) - the batch size grows and the delay shrinks;</li>
+ *     <li>low load - the delay grows, so that the batches are not too small.</li>
+ * </ul>
+ * Updates are made by the single consumer thread of the queue, the values are read by the stats as gauges.
+ */
+public class TbSqlAdaptiveBatchTuner {
+
+    private final int minBatchSize;
+    private final int maxBatchSize;
+    private final long minDelay;
+    private final long maxDelay;
+    private final long targetLatencyMs;
+
+    private final AtomicInteger batchSize;
+    private final AtomicLong delay;
+    private final Timer insertLatencyTimer;
+
+    public TbSqlAdaptiveBatchTuner(TbSqlBlockingQueueParams params, TbSqlQueueSettings queueSettings,
+                                   AtomicInteger batchSize, AtomicLong delay, Timer insertLatencyTimer) {
+        this.maxBatchSize = params.getBatchSize();
+        this.minBatchSize = Math.max(1, Math.min(queueSettings.getAdaptiveMinBatchSize(), maxBatchSize));
+        this.maxDelay = params.getMaxDelay();
+        this.minDelay = Math.max(1, Math.min(queueSettings.getAdaptiveMinDelay(), maxDelay));
+        this.targetLatencyMs = queueSettings.getAdaptiveTargetLatency();
+        this.batchSize = batchSize;
+        this.delay = delay;
+        this.insertLatencyTimer = insertLatencyTimer;
+        batchSize.set(maxBatchSize);
+        delay.set(maxDelay);
+    }
+
+    public int getBatchSize() {
+        return batchSize.get();
+    }
+
+    public long getMaxDelay() {
+        return delay.get();
+    }
+
+    public void onBatchSaved(int savedCount, long latencyMs, int queueSize) {
+        if (insertLatencyTimer != null) {
+            insertLatencyTimer.record(latencyMs, TimeUnit.MILLISECONDS);
+        }
+        int currentBatchSize = batchSize.get();
+        long currentDelay = delay.get();
+        if (latencyMs > targetLatencyMs) {
+            currentBatchSize = Math.max(minBatchSize, currentBatchSize * 3 / 4);
+        } else if (savedCount >= currentBatchSize || queueSize >= currentBatchSize) {
+            currentBatchSize = Math.min(maxBatchSize, Math.max(currentBatchSize + 1, currentBatchSize * 5 / 4));
+            currentDelay = Math.max(minDelay, currentDelay / 2);
+        } else {
+            currentDelay = Math.min(maxDelay, Math.max(currentDelay + 1, currentDelay * 5 / 4));
+        }
+        batchSize.set(currentBatchSize);
+        delay.set(currentDelay);
+    }
+
+}
@@ -41,10 +41,16 @@ public class TbSqlBlockingQueue<E> implements TbSqlQueue<E> {
 
     private ExecutorService executor;
     private final MessagesStats stats;
+    private final TbSqlAdaptiveBatchTuner tuner;
 
     public TbSqlBlockingQueue(TbSqlBlockingQueueParams params, MessagesStats stats) {
+        this(params, stats, null);
+    }
+
+    public TbSqlBlockingQueue(TbSqlBlockingQueueParams params, MessagesStats stats, TbSqlAdaptiveBatchTuner tuner) {
         this.params = params;
         this.stats = stats;
+        this.tuner = tuner;
     }
 
     @Override
@@ -57,6 +63,10 @@ public class TbSqlBlockingQueue<E> implements TbSqlQueue<E> {
             List<TbSqlQueueElement<E>> entities = new ArrayList<>(batchSize);
             while (!Thread.interrupted()) {
                 try {
+                    if (tuner != null) {
+                        batchSize = tuner.getBatchSize();
+                        maxDelay = tuner.getMaxDelay();
+                    }
                     long currentTs = System.currentTimeMillis();
                     TbSqlQueueElement<E> attr = queue.poll(maxDelay, TimeUnit.MILLISECONDS);
                     if (attr == null) {
@@ -71,10 +81,14 @@ public class TbSqlBlockingQueue<E> implements TbSqlQueue<E> {
                         log.trace("[{}] Going to save entities: {}", logName, entities);
                     }
                     Stream<E> entitiesStream = entities.stream().map(TbSqlQueueElement::getEntity);
+                    long saveStartTs = System.currentTimeMillis();
                     saveFunction.accept(
                             (params.isBatchSortEnabled() ? entitiesStream.sorted(batchUpdateComparator) : entitiesStream)
                                     .collect(Collectors.toList())
                     );
+                    if (tuner != null) {
+                        tuner.onBatchSaved(entities.size(), System.currentTimeMillis() - saveStartTs, queue.size());
+                    }
                     entities.forEach(v -> v.getFuture().set(null));
                     stats.incrementSuccessful(entities.size());
                     if (!fullPack) {
@@ -100,8 +114,13 @@ public class TbSqlBlockingQueue<E> implements TbSqlQueue<E> {
 
         logExecutor.scheduleAtFixedRate(() -> {
             if (queue.size() > 0 || stats.getTotal() > 0 || stats.getSuccessful() > 0 || stats.getFailed() > 0) {
-                log.info("Queue-{} [{}] queueSize [{}] totalAdded [{}] totalSaved [{}] totalFailed [{}]", index,
-                        params.getLogName(), queue.size(), stats.getTotal(), stats.getSuccessful(), stats.getFailed());
+                if (tuner != null) {
+                    log.info("Queue-{} [{}] queueSize [{}] totalAdded [{}] totalSaved [{}] totalFailed [{}] batchSize [{}] maxDelay [{}]", index,
+                            params.getLogName(), queue.size(), stats.getTotal(), stats.getSuccessful(), stats.getFailed(), tuner.getBatchSize(), tuner.getMaxDelay());
+                } else {
+                    log.info("Queue-{} [{}] queueSize [{}] totalAdded [{}] totalSaved [{}] totalFailed [{}]", index,
+                            params.getLogName(), queue.size(), stats.getTotal(), stats.getSuccessful(), stats.getFailed());
+                }
                 stats.reset();
             }
         }, params.getStatsPrintIntervalMs(), params.getStatsPrintIntervalMs(), TimeUnit.MILLISECONDS);
@@ -24,13 +24,15 @@ import org.thingsboard.server.common.stats.StatsFactory;
 import java.util.Comparator;
 import java.util.List;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Consumer;
 import java.util.function.Function;
 
 @Slf4j
 @Data
 public class TbSqlBlockingQueueWrapper<E> {
-    private final CopyOnWriteArrayList<TbSqlBlockingQueue<E>> queues = new CopyOnWriteArrayList<>();
+    private final CopyOnWriteArrayList<TbSqlQueue<E>> queues = new CopyOnWriteArrayList<>();
     private final TbSqlBlockingQueueParams params;
     private ScheduledLogExecutorComponent logExecutor;
     private final Function<E, Integer> hashCodeFunction;
@@ -48,7 +50,22 @@ public class TbSqlBlockingQueueWrapper<E> {
     public void init(ScheduledLogExecutorComponent logExecutor, Consumer<List<E>> saveFunction, Comparator<E> batchUpdateComparator) {
         for (int i = 0; i < maxThreads; i++) {
             MessagesStats stats = statsFactory.createMessagesStats(params.getStatsNamePrefix() + ".queue." + i);
-            TbSqlBlockingQueue<E> queue = new TbSqlBlockingQueue<>(params, stats);
+            String queueName = Integer.toString(i);
+            TbSqlQueue<E> queue;
+            TbSqlQueueSettings queueSettings = params.getQueueSettings();
+            TbSqlAdaptiveBatchTuner tuner = null;
+            if (queueSettings != null && queueSettings.isAdaptiveEnabled()) {
+                tuner = new TbSqlAdaptiveBatchTuner(params, queueSettings,
+                        statsFactory.createGauge(params.getStatsNamePrefix() + ".queue.batchSize", new AtomicInteger(0), "queue", queueName),
+                        statsFactory.createGauge(params.getStatsNamePrefix() + ".queue.maxDelay", new AtomicLong(0), "queue", queueName),
+                        statsFactory.createTimer(params.getStatsNamePrefix() + ".queue.insertLatency", "queue", queueName));
+            }
+            if (queueSettings != null && queueSettings.getType() == TbSqlQueueType.RING_BUFFER) {
+                AtomicInteger queueSize = statsFactory.createGauge(params.getStatsNamePrefix() + ".queue.size", new AtomicInteger(0), "queue", queueName);
+                queue = new TbSqlRingBufferQueue<>(params, stats, queueSize, tuner);
+            } else {
+                queue = new TbSqlBlockingQueue<>(params, stats, tuner);
+            }
             queues.add(queue);
             queue.init(logExecutor, saveFunction, batchUpdateComparator, i);
         }
@@ -60,6 +77,6 @@ public class TbSqlBlockingQueueWrapper<E> {
     }
 
     public void destroy() {
-        queues.forEach(TbSqlBlockingQueue::destroy);
+        queues.forEach(TbSqlQueue::destroy);
     }
 }
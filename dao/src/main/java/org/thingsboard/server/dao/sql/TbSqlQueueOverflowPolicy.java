@@ -0,0 +1,36 @@
+/**
+ * Copyright © 2016-2023 The Linkstuffs Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.dao.sql;
+
+/**
+ * Defines what happens when an element is added to a full bounded queue.
+ */
+public enum TbSqlQueueOverflowPolicy {
+
+    /**
+     * The producer waits until the consumer frees a slot.
+     */
+    BLOCK,
+    /**
+     * The element is not added and the returned future fails immediately.
+     */
+    REJECT,
+    /**
+     * The oldest element is removed from the queue and its future fails.
+     */
+    DROP_OLDEST
+
+}
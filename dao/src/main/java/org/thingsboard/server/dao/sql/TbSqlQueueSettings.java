@@ -0,0 +1,77 @@
+/**
+ * Copyright © 2016-2023 The Linkstuffs Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.dao.sql;
+
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+
+/**
+ * Settings of the sql write queues (timeseries, latest, attributes and events):
+ * the queue implementation and the adaptive batching.
+ */
+@Component
+public class TbSqlQueueSettings {
+
+    @Value("${sql.queue.type:BLOCKING}")
+    private String typeStr;
+
+    @Getter
+    @Value("${sql.queue.ring_buffer.capacity:65536}")
+    private int capacity;
+
+    @Value("${sql.queue.ring_buffer.wait_strategy:PARK}")
+    private String waitStrategyStr;
+
+    @Value("${sql.queue.ring_buffer.overflow_policy:BLOCK}")
+    private String overflowPolicyStr;
+
+    @Getter
+    @Value("${sql.queue.adaptive.enabled:false}")
+    private boolean adaptiveEnabled;
+
+    @Getter
+    @Value("${sql.queue.adaptive.min_batch_size:100}")
+    private int adaptiveMinBatchSize;
+
+    @Getter
+    @Value("${sql.queue.adaptive.min_delay_ms:10}")
+    private long adaptiveMinDelay;
+
+    @Getter
+    @Value("${sql.queue.adaptive.target_insert_latency_ms:200}")
+    private long adaptiveTargetLatency;
+
+    @Getter
+    private TbSqlQueueType type;
+    @Getter
+    private TbSqlQueueWaitStrategy waitStrategy;
+    @Getter
+    private TbSqlQueueOverflowPolicy overflowPolicy;
+
+    @PostConstruct
+    public void init() {
+        type = TbSqlQueueType.valueOf(typeStr.toUpperCase());
+        waitStrategy = TbSqlQueueWaitStrategy.valueOf(waitStrategyStr.toUpperCase());
+        overflowPolicy = TbSqlQueueOverflowPolicy.valueOf(overflowPolicyStr.toUpperCase());
+        if (type == TbSqlQueueType.RING_BUFFER && capacity <= 0) {
+            throw new IllegalArgumentException("Ring buffer capacity must be positive: " + capacity);
+        }
+    }
+
+}
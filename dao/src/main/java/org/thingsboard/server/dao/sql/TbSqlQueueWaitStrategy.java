@@ -0,0 +1,36 @@
+/**
+ * Copyright © 2016-2023 The Linkstuffs Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.dao.sql;
+
+/**
+ * Defines how an idle queue consumer waits for new elements.
+ */
+public enum TbSqlQueueWaitStrategy {
+
+    /**
+     * Parks the consumer thread until producers publish enough elements or the batch delay expires.
+     */
+    PARK,
+    /**
+     * Busy spins. Lowest latency, but keeps one CPU core busy per queue.
+     */
+    SPIN,
+    /**
+     * Yields the CPU between the checks for new elements.
+     */
+    YIELD
+
+}
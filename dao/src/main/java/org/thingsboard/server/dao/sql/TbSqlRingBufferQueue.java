@@ -0,0 +1,285 @@
+/**
+ * Copyright © 2016-2023 The Linkstuffs Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.dao.sql;
+
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import lombok.extern.slf4j.Slf4j;
+import org.thingsboard.common.util.ThingsBoardThreadFactory;
+import org.thingsboard.server.common.stats.MessagesStats;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * Bounded multi-producer, single-consumer queue backed by pre-allocated ring buffer slots.
+ * <p>
+ * Producers claim a sequence with a CAS on the tail, write the slot and publish the sequence number of the slot.
+ * The consumer drains contiguous published slots in batches and releases them with a CAS on the head,
+ * so that producers with the {@link TbSqlQueueOverflowPolicy#DROP_OLDEST} policy may also take the oldest element.
+ * The batch is saved when it is full or when the oldest element in it waited for {@code maxDelay} ms.
+ */
+@Slf4j
+public class TbSqlRingBufferQueue<E> implements TbSqlQueue<E> {
+
+    private static final long BLOCKED_PRODUCER_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+    private static final long NO_WAKEUP = Long.MAX_VALUE;
+
+    private final TbSqlBlockingQueueParams params;
+    private final MessagesStats stats;
+    private final AtomicInteger queueSize;
+    private final TbSqlAdaptiveBatchTuner tuner;
+    private final TbSqlQueueWaitStrategy waitStrategy;
+    private final TbSqlQueueOverflowPolicy overflowPolicy;
+
+    private final int capacity;
+    private final int mask;
+    private final Object[] entities;
+    private final SettableFuture<Void>[] futures;
+    private final AtomicLongArray published;
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+
+    private volatile Thread consumerThread;
+    private volatile long wakeupSequence = NO_WAKEUP;
+
+    private ExecutorService executor;
+
+    @SuppressWarnings("unchecked")
+    public TbSqlRingBufferQueue(TbSqlBlockingQueueParams params, MessagesStats stats, AtomicInteger queueSize, TbSqlAdaptiveBatchTuner tuner) {
+        this.params = params;
+        this.stats = stats;
+        this.queueSize = queueSize;
+        this.tuner = tuner;
+        TbSqlQueueSettings settings = params.getQueueSettings();
+        this.waitStrategy = settings.getWaitStrategy();
+        this.overflowPolicy = settings.getOverflowPolicy();
+        this.capacity = toPowerOfTwo(Math.max(settings.getCapacity(), params.getBatchSize()));
+        this.mask = capacity - 1;
+        this.entities = new Object[capacity];
+        this.futures = new SettableFuture[capacity];
+        this.published = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            published.set(i, -1);
+        }
+    }
+
+    @Override
+    public void init(ScheduledLogExecutorComponent logExecutor, Consumer<List<E>> saveFunction, Comparator<E> batchUpdateComparator, int index) {
+        executor = Executors.newSingleThreadExecutor(ThingsBoardThreadFactory.forName("sql-queue-" + index + "-" + params.getLogName().toLowerCase()));
+        executor.submit(() -> consume(saveFunction, batchUpdateComparator));
+
+        logExecutor.scheduleAtFixedRate(() -> {
+            int size = size();
+            queueSize.set(size);
+            if (size > 0 || stats.getTotal() > 0 || stats.getSuccessful() > 0 || stats.getFailed() > 0) {
+                if (tuner != null) {
+                    log.info("Queue-{} [{}] queueSize [{}/{}] totalAdded [{}] totalSaved [{}] totalFailed [{}] batchSize [{}] maxDelay [{}]", index,
+                            params.getLogName(), size, capacity, stats.getTotal(), stats.getSuccessful(), stats.getFailed(), tuner.getBatchSize(), tuner.getMaxDelay());
+                } else {
+                    log.info("Queue-{} [{}] queueSize [{}/{}] totalAdded [{}] totalSaved [{}] totalFailed [{}]", index,
+                            params.getLogName(), size, capacity, stats.getTotal(), stats.getSuccessful(), stats.getFailed());
+                }
+                stats.reset();
+            }
+        }, params.getStatsPrintIntervalMs(), params.getStatsPrintIntervalMs(), TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void destroy() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    @Override
+    public ListenableFuture<Void> add(E element) {
+        long sequence;
+        while (true) {
+            sequence = tail.get();
+            if (sequence - head.get() < capacity) {
+                if (tail.compareAndSet(sequence, sequence + 1)) {
+                    break;
+                }
+            } else if (overflowPolicy == TbSqlQueueOverflowPolicy.REJECT) {
+                stats.incrementTotal();
+                stats.incrementFailed();
+                return Futures.immediateFailedFuture(new RejectedExecutionException("[" + params.getLogName() + "] Queue is full"));
+            } else if (overflowPolicy == TbSqlQueueOverflowPolicy.DROP_OLDEST) {
+                dropOldest();
+            } else {
+                wakeUpConsumer();
+                LockSupport.parkNanos(this, BLOCKED_PRODUCER_PARK_NANOS);
+            }
+        }
+        SettableFuture<Void> future = SettableFuture.create();
+        int index = (int) sequence & mask;
+        entities[index] = element;
+        futures[index] = future;
+        published.set(index, sequence);
+        stats.incrementTotal();
+        if (sequence >= wakeupSequence) {
+            wakeUpConsumer();
+        }
+        return future;
+    }
+
+    int size() {
+        return (int) Math.max(0, tail.get() - head.get());
+    }
+
+    int getCapacity() {
+        return capacity;
+    }
+
+    private void consume(Consumer<List<E>> saveFunction, Comparator<E> batchUpdateComparator) {
+        consumerThread = Thread.currentThread();
+        String logName = params.getLogName();
+        int batchSize = params.getBatchSize();
+        long maxDelayNanos = TimeUnit.MILLISECONDS.toNanos(params.getMaxDelay());
+        List<E> batch = new ArrayList<>(batchSize);
+        List<SettableFuture<Void>> batchFutures = new ArrayList<>(batchSize);
+        long deadline = 0;
+        while (!Thread.currentThread().isInterrupted()) {
+            if (tuner != null && batch.isEmpty()) {
+                batchSize = tuner.getBatchSize();
+                maxDelayNanos = TimeUnit.MILLISECONDS.toNanos(tuner.getMaxDelay());
+            }
+            drain(batch, batchFutures, batchSize);
+            if (batch.isEmpty()) {
+                idle(head.get(), maxDelayNanos);
+                continue;
+            }
+            long now = System.nanoTime();
+            if (deadline == 0) {
+                deadline = now + maxDelayNanos;
+            }
+            if (batch.size() < batchSize && deadline - now > 0) {
+                idle(head.get() + batchSize - batch.size() - 1, deadline - now);
+                continue;
+            }
+            queueSize.set(size());
+            try {
+                if (log.isDebugEnabled()) {
+                    log.debug("[{}] Going to save {} entities", logName, batch.size());
+                    log.trace("[{}] Going to save entities: {}", logName, batch);
+                }
+                if (params.isBatchSortEnabled()) {
+                    batch.sort(batchUpdateComparator);
+                }
+                long saveStartTs = System.currentTimeMillis();
+                saveFunction.accept(batch);
+                if (tuner != null) {
+                    tuner.onBatchSaved(batch.size(), System.currentTimeMillis() - saveStartTs, size());
+                }
+                batchFutures.forEach(future -> future.set(null));
+                stats.incrementSuccessful(batch.size());
+            } catch (Exception e) {
+                stats.incrementFailed(batch.size());
+                batchFutures.forEach(future -> future.setException(e));
+                log.error("[{}] Failed to save {} entities", logName, batch.size(), e);
+            } finally {
+                batch.clear();
+                batchFutures.clear();
+                deadline = 0;
+            }
+        }
+        log.info("[{}] Queue polling was interrupted", logName);
+        if (!batchFutures.isEmpty()) {
+            InterruptedException e = new InterruptedException("Queue polling was interrupted");
+            stats.incrementFailed(batchFutures.size());
+            batchFutures.forEach(future -> future.setException(e));
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void drain(List<E> batch, List<SettableFuture<Void>> batchFutures, int batchSize) {
+        int start = batch.size();
+        while (true) {
+            long first = head.get();
+            int limit = batchSize - start;
+            int count = 0;
+            while (count < limit && published.get((int) (first + count) & mask) == first + count) {
+                int index = (int) (first + count) & mask;
+                batch.add((E) entities[index]);
+                batchFutures.add(futures[index]);
+                count++;
+            }
+            if (count == 0 || head.compareAndSet(first, first + count)) {
+                return;
+            }
+            // the oldest element was dropped by a producer, slots may be already reused, so read them again
+            batch.subList(start, batch.size()).clear();
+            batchFutures.subList(start, batchFutures.size()).clear();
+        }
+    }
+
+    private void dropOldest() {
+        long first = head.get();
+        int index = (int) first & mask;
+        if (published.get(index) != first) {
+            // the oldest element is claimed but not yet published by its producer
+            Thread.onSpinWait();
+            return;
+        }
+        SettableFuture<Void> future = futures[index];
+        if (head.compareAndSet(first, first + 1)) {
+            stats.incrementFailed();
+            future.setException(new RejectedExecutionException("[" + params.getLogName() + "] Queue is full, the oldest element is dropped"));
+        }
+    }
+
+    private void idle(long wakeupAt, long timeoutNanos) {
+        switch (waitStrategy) {
+            case SPIN:
+                Thread.onSpinWait();
+                break;
+            case YIELD:
+                Thread.yield();
+                break;
+            default:
+                wakeupSequence = wakeupAt;
+                if (published.get((int) wakeupAt & mask) != wakeupAt) {
+                    LockSupport.parkNanos(this, timeoutNanos);
+                }
+                wakeupSequence = NO_WAKEUP;
+        }
+    }
+
+    private void wakeUpConsumer() {
+        Thread consumer = consumerThread;
+        if (consumer != null) {
+            LockSupport.unpark(consumer);
+        }
+    }
+
+    private static int toPowerOfTwo(int value) {
+        int result = Integer.highestOneBit(value);
+        return result == value ? result : result << 1;
+    }
+
+}
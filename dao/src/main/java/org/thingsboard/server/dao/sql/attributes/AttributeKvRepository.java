@@ -24,6 +24,7 @@ import org.thingsboard.server.common.data.EntityType;
 import org.thingsboard.server.dao.model.sql.AttributeKvCompositeKey;
 import org.thingsboard.server.dao.model.sql.AttributeKvEntity;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
 
@@ -36,6 +37,13 @@ public interface AttributeKvRepository extends JpaRepository<AttributeKvEntity,
                                                                            @Param("entityId") UUID entityId,
                                                                            @Param("attributeType") String attributeType);
 
+    @Query("SELECT a FROM AttributeKvEntity a WHERE a.id.entityId IN (:entityIds) " +
+            "AND a.id.attributeType = :attributeType " +
+            "AND a.id.attributeKey IN (:attributeKeys)")
+    List<AttributeKvEntity> findAllByEntityIdsAndAttributeTypeAndAttributeKeys(@Param("entityIds") Collection<UUID> entityIds,
+                                                                             @Param("attributeType") String attributeType,
+                                                                             @Param("attributeKeys") Collection<String> attributeKeys);
+
     @Transactional
     @Modifying
     @Query("DELETE FROM AttributeKvEntity a WHERE a.id.entityType = :entityType " +
@@ -37,6 +37,7 @@ import org.thingsboard.server.dao.sql.JpaAbstractDaoListeningExecutorService;
 import org.thingsboard.server.dao.sql.ScheduledLogExecutorComponent;
 import org.thingsboard.server.dao.sql.TbSqlBlockingQueueParams;
 import org.thingsboard.server.dao.sql.TbSqlBlockingQueueWrapper;
+import org.thingsboard.server.dao.sql.TbSqlQueueSettings;
 import org.thingsboard.server.dao.util.SqlDao;
 
 import javax.annotation.PostConstruct;
@@ -44,8 +45,11 @@ import javax.annotation.PreDestroy;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.UUID;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
@@ -66,6 +70,9 @@ public class JpaAttributeDao extends JpaAbstractDaoListeningExecutorService impl
     @Autowired
     private StatsFactory statsFactory;
 
+    @Autowired
+    private TbSqlQueueSettings queueSettings;
+
     @Value("${sql.attributes.batch_size:1000}")
     private int batchSize;
 
@@ -92,6 +99,7 @@ public class JpaAttributeDao extends JpaAbstractDaoListeningExecutorService impl
                 .statsPrintIntervalMs(statsPrintIntervalMs)
                 .statsNamePrefix("attributes")
                 .batchSortEnabled(batchSortEnabled)
+                .queueSettings(queueSettings)
                 .build();
 
         Function<AttributeKvEntity, Integer> hashcodeFunction = entity -> entity.getId().getEntityId().hashCode();
@@ -129,6 +137,28 @@ public class JpaAttributeDao extends JpaAbstractDaoListeningExecutorService impl
         return DaoUtil.convertDataList(Lists.newArrayList(attributeKvRepository.findAllById(compositeKeys)));
     }
 
+    @Override
+    public Map<EntityId, List<AttributeKvEntry>> findByEntityIds(TenantId tenantId, Collection<EntityId> entityIds, String attributeType, Collection<String> attributeKeys) {
+        Map<EntityId, List<AttributeKvEntry>> result = new HashMap<>();
+        Map<UUID, EntityId> entityIdsByUuid = new HashMap<>();
+        for (EntityId entityId : entityIds) {
+            entityIdsByUuid.put(entityId.getId(), entityId);
+            result.put(entityId, new ArrayList<>());
+        }
+        if (entityIdsByUuid.isEmpty() || attributeKeys.isEmpty()) {
+            return result;
+        }
+        List<AttributeKvEntity> entities = attributeKvRepository.findAllByEntityIdsAndAttributeTypeAndAttributeKeys(
+                entityIdsByUuid.keySet(), attributeType, attributeKeys);
+        for (AttributeKvEntity entity : entities) {
+            EntityId entityId = entityIdsByUuid.get(entity.getId().getEntityId());
+            if (entityId != null && entityId.getEntityType() == entity.getId().getEntityType()) {
+                result.get(entityId).add(entity.toData());
+            }
+        }
+        return result;
+    }
+
     @Override
     public List<AttributeKvEntry> findAll(TenantId tenantId, EntityId entityId, String attributeType) {
         return DaoUtil.convertDataList(Lists.newArrayList(
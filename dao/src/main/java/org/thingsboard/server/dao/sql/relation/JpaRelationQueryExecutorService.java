@@ -25,9 +25,22 @@ public class JpaRelationQueryExecutorService extends AbstractListeningExecutor {
     @Value("${sql.relations.pool_size:4}")
     private int poolSize;
 
+    @Value("${sql.relations.virtual_threads:false}")
+    private boolean virtualThreads;
+
     @Override
     protected int getThreadPollSize() {
         return poolSize;
     }
 
+    @Override
+    protected boolean isVirtualThreads() {
+        return virtualThreads;
+    }
+
+    @Override
+    protected boolean isVirtualThreadsLimited() {
+        return true;
+    }
+
 }
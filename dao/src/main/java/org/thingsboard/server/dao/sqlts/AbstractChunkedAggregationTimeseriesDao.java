@@ -17,8 +17,10 @@ package org.thingsboard.server.dao.sqlts;
 
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Sort.Direction;
 import org.thingsboard.server.common.data.id.EntityId;
@@ -34,9 +36,14 @@ import org.thingsboard.server.dao.model.sql.AbstractTsKvEntity;
 import org.thingsboard.server.dao.model.sqlts.ts.TsKvEntity;
 import org.thingsboard.server.dao.sql.TbSqlBlockingQueueParams;
 import org.thingsboard.server.dao.sql.TbSqlBlockingQueueWrapper;
+import org.thingsboard.server.dao.sql.TbSqlQueueSettings;
 import org.thingsboard.server.dao.sqlts.insert.InsertTsRepository;
+import org.thingsboard.server.dao.sqlts.insert.sql.SqlCopyInsertTsRepository;
+import org.thingsboard.server.dao.sqlts.rollup.TsRollupService;
+import org.thingsboard.server.dao.sqlts.ts.TsKvAggregationRepository;
 import org.thingsboard.server.dao.sqlts.ts.TsKvRepository;
 import org.thingsboard.server.dao.timeseries.TimeseriesDao;
+import org.thingsboard.server.dao.timeseries.TsInsertMode;
 
 import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
@@ -45,6 +52,7 @@ import java.util.Comparator;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.function.Consumer;
 import java.util.function.Function;
 
 @SuppressWarnings("UnstableApiUsage")
@@ -54,13 +62,31 @@ public abstract class AbstractChunkedAggregationTimeseriesDao extends AbstractSq
     @Autowired
     protected TsKvRepository tsKvRepository;
 
+    @Autowired
+    protected TsKvAggregationRepository aggregationRepository;
+
     @Autowired
     protected InsertTsRepository<TsKvEntity> insertRepository;
 
+    @Autowired
+    protected SqlCopyInsertTsRepository copyInsertRepository;
+
+    @Autowired(required = false)
+    protected TsRollupService rollupService;
+
+    @Value("${sql.ts.insert_mode:UPSERT}")
+    protected String insertMode;
+
+    @Value("${sql.ts.bucketed_aggregation:true}")
+    protected boolean bucketedAggregationEnabled;
+
     protected TbSqlBlockingQueueWrapper<TsKvEntity> tsQueue;
     @Autowired
     private StatsFactory statsFactory;
 
+    @Autowired
+    private TbSqlQueueSettings queueSettings;
+
     @PostConstruct
     protected void init() {
         TbSqlBlockingQueueParams tsParams = TbSqlBlockingQueueParams.builder()
@@ -70,11 +96,20 @@ public abstract class AbstractChunkedAggregationTimeseriesDao extends AbstractSq
                 .statsPrintIntervalMs(tsStatsPrintIntervalMs)
                 .statsNamePrefix("ts")
                 .batchSortEnabled(batchSortEnabled)
+                .queueSettings(queueSettings)
                 .build();
 
         Function<TsKvEntity, Integer> hashcodeFunction = entity -> entity.getEntityId().hashCode();
         tsQueue = new TbSqlBlockingQueueWrapper<>(tsParams, hashcodeFunction, tsBatchThreads, statsFactory);
-        tsQueue.init(logExecutor, v -> insertRepository.saveOrUpdate(v),
+        TsInsertMode tsInsertMode = TsInsertMode.parse(insertMode)
+                .orElseThrow(() -> new RuntimeException("Failed to parse insert mode property: " + insertMode + "!"));
+        Consumer<List<TsKvEntity>> saveFunction = tsInsertMode == TsInsertMode.COPY ?
+                copyInsertRepository::saveOrUpdate : insertRepository::saveOrUpdate;
+        if (isRollupEnabled()) {
+            Consumer<List<TsKvEntity>> insertFunction = saveFunction;
+            saveFunction = entities -> rollupService.save(entities, insertFunction);
+        }
+        tsQueue.init(logExecutor, saveFunction,
                 Comparator.comparing((Function<TsKvEntity, UUID>) AbstractTsKvEntity::getEntityId)
                         .thenComparing(AbstractTsKvEntity::getKey)
                         .thenComparing(AbstractTsKvEntity::getTs)
@@ -91,15 +126,29 @@ public abstract class AbstractChunkedAggregationTimeseriesDao extends AbstractSq
     @Override
     public ListenableFuture<Void> remove(TenantId tenantId, EntityId entityId, DeleteTsKvQuery query) {
         return service.submit(() -> {
-            tsKvRepository.delete(
+            Integer keyId = getOrSaveKeyId(query.getKey());
+            Runnable deleteFunction = () -> tsKvRepository.delete(
                     entityId.getId(),
-                    getOrSaveKeyId(query.getKey()),
+                    keyId,
                     query.getStartTs(),
                     query.getEndTs());
+            if (isRollupEnabled()) {
+                rollupService.remove(entityId.getId(), keyId, query.getStartTs(), query.getEndTs(), deleteFunction);
+            } else {
+                deleteFunction.run();
+            }
             return null;
         });
     }
 
+    @Override
+    public void cleanup(long systemTtl) {
+        super.cleanup(systemTtl);
+        if (isRollupEnabled()) {
+            rollupService.cleanup(systemTtl);
+        }
+    }
+
     @Override
     public ListenableFuture<Integer> savePartition(TenantId tenantId, EntityId entityId, long tsKvEntryTs, String key) {
         return Futures.immediateFuture(null);
@@ -114,21 +163,48 @@ public abstract class AbstractChunkedAggregationTimeseriesDao extends AbstractSq
     public ListenableFuture<ReadTsKvQueryResult> findAllAsync(TenantId tenantId, EntityId entityId, ReadTsKvQuery query) {
         if (query.getAggregation() == Aggregation.NONE) {
             return Futures.immediateFuture(findAllAsyncWithLimit(entityId, query));
+        } else if (bucketedAggregationEnabled) {
+            return service.submit(() -> findAllAndAggregateInBuckets(entityId, query));
+        } else if (isRollupEnabled()) {
+            return Futures.transformAsync(service.submit(() -> getRollupEndTs(entityId, query)),
+                    rollupEndTs -> findAllAndAggregateInChunks(entityId, query, rollupEndTs), MoreExecutors.directExecutor());
         } else {
-            List<ListenableFuture<Optional<TsKvEntity>>> futures = new ArrayList<>();
-            long startPeriod = query.getStartTs();
-            long endPeriod = Math.max(query.getStartTs() + 1, query.getEndTs());
-            long step = query.getInterval();
-            while (startPeriod < endPeriod) {
-                long startTs = startPeriod;
-                long endTs = Math.min(startPeriod + step, endPeriod);
-                long ts = startTs + (endTs - startTs) / 2;
-                ListenableFuture<Optional<TsKvEntity>> aggregateTsKvEntry = findAndAggregateAsync(entityId, query.getKey(), startTs, endTs, ts, query.getAggregation());
-                futures.add(aggregateTsKvEntry);
-                startPeriod = endTs;
-            }
+            return findAllAndAggregateInChunks(entityId, query, query.getStartTs());
+        }
+    }
+
+    /*
+     * The intervals before rollupEndTs are read from the rollups at once, the rest are aggregated one by one.
+     * */
+    private ListenableFuture<ReadTsKvQueryResult> findAllAndAggregateInChunks(EntityId entityId, ReadTsKvQuery query, long rollupEndTs) {
+        List<ListenableFuture<Optional<TsKvEntity>>> futures = new ArrayList<>();
+        long startPeriod = rollupEndTs;
+        long endPeriod = Math.max(query.getStartTs() + 1, query.getEndTs());
+        long step = query.getInterval();
+        while (startPeriod < endPeriod) {
+            long startTs = startPeriod;
+            long endTs = Math.min(startPeriod + step, endPeriod);
+            long ts = startTs + (endTs - startTs) / 2;
+            ListenableFuture<Optional<TsKvEntity>> aggregateTsKvEntry = findAndAggregateAsync(entityId, query.getKey(), startTs, endTs, ts, query.getAggregation());
+            futures.add(aggregateTsKvEntry);
+            startPeriod = endTs;
+        }
+        if (rollupEndTs <= query.getStartTs()) {
             return getReadTsKvQueryResultFuture(query, Futures.allAsList(futures));
         }
+        ListenableFuture<List<TsKvEntity>> rollupFuture = service.submit(() -> rollupService.findAllAndAggregate(entityId.getId(),
+                getOrSaveKeyId(query.getKey()), query.getStartTs(), rollupEndTs, endPeriod, query.getInterval(), query.getAggregation()));
+        return Futures.transformAsync(rollupFuture, rollupEntities -> Futures.transform(Futures.allAsList(futures), results -> {
+            List<TsKvEntity> tsKvEntities = new ArrayList<>(rollupEntities);
+            tsKvEntities.forEach(tsKvEntity -> tsKvEntity.setStrKey(query.getKey()));
+            results.forEach(result -> result.ifPresent(tsKvEntities::add));
+            return toReadTsKvQueryResult(query, tsKvEntities);
+        }, MoreExecutors.directExecutor()), MoreExecutors.directExecutor());
+    }
+
+    private long getRollupEndTs(EntityId entityId, ReadTsKvQuery query) {
+        long endTs = Math.max(query.getStartTs() + 1, query.getEndTs());
+        return rollupService.getRollupEndTs(entityId.getId(), getOrSaveKeyId(query.getKey()), query.getStartTs(), endTs, query.getInterval());
     }
 
     private ReadTsKvQueryResult findAllAsyncWithLimit(EntityId entityId, ReadTsKvQuery query) {
@@ -145,6 +221,33 @@ public abstract class AbstractChunkedAggregationTimeseriesDao extends AbstractSq
         return new ReadTsKvQueryResult(query.getId(), tsKvEntries, lastTs);
     }
 
+    ReadTsKvQueryResult findAllAndAggregateInBuckets(EntityId entityId, ReadTsKvQuery query) {
+        long startTs = query.getStartTs();
+        long endTs = Math.max(query.getStartTs() + 1, query.getEndTs());
+        Integer keyId = getOrSaveKeyId(query.getKey());
+        List<TsKvEntity> tsKvEntities = new ArrayList<>();
+        long rollupEndTs = isRollupEnabled() ? rollupService.getRollupEndTs(entityId.getId(), keyId, startTs, endTs, query.getInterval()) : startTs;
+        if (rollupEndTs > startTs) {
+            tsKvEntities.addAll(rollupService.findAllAndAggregate(entityId.getId(), keyId,
+                    startTs, rollupEndTs, endTs, query.getInterval(), query.getAggregation()));
+        }
+        if (rollupEndTs < endTs) {
+            tsKvEntities.addAll(aggregationRepository.findAllAndAggregate(
+                    entityId.getId(),
+                    keyId,
+                    rollupEndTs,
+                    endTs,
+                    query.getInterval(),
+                    query.getAggregation()));
+        }
+        tsKvEntities.forEach(tsKvEntity -> tsKvEntity.setStrKey(query.getKey()));
+        return toReadTsKvQueryResult(query, tsKvEntities);
+    }
+
+    private boolean isRollupEnabled() {
+        return rollupService != null && rollupService.isEnabled();
+    }
+
     ListenableFuture<Optional<TsKvEntity>> findAndAggregateAsync(EntityId entityId, String key, long startTs, long endTs, long ts, Aggregation aggregation) {
         return service.submit(() -> {
             TsKvEntity entity = switchAggregation(entityId, key, startTs, endTs, aggregation);
@@ -0,0 +1,97 @@
+/**
+ * Copyright © 2016-2023 The Linkstuffs Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.dao.sqlts.dictionary;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.thingsboard.server.dao.util.SqlTsOrTsLatestAnyDao;
+
+import java.sql.Array;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+@SqlTsOrTsLatestAnyDao
+@Repository
+public class TsKvDictionaryBulkRepository {
+
+    /*
+     * Rows inserted by the data-modifying CTE are not visible to the outer SELECT of the same statement,
+     * so the union returns both the newly created and the already existing keys in one round trip.
+     * */
+    private static final String SAVE_OR_GET_QUERY = "WITH created AS (" +
+            "INSERT INTO ts_kv_dictionary (key) SELECT unnest(?) ON CONFLICT (key) DO NOTHING RETURNING key, key_id) " +
+            "SELECT key, key_id FROM created " +
+            "UNION ALL SELECT key, key_id FROM ts_kv_dictionary WHERE key = ANY (?)";
+
+    private static final int MAX_ATTEMPTS = 3;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * Creates the missing keys in the dictionary and returns the ids of all the requested keys.
+     */
+    public Map<String, Integer> saveOrGet(Collection<String> keys) {
+        Map<String, Integer> result = new HashMap<>(keys.size());
+        Set<String> missing = new HashSet<>(keys);
+        for (int attempt = 0; attempt < MAX_ATTEMPTS && !missing.isEmpty(); attempt++) {
+            // the key created by a concurrent transaction that committed after the statement snapshot is neither
+            // returned by the insert nor visible to the select, so it is read by the next attempt
+            Map<String, Integer> found = doSaveOrGet(missing);
+            result.putAll(found);
+            missing.removeAll(found.keySet());
+        }
+        if (!missing.isEmpty()) {
+            throw new RuntimeException("Failed to get TsKvDictionary entities from DB for keys: " + missing);
+        }
+        return result;
+    }
+
+    public Map<String, Integer> findAll() {
+        Map<String, Integer> result = new HashMap<>();
+        jdbcTemplate.query("SELECT key, key_id FROM ts_kv_dictionary", rs -> {
+            result.put(rs.getString("key"), rs.getInt("key_id"));
+        });
+        return result;
+    }
+
+    private Map<String, Integer> doSaveOrGet(Collection<String> keys) {
+        return jdbcTemplate.execute((ConnectionCallback<Map<String, Integer>>) connection -> {
+            Map<String, Integer> found = new HashMap<>(keys.size());
+            Array keysArray = connection.createArrayOf("varchar", keys.toArray());
+            try (PreparedStatement stmt = connection.prepareStatement(SAVE_OR_GET_QUERY)) {
+                stmt.setArray(1, keysArray);
+                stmt.setArray(2, keysArray);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        found.put(rs.getString("key"), rs.getInt("key_id"));
+                    }
+                }
+            } finally {
+                keysArray.free();
+            }
+            return found;
+        });
+    }
+
+}
@@ -0,0 +1,186 @@
+/**
+ * Copyright © 2016-2023 The Linkstuffs Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.dao.sqlts.dictionary;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.thingsboard.server.common.stats.DefaultCounter;
+import org.thingsboard.server.common.stats.StatsFactory;
+import org.thingsboard.server.dao.util.SqlTsOrTsLatestAnyDao;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Resolves the ids of the timeseries keys from the ts_kv_dictionary table.
+ * <p>
+ * Known keys are served from the local map without locking. The first caller of an unknown key registers
+ * a creation future for it, concurrent callers of the same key wait for that future.
+ * New keys are created by whichever caller wins the creation flag, several keys per round trip,
+ * so callers of different keys are not serialized on a global lock.
+ */
+@Service
+@SqlTsOrTsLatestAnyDao
+@Slf4j
+public class TsKvDictionaryService {
+
+    private static final String STATS_NAME = "tsKvDictionary";
+
+    private final TsKvDictionaryBulkRepository dictionaryRepository;
+    private final DefaultCounter hitCounter;
+    private final DefaultCounter missCounter;
+
+    private final ConcurrentMap<String, Integer> keyIds = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, SettableFuture<Integer>> pendingKeys = new ConcurrentHashMap<>();
+    private final Queue<String> newKeys = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean creating = new AtomicBoolean();
+
+    @Value("${sql.ts_key_dictionary.preload:true}")
+    private boolean preloadEnabled;
+
+    @Value("${sql.ts_key_dictionary.max_batch_size:1000}")
+    private int maxBatchSize;
+
+    public TsKvDictionaryService(TsKvDictionaryBulkRepository dictionaryRepository, StatsFactory statsFactory) {
+        this.dictionaryRepository = dictionaryRepository;
+        this.hitCounter = statsFactory.createDefaultCounter(STATS_NAME, "result", "hit");
+        this.missCounter = statsFactory.createDefaultCounter(STATS_NAME, "result", "miss");
+    }
+
+    @PostConstruct
+    public void init() {
+        if (preloadEnabled) {
+            try {
+                keyIds.putAll(dictionaryRepository.findAll());
+                log.info("Preloaded {} timeseries keys from the dictionary", keyIds.size());
+            } catch (Exception e) {
+                log.warn("Failed to preload timeseries keys from the dictionary", e);
+            }
+        }
+    }
+
+    public Integer getOrSaveKeyId(String key) {
+        Integer keyId = keyIds.get(key);
+        if (keyId != null) {
+            hitCounter.increment();
+            return keyId;
+        }
+        missCounter.increment();
+        ListenableFuture<Integer> future = requestKey(key);
+        createNewKeys();
+        return await(key, future);
+    }
+
+    public Map<String, Integer> getOrSaveKeyIds(Collection<String> keys) {
+        Map<String, Integer> result = new HashMap<>(keys.size());
+        Map<String, ListenableFuture<Integer>> futures = new HashMap<>();
+        for (String key : keys) {
+            Integer keyId = keyIds.get(key);
+            if (keyId != null) {
+                hitCounter.increment();
+                result.put(key, keyId);
+            } else if (!futures.containsKey(key)) {
+                missCounter.increment();
+                futures.put(key, requestKey(key));
+            }
+        }
+        if (!futures.isEmpty()) {
+            createNewKeys();
+            futures.forEach((key, future) -> result.put(key, await(key, future)));
+        }
+        return result;
+    }
+
+    private ListenableFuture<Integer> requestKey(String key) {
+        SettableFuture<Integer> created = SettableFuture.create();
+        SettableFuture<Integer> future = pendingKeys.putIfAbsent(key, created);
+        if (future != null) {
+            return future;
+        }
+        Integer keyId = keyIds.get(key);
+        if (keyId != null) {
+            // the key was created between the lookup and the registration of the future
+            pendingKeys.remove(key, created);
+            created.set(keyId);
+        } else {
+            newKeys.add(key);
+        }
+        return created;
+    }
+
+    private void createNewKeys() {
+        // the caller that added a key either creates it itself or fails the flag while the creator is still running;
+        // the creator checks the queue again after releasing the flag, so no key is left behind
+        while (!newKeys.isEmpty() && creating.compareAndSet(false, true)) {
+            try {
+                List<String> batch = new ArrayList<>();
+                String key;
+                while (batch.size() < maxBatchSize && (key = newKeys.poll()) != null) {
+                    batch.add(key);
+                }
+                if (!batch.isEmpty()) {
+                    create(batch);
+                }
+            } finally {
+                creating.set(false);
+            }
+        }
+    }
+
+    private void create(List<String> keys) {
+        Map<String, Integer> created;
+        try {
+            created = dictionaryRepository.saveOrGet(keys);
+        } catch (Exception e) {
+            log.warn("Failed to save {} timeseries keys to the dictionary", keys.size(), e);
+            keys.forEach(key -> pendingKeys.remove(key).setException(e));
+            return;
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("Saved {} timeseries keys to the dictionary", keys.size());
+        }
+        keys.forEach(key -> {
+            Integer keyId = created.get(key);
+            keyIds.put(key, keyId);
+            pendingKeys.remove(key).set(keyId);
+        });
+    }
+
+    private static Integer await(String key, ListenableFuture<Integer> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for the TsKvDictionary entity of key: " + key, e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Failed to get TsKvDictionary entity from DB for key: " + key, e.getCause());
+        }
+    }
+
+}
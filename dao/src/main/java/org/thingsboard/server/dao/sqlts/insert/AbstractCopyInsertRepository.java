@@ -0,0 +1,163 @@
+/**
+ * Copyright © 2016-2023 The Linkstuffs Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.dao.sqlts.insert;
+
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.PGCopyOutputStream;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.thingsboard.server.common.stats.MessagesStats;
+import org.thingsboard.server.common.stats.StatsFactory;
+import org.thingsboard.server.dao.model.sql.AbstractTsKvEntity;
+
+import javax.annotation.PostConstruct;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+/*
+ * Streams the batch through the PostgreSQL COPY protocol (text format) into a temporary staging table
+ * and merges it into the target table with a single INSERT ... SELECT ... ON CONFLICT statement.
+ * Temporary tables are not WAL-logged, and the staging rows are removed on commit.
+ * */
+@Slf4j
+public abstract class AbstractCopyInsertRepository<T extends AbstractTsKvEntity> extends AbstractInsertRepository {
+
+    protected static final String COLUMNS = "entity_id, key, ts, bool_v, str_v, long_v, dbl_v, json_v";
+
+    private static final String NULL_VALUE = "\\N";
+    private static final char DELIMITER = '\t';
+    private static final char ROW_DELIMITER = '\n';
+
+    @Autowired
+    private StatsFactory statsFactory;
+
+    private MessagesStats stats;
+
+    @PostConstruct
+    protected void init() {
+        stats = statsFactory.createMessagesStats(getStatsNamePrefix() + ".copy");
+    }
+
+    protected abstract String getStatsNamePrefix();
+
+    protected abstract String getTargetTable();
+
+    protected abstract String getMergeQuery();
+
+    protected void copyAndMerge(List<T> entities) {
+        if (entities.isEmpty()) {
+            return;
+        }
+        String stagingTable = getStagingTable();
+        long startTs = System.currentTimeMillis();
+        stats.incrementTotal(entities.size());
+        try {
+            Integer merged = transactionTemplate.execute(status -> jdbcTemplate.execute((ConnectionCallback<Integer>) connection -> {
+                try (Statement stmt = connection.createStatement()) {
+                    stmt.execute("CREATE TEMP TABLE IF NOT EXISTS " + stagingTable + " (LIKE " + getTargetTable() + ") ON COMMIT DELETE ROWS");
+                }
+                copy(connection, stagingTable, entities);
+                try (Statement stmt = connection.createStatement()) {
+                    return stmt.executeUpdate(getMergeQuery());
+                }
+            }));
+            stats.incrementSuccessful(entities.size());
+            if (log.isDebugEnabled()) {
+                log.debug("[{}] Copied {} rows and merged {} rows in {} ms", getTargetTable(), entities.size(), merged, System.currentTimeMillis() - startTs);
+            }
+        } catch (RuntimeException e) {
+            stats.incrementFailed(entities.size());
+            throw e;
+        }
+    }
+
+    protected String getStagingTable() {
+        return getTargetTable() + "_copy";
+    }
+
+    private void copy(Connection connection, String stagingTable, List<T> entities) throws SQLException {
+        PGConnection pgConnection = connection.unwrap(PGConnection.class);
+        String copyQuery = "COPY " + stagingTable + " (" + COLUMNS + ") FROM STDIN";
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(new PGCopyOutputStream(pgConnection, copyQuery), StandardCharsets.UTF_8))) {
+            for (T entity : entities) {
+                writer.write(entity.getEntityId().toString());
+                writer.write(DELIMITER);
+                writer.write(Integer.toString(entity.getKey()));
+                writer.write(DELIMITER);
+                writer.write(Long.toString(entity.getTs()));
+                writer.write(DELIMITER);
+                writer.write(entity.getBooleanValue() != null ? (entity.getBooleanValue() ? "t" : "f") : NULL_VALUE);
+                writer.write(DELIMITER);
+                writer.write(escape(replaceNullChars(entity.getStrValue())));
+                writer.write(DELIMITER);
+                writer.write(entity.getLongValue() != null ? Long.toString(entity.getLongValue()) : NULL_VALUE);
+                writer.write(DELIMITER);
+                writer.write(entity.getDoubleValue() != null ? Double.toString(entity.getDoubleValue()) : NULL_VALUE);
+                writer.write(DELIMITER);
+                writer.write(escape(replaceNullChars(entity.getJsonValue())));
+                writer.write(ROW_DELIMITER);
+            }
+        } catch (IOException e) {
+            throw new SQLException("Failed to copy entities to " + stagingTable, e);
+        }
+    }
+
+    static String escape(String value) {
+        if (value == null) {
+            return NULL_VALUE;
+        }
+        StringBuilder sb = null;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            String replacement;
+            switch (c) {
+                case '\\':
+                    replacement = "\\\\";
+                    break;
+                case '\t':
+                    replacement = "\\t";
+                    break;
+                case '\n':
+                    replacement = "\\n";
+                    break;
+                case '\r':
+                    replacement = "\\r";
+                    break;
+                default:
+                    replacement = null;
+            }
+            if (replacement != null) {
+                if (sb == null) {
+                    sb = new StringBuilder(value.length() + 16);
+                    sb.append(value, 0, i);
+                }
+                sb.append(replacement);
+            } else if (sb != null) {
+                sb.append(c);
+            }
+        }
+        return sb != null ? sb.toString() : value;
+    }
+
+}
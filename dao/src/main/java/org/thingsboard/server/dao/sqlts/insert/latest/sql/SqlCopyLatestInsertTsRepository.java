@@ -0,0 +1,64 @@
+/**
+ * Copyright © 2016-2023 The Linkstuffs Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.dao.sqlts.insert.latest.sql;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Repository;
+import org.thingsboard.server.dao.model.sqlts.latest.TsKvLatestEntity;
+import org.thingsboard.server.dao.sqlts.insert.AbstractCopyInsertRepository;
+import org.thingsboard.server.dao.util.SqlDao;
+import org.thingsboard.server.dao.util.SqlTsLatestAnyDao;
+
+import java.util.List;
+
+@SqlTsLatestAnyDao
+@Repository
+@SqlDao
+public class SqlCopyLatestInsertTsRepository extends AbstractCopyInsertRepository<TsKvLatestEntity> {
+
+    private static final String MERGE_QUERY = "INSERT INTO ts_kv_latest (" + COLUMNS + ") " +
+            "SELECT " + COLUMNS + " FROM ts_kv_latest_copy ORDER BY entity_id, key " +
+            "ON CONFLICT (entity_id, key) DO UPDATE SET ts = EXCLUDED.ts, bool_v = EXCLUDED.bool_v, str_v = EXCLUDED.str_v, " +
+            "long_v = EXCLUDED.long_v, dbl_v = EXCLUDED.dbl_v, json_v = EXCLUDED.json_v";
+
+    private static final String MERGE_BY_LATEST_TS_QUERY = MERGE_QUERY + " WHERE ts_kv_latest.ts <= EXCLUDED.ts";
+
+    @Value("${sql.ts_latest.update_by_latest_ts:true}")
+    private Boolean updateByLatestTs;
+
+    /**
+     * Entities must be unique by (entity_id, key), as ON CONFLICT DO UPDATE can't affect the same row twice.
+     */
+    public void saveOrUpdate(List<TsKvLatestEntity> entities) {
+        copyAndMerge(entities);
+    }
+
+    @Override
+    protected String getStatsNamePrefix() {
+        return "ts.latest";
+    }
+
+    @Override
+    protected String getTargetTable() {
+        return "ts_kv_latest";
+    }
+
+    @Override
+    protected String getMergeQuery() {
+        return updateByLatestTs ? MERGE_BY_LATEST_TS_QUERY : MERGE_QUERY;
+    }
+
+}
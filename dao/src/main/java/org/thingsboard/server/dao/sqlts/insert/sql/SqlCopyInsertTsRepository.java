@@ -0,0 +1,62 @@
+/**
+ * Copyright © 2016-2023 The Linkstuffs Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.dao.sqlts.insert.sql;
+
+import org.springframework.stereotype.Repository;
+import org.thingsboard.server.dao.model.sqlts.ts.TsKvCompositeKey;
+import org.thingsboard.server.dao.model.sqlts.ts.TsKvEntity;
+import org.thingsboard.server.dao.sqlts.insert.AbstractCopyInsertRepository;
+import org.thingsboard.server.dao.util.SqlTsDao;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@SqlTsDao
+@Repository
+public class SqlCopyInsertTsRepository extends AbstractCopyInsertRepository<TsKvEntity> {
+
+    private static final String MERGE_QUERY = "INSERT INTO ts_kv (" + COLUMNS + ") " +
+            "SELECT " + COLUMNS + " FROM ts_kv_copy ORDER BY entity_id, key, ts " +
+            "ON CONFLICT (entity_id, key, ts) DO UPDATE SET bool_v = EXCLUDED.bool_v, str_v = EXCLUDED.str_v, " +
+            "long_v = EXCLUDED.long_v, dbl_v = EXCLUDED.dbl_v, json_v = EXCLUDED.json_v";
+
+    public void saveOrUpdate(List<TsKvEntity> entities) {
+        // ON CONFLICT DO UPDATE can't affect the same row twice, so the last value for the same primary key wins
+        Map<TsKvCompositeKey, TsKvEntity> uniqueEntities = new LinkedHashMap<>();
+        for (TsKvEntity entity : entities) {
+            uniqueEntities.put(new TsKvCompositeKey(entity.getEntityId(), entity.getKey(), entity.getTs()), entity);
+        }
+        copyAndMerge(uniqueEntities.size() == entities.size() ? entities : new ArrayList<>(uniqueEntities.values()));
+    }
+
+    @Override
+    protected String getStatsNamePrefix() {
+        return "ts";
+    }
+
+    @Override
+    protected String getTargetTable() {
+        return "ts_kv";
+    }
+
+    @Override
+    protected String getMergeQuery() {
+        return MERGE_QUERY;
+    }
+
+}
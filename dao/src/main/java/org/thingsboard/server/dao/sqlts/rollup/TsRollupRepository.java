@@ -0,0 +1,283 @@
+/**
+ * Copyright © 2016-2023 The Linkstuffs Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.dao.sqlts.rollup;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.thingsboard.server.common.data.kv.Aggregation;
+import org.thingsboard.server.dao.model.sqlts.ts.TsKvEntity;
+import org.thingsboard.server.dao.sqlts.ts.TsKvAggregationRepository;
+import org.thingsboard.server.dao.util.SqlTsDao;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/*
+ * Maintains the ts_rollup table: hourly rollups are recomputed from ts_kv and daily rollups are recomputed from
+ * the hourly ones, so late and overwritten values are handled by simply refreshing the affected buckets.
+ * The hours to refresh are persisted in ts_rollup_stale, so they survive restarts and are shared by all the nodes.
+ * The table names intentionally do not start with 'ts_kv_' to stay out of the way of drop_partitions_by_max_ttl.
+ * */
+@SqlTsDao
+@Repository
+public class TsRollupRepository {
+
+    private static final String CREATE_TABLE = "CREATE TABLE IF NOT EXISTS ts_rollup (" +
+            "entity_id uuid NOT NULL, key int NOT NULL, interval_ms bigint NOT NULL, ts bigint NOT NULL, " +
+            "long_sum numeric, dbl_sum double precision, long_min bigint, long_max bigint, dbl_min double precision, dbl_max double precision, " +
+            "str_min varchar(10000000), str_max varchar(10000000), " +
+            "bool_count bigint NOT NULL, str_count bigint NOT NULL, long_count bigint NOT NULL, dbl_count bigint NOT NULL, json_count bigint NOT NULL, " +
+            "max_ts bigint NOT NULL, " +
+            "CONSTRAINT ts_rollup_pkey PRIMARY KEY (entity_id, key, interval_ms, ts))";
+
+    private static final String CREATE_STALE_TABLE = "CREATE TABLE IF NOT EXISTS ts_rollup_stale (" +
+            "entity_id uuid NOT NULL, key int NOT NULL, ts bigint NOT NULL, " +
+            "CONSTRAINT ts_rollup_stale_pkey PRIMARY KEY (entity_id, key, ts))";
+
+    private static final String CREATE_STATE_TABLE = "CREATE TABLE IF NOT EXISTS ts_rollup_state (" +
+            "id int NOT NULL, covered_from_ts bigint NOT NULL, " +
+            "CONSTRAINT ts_rollup_state_pkey PRIMARY KEY (id))";
+
+    private static final long LOCK_ID = "ts_rollup".hashCode();
+
+    private static final String LOCK = "SELECT pg_advisory_xact_lock(?)";
+
+    private static final String TRY_LOCK = "SELECT pg_try_advisory_xact_lock(?)";
+
+    // the no-op update keeps an existing marker locked until the saved values are committed,
+    // so a concurrent refresh skips the marker instead of consuming it before the values are visible
+    private static final String MARK_STALE = "INSERT INTO ts_rollup_stale (entity_id, key, ts) VALUES (?, ?, ?) " +
+            "ON CONFLICT (entity_id, key, ts) DO UPDATE SET ts = EXCLUDED.ts";
+
+    private static final String MARK_STALE_IN_RANGE = "INSERT INTO ts_rollup_stale (entity_id, key, ts) " +
+            "SELECT DISTINCT entity_id, key, ts - mod(ts, ?) FROM ts_kv WHERE ts >= ? AND ts < ? " +
+            "ON CONFLICT (entity_id, key, ts) DO NOTHING";
+
+    private static final String CLAIM_STALE = "SELECT entity_id, key, ts FROM ts_rollup_stale LIMIT ? FOR UPDATE SKIP LOCKED";
+
+    private static final String DELETE_STALE = "DELETE FROM ts_rollup_stale WHERE entity_id = ? AND key = ? AND ts = ?";
+
+    private static final String FIND_FIRST_STALE = "SELECT MIN(ts) FROM ts_rollup_stale WHERE entity_id = ? AND key = ? AND ts >= ? AND ts < ?";
+
+    private static final String CLEANUP_STALE = "DELETE FROM ts_rollup_stale WHERE ts + ? <= ?";
+
+    private static final String FIND_COVERED_FROM_TS = "SELECT covered_from_ts FROM ts_rollup_state WHERE id = 0";
+
+    private static final String SAVE_COVERED_FROM_TS = "INSERT INTO ts_rollup_state (id, covered_from_ts) VALUES (0, ?) " +
+            "ON CONFLICT (id) DO UPDATE SET covered_from_ts = EXCLUDED.covered_from_ts";
+
+    private static final String INSERT_INTO = "INSERT INTO ts_rollup (entity_id, key, interval_ms, ts, " +
+            "long_sum, dbl_sum, long_min, long_max, dbl_min, dbl_max, str_min, str_max, " +
+            "bool_count, str_count, long_count, dbl_count, json_count, max_ts) ";
+
+    private static final String ON_CONFLICT = " ON CONFLICT (entity_id, key, interval_ms, ts) DO UPDATE SET " +
+            "long_sum = EXCLUDED.long_sum, dbl_sum = EXCLUDED.dbl_sum, long_min = EXCLUDED.long_min, long_max = EXCLUDED.long_max, " +
+            "dbl_min = EXCLUDED.dbl_min, dbl_max = EXCLUDED.dbl_max, str_min = EXCLUDED.str_min, str_max = EXCLUDED.str_max, " +
+            "bool_count = EXCLUDED.bool_count, str_count = EXCLUDED.str_count, long_count = EXCLUDED.long_count, " +
+            "dbl_count = EXCLUDED.dbl_count, json_count = EXCLUDED.json_count, max_ts = EXCLUDED.max_ts";
+
+    private static final String RAW_AGGREGATES = "SUM(long_v), SUM(dbl_v), MIN(long_v), MAX(long_v), MIN(dbl_v), MAX(dbl_v), MIN(str_v), MAX(str_v), " +
+            "COUNT(bool_v), COUNT(str_v), COUNT(long_v), COUNT(dbl_v), COUNT(json_v), MAX(ts)";
+
+    private static final String ROLLUP_AGGREGATES = "SUM(long_sum), SUM(dbl_sum), MIN(long_min), MAX(long_max), MIN(dbl_min), MAX(dbl_max), MIN(str_min), MAX(str_max), " +
+            "SUM(bool_count), SUM(str_count), SUM(long_count), SUM(dbl_count), SUM(json_count), MAX(max_ts)";
+
+    private static final String RAW_SOURCE = "FROM ts_kv WHERE entity_id = ? AND key = ? AND ts >= ? AND ts < ?";
+
+    private static final String ROLLUP_SOURCE = "FROM ts_rollup WHERE entity_id = ? AND key = ? AND interval_ms = ? AND ts >= ? AND ts < ?";
+
+    private static final String REFRESH_HOUR = INSERT_INTO + "SELECT entity_id, key, ?, ?, " + RAW_AGGREGATES + " " +
+            RAW_SOURCE + " GROUP BY entity_id, key" + ON_CONFLICT;
+
+    private static final String REFRESH_DAY = INSERT_INTO + "SELECT entity_id, key, ?, ?, " + ROLLUP_AGGREGATES + " " +
+            ROLLUP_SOURCE + " GROUP BY entity_id, key" + ON_CONFLICT;
+
+    private static final String DELETE_STALE_HOUR = "DELETE FROM ts_rollup WHERE entity_id = ? AND key = ? AND interval_ms = ? AND ts = ? " +
+            "AND NOT EXISTS (SELECT 1 " + RAW_SOURCE + ")";
+
+    private static final String DELETE_STALE_DAY = "DELETE FROM ts_rollup WHERE entity_id = ? AND key = ? AND interval_ms = ? AND ts = ? " +
+            "AND NOT EXISTS (SELECT 1 " + ROLLUP_SOURCE + ")";
+
+    private static final String DELETE = "DELETE FROM ts_rollup WHERE entity_id = ? AND key = ? AND ts >= ? AND ts + interval_ms <= ?";
+
+    private static final String CLEANUP = "DELETE FROM ts_rollup WHERE ts + interval_ms <= ?";
+
+    private static final String SELECT_BUCKET = "SELECT (ts - ?) / ? AS bucket, ";
+
+    private static final String FROM_WHERE_GROUP_BY = "FROM ts_rollup WHERE entity_id = ? AND key = ? AND interval_ms = ? AND ts >= ? AND ts < ? " +
+            "GROUP BY bucket ORDER BY bucket";
+
+    // the same result columns as in TsKvAggregationRepository, so the rows are converted in the same way
+    private static final String FIND_AVG_OR_SUM_QUERY = SELECT_BUCKET +
+            "SUM(COALESCE(long_sum, 0)) AS long_value, " +
+            "SUM(COALESCE(dbl_sum, 0.0)) AS dbl_value, " +
+            "SUM(long_count) AS long_count, " +
+            "SUM(dbl_count) AS dbl_count, " +
+            "MAX(max_ts) AS max_ts " + FROM_WHERE_GROUP_BY;
+
+    private static final String FIND_MAX_QUERY = SELECT_BUCKET +
+            "MAX(COALESCE(long_max, -9223372036854775807)) AS long_value, " +
+            "MAX(COALESCE(dbl_max, -1.79769E+308)) AS dbl_value, " +
+            "SUM(long_count) AS long_count, " +
+            "SUM(dbl_count) AS dbl_count, " +
+            "MAX(str_max) AS str_value, " +
+            "MAX(max_ts) AS max_ts " + FROM_WHERE_GROUP_BY;
+
+    private static final String FIND_MIN_QUERY = SELECT_BUCKET +
+            "MIN(COALESCE(long_min, 9223372036854775807)) AS long_value, " +
+            "MIN(COALESCE(dbl_min, 1.79769E+308)) AS dbl_value, " +
+            "SUM(long_count) AS long_count, " +
+            "SUM(dbl_count) AS dbl_count, " +
+            "MIN(str_min) AS str_value, " +
+            "MAX(max_ts) AS max_ts " + FROM_WHERE_GROUP_BY;
+
+    private static final String FIND_COUNT_QUERY = SELECT_BUCKET +
+            "SUM(bool_count) AS bool_count, " +
+            "SUM(str_count) AS str_count, " +
+            "SUM(long_count) AS long_count, " +
+            "SUM(dbl_count) AS dbl_count, " +
+            "SUM(json_count) AS json_count, " +
+            "MAX(max_ts) AS max_ts " + FROM_WHERE_GROUP_BY;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    public void createTablesIfNotExist() {
+        jdbcTemplate.execute(CREATE_TABLE);
+        jdbcTemplate.execute(CREATE_STALE_TABLE);
+        jdbcTemplate.execute(CREATE_STATE_TABLE);
+    }
+
+    /*
+     * Both locks are released when the current transaction ends.
+     * */
+    public void lock() {
+        jdbcTemplate.queryForObject(LOCK, Object.class, LOCK_ID);
+    }
+
+    public boolean tryLock() {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(TRY_LOCK, Boolean.class, LOCK_ID));
+    }
+
+    /*
+     * Expected to be called in the transaction that saves the values, with the hours sorted to lock the markers in the same order.
+     * */
+    public void markStale(Collection<TsRollupKey> hours) {
+        jdbcTemplate.batchUpdate(MARK_STALE, hours.stream()
+                .map(h -> new Object[]{h.getEntityId(), h.getKey(), h.getTs()})
+                .collect(Collectors.toList()));
+    }
+
+    /*
+     * Marks all the hours with values in the range, used for the backfill.
+     * */
+    public int markStaleInRange(long startTs, long endTs) {
+        return jdbcTemplate.update(MARK_STALE_IN_RANGE, TsRollupInterval.HOUR.getDurationMs(), startTs, endTs);
+    }
+
+    /*
+     * Locks up to limit stale hours until the end of the current transaction, skipping the hours locked by the ongoing saves.
+     * */
+    public List<TsRollupKey> claimStaleHours(int limit) {
+        return jdbcTemplate.query(CLAIM_STALE, (rs, rowNum) ->
+                new TsRollupKey(rs.getObject("entity_id", UUID.class), rs.getInt("key"), rs.getLong("ts")), limit);
+    }
+
+    public void deleteStaleHours(List<TsRollupKey> hours) {
+        jdbcTemplate.batchUpdate(DELETE_STALE, hours.stream()
+                .map(h -> new Object[]{h.getEntityId(), h.getKey(), h.getTs()})
+                .collect(Collectors.toList()));
+    }
+
+    public Long findFirstStaleTs(UUID entityId, int key, long startTs, long endTs) {
+        return jdbcTemplate.queryForObject(FIND_FIRST_STALE, Long.class, entityId, key, startTs, endTs);
+    }
+
+    public Long findCoveredFromTs() {
+        List<Long> result = jdbcTemplate.queryForList(FIND_COVERED_FROM_TS, Long.class);
+        return result.isEmpty() ? null : result.get(0);
+    }
+
+    public void saveCoveredFromTs(long coveredFromTs) {
+        jdbcTemplate.update(SAVE_COVERED_FROM_TS, coveredFromTs);
+    }
+
+    public void refreshHours(List<TsRollupKey> hours) {
+        long interval = TsRollupInterval.HOUR.getDurationMs();
+        jdbcTemplate.batchUpdate(REFRESH_HOUR, hours.stream()
+                .map(h -> new Object[]{interval, h.getTs(), h.getEntityId(), h.getKey(), h.getTs(), h.getTs() + interval})
+                .collect(Collectors.toList()));
+        jdbcTemplate.batchUpdate(DELETE_STALE_HOUR, hours.stream()
+                .map(h -> new Object[]{h.getEntityId(), h.getKey(), interval, h.getTs(), h.getEntityId(), h.getKey(), h.getTs(), h.getTs() + interval})
+                .collect(Collectors.toList()));
+    }
+
+    public void refreshDays(List<TsRollupKey> days) {
+        long interval = TsRollupInterval.DAY.getDurationMs();
+        long sourceInterval = TsRollupInterval.HOUR.getDurationMs();
+        jdbcTemplate.batchUpdate(REFRESH_DAY, days.stream()
+                .map(d -> new Object[]{interval, d.getTs(), d.getEntityId(), d.getKey(), sourceInterval, d.getTs(), d.getTs() + interval})
+                .collect(Collectors.toList()));
+        jdbcTemplate.batchUpdate(DELETE_STALE_DAY, days.stream()
+                .map(d -> new Object[]{d.getEntityId(), d.getKey(), interval, d.getTs(), d.getEntityId(), d.getKey(), sourceInterval, d.getTs(), d.getTs() + interval})
+                .collect(Collectors.toList()));
+    }
+
+    public void delete(UUID entityId, int key, long startTs, long endTs) {
+        jdbcTemplate.update(DELETE, entityId, key, startTs, endTs);
+    }
+
+    public int cleanup(long expirationTs) {
+        jdbcTemplate.update(CLEANUP_STALE, TsRollupInterval.HOUR.getDurationMs(), expirationTs);
+        return jdbcTemplate.update(CLEANUP, expirationTs);
+    }
+
+    public List<TsKvEntity> findAllAndAggregate(UUID entityId, int entityKey, TsRollupInterval rollupInterval,
+                                                long startTs, long rollupEndTs, long endTs, long interval, Aggregation aggregation) {
+        List<TsKvEntity> result = new ArrayList<>();
+        jdbcTemplate.query(getQuery(aggregation), rs -> {
+            TsKvEntity entity = TsKvAggregationRepository.toEntity(rs, aggregation);
+            if (entity.isNotEmpty()) {
+                entity.setEntityId(entityId);
+                entity.setKey(entityKey);
+                entity.setTs(TsKvAggregationRepository.getBucketTs(startTs, endTs, interval, rs.getLong("bucket")));
+                result.add(entity);
+            }
+        }, startTs, interval, entityId, entityKey, rollupInterval.getDurationMs(), startTs, rollupEndTs);
+        return result;
+    }
+
+    private static String getQuery(Aggregation aggregation) {
+        switch (aggregation) {
+            case AVG:
+            case SUM:
+                return FIND_AVG_OR_SUM_QUERY;
+            case MAX:
+                return FIND_MAX_QUERY;
+            case MIN:
+                return FIND_MIN_QUERY;
+            case COUNT:
+                return FIND_COUNT_QUERY;
+            default:
+                throw new IllegalArgumentException("Not supported aggregation type: " + aggregation);
+        }
+    }
+
+}
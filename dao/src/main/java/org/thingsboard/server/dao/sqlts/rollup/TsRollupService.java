@@ -0,0 +1,275 @@
+/**
+ * Copyright © 2016-2023 The Linkstuffs Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.dao.sqlts.rollup;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.thingsboard.common.util.ThingsBoardThreadFactory;
+import org.thingsboard.server.common.data.kv.Aggregation;
+import org.thingsboard.server.dao.model.sqlts.ts.TsKvEntity;
+import org.thingsboard.server.dao.util.SqlTsDao;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/*
+ * Keeps hourly and daily rollups of the timeseries up to date and routes the aggregation queries to them.
+ * Saved values mark their hour as stale in the same transaction, the stale hours (and the days they belong to) are
+ * recomputed periodically by one of the nodes, and the queries read the stale hours from the raw values,
+ * so late-arriving and overwritten values are reflected right away and are not lost on a restart.
+ * */
+@Slf4j
+@SqlTsDao
+@Component
+public class TsRollupService {
+
+    private static final Comparator<TsRollupKey> KEY_COMPARATOR = Comparator.comparing(TsRollupKey::getEntityId)
+            .thenComparingInt(TsRollupKey::getKey)
+            .thenComparingLong(TsRollupKey::getTs);
+
+    @Value("${sql.ts.rollup.enabled:false}")
+    private boolean enabled;
+
+    @Value("${sql.ts.rollup.refresh_interval_ms:60000}")
+    private long refreshIntervalMs;
+
+    @Value("${sql.ts.rollup.batch_size:1000}")
+    private int batchSize;
+
+    @Value("${sql.ts.rollup.start_ts:0}")
+    private long startTs;
+
+    @Value("${sql.ts.rollup.ttl:0}")
+    private long ttl;
+
+    @Value("${sql.ts.rollup.backfill_hours:0}")
+    private int backfillHours;
+
+    @Autowired
+    private TsRollupRepository rollupRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private ScheduledExecutorService executor;
+    private volatile boolean ready;
+    private volatile long coveredFromTs;
+
+    @PostConstruct
+    public void init() {
+        if (!enabled) {
+            return;
+        }
+        rollupRepository.createTablesIfNotExist();
+        executor = Executors.newSingleThreadScheduledExecutor(ThingsBoardThreadFactory.forName("ts-rollup"));
+        executor.submit(this::initCoverage);
+        executor.scheduleWithFixedDelay(this::refresh, refreshIntervalMs, refreshIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    boolean isReady() {
+        return ready;
+    }
+
+    /*
+     * Saves the values and marks their hours as stale atomically.
+     * */
+    public void save(List<TsKvEntity> entities, Consumer<List<TsKvEntity>> saveFunction) {
+        Set<TsRollupKey> hours = new TreeSet<>(KEY_COMPARATOR);
+        for (TsKvEntity entity : entities) {
+            hours.add(toHour(entity.getEntityId(), entity.getKey(), entity.getTs()));
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            rollupRepository.markStale(hours);
+            saveFunction.accept(entities);
+        });
+    }
+
+    public void remove(UUID entityId, int key, long startTs, long endTs, Runnable deleteFunction) {
+        transactionTemplate.executeWithoutResult(status -> {
+            deleteFunction.run();
+            rollupRepository.delete(entityId, key, startTs, endTs);
+            // the partially removed buckets on the edges of the range are recomputed from the remaining values
+            Set<TsRollupKey> hours = new TreeSet<>(KEY_COMPARATOR);
+            hours.add(toHour(entityId, key, startTs));
+            hours.add(toHour(entityId, key, endTs - 1));
+            rollupRepository.markStale(hours);
+        });
+    }
+
+    public void cleanup(long systemTtl) {
+        if (!enabled) {
+            return;
+        }
+        long ttlSec = ttl > 0 ? ttl : systemTtl;
+        if (ttlSec > 0) {
+            int removed = rollupRepository.cleanup(System.currentTimeMillis() - TimeUnit.SECONDS.toMillis(ttlSec));
+            log.info("Removed {} timeseries rollups by TTL: {}s", removed, ttlSec);
+        }
+    }
+
+    /*
+     * Returns the end of the part of the query range [startTs, endTs) that can be served from the rollups.
+     * The result is aligned with the query intervals, so returned startTs means that the rollups can't be used.
+     * */
+    public long getRollupEndTs(UUID entityId, int key, long startTs, long endTs, long interval) {
+        if (!enabled || !ready) {
+            return startTs;
+        }
+        long rollupEndTs = getRollupEndTs(startTs, endTs, interval, System.currentTimeMillis());
+        if (rollupEndTs > startTs) {
+            rollupEndTs = excludeStale(startTs, rollupEndTs, interval, rollupRepository.findFirstStaleTs(entityId, key, startTs, rollupEndTs));
+        }
+        return rollupEndTs;
+    }
+
+    long getRollupEndTs(long startTs, long endTs, long interval, long now) {
+        if (getRollupInterval(startTs, interval) == null || startTs < coveredFromTs) {
+            return startTs;
+        }
+        if (ttl > 0 && startTs < now - TimeUnit.SECONDS.toMillis(ttl)) {
+            return startTs;
+        }
+        // the last partial interval is aggregated from the raw values
+        return startTs + (endTs - startTs) / interval * interval;
+    }
+
+    /*
+     * The intervals starting from the first not yet refreshed hour are aggregated from the raw values.
+     * */
+    static long excludeStale(long startTs, long rollupEndTs, long interval, Long firstStaleTs) {
+        if (firstStaleTs == null || firstStaleTs >= rollupEndTs) {
+            return rollupEndTs;
+        }
+        return startTs + Math.max(0, firstStaleTs - startTs) / interval * interval;
+    }
+
+    public List<TsKvEntity> findAllAndAggregate(UUID entityId, int key, long startTs, long rollupEndTs, long endTs, long interval, Aggregation aggregation) {
+        return rollupRepository.findAllAndAggregate(entityId, key, getRollupInterval(startTs, interval),
+                startTs, rollupEndTs, endTs, interval, aggregation);
+    }
+
+    static TsRollupInterval getRollupInterval(long startTs, long interval) {
+        if (isAligned(startTs, interval, TsRollupInterval.DAY)) {
+            return TsRollupInterval.DAY;
+        } else if (isAligned(startTs, interval, TsRollupInterval.HOUR)) {
+            return TsRollupInterval.HOUR;
+        } else {
+            return null;
+        }
+    }
+
+    private static boolean isAligned(long startTs, long interval, TsRollupInterval rollupInterval) {
+        return interval % rollupInterval.getDurationMs() == 0 && rollupInterval.truncate(startTs) == startTs;
+    }
+
+    private static TsRollupKey toHour(UUID entityId, int key, long ts) {
+        return new TsRollupKey(entityId, key, TsRollupInterval.HOUR.truncate(ts));
+    }
+
+    /*
+     * The values saved before the rollups were enabled are not marked as stale, so the rollups are complete
+     * only since the next day. The backfill marks the hours with values in the requested window once
+     * and moves the persisted coverage back, so the other nodes and the next restarts don't repeat it.
+     * */
+    private void initCoverage() {
+        try {
+            long persistedCoveredFromTs = transactionTemplate.execute(status -> {
+                rollupRepository.lock();
+                long now = System.currentTimeMillis();
+                Long savedTs = rollupRepository.findCoveredFromTs();
+                long coveredTs = savedTs != null ? savedTs : TsRollupInterval.DAY.truncate(now) + TsRollupInterval.DAY.getDurationMs();
+                if (backfillHours > 0) {
+                    long backfillStartTs = TsRollupInterval.DAY.truncate(now - TimeUnit.HOURS.toMillis(backfillHours));
+                    if (backfillStartTs < coveredTs) {
+                        int marked = rollupRepository.markStaleInRange(backfillStartTs, coveredTs);
+                        log.info("Marked {} hourly timeseries rollups for the backfill since {}", marked, backfillStartTs);
+                        coveredTs = backfillStartTs;
+                    }
+                }
+                if (savedTs == null || savedTs != coveredTs) {
+                    rollupRepository.saveCoveredFromTs(coveredTs);
+                }
+                return coveredTs;
+            });
+            coveredFromTs = startTs > 0 ? startTs : persistedCoveredFromTs;
+            ready = true;
+            log.info("Timeseries rollups are used for the aggregation queries since {}", coveredFromTs);
+        } catch (Exception e) {
+            log.error("Failed to init timeseries rollups, the aggregation queries are served from the raw values", e);
+        }
+    }
+
+    void refresh() {
+        int hours = 0;
+        try {
+            int refreshed;
+            do {
+                refreshed = transactionTemplate.execute(status -> refreshStaleHours());
+                hours += refreshed;
+            } while (refreshed >= batchSize);
+        } catch (Exception e) {
+            log.warn("Failed to refresh timeseries rollups, will retry", e);
+        }
+        if (hours > 0) {
+            log.debug("Refreshed {} hourly timeseries rollups", hours);
+        }
+    }
+
+    /*
+     * Only one node refreshes at a time, otherwise two nodes refreshing different hours of the same day
+     * could each recompute the day without the other's hour. Failed refresh keeps the hours stale.
+     * */
+    private int refreshStaleHours() {
+        if (!rollupRepository.tryLock()) {
+            return 0;
+        }
+        List<TsRollupKey> hours = rollupRepository.claimStaleHours(batchSize);
+        if (hours.isEmpty()) {
+            return 0;
+        }
+        Set<TsRollupKey> days = new TreeSet<>(KEY_COMPARATOR);
+        hours.forEach(h -> days.add(new TsRollupKey(h.getEntityId(), h.getKey(), TsRollupInterval.DAY.truncate(h.getTs()))));
+        rollupRepository.refreshHours(hours);
+        rollupRepository.refreshDays(new ArrayList<>(days));
+        rollupRepository.deleteStaleHours(hours);
+        return hours.size();
+    }
+
+}
@@ -0,0 +1,141 @@
+/**
+ * Copyright © 2016-2023 The Linkstuffs Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.dao.sqlts.ts;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.thingsboard.server.common.data.kv.Aggregation;
+import org.thingsboard.server.dao.model.sqlts.ts.TsKvEntity;
+import org.thingsboard.server.dao.util.SqlTsDao;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/*
+ * Computes all the intervals of an aggregation query with a single grouped query instead of one query per interval.
+ * Bucket number is calculated as (ts - startTs) / interval, so the buckets are aligned with the intervals
+ * produced by AbstractChunkedAggregationTimeseriesDao. Only non-empty buckets are returned.
+ * Queries are issued against the parent ts_kv table, so the date partitions are pruned by the 'ts' range condition.
+ * */
+@SqlTsDao
+@Repository
+public class TsKvAggregationRepository {
+
+    private static final String SELECT_BUCKET = "SELECT (ts - ?) / ? AS bucket, ";
+
+    private static final String FROM_WHERE_GROUP_BY = "FROM ts_kv WHERE entity_id = ? AND key = ? AND ts >= ? AND ts < ? " +
+            "GROUP BY bucket ORDER BY bucket";
+
+    private static final String FIND_AVG_OR_SUM_QUERY = SELECT_BUCKET +
+            "SUM(COALESCE(long_v, 0)) AS long_value, " +
+            "SUM(COALESCE(dbl_v, 0.0)) AS dbl_value, " +
+            "SUM(CASE WHEN long_v IS NULL THEN 0 ELSE 1 END) AS long_count, " +
+            "SUM(CASE WHEN dbl_v IS NULL THEN 0 ELSE 1 END) AS dbl_count, " +
+            "MAX(ts) AS max_ts " + FROM_WHERE_GROUP_BY;
+
+    private static final String FIND_MAX_QUERY = SELECT_BUCKET +
+            "MAX(COALESCE(long_v, -9223372036854775807)) AS long_value, " +
+            "MAX(COALESCE(dbl_v, -1.79769E+308)) AS dbl_value, " +
+            "SUM(CASE WHEN long_v IS NULL THEN 0 ELSE 1 END) AS long_count, " +
+            "SUM(CASE WHEN dbl_v IS NULL THEN 0 ELSE 1 END) AS dbl_count, " +
+            "MAX(str_v) AS str_value, " +
+            "MAX(ts) AS max_ts " + FROM_WHERE_GROUP_BY;
+
+    private static final String FIND_MIN_QUERY = SELECT_BUCKET +
+            "MIN(COALESCE(long_v, 9223372036854775807)) AS long_value, " +
+            "MIN(COALESCE(dbl_v, 1.79769E+308)) AS dbl_value, " +
+            "SUM(CASE WHEN long_v IS NULL THEN 0 ELSE 1 END) AS long_count, " +
+            "SUM(CASE WHEN dbl_v IS NULL THEN 0 ELSE 1 END) AS dbl_count, " +
+            "MIN(str_v) AS str_value, " +
+            "MAX(ts) AS max_ts " + FROM_WHERE_GROUP_BY;
+
+    private static final String FIND_COUNT_QUERY = SELECT_BUCKET +
+            "SUM(CASE WHEN bool_v IS NULL THEN 0 ELSE 1 END) AS bool_count, " +
+            "SUM(CASE WHEN str_v IS NULL THEN 0 ELSE 1 END) AS str_count, " +
+            "SUM(CASE WHEN long_v IS NULL THEN 0 ELSE 1 END) AS long_count, " +
+            "SUM(CASE WHEN dbl_v IS NULL THEN 0 ELSE 1 END) AS dbl_count, " +
+            "SUM(CASE WHEN json_v IS NULL THEN 0 ELSE 1 END) AS json_count, " +
+            "MAX(ts) AS max_ts " + FROM_WHERE_GROUP_BY;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    public List<TsKvEntity> findAllAndAggregate(UUID entityId, int entityKey, long startTs, long endTs, long interval, Aggregation aggregation) {
+        List<TsKvEntity> result = new ArrayList<>();
+        jdbcTemplate.query(getQuery(aggregation), rs -> {
+            TsKvEntity entity = toEntity(rs, aggregation);
+            if (entity.isNotEmpty()) {
+                entity.setEntityId(entityId);
+                entity.setKey(entityKey);
+                entity.setTs(getBucketTs(startTs, endTs, interval, rs.getLong("bucket")));
+                result.add(entity);
+            }
+        }, startTs, interval, entityId, entityKey, startTs, endTs);
+        return result;
+    }
+
+    public static long getBucketTs(long startTs, long endTs, long interval, long bucket) {
+        long bucketStartTs = startTs + bucket * interval;
+        long bucketEndTs = Math.min(bucketStartTs + interval, endTs);
+        return bucketStartTs + (bucketEndTs - bucketStartTs) / 2;
+    }
+
+    private static String getQuery(Aggregation aggregation) {
+        switch (aggregation) {
+            case AVG:
+            case SUM:
+                return FIND_AVG_OR_SUM_QUERY;
+            case MAX:
+                return FIND_MAX_QUERY;
+            case MIN:
+                return FIND_MIN_QUERY;
+            case COUNT:
+                return FIND_COUNT_QUERY;
+            default:
+                throw new IllegalArgumentException("Not supported aggregation type: " + aggregation);
+        }
+    }
+
+    public static TsKvEntity toEntity(ResultSet rs, Aggregation aggregation) throws SQLException {
+        Long maxTs = getLong(rs, "max_ts");
+        if (aggregation == Aggregation.COUNT) {
+            return new TsKvEntity(getLong(rs, "bool_count"), getLong(rs, "str_count"), getLong(rs, "long_count"),
+                    getLong(rs, "dbl_count"), getLong(rs, "json_count"), maxTs);
+        }
+        TsKvEntity entity = new TsKvEntity(getLong(rs, "long_value"), getDouble(rs, "dbl_value"),
+                getLong(rs, "long_count"), getLong(rs, "dbl_count"), aggregation.name(), maxTs);
+        if (!entity.isNotEmpty() && (aggregation == Aggregation.MAX || aggregation == Aggregation.MIN)) {
+            // the same fallback as in the chunked aggregation: no numeric values in the bucket, so use string min/max
+            entity = new TsKvEntity(rs.getString("str_value"), maxTs);
+        }
+        return entity;
+    }
+
+    private static Long getLong(ResultSet rs, String column) throws SQLException {
+        long value = rs.getLong(column);
+        return rs.wasNull() ? null : value;
+    }
+
+    private static Double getDouble(ResultSet rs, String column) throws SQLException {
+        double value = rs.getDouble(column);
+        return rs.wasNull() ? null : value;
+    }
+
+}
@@ -25,6 +25,7 @@ import org.checkerframework.checker.nullness.qual.Nullable;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.thingsboard.server.cache.TbCacheValueWrapper;
 import org.thingsboard.server.common.data.EntityType;
 import org.thingsboard.server.common.data.EntityView;
 import org.thingsboard.server.common.data.id.DeviceProfileId;
@@ -34,14 +35,18 @@ import org.thingsboard.server.common.data.id.TenantId;
 import org.thingsboard.server.common.data.kv.Aggregation;
 import org.thingsboard.server.common.data.kv.BaseDeleteTsKvQuery;
 import org.thingsboard.server.common.data.kv.BaseReadTsKvQuery;
+import org.thingsboard.server.common.data.kv.BasicTsKvEntry;
 import org.thingsboard.server.common.data.kv.DeleteTsKvQuery;
 import org.thingsboard.server.common.data.kv.ReadTsKvQuery;
 import org.thingsboard.server.common.data.kv.ReadTsKvQueryResult;
+import org.thingsboard.server.common.data.kv.StringDataEntry;
 import org.thingsboard.server.common.data.kv.TsKvEntry;
 import org.thingsboard.server.common.data.kv.TsKvLatestRemovingResult;
 import org.thingsboard.server.dao.entityview.EntityViewService;
 import org.thingsboard.server.dao.exception.IncorrectParameterException;
 import org.thingsboard.server.dao.service.Validator;
+import org.thingsboard.server.dao.timeseries.latest.TsLatestStore;
+import org.thingsboard.server.dao.timeseries.latest.TsLatestStoreOwnership;
 
 import java.util.Collection;
 import java.util.Collections;
@@ -89,6 +94,12 @@ public class BaseTimeseriesService implements TimeseriesService {
     @Autowired
     private EntityViewService entityViewService;
 
+    @Autowired(required = false)
+    private TsLatestStore tsLatestStore;
+
+    @Autowired(required = false)
+    private TsLatestStoreOwnership tsLatestStoreOwnership;
+
     @Override
     public ListenableFuture<List<ReadTsKvQueryResult>> findAllByQueries(TenantId tenantId, EntityId entityId, List<ReadTsKvQuery> queries) {
         validate(entityId);
@@ -120,6 +131,9 @@ public class BaseTimeseriesService implements TimeseriesService {
     @Override
     public ListenableFuture<Optional<TsKvEntry>> findLatest(TenantId tenantId, EntityId entityId, String key) {
         validate(entityId);
+        if (isLatestStored(tenantId, entityId)) {
+            return findStoredLatest(tenantId, entityId, key);
+        }
         return timeseriesLatestDao.findLatestOpt(tenantId, entityId, key);
     }
 
@@ -128,10 +142,32 @@ public class BaseTimeseriesService implements TimeseriesService {
         validate(entityId);
         List<ListenableFuture<TsKvEntry>> futures = Lists.newArrayListWithExpectedSize(keys.size());
         keys.forEach(key -> Validator.validateString(key, "Incorrect key " + key));
-        keys.forEach(key -> futures.add(timeseriesLatestDao.findLatest(tenantId, entityId, key)));
+        if (isLatestStored(tenantId, entityId)) {
+            keys.forEach(key -> futures.add(Futures.transform(findStoredLatest(tenantId, entityId, key),
+                    latest -> latest.orElseGet(() -> new BasicTsKvEntry(System.currentTimeMillis(), new StringDataEntry(key, null))),
+                    MoreExecutors.directExecutor())));
+        } else {
+            keys.forEach(key -> futures.add(timeseriesLatestDao.findLatest(tenantId, entityId, key)));
+        }
         return Futures.allAsList(futures);
     }
 
+    private ListenableFuture<Optional<TsKvEntry>> findStoredLatest(TenantId tenantId, EntityId entityId, String key) {
+        TbCacheValueWrapper<TsKvEntry> stored = tsLatestStore.get(entityId, key);
+        if (stored != null) {
+            return Futures.immediateFuture(Optional.ofNullable(stored.get()));
+        }
+        long modCount = tsLatestStore.getModCount(entityId, key);
+        return Futures.transform(timeseriesLatestDao.findLatestOpt(tenantId, entityId, key), latest -> {
+            tsLatestStore.putIfNotModified(entityId, key, latest.orElse(null), modCount);
+            return latest;
+        }, MoreExecutors.directExecutor());
+    }
+
+    private boolean isLatestStored(TenantId tenantId, EntityId entityId) {
+        return tsLatestStore != null && tsLatestStoreOwnership != null && tsLatestStoreOwnership.isLocal(tenantId, entityId);
+    }
+
     @Override
     public ListenableFuture<List<TsKvEntry>> findAllLatest(TenantId tenantId, EntityId entityId) {
         validate(entityId);
@@ -197,14 +233,36 @@ public class BaseTimeseriesService implements TimeseriesService {
             if (tsKvEntry == null) {
                 throw new IncorrectParameterException("Key value entry can't be null");
             }
-            futures.add(timeseriesLatestDao.saveLatest(tenantId, entityId, tsKvEntry));
+            futures.add(doSaveLatest(tenantId, entityId, tsKvEntry));
         }
         return Futures.allAsList(futures);
     }
 
+    private ListenableFuture<Void> doSaveLatest(TenantId tenantId, EntityId entityId, TsKvEntry tsKvEntry) {
+        ListenableFuture<Void> future = timeseriesLatestDao.saveLatest(tenantId, entityId, tsKvEntry);
+        if (!isLatestStored(tenantId, entityId)) {
+            return future;
+        }
+        return Futures.transform(future, v -> {
+            tsLatestStore.update(entityId, tsKvEntry);
+            return v;
+        }, MoreExecutors.directExecutor());
+    }
+
+    private ListenableFuture<TsKvLatestRemovingResult> doRemoveLatest(TenantId tenantId, EntityId entityId, DeleteTsKvQuery query) {
+        ListenableFuture<TsKvLatestRemovingResult> future = timeseriesLatestDao.removeLatest(tenantId, entityId, query);
+        if (!isLatestStored(tenantId, entityId)) {
+            return future;
+        }
+        return Futures.transform(future, result -> {
+            tsLatestStore.evict(entityId, query.getKey());
+            return result;
+        }, MoreExecutors.directExecutor());
+    }
+
     private void saveAndRegisterFutures(TenantId tenantId, List<ListenableFuture<Integer>> futures, EntityId entityId, TsKvEntry tsKvEntry, long ttl) {
         doSaveAndRegisterFuturesFor(tenantId, futures, entityId, tsKvEntry, ttl);
-        futures.add(Futures.transform(timeseriesLatestDao.saveLatest(tenantId, entityId, tsKvEntry), v -> 0, MoreExecutors.directExecutor()));
+        futures.add(Futures.transform(doSaveLatest(tenantId, entityId, tsKvEntry), v -> 0, MoreExecutors.directExecutor()));
     }
 
     private void saveWithoutLatestAndRegisterFutures(TenantId tenantId, List<ListenableFuture<Integer>> futures, EntityId entityId, TsKvEntry tsKvEntry, long ttl) {
@@ -255,7 +313,7 @@ public class BaseTimeseriesService implements TimeseriesService {
         List<ListenableFuture<TsKvLatestRemovingResult>> futures = Lists.newArrayListWithExpectedSize(keys.size());
         for (String key : keys) {
             DeleteTsKvQuery query = new BaseDeleteTsKvQuery(key, 0, System.currentTimeMillis(), false);
-            futures.add(timeseriesLatestDao.removeLatest(tenantId, entityId, query));
+            futures.add(doRemoveLatest(tenantId, entityId, query));
         }
         return Futures.allAsList(futures);
     }
@@ -275,7 +333,7 @@ public class BaseTimeseriesService implements TimeseriesService {
 
     private void deleteAndRegisterFutures(TenantId tenantId, List<ListenableFuture<TsKvLatestRemovingResult>> futures, EntityId entityId, DeleteTsKvQuery query) {
         futures.add(Futures.transform(timeseriesDao.remove(tenantId, entityId, query), v -> null, MoreExecutors.directExecutor()));
-        futures.add(timeseriesLatestDao.removeLatest(tenantId, entityId, query));
+        futures.add(doRemoveLatest(tenantId, entityId, query));
     }
 
     private static void validate(EntityId entityId) {
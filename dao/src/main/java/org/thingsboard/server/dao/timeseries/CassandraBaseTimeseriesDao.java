@@ -28,6 +28,7 @@ import com.google.common.util.concurrent.FutureCallback;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.MoreExecutors;
+import io.micrometer.core.instrument.Timer;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -46,6 +47,7 @@ import org.thingsboard.server.common.data.kv.ReadTsKvQuery;
 import org.thingsboard.server.common.data.kv.ReadTsKvQueryResult;
 import org.thingsboard.server.common.data.kv.TsKvEntry;
 import org.thingsboard.server.common.data.kv.TsKvEntryAggWrapper;
+import org.thingsboard.server.common.stats.StatsFactory;
 import org.thingsboard.server.dao.model.ModelConstants;
 import org.thingsboard.server.dao.nosql.TbResultSet;
 import org.thingsboard.server.dao.nosql.TbResultSetFuture;
@@ -89,6 +91,9 @@ public class CassandraBaseTimeseriesDao extends AbstractCassandraBaseTimeseriesD
     @Autowired
     private Environment environment;
 
+    @Autowired
+    private StatsFactory statsFactory;
+
     @Getter
     @Value("${cassandra.query.ts_key_value_partitioning}")
     private String partitioning;
@@ -100,6 +105,9 @@ public class CassandraBaseTimeseriesDao extends AbstractCassandraBaseTimeseriesD
     @Value("${cassandra.query.ts_key_value_partitions_max_cache_size:100000}")
     private long partitionsCacheSize;
 
+    @Value("${cassandra.query.ts_key_value_partitions_read_fan_out:4}")
+    private int partitionsReadFanOut;
+
     @Value("${cassandra.query.ts_key_value_ttl}")
     private long systemTtl;
 
@@ -117,6 +125,9 @@ public class CassandraBaseTimeseriesDao extends AbstractCassandraBaseTimeseriesD
     private PreparedStatement deleteStmt;
     private final Lock stmtCreationLock = new ReentrantLock();
 
+    private Timer readLatencyTimer;
+    private Timer aggregatedReadLatencyTimer;
+
     private boolean isInstall() {
         return environment.acceptsProfiles(Profiles.of("install"));
     }
@@ -124,6 +135,8 @@ public class CassandraBaseTimeseriesDao extends AbstractCassandraBaseTimeseriesD
     @PostConstruct
     public void init() {
         super.startExecutor();
+        readLatencyTimer = statsFactory.createTimer("cassandra.ts.readLatency", "aggregation", Aggregation.NONE.name());
+        aggregatedReadLatencyTimer = statsFactory.createTimer("cassandra.ts.readLatency", "aggregation", "ANY");
         if (!isInstall()) {
             getFetchStmt(Aggregation.NONE, DESC_ORDER);
         }
@@ -227,44 +240,75 @@ public class CassandraBaseTimeseriesDao extends AbstractCassandraBaseTimeseriesD
 
     @Override
     public ListenableFuture<ReadTsKvQueryResult> findAllAsync(TenantId tenantId, EntityId entityId, ReadTsKvQuery query) {
+        long startTime = System.nanoTime();
+        ListenableFuture<ReadTsKvQueryResult> result;
+        Timer timer;
         if (query.getAggregation() == Aggregation.NONE) {
-            return findAllAsyncWithLimit(tenantId, entityId, query);
+            result = findAllAsyncWithLimit(tenantId, entityId, query);
+            timer = readLatencyTimer;
         } else {
+            result = findAllAndAggregateAsync(tenantId, entityId, query);
+            timer = aggregatedReadLatencyTimer;
+        }
+        result.addListener(() -> timer.record(System.nanoTime() - startTime, TimeUnit.NANOSECONDS), MoreExecutors.directExecutor());
+        return result;
+    }
+
+    private ListenableFuture<ReadTsKvQueryResult> findAllAndAggregateAsync(TenantId tenantId, EntityId entityId, ReadTsKvQuery query) {
+        long endPeriod = Math.max(query.getStartTs() + 1, query.getEndTs());
+        long step = Math.max(query.getInterval(), MIN_AGGREGATION_STEP_MS);
+        // The existing partitions are fetched once for the whole range and every interval reads only the partitions it overlaps
+        ListenableFuture<List<Long>> partitionsListFuture = getPartitionsFuture(tenantId, query, entityId, toPartitionTs(query.getStartTs()), toPartitionTs(endPeriod));
+        ListenableFuture<List<Optional<TsKvEntryAggWrapper>>> future = Futures.transformAsync(partitionsListFuture, partitions -> {
             long startPeriod = query.getStartTs();
-            long endPeriod = Math.max(query.getStartTs() + 1, query.getEndTs());
-            long step = Math.max(query.getInterval(), MIN_AGGREGATION_STEP_MS);
             List<ListenableFuture<Optional<TsKvEntryAggWrapper>>> futures = new ArrayList<>();
             while (startPeriod < endPeriod) {
                 long startTs = startPeriod;
                 long endTs = Math.min(startPeriod + step, endPeriod);
                 long ts = endTs - startTs;
                 ReadTsKvQuery subQuery = new BaseReadTsKvQuery(query.getKey(), startTs, endTs, ts, 1, query.getAggregation(), query.getOrder());
-                futures.add(findAndAggregateAsync(tenantId, entityId, subQuery, toPartitionTs(startTs), toPartitionTs(endTs)));
+                List<Long> subQueryPartitions = prunePartitions(partitions, toPartitionTs(startTs), toPartitionTs(endTs));
+                if (subQueryPartitions.isEmpty()) {
+                    futures.add(Futures.immediateFuture(Optional.empty()));
+                } else {
+                    futures.add(findAndAggregateAsync(tenantId, entityId, subQuery, subQueryPartitions));
+                }
                 startPeriod = endTs;
             }
-            ListenableFuture<List<Optional<TsKvEntryAggWrapper>>> future = Futures.allAsList(futures);
-            return Futures.transform(future, new Function<>() {
-                @Nullable
-                @Override
-                public ReadTsKvQueryResult apply(@Nullable List<Optional<TsKvEntryAggWrapper>> input) {
-                    if (input == null) {
-                        return new ReadTsKvQueryResult(query.getId(), Collections.emptyList(), query.getStartTs());
-                    } else {
-                        long maxTs = query.getStartTs();
-                        List<TsKvEntry> data = new ArrayList<>();
-                        for (var opt : input) {
-                            if (opt.isPresent()) {
-                                TsKvEntryAggWrapper tsKvEntryAggWrapper = opt.get();
-                                maxTs = Math.max(maxTs, tsKvEntryAggWrapper.getLastEntryTs());
-                                data.add(tsKvEntryAggWrapper.getEntry());
-                            }
+            return Futures.allAsList(futures);
+        }, readResultsProcessingExecutor);
+        return Futures.transform(future, new Function<>() {
+            @Nullable
+            @Override
+            public ReadTsKvQueryResult apply(@Nullable List<Optional<TsKvEntryAggWrapper>> input) {
+                if (input == null) {
+                    return new ReadTsKvQueryResult(query.getId(), Collections.emptyList(), query.getStartTs());
+                } else {
+                    long maxTs = query.getStartTs();
+                    List<TsKvEntry> data = new ArrayList<>();
+                    for (var opt : input) {
+                        if (opt.isPresent()) {
+                            TsKvEntryAggWrapper tsKvEntryAggWrapper = opt.get();
+                            maxTs = Math.max(maxTs, tsKvEntryAggWrapper.getLastEntryTs());
+                            data.add(tsKvEntryAggWrapper.getEntry());
                         }
-                        return new ReadTsKvQueryResult(query.getId(), data, maxTs);
                     }
-
+                    return new ReadTsKvQueryResult(query.getId(), data, maxTs);
                 }
-            }, readResultsProcessingExecutor);
-        }
+
+            }
+        }, readResultsProcessingExecutor);
+    }
+
+    /**
+     * Returns the partitions within [minPartition, maxPartition] from the ascending list of partitions.
+     */
+    static List<Long> prunePartitions(List<Long> partitions, long minPartition, long maxPartition) {
+        int from = Collections.binarySearch(partitions, minPartition);
+        from = from >= 0 ? from : -from - 1;
+        int to = Collections.binarySearch(partitions, maxPartition);
+        to = to >= 0 ? to + 1 : -to - 1;
+        return from < to ? partitions.subList(from, to) : Collections.emptyList();
     }
 
     @Override
@@ -282,12 +326,13 @@ public class CassandraBaseTimeseriesDao extends AbstractCassandraBaseTimeseriesD
             @Override
             public void onSuccess(@Nullable List<Long> partitions) {
                 TsKvQueryCursor cursor = new TsKvQueryCursor(entityId.getEntityType().name(), entityId.getId(), query, partitions);
-                findAllAsyncSequentiallyWithLimit(tenantId, cursor, resultFuture);
+                findAllAsyncWithLimit(tenantId, cursor, 1, resultFuture);
             }
 
             @Override
             public void onFailure(Throwable t) {
                 log.error("[{}][{}] Failed to fetch partitions for interval {}-{}", entityId.getEntityType().name(), entityId.getId(), toPartitionTs(query.getStartTs()), toPartitionTs(query.getEndTs()), t);
+                resultFuture.setException(t);
             }
         }, readResultsProcessingExecutor);
 
@@ -305,65 +350,68 @@ public class CassandraBaseTimeseriesDao extends AbstractCassandraBaseTimeseriesD
         return tsFormat.truncatedTo(time).toInstant(ZoneOffset.UTC).toEpochMilli();
     }
 
-    private void findAllAsyncSequentiallyWithLimit(TenantId tenantId, final TsKvQueryCursor cursor, final SimpleListenableFuture<List<TsKvEntry>> resultFuture) {
+    /**
+     * Reads the partitions in the cursor order by windows of concurrent queries. The window starts with a single partition,
+     * so the queries satisfied by the first partition do not read more, and doubles up to the configured fan-out
+     * while the limit is not reached. Results of the window are added to the cursor in the partitions order.
+     */
+    private void findAllAsyncWithLimit(TenantId tenantId, final TsKvQueryCursor cursor, int window, final SimpleListenableFuture<List<TsKvEntry>> resultFuture) {
         if (cursor.isFull() || !cursor.hasNextPartition()) {
             resultFuture.set(cursor.getData());
         } else {
-            PreparedStatement proto = getFetchStmt(Aggregation.NONE, cursor.getOrderBy());
-            BoundStatementBuilder stmtBuilder = new BoundStatementBuilder(proto.bind());
-
-            stmtBuilder.setString(0, cursor.getEntityType());
-            stmtBuilder.setUuid(1, cursor.getEntityId());
-            stmtBuilder.setString(2, cursor.getKey());
-            stmtBuilder.setLong(3, cursor.getNextPartition());
-            stmtBuilder.setLong(4, cursor.getStartTs());
-            stmtBuilder.setLong(5, cursor.getEndTs());
-            stmtBuilder.setInt(6, cursor.getCurrentLimit());
-
-            BoundStatement stmt = stmtBuilder.build();
-
-            Futures.addCallback(executeAsyncRead(tenantId, stmt), new FutureCallback<TbResultSet>() {
+            int limit = cursor.getCurrentLimit();
+            List<ListenableFuture<List<TsKvEntry>>> futures = new ArrayList<>(window);
+            while (futures.size() < window && cursor.hasNextPartition()) {
+                futures.add(findAllAsyncWithLimit(tenantId, cursor, cursor.getNextPartition(), limit));
+            }
+            Futures.addCallback(Futures.allAsList(futures), new FutureCallback<>() {
                 @Override
-                public void onSuccess(@Nullable TbResultSet result) {
-                    if (result == null) {
-                        cursor.addData(convertResultToTsKvEntryList(Collections.emptyList()));
-                        findAllAsyncSequentiallyWithLimit(tenantId, cursor, resultFuture);
-                    } else {
-                        Futures.addCallback(result.allRows(readResultsProcessingExecutor), new FutureCallback<List<Row>>() {
-
-                            @Override
-                            public void onSuccess(@Nullable List<Row> result) {
-                                cursor.addData(convertResultToTsKvEntryList(result == null ? Collections.emptyList() : result));
-                                findAllAsyncSequentiallyWithLimit(tenantId, cursor, resultFuture);
-                            }
-
-                            @Override
-                            public void onFailure(Throwable t) {
-                                log.error("[{}][{}] Failed to fetch data for query {}-{}", stmt, t);
-                            }
-                        }, readResultsProcessingExecutor);
-
-
+                public void onSuccess(@Nullable List<List<TsKvEntry>> result) {
+                    if (result != null) {
+                        for (List<TsKvEntry> partitionData : result) {
+                            cursor.addData(partitionData);
+                        }
                     }
+                    findAllAsyncWithLimit(tenantId, cursor, Math.min(window * 2, Math.max(partitionsReadFanOut, 1)), resultFuture);
                 }
 
                 @Override
                 public void onFailure(Throwable t) {
-                    log.error("[{}][{}] Failed to fetch data for query {}-{}", stmt, t);
+                    log.error("[{}][{}] Failed to fetch data for key {}", cursor.getEntityType(), cursor.getEntityId(), cursor.getKey(), t);
+                    resultFuture.setException(t);
                 }
             }, readResultsProcessingExecutor);
         }
     }
 
-    private ListenableFuture<Optional<TsKvEntryAggWrapper>> findAndAggregateAsync(TenantId tenantId, EntityId entityId, ReadTsKvQuery query, long minPartition, long maxPartition) {
+    private ListenableFuture<List<TsKvEntry>> findAllAsyncWithLimit(TenantId tenantId, TsKvQueryCursor cursor, long partition, int limit) {
+        PreparedStatement proto = getFetchStmt(Aggregation.NONE, cursor.getOrderBy());
+        BoundStatementBuilder stmtBuilder = new BoundStatementBuilder(proto.bind());
+
+        stmtBuilder.setString(0, cursor.getEntityType());
+        stmtBuilder.setUuid(1, cursor.getEntityId());
+        stmtBuilder.setString(2, cursor.getKey());
+        stmtBuilder.setLong(3, partition);
+        stmtBuilder.setLong(4, cursor.getStartTs());
+        stmtBuilder.setLong(5, cursor.getEndTs());
+        stmtBuilder.setInt(6, limit);
+
+        BoundStatement stmt = stmtBuilder.build();
+        return getFutureAsync(executeAsyncRead(tenantId, stmt), rs -> {
+            if (rs == null) {
+                return Futures.immediateFuture(Collections.emptyList());
+            }
+            return Futures.transform(rs.allRows(readResultsProcessingExecutor), this::convertResultToTsKvEntryList, MoreExecutors.directExecutor());
+        });
+    }
+
+    private ListenableFuture<Optional<TsKvEntryAggWrapper>> findAndAggregateAsync(TenantId tenantId, EntityId entityId, ReadTsKvQuery query, List<Long> partitions) {
         final Aggregation aggregation = query.getAggregation();
         final String key = query.getKey();
         final long startTs = query.getStartTs();
         final long endTs = query.getEndTs();
         final long ts = startTs + (endTs - startTs) / 2;
-        ListenableFuture<List<Long>> partitionsListFuture = getPartitionsFuture(tenantId, query, entityId, minPartition, maxPartition);
-        ListenableFuture<List<TbResultSet>> aggregationChunks = Futures.transformAsync(partitionsListFuture,
-                getFetchChunksAsyncFunction(tenantId, entityId, key, aggregation, startTs, endTs), readResultsProcessingExecutor);
+        ListenableFuture<List<TbResultSet>> aggregationChunks = fetchChunksAsync(tenantId, entityId, key, aggregation, startTs, endTs, partitions);
 
         return Futures.transformAsync(aggregationChunks, new AggregatePartitionsFunction(aggregation, key, ts, readResultsProcessingExecutor), readResultsProcessingExecutor);
     }
@@ -411,30 +459,28 @@ public class CassandraBaseTimeseriesDao extends AbstractCassandraBaseTimeseriesD
         return time.plus(1, tsFormat.getTruncateUnit());
     }
 
-    private AsyncFunction<List<Long>, List<TbResultSet>> getFetchChunksAsyncFunction(TenantId tenantId, EntityId entityId, String key, Aggregation aggregation, long startTs, long endTs) {
-        return partitions -> {
-            try {
-                PreparedStatement proto = getFetchStmt(aggregation, DESC_ORDER);
-                List<TbResultSetFuture> futures = new ArrayList<>(partitions.size());
-                for (Long partition : partitions) {
-                    log.trace("Fetching data for partition [{}] for entityType {} and entityId {}", partition, entityId.getEntityType(), entityId.getId());
-                    BoundStatementBuilder stmtBuilder = new BoundStatementBuilder(proto.bind());
-                    stmtBuilder.setString(0, entityId.getEntityType().name());
-                    stmtBuilder.setUuid(1, entityId.getId());
-                    stmtBuilder.setString(2, key);
-                    stmtBuilder.setLong(3, partition);
-                    stmtBuilder.setLong(4, startTs);
-                    stmtBuilder.setLong(5, endTs);
-                    BoundStatement stmt = stmtBuilder.build();
-                    log.debug(GENERATED_QUERY_FOR_ENTITY_TYPE_AND_ENTITY_ID, stmt, entityId.getEntityType(), entityId.getId());
-                    futures.add(executeAsyncRead(tenantId, stmt));
-                }
-                return Futures.allAsList(futures);
-            } catch (Throwable e) {
-                log.error("Failed to fetch data", e);
-                throw e;
+    private ListenableFuture<List<TbResultSet>> fetchChunksAsync(TenantId tenantId, EntityId entityId, String key, Aggregation aggregation, long startTs, long endTs, List<Long> partitions) {
+        try {
+            PreparedStatement proto = getFetchStmt(aggregation, DESC_ORDER);
+            List<TbResultSetFuture> futures = new ArrayList<>(partitions.size());
+            for (Long partition : partitions) {
+                log.trace("Fetching data for partition [{}] for entityType {} and entityId {}", partition, entityId.getEntityType(), entityId.getId());
+                BoundStatementBuilder stmtBuilder = new BoundStatementBuilder(proto.bind());
+                stmtBuilder.setString(0, entityId.getEntityType().name());
+                stmtBuilder.setUuid(1, entityId.getId());
+                stmtBuilder.setString(2, key);
+                stmtBuilder.setLong(3, partition);
+                stmtBuilder.setLong(4, startTs);
+                stmtBuilder.setLong(5, endTs);
+                BoundStatement stmt = stmtBuilder.build();
+                log.debug(GENERATED_QUERY_FOR_ENTITY_TYPE_AND_ENTITY_ID, stmt, entityId.getEntityType(), entityId.getId());
+                futures.add(executeAsyncRead(tenantId, stmt));
             }
-        };
+            return Futures.allAsList(futures);
+        } catch (Throwable e) {
+            log.error("Failed to fetch data", e);
+            return Futures.immediateFailedFuture(e);
+        }
     }
 
     private boolean isFixedPartitioning() {
@@ -0,0 +1,36 @@
+/**
+ * Copyright © 2016-2023 The Linkstuffs Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.dao.timeseries;
+
+import java.util.Optional;
+
+public enum TsInsertMode {
+    UPSERT,
+    COPY;
+
+    public static Optional<TsInsertMode> parse(String name) {
+        TsInsertMode insertMode = null;
+        if (name != null) {
+            for (TsInsertMode mode : TsInsertMode.values()) {
+                if (mode.name().equalsIgnoreCase(name)) {
+                    insertMode = mode;
+                    break;
+                }
+            }
+        }
+        return Optional.ofNullable(insertMode);
+    }
+}
@@ -71,6 +71,9 @@ public class TsKvQueryCursor extends QueryCursor {
     }
 
     public void addData(List<TsKvEntry> newData) {
+        if (newData.size() > currentLimit) {
+            newData = newData.subList(0, Math.max(currentLimit, 0));
+        }
         currentLimit -= newData.size();
         data.addAll(newData);
     }
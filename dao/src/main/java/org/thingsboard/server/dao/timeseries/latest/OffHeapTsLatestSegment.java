@@ -0,0 +1,256 @@
+/**
+ * Copyright © 2016-2023 The Linkstuffs Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.dao.timeseries.latest;
+
+import java.nio.ByteBuffer;
+
+/*
+ * Fixed size hash table kept in direct buffers, so the stored values don't add up to the heap and GC work.
+ * The index is an open addressing table of record offsets and the records (entity id, key and value)
+ * are appended to the data buffer. A value of the same size is overwritten in place, otherwise the old record
+ * is marked as dead and reclaimed by the compaction when the data buffer is full.
+ * Not thread safe, the access is synchronized by TsLatestStore.
+ * */
+class OffHeapTsLatestSegment {
+
+    private static final int EMPTY = 0;
+    private static final int DELETED = -1;
+    // record length, entity id msb and lsb, key length
+    private static final int HEADER_SIZE = 4 + 8 + 8 + 2;
+    private static final int COPY_BUFFER_SIZE = 4096;
+
+    private final ByteBuffer index;
+    private final ByteBuffer data;
+    private final ByteBuffer view;
+    private final int slots;
+    private final int maxEntries;
+    private int size;
+    private int deleted;
+    private int writePos;
+    private long modCount;
+
+    OffHeapTsLatestSegment(int maxEntries, int capacity) {
+        this.maxEntries = maxEntries;
+        // more than a third of the slots is always empty, which keeps the probe sequences short
+        this.slots = Integer.highestOneBit(maxEntries + maxEntries / 2) << 1;
+        this.index = ByteBuffer.allocateDirect(slots * Integer.BYTES);
+        this.data = ByteBuffer.allocateDirect(capacity);
+        this.view = data.duplicate();
+    }
+
+    static int hash(long msb, long lsb, byte[] key) {
+        long h = msb * 31 + lsb;
+        for (byte b : key) {
+            h = h * 31 + b;
+        }
+        h ^= (h >>> 33);
+        h *= 0xff51afd7ed558ccdL;
+        h ^= (h >>> 33);
+        return (int) h;
+    }
+
+    byte[] get(int hash, long msb, long lsb, byte[] key) {
+        int slot = findSlot(hash, msb, lsb, key);
+        if (slot < 0) {
+            return null;
+        }
+        int offset = index.getInt(slot * Integer.BYTES) - 1;
+        int valueOffset = offset + HEADER_SIZE + key.length;
+        byte[] value = new byte[data.getInt(offset) - HEADER_SIZE - key.length];
+        read(valueOffset, value, 0, value.length);
+        return value;
+    }
+
+    /**
+     * Returns false if the value doesn't fit into the segment, the previous value of the key is removed in this case.
+     */
+    boolean put(int hash, long msb, long lsb, byte[] key, byte[] value) {
+        modCount++;
+        int recordSize = HEADER_SIZE + key.length + value.length;
+        int slot = findSlot(hash, msb, lsb, key);
+        if (slot >= 0) {
+            int offset = index.getInt(slot * Integer.BYTES) - 1;
+            if (data.getInt(offset) == recordSize) {
+                write(offset + HEADER_SIZE + key.length, value, 0, value.length);
+                return true;
+            }
+            removeSlot(slot);
+        }
+        if (size >= maxEntries || recordSize > data.capacity()) {
+            return false;
+        }
+        if (size + deleted >= maxEntries || writePos + recordSize > data.capacity()) {
+            compact();
+            if (writePos + recordSize > data.capacity()) {
+                return false;
+            }
+        }
+        slot = -findSlot(hash, msb, lsb, key) - 1;
+        int offset = writePos;
+        data.putInt(offset, recordSize);
+        data.putLong(offset + 4, msb);
+        data.putLong(offset + 12, lsb);
+        data.putShort(offset + 20, (short) key.length);
+        write(offset + HEADER_SIZE, key, 0, key.length);
+        write(offset + HEADER_SIZE + key.length, value, 0, value.length);
+        writePos += recordSize;
+        index.putInt(slot * Integer.BYTES, offset + 1);
+        size++;
+        return true;
+    }
+
+    boolean remove(int hash, long msb, long lsb, byte[] key) {
+        modCount++;
+        int slot = findSlot(hash, msb, lsb, key);
+        if (slot >= 0) {
+            removeSlot(slot);
+            return true;
+        }
+        return false;
+    }
+
+    void clear() {
+        modCount++;
+        for (int i = 0; i < slots; i++) {
+            index.putInt(i * Integer.BYTES, EMPTY);
+        }
+        size = 0;
+        deleted = 0;
+        writePos = 0;
+    }
+
+    /**
+     * Incremented on every modification, so a value loaded from the database is not put
+     * to the segment if the key may have been changed during the load.
+     */
+    long getModCount() {
+        return modCount;
+    }
+
+    void markModified() {
+        modCount++;
+    }
+
+    int size() {
+        return size;
+    }
+
+    int usedBytes() {
+        return writePos;
+    }
+
+    long capacityBytes() {
+        return (long) data.capacity() + index.capacity();
+    }
+
+    /*
+     * Returns the slot of the key, or -(free slot) - 1 if the key is not present.
+     * There is always an empty slot since size + deleted never exceeds maxEntries, which is below the slots count.
+     * */
+    private int findSlot(int hash, long msb, long lsb, byte[] key) {
+        int mask = slots - 1;
+        int slot = hash & mask;
+        int firstDeleted = -1;
+        while (true) {
+            int ref = index.getInt(slot * Integer.BYTES);
+            if (ref == EMPTY) {
+                return -(firstDeleted >= 0 ? firstDeleted : slot) - 1;
+            } else if (ref == DELETED) {
+                if (firstDeleted < 0) {
+                    firstDeleted = slot;
+                }
+            } else if (matches(ref - 1, msb, lsb, key)) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    private boolean matches(int offset, long msb, long lsb, byte[] key) {
+        if (data.getLong(offset + 4) != msb || data.getLong(offset + 12) != lsb || data.getShort(offset + 20) != key.length) {
+            return false;
+        }
+        int keyOffset = offset + HEADER_SIZE;
+        for (int i = 0; i < key.length; i++) {
+            if (data.get(keyOffset + i) != key[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void removeSlot(int slot) {
+        int offset = index.getInt(slot * Integer.BYTES) - 1;
+        // negative length marks the record as dead for the compaction
+        data.putInt(offset, -data.getInt(offset));
+        index.putInt(slot * Integer.BYTES, DELETED);
+        size--;
+        deleted++;
+    }
+
+    /*
+     * Moves the live records to the beginning of the data buffer and rebuilds the index, dropping the deleted slots.
+     * */
+    private void compact() {
+        for (int i = 0; i < slots; i++) {
+            index.putInt(i * Integer.BYTES, EMPTY);
+        }
+        deleted = 0;
+        byte[] buffer = new byte[COPY_BUFFER_SIZE];
+        int readPos = 0;
+        int newWritePos = 0;
+        while (readPos < writePos) {
+            int recordSize = data.getInt(readPos);
+            if (recordSize < 0) {
+                readPos -= recordSize;
+                continue;
+            }
+            move(readPos, newWritePos, recordSize, buffer);
+            byte[] key = new byte[data.getShort(newWritePos + 20)];
+            read(newWritePos + HEADER_SIZE, key, 0, key.length);
+            long msb = data.getLong(newWritePos + 4);
+            long lsb = data.getLong(newWritePos + 12);
+            int slot = -findSlot(hash(msb, lsb, key), msb, lsb, key) - 1;
+            index.putInt(slot * Integer.BYTES, newWritePos + 1);
+            readPos += recordSize;
+            newWritePos += recordSize;
+        }
+        writePos = newWritePos;
+    }
+
+    // the destination is never after the source, so copying chunks from the start never overwrites unread bytes
+    private void move(int src, int dst, int length, byte[] buffer) {
+        if (src == dst) {
+            return;
+        }
+        for (int done = 0; done < length; done += buffer.length) {
+            int chunk = Math.min(buffer.length, length - done);
+            read(src + done, buffer, 0, chunk);
+            write(dst + done, buffer, 0, chunk);
+        }
+    }
+
+    private void read(int position, byte[] dst, int offset, int length) {
+        view.clear().position(position);
+        view.get(dst, offset, length);
+    }
+
+    private void write(int position, byte[] src, int offset, int length) {
+        view.clear().position(position);
+        view.put(src, offset, length);
+    }
+
+}
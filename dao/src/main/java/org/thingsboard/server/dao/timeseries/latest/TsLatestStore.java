@@ -0,0 +1,293 @@
+/**
+ * Copyright © 2016-2023 The Linkstuffs Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.dao.timeseries.latest;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import org.thingsboard.server.cache.SimpleTbCacheValueWrapper;
+import org.thingsboard.server.cache.TbCacheValueWrapper;
+import org.thingsboard.server.common.data.id.EntityId;
+import org.thingsboard.server.common.data.kv.BasicTsKvEntry;
+import org.thingsboard.server.common.data.kv.BooleanDataEntry;
+import org.thingsboard.server.common.data.kv.DoubleDataEntry;
+import org.thingsboard.server.common.data.kv.JsonDataEntry;
+import org.thingsboard.server.common.data.kv.KvEntry;
+import org.thingsboard.server.common.data.kv.LongDataEntry;
+import org.thingsboard.server.common.data.kv.StringDataEntry;
+import org.thingsboard.server.common.data.kv.TsKvEntry;
+import org.thingsboard.server.common.stats.DefaultCounter;
+import org.thingsboard.server.common.stats.StatsFactory;
+
+import javax.annotation.PostConstruct;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-process store of the latest timeseries values kept off-heap in fixed size segments.
+ * A key is either stored with its value, stored as absent (no latest value in the database) or not stored at all.
+ */
+@Service
+@ConditionalOnProperty(prefix = "cache.ts_latest", value = "enabled", havingValue = "true")
+@Slf4j
+public class TsLatestStore {
+
+    private static final String STATS_NAME = "tsLatest.store";
+    private static final int SEGMENTS = 64;
+
+    private static final byte ABSENT = 0;
+    private static final byte BOOLEAN = 1;
+    private static final byte LONG = 2;
+    private static final byte DOUBLE = 3;
+    private static final byte STRING = 4;
+    private static final byte JSON = 5;
+
+    @Value("${cache.ts_latest.max_entries:1000000}")
+    private int maxEntries;
+
+    @Value("${cache.ts_latest.max_memory_mb:256}")
+    private int maxMemoryMb;
+
+    private final StatsFactory statsFactory;
+    private final OffHeapTsLatestSegment[] segments = new OffHeapTsLatestSegment[SEGMENTS];
+    private final AtomicLong entries = new AtomicLong();
+    private final AtomicLong usedBytes = new AtomicLong();
+    private final AtomicLong capacityBytes = new AtomicLong();
+    private DefaultCounter hitCounter;
+    private DefaultCounter missCounter;
+    private DefaultCounter rejectedCounter;
+
+    public TsLatestStore(StatsFactory statsFactory) {
+        this.statsFactory = statsFactory;
+    }
+
+    @PostConstruct
+    public void init() {
+        int segmentEntries = Math.max(1, maxEntries / SEGMENTS);
+        int segmentCapacity = (int) Math.min(Integer.MAX_VALUE, (long) maxMemoryMb * 1024 * 1024 / SEGMENTS);
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new OffHeapTsLatestSegment(segmentEntries, segmentCapacity);
+            capacityBytes.addAndGet(segments[i].capacityBytes());
+        }
+        hitCounter = statsFactory.createDefaultCounter(STATS_NAME, "result", "hit");
+        missCounter = statsFactory.createDefaultCounter(STATS_NAME, "result", "miss");
+        rejectedCounter = statsFactory.createDefaultCounter(STATS_NAME, "result", "rejected");
+        statsFactory.createGauge(STATS_NAME + ".entries", entries);
+        statsFactory.createGauge(STATS_NAME + ".usedBytes", usedBytes);
+        statsFactory.createGauge(STATS_NAME + ".capacityBytes", capacityBytes);
+        log.info("Initialized off-heap latest timeseries store: {} entries, {} bytes", (long) segmentEntries * SEGMENTS, capacityBytes.get());
+    }
+
+    /**
+     * Returns null if the key is not stored, or the wrapped latest value which is null if the key has no latest value.
+     */
+    public TbCacheValueWrapper<TsKvEntry> get(EntityId entityId, String key) {
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        long msb = entityId.getId().getMostSignificantBits();
+        long lsb = entityId.getId().getLeastSignificantBits();
+        int hash = OffHeapTsLatestSegment.hash(msb, lsb, keyBytes);
+        OffHeapTsLatestSegment segment = segment(hash);
+        byte[] value;
+        synchronized (segment) {
+            value = segment.get(hash, msb, lsb, keyBytes);
+        }
+        if (value == null) {
+            missCounter.increment();
+            return null;
+        }
+        hitCounter.increment();
+        return SimpleTbCacheValueWrapper.wrap(decode(key, value));
+    }
+
+    public long getModCount(EntityId entityId, String key) {
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        OffHeapTsLatestSegment segment = segment(hash(entityId, keyBytes));
+        synchronized (segment) {
+            return segment.getModCount();
+        }
+    }
+
+    /**
+     * Puts the value loaded from the database (or null if there is no latest value) unless the segment
+     * was modified after the modCount was taken, since the loaded value may be outdated already.
+     */
+    public void putIfNotModified(EntityId entityId, String key, TsKvEntry latest, long modCount) {
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        byte[] value = latest != null ? encode(latest) : new byte[]{0, 0, 0, 0, 0, 0, 0, 0, ABSENT};
+        if (value == null) {
+            return;
+        }
+        long msb = entityId.getId().getMostSignificantBits();
+        long lsb = entityId.getId().getLeastSignificantBits();
+        int hash = OffHeapTsLatestSegment.hash(msb, lsb, keyBytes);
+        OffHeapTsLatestSegment segment = segment(hash);
+        synchronized (segment) {
+            if (segment.getModCount() == modCount) {
+                doPut(segment, hash, msb, lsb, keyBytes, value);
+            }
+        }
+    }
+
+    /**
+     * Updates the stored key with the saved value if it is not older than the stored one.
+     * The key that is not stored is only marked as modified, it is loaded from the database on the next read.
+     */
+    public void update(EntityId entityId, TsKvEntry tsKvEntry) {
+        byte[] keyBytes = tsKvEntry.getKey().getBytes(StandardCharsets.UTF_8);
+        byte[] value = encode(tsKvEntry);
+        long msb = entityId.getId().getMostSignificantBits();
+        long lsb = entityId.getId().getLeastSignificantBits();
+        int hash = OffHeapTsLatestSegment.hash(msb, lsb, keyBytes);
+        OffHeapTsLatestSegment segment = segment(hash);
+        synchronized (segment) {
+            byte[] stored = segment.get(hash, msb, lsb, keyBytes);
+            if (stored == null) {
+                segment.markModified();
+            } else if (value == null) {
+                doRemove(segment, hash, msb, lsb, keyBytes);
+            } else if (stored[Long.BYTES] == ABSENT || ByteBuffer.wrap(stored).getLong() <= tsKvEntry.getTs()) {
+                doPut(segment, hash, msb, lsb, keyBytes, value);
+            }
+        }
+    }
+
+    /**
+     * Evicts the stored key if the value was updated without the store, e.g. by another service.
+     * The values saved through the store are equal to the stored ones and are kept.
+     */
+    public void evictIfOutdated(EntityId entityId, TsKvEntry tsKvEntry) {
+        byte[] keyBytes = tsKvEntry.getKey().getBytes(StandardCharsets.UTF_8);
+        byte[] value = encode(tsKvEntry);
+        long msb = entityId.getId().getMostSignificantBits();
+        long lsb = entityId.getId().getLeastSignificantBits();
+        int hash = OffHeapTsLatestSegment.hash(msb, lsb, keyBytes);
+        OffHeapTsLatestSegment segment = segment(hash);
+        synchronized (segment) {
+            byte[] stored = segment.get(hash, msb, lsb, keyBytes);
+            if (stored != null && !Arrays.equals(stored, value)
+                    && (stored[Long.BYTES] == ABSENT || ByteBuffer.wrap(stored).getLong() <= tsKvEntry.getTs())) {
+                doRemove(segment, hash, msb, lsb, keyBytes);
+            }
+        }
+    }
+
+    public void evict(EntityId entityId, String key) {
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        long msb = entityId.getId().getMostSignificantBits();
+        long lsb = entityId.getId().getLeastSignificantBits();
+        int hash = OffHeapTsLatestSegment.hash(msb, lsb, keyBytes);
+        OffHeapTsLatestSegment segment = segment(hash);
+        synchronized (segment) {
+            doRemove(segment, hash, msb, lsb, keyBytes);
+        }
+    }
+
+    public void clear() {
+        for (OffHeapTsLatestSegment segment : segments) {
+            synchronized (segment) {
+                entries.addAndGet(-segment.size());
+                usedBytes.addAndGet(-segment.usedBytes());
+                segment.clear();
+            }
+        }
+        log.debug("Cleared off-heap latest timeseries store");
+    }
+
+    private void doPut(OffHeapTsLatestSegment segment, int hash, long msb, long lsb, byte[] key, byte[] value) {
+        int sizeBefore = segment.size();
+        int bytesBefore = segment.usedBytes();
+        if (!segment.put(hash, msb, lsb, key, value)) {
+            rejectedCounter.increment();
+        }
+        entries.addAndGet(segment.size() - sizeBefore);
+        usedBytes.addAndGet(segment.usedBytes() - bytesBefore);
+    }
+
+    private void doRemove(OffHeapTsLatestSegment segment, int hash, long msb, long lsb, byte[] key) {
+        if (segment.remove(hash, msb, lsb, key)) {
+            entries.decrementAndGet();
+        }
+    }
+
+    private OffHeapTsLatestSegment segment(int hash) {
+        return segments[(hash >>> 26) & (SEGMENTS - 1)];
+    }
+
+    private static int hash(EntityId entityId, byte[] key) {
+        return OffHeapTsLatestSegment.hash(entityId.getId().getMostSignificantBits(), entityId.getId().getLeastSignificantBits(), key);
+    }
+
+    /*
+     * Value layout: ts, type and the type specific payload. Returns null for the values that are not stored (null strings).
+     * */
+    static byte[] encode(TsKvEntry entry) {
+        switch (entry.getDataType()) {
+            case BOOLEAN:
+                return ByteBuffer.allocate(Long.BYTES + 2).putLong(entry.getTs()).put(BOOLEAN)
+                        .put((byte) (entry.getBooleanValue().orElse(false) ? 1 : 0)).array();
+            case LONG:
+                return ByteBuffer.allocate(Long.BYTES + 1 + Long.BYTES).putLong(entry.getTs()).put(LONG)
+                        .putLong(entry.getLongValue().orElse(0L)).array();
+            case DOUBLE:
+                return ByteBuffer.allocate(Long.BYTES + 1 + Double.BYTES).putLong(entry.getTs()).put(DOUBLE)
+                        .putDouble(entry.getDoubleValue().orElse(0.0)).array();
+            case STRING:
+                return entry.getStrValue().map(v -> encodeString(entry.getTs(), STRING, v)).orElse(null);
+            case JSON:
+                return entry.getJsonValue().map(v -> encodeString(entry.getTs(), JSON, v)).orElse(null);
+            default:
+                return null;
+        }
+    }
+
+    private static byte[] encodeString(long ts, byte type, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        return ByteBuffer.allocate(Long.BYTES + 1 + bytes.length).putLong(ts).put(type).put(bytes).array();
+    }
+
+    static TsKvEntry decode(String key, byte[] value) {
+        ByteBuffer buffer = ByteBuffer.wrap(value);
+        long ts = buffer.getLong();
+        byte type = buffer.get();
+        KvEntry kv;
+        switch (type) {
+            case ABSENT:
+                return null;
+            case BOOLEAN:
+                kv = new BooleanDataEntry(key, buffer.get() == 1);
+                break;
+            case LONG:
+                kv = new LongDataEntry(key, buffer.getLong());
+                break;
+            case DOUBLE:
+                kv = new DoubleDataEntry(key, buffer.getDouble());
+                break;
+            case STRING:
+                kv = new StringDataEntry(key, new String(value, buffer.position(), buffer.remaining(), StandardCharsets.UTF_8));
+                break;
+            case JSON:
+                kv = new JsonDataEntry(key, new String(value, buffer.position(), buffer.remaining(), StandardCharsets.UTF_8));
+                break;
+            default:
+                throw new IllegalStateException("Unknown latest value type: " + type);
+        }
+        return new BasicTsKvEntry(ts, kv);
+    }
+
+}
@@ -45,12 +45,10 @@ import javax.annotation.Nullable;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.UUID;
-import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.concurrent.LinkedBlockingDeque;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
@@ -67,7 +65,7 @@ public abstract class AbstractBufferedRateExecutor<T extends AsyncTask, F extend
 
     private final long maxWaitTime;
     private final long pollMs;
-    private final BlockingQueue<AsyncTaskContext<T, V>> queue;
+    private final TenantFairQueue<AsyncTaskContext<T, V>> queue;
     private final ExecutorService dispatcherExecutor;
     private final ExecutorService callbackExecutor;
     private final ScheduledExecutorService timeoutExecutor;
@@ -86,18 +84,18 @@ public abstract class AbstractBufferedRateExecutor<T extends AsyncTask, F extend
     private final boolean printTenantNames;
     private final Map<TenantId, String> tenantNamesCache = new HashMap<>();
 
-    public AbstractBufferedRateExecutor(int queueLimit, int concurrencyLimit, long maxWaitTime, int dispatcherThreads,
+    public AbstractBufferedRateExecutor(int queueLimit, int tenantQueueLimit, int concurrencyLimit, long maxWaitTime, int dispatcherThreads,
                                         int callbackThreads, long pollMs, int printQueriesFreq, StatsFactory statsFactory,
                                         EntityService entityService, TbTenantProfileCache tenantProfileCache, boolean printTenantNames) {
         this.maxWaitTime = maxWaitTime;
         this.pollMs = pollMs;
         this.concurrencyLimit = concurrencyLimit;
         this.printQueriesFreq = printQueriesFreq;
-        this.queue = new LinkedBlockingDeque<>(queueLimit);
+        this.queue = new TenantFairQueue<>(queueLimit, tenantQueueLimit);
         this.dispatcherExecutor = Executors.newFixedThreadPool(dispatcherThreads, ThingsBoardThreadFactory.forName("nosql-" + getBufferName() + "-dispatcher"));
         this.callbackExecutor = ThingsBoardExecutors.newWorkStealingPool(callbackThreads, "nosql-" + getBufferName() + "-callback");
         this.timeoutExecutor = Executors.newSingleThreadScheduledExecutor(ThingsBoardThreadFactory.forName("nosql-" + getBufferName() + "-timeout"));
-        this.stats = new BufferedRateExecutorStats(statsFactory);
+        this.stats = new BufferedRateExecutorStats(statsFactory, getBufferName());
         String concurrencyLevelKey = StatsType.RATE_EXECUTOR.getName() + "." + CONCURRENCY_LEVEL + getBufferName(); //metric name may change with buffer name suffix
         this.concurrencyLevel = statsFactory.createGauge(concurrencyLevelKey, new AtomicInteger(0));
 
@@ -141,12 +139,14 @@ public abstract class AbstractBufferedRateExecutor<T extends AsyncTask, F extend
         }
 
         if (!perTenantLimitReached) {
-            try {
-                stats.getTotalAdded().increment();
-                queue.add(new AsyncTaskContext<>(UUID.randomUUID(), task, settableFuture, System.currentTimeMillis()));
-            } catch (IllegalStateException e) {
+            stats.getTotalAdded().increment();
+            TenantId queueTenantId = getQueueTenantId(task);
+            AtomicInteger tenantQueueSize = stats.getTenantQueueSize(queueTenantId);
+            tenantQueueSize.incrementAndGet();
+            if (!queue.offer(queueTenantId, new AsyncTaskContext<>(UUID.randomUUID(), task, settableFuture, System.currentTimeMillis()))) {
+                tenantQueueSize.decrementAndGet();
                 stats.getTotalRejected().increment();
-                settableFuture.setException(e);
+                settableFuture.setException(new IllegalStateException("Queue full"));
             }
         }
         return result;
@@ -181,6 +181,9 @@ public abstract class AbstractBufferedRateExecutor<T extends AsyncTask, F extend
                 if (curLvl <= concurrencyLimit) {
                     taskCtx = queue.take();
                     final AsyncTaskContext<T, V> finalTaskCtx = taskCtx;
+                    TenantId queueTenantId = getQueueTenantId(taskCtx.getTask());
+                    stats.getTenantQueueSize(queueTenantId).decrementAndGet();
+                    stats.recordTenantWaitTime(queueTenantId, System.currentTimeMillis() - taskCtx.getCreateTime());
                     if (printQueriesFreq > 0) {
                         if (printQueriesIdx.incrementAndGet() >= printQueriesFreq) {
                             printQueriesIdx.set(0);
@@ -241,6 +244,10 @@ public abstract class AbstractBufferedRateExecutor<T extends AsyncTask, F extend
         log.info("Buffered rate executor thread stopped");
     }
 
+    private static TenantId getQueueTenantId(AsyncTask task) {
+        return task.getTenantId() != null ? task.getTenantId() : TenantId.SYS_TENANT_ID;
+    }
+
     private void logTask(String action, AsyncTaskContext<T, V> taskCtx) {
         if (log.isTraceEnabled()) {
             if (taskCtx.getTask() instanceof CassandraStatementTask) {
@@ -307,6 +314,7 @@ public abstract class AbstractBufferedRateExecutor<T extends AsyncTask, F extend
             StringBuilder statsBuilder = new StringBuilder();
 
             statsBuilder.append("queueSize").append(" = [").append(queueSize).append("] ");
+            statsBuilder.append("queueTenants").append(" = [").append(queue.tenantsCount()).append("] ");
             stats.getStatsCounters().forEach(counter -> {
                 statsBuilder.append(counter.getName()).append(" = [").append(counter.get()).append("] ");
             });
@@ -15,6 +15,7 @@
  */
 package org.thingsboard.server.dao.util;
 
+import io.micrometer.core.instrument.Timer;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 import org.thingsboard.server.common.data.id.TenantId;
@@ -27,11 +28,14 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @Slf4j
 @Getter
 public class BufferedRateExecutorStats {
     private static final String TENANT_ID_TAG = "tenantId";
+    private static final String BUFFER_TAG = "buffer";
 
 
     private static final String TOTAL_ADDED = "totalAdded";
@@ -43,8 +47,11 @@ public class BufferedRateExecutorStats {
     private static final String TOTAL_RATE_LIMITED = "totalRateLimited";
 
     private final StatsFactory statsFactory;
+    private final String bufferName;
 
     private final ConcurrentMap<TenantId, DefaultCounter> rateLimitedTenants = new ConcurrentHashMap<>();
+    private final ConcurrentMap<TenantId, AtomicInteger> tenantQueueSizes = new ConcurrentHashMap<>();
+    private final ConcurrentMap<TenantId, Timer> tenantWaitTimers = new ConcurrentHashMap<>();
 
     private final List<StatsCounter> statsCounters = new ArrayList<>();
 
@@ -56,8 +63,9 @@ public class BufferedRateExecutorStats {
     private final StatsCounter totalRejected;
     private final StatsCounter totalRateLimited;
 
-    public BufferedRateExecutorStats(StatsFactory statsFactory) {
+    public BufferedRateExecutorStats(StatsFactory statsFactory, String bufferName) {
         this.statsFactory = statsFactory;
+        this.bufferName = bufferName;
 
         String key = StatsType.RATE_EXECUTOR.getName();
 
@@ -87,4 +95,23 @@ public class BufferedRateExecutorStats {
         )
                 .increment();
     }
+
+    public AtomicInteger getTenantQueueSize(TenantId tenantId) {
+        return tenantQueueSizes.computeIfAbsent(tenantId,
+                tId -> {
+                    String key = StatsType.RATE_EXECUTOR.getName() + ".tenantQueueSize";
+                    return statsFactory.createGauge(key, new AtomicInteger(0), TENANT_ID_TAG, tId.toString(), BUFFER_TAG, bufferName);
+                }
+        );
+    }
+
+    public void recordTenantWaitTime(TenantId tenantId, long waitTimeMs) {
+        tenantWaitTimers.computeIfAbsent(tenantId,
+                tId -> {
+                    String key = StatsType.RATE_EXECUTOR.getName() + ".tenantWaitTime";
+                    return statsFactory.createTimer(key, TENANT_ID_TAG, tId.toString(), BUFFER_TAG, bufferName);
+                }
+        )
+                .record(waitTimeMs, TimeUnit.MILLISECONDS);
+    }
 }
@@ -0,0 +1,112 @@
+/**
+ * Copyright © 2016-2023 The Linkstuffs Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.dao.util;
+
+import org.thingsboard.server.common.data.id.TenantId;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bounded queue that keeps a FIFO sub-queue per tenant and takes the elements from the tenants in round-robin order,
+ * so a burst of one tenant delays only its own elements and not the elements of the other tenants.
+ */
+class TenantFairQueue<E> {
+
+    private final int capacity;
+    private final int tenantCapacity;
+    private final Map<TenantId, Queue<E>> queues = new HashMap<>();
+    private final Queue<TenantId> tenants = new ArrayDeque<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private int size;
+
+    /**
+     * @param capacity       max number of elements of all tenants
+     * @param tenantCapacity max number of elements of a single tenant, 0 means no limit besides the total capacity
+     */
+    TenantFairQueue(int capacity, int tenantCapacity) {
+        this.capacity = capacity;
+        this.tenantCapacity = tenantCapacity > 0 ? tenantCapacity : capacity;
+    }
+
+    boolean offer(TenantId tenantId, E element) {
+        lock.lock();
+        try {
+            if (size >= capacity) {
+                return false;
+            }
+            Queue<E> queue = queues.get(tenantId);
+            if (queue == null) {
+                queue = new ArrayDeque<>();
+                queues.put(tenantId, queue);
+                tenants.add(tenantId);
+            } else if (queue.size() >= tenantCapacity) {
+                return false;
+            }
+            queue.add(element);
+            size++;
+            notEmpty.signal();
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    E take() throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            while (size == 0) {
+                notEmpty.await();
+            }
+            TenantId tenantId = tenants.poll();
+            Queue<E> queue = queues.get(tenantId);
+            E element = queue.poll();
+            if (queue.isEmpty()) {
+                queues.remove(tenantId);
+            } else {
+                tenants.add(tenantId);
+            }
+            size--;
+            return element;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    int size() {
+        lock.lock();
+        try {
+            return size;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    int tenantsCount() {
+        lock.lock();
+        try {
+            return queues.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+}
@@ -0,0 +1,212 @@
+/**
+ * Copyright © 2016-2023 The Linkstuffs Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.dao.attributes;
+
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.SettableFuture;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.thingsboard.server.cache.TbCacheTransaction;
+import org.thingsboard.server.cache.TbCacheValueWrapper;
+import org.thingsboard.server.common.data.CacheConstants;
+import org.thingsboard.server.common.data.DataConstants;
+import org.thingsboard.server.common.data.id.DeviceId;
+import org.thingsboard.server.common.data.id.EntityId;
+import org.thingsboard.server.common.data.id.TenantId;
+import org.thingsboard.server.common.data.kv.AttributeKvEntry;
+import org.thingsboard.server.common.data.kv.BaseAttributeKvEntry;
+import org.thingsboard.server.common.data.kv.StringDataEntry;
+import org.thingsboard.server.common.stats.DefaultCounter;
+import org.thingsboard.server.common.stats.StatsFactory;
+import org.thingsboard.server.dao.cache.CacheExecutorService;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.willReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+public class CachedAttributesServiceTest {
+
+    private static final TenantId TENANT_ID = TenantId.fromUUID(UUID.randomUUID());
+    private static final String SCOPE = DataConstants.CLIENT_SCOPE;
+
+    private final DeviceId deviceId = new DeviceId(UUID.randomUUID());
+
+    private AttributesDao attributesDao;
+    private AttributeCaffeineCache cache;
+    private DefaultCounter hitCounter;
+    private StatsFactory statsFactory;
+    private CachedAttributesService service;
+
+    @Before
+    public void setUp() {
+        attributesDao = mock(AttributesDao.class);
+        StatsFactory statsFactory = mock(StatsFactory.class);
+        hitCounter = mock(DefaultCounter.class);
+        willReturn(hitCounter).given(statsFactory).createDefaultCounter(anyString(), anyString(), eq("hit"));
+        willReturn(mock(DefaultCounter.class)).given(statsFactory).createDefaultCounter(anyString(), anyString(), eq("miss"));
+        this.statsFactory = statsFactory;
+        cache = new AttributeCaffeineCache(new ConcurrentMapCacheManager(CacheConstants.ATTRIBUTES_CACHE));
+        service = createService(cache);
+    }
+
+    private CachedAttributesService createService(AttributeCaffeineCache cache) {
+        CachedAttributesService service = new CachedAttributesService(attributesDao, statsFactory, mock(CacheExecutorService.class), cache);
+        ReflectionTestUtils.setField(service, "cacheType", "caffeine");
+        ReflectionTestUtils.setField(service, "writeThrough", true);
+        service.init();
+        return service;
+    }
+
+    @Test
+    public void givenWriteThrough_whenSave_thenNextFindIsServedFromCache() throws Exception {
+        AttributeKvEntry attribute = attribute("temperature", "42", 100);
+        willReturn(Futures.immediateFuture("temperature")).given(attributesDao).save(TENANT_ID, deviceId, SCOPE, attribute);
+
+        service.save(TENANT_ID, deviceId, SCOPE, attribute).get();
+        Optional<AttributeKvEntry> found = service.find(TENANT_ID, deviceId, SCOPE, "temperature").get();
+
+        assertThat(found).contains(attribute);
+        verify(hitCounter).increment();
+        verify(attributesDao, never()).find(any(), any(), anyString(), anyString());
+    }
+
+    @Test
+    public void givenWriteThroughDisabled_whenSave_thenCacheIsEvicted() throws Exception {
+        ReflectionTestUtils.setField(service, "writeThrough", false);
+        AttributeKvEntry attribute = attribute("temperature", "42", 100);
+        cache.put(new AttributeCacheKey(SCOPE, deviceId, "temperature"), attribute("temperature", "41", 50));
+        willReturn(Futures.immediateFuture("temperature")).given(attributesDao).save(TENANT_ID, deviceId, SCOPE, attribute);
+
+        service.save(TENANT_ID, deviceId, SCOPE, attribute).get();
+
+        assertThat(cache.get(new AttributeCacheKey(SCOPE, deviceId, "temperature"))).isNull();
+    }
+
+    @Test
+    public void givenConcurrentLoad_whenSaveCompletes_thenLoadedValueIsNotCached() throws Exception {
+        AttributeCacheKey cacheKey = new AttributeCacheKey(SCOPE, deviceId, "temperature");
+        TbCacheTransaction<AttributeCacheKey, AttributeKvEntry> load = cache.newTransactionForKey(cacheKey);
+        load.putIfAbsent(cacheKey, attribute("temperature", "stale", 50));
+
+        AttributeKvEntry attribute = attribute("temperature", "42", 100);
+        willReturn(Futures.immediateFuture("temperature")).given(attributesDao).save(TENANT_ID, deviceId, SCOPE, attribute);
+        service.save(TENANT_ID, deviceId, SCOPE, attribute).get();
+
+        assertThat(load.commit()).isFalse();
+        assertThat(cache.get(cacheKey).get()).isEqualTo(attribute);
+    }
+
+    @Test
+    public void givenOutOfOrderSaveCallbacks_whenOlderCompletesLast_thenNewerValueIsNotOverwritten() throws Exception {
+        AttributeCacheKey cacheKey = new AttributeCacheKey(SCOPE, deviceId, "temperature");
+        AttributeKvEntry older = attribute("temperature", "41", 50);
+        AttributeKvEntry newer = attribute("temperature", "42", 100);
+        SettableFuture<String> olderSaved = SettableFuture.create();
+        willReturn(olderSaved).given(attributesDao).save(TENANT_ID, deviceId, SCOPE, older);
+        willReturn(Futures.immediateFuture("temperature")).given(attributesDao).save(TENANT_ID, deviceId, SCOPE, newer);
+
+        var olderFuture = service.save(TENANT_ID, deviceId, SCOPE, older);
+        service.save(TENANT_ID, deviceId, SCOPE, newer).get();
+        olderSaved.set("temperature");
+        olderFuture.get();
+
+        assertThat(cache.get(cacheKey)).isNull();
+    }
+
+    @Test
+    public void givenConcurrentSaves_whenNewerWritesBetweenOlderCacheReadAndWrite_thenOlderValueIsNotCached() throws Exception {
+        AttributeCacheKey cacheKey = new AttributeCacheKey(SCOPE, deviceId, "temperature");
+        AttributeKvEntry older = attribute("temperature", "41", 50);
+        AttributeKvEntry newer = attribute("temperature", "42", 100);
+        CountDownLatch olderReadCache = new CountDownLatch(1);
+        CountDownLatch newerSaved = new CountDownLatch(1);
+        AtomicReference<Thread> olderSaveThread = new AtomicReference<>();
+        AttributeCaffeineCache cache = new AttributeCaffeineCache(new ConcurrentMapCacheManager(CacheConstants.ATTRIBUTES_CACHE)) {
+            @Override
+            public TbCacheValueWrapper<AttributeKvEntry> get(AttributeCacheKey key) {
+                TbCacheValueWrapper<AttributeKvEntry> result = super.get(key);
+                if (Thread.currentThread() == olderSaveThread.get()) {
+                    olderReadCache.countDown();
+                    try {
+                        // gives the newer save the chance to write the cache between the read and the write of the older one
+                        newerSaved.await(500, TimeUnit.MILLISECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                return result;
+            }
+        };
+        CachedAttributesService service = createService(cache);
+        willReturn(Futures.immediateFuture("temperature")).given(attributesDao).save(TENANT_ID, deviceId, SCOPE, older);
+        willReturn(Futures.immediateFuture("temperature")).given(attributesDao).save(TENANT_ID, deviceId, SCOPE, newer);
+
+        Thread olderSave = new Thread(() -> service.save(TENANT_ID, deviceId, SCOPE, older));
+        olderSaveThread.set(olderSave);
+        olderSave.start();
+        assertThat(olderReadCache.await(5, TimeUnit.SECONDS)).isTrue();
+        service.save(TENANT_ID, deviceId, SCOPE, newer).get();
+        newerSaved.countDown();
+        olderSave.join();
+
+        TbCacheValueWrapper<AttributeKvEntry> cached = cache.get(cacheKey);
+        assertThat(cached == null || newer.equals(cached.get())).isTrue();
+    }
+
+    @Test
+    public void givenSeveralEntities_whenFind_thenCachedAttributesAreReusedAndMissesAreFetchedWithSingleQuery() throws Exception {
+        DeviceId otherDeviceId = new DeviceId(UUID.randomUUID());
+        AttributeKvEntry cached = attribute("temperature", "42", 100);
+        cache.put(new AttributeCacheKey(SCOPE, deviceId, "temperature"), cached);
+        cache.put(new AttributeCacheKey(SCOPE, deviceId, "humidity"), null);
+        AttributeKvEntry otherTemperature = attribute("temperature", "21", 100);
+        willReturn(Map.of(otherDeviceId, List.of(otherTemperature)))
+                .given(attributesDao).findByEntityIds(eq(TENANT_ID), anyCollection(), eq(SCOPE), anyCollection());
+
+        Map<EntityId, List<AttributeKvEntry>> result = service.findByEntityIds(TENANT_ID, List.of(deviceId, otherDeviceId), SCOPE, List.of("temperature", "humidity")).get();
+
+        assertThat(result.get(deviceId)).containsExactly(cached);
+        assertThat(result.get(otherDeviceId)).containsExactly(otherTemperature);
+        verify(attributesDao).findByEntityIds(TENANT_ID, List.of(otherDeviceId), SCOPE, Set.of("temperature", "humidity"));
+
+        Map<EntityId, List<AttributeKvEntry>> cachedResult = service.findByEntityIds(TENANT_ID, List.of(deviceId, otherDeviceId), SCOPE, List.of("temperature", "humidity")).get();
+        assertThat(cachedResult).isEqualTo(result);
+        verify(attributesDao, times(1)).findByEntityIds(eq(TENANT_ID), anyCollection(), eq(SCOPE), anyCollection());
+    }
+
+    private static AttributeKvEntry attribute(String key, String value, long lastUpdateTs) {
+        return new BaseAttributeKvEntry(new StringDataEntry(key, value), lastUpdateTs);
+    }
+
+}
@@ -0,0 +1,88 @@
+/**
+ * Copyright © 2016-2023 The Linkstuffs Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.dao.sql;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TbSqlAdaptiveBatchTunerTest {
+
+    private static final int MAX_BATCH_SIZE = 1000;
+    private static final long MAX_DELAY = 100;
+
+    private TbSqlAdaptiveBatchTuner tuner;
+
+    @Before
+    public void setUp() {
+        TbSqlQueueSettings settings = new TbSqlQueueSettings();
+        ReflectionTestUtils.setField(settings, "adaptiveEnabled", true);
+        ReflectionTestUtils.setField(settings, "adaptiveMinBatchSize", 100);
+        ReflectionTestUtils.setField(settings, "adaptiveMinDelay", 10L);
+        ReflectionTestUtils.setField(settings, "adaptiveTargetLatency", 200L);
+        TbSqlBlockingQueueParams params = TbSqlBlockingQueueParams.builder()
+                .logName("Test")
+                .batchSize(MAX_BATCH_SIZE)
+                .maxDelay(MAX_DELAY)
+                .queueSettings(settings)
+                .build();
+        tuner = new TbSqlAdaptiveBatchTuner(params, settings, new AtomicInteger(), new AtomicLong(), null);
+    }
+
+    @Test
+    public void givenSlowInserts_whenBatchSaved_thenBatchSizeShrinksToLowerBound() {
+        for (int i = 0; i < 100; i++) {
+            tuner.onBatchSaved(tuner.getBatchSize(), 500, 0);
+        }
+        assertThat(tuner.getBatchSize()).isEqualTo(100);
+        assertThat(tuner.getMaxDelay()).isEqualTo(MAX_DELAY);
+    }
+
+    @Test
+    public void givenBacklog_whenBatchSaved_thenBatchSizeGrowsAndDelayShrinks() {
+        for (int i = 0; i < 10; i++) {
+            tuner.onBatchSaved(tuner.getBatchSize(), 500, 0);
+        }
+        int shrunkBatchSize = tuner.getBatchSize();
+        assertThat(shrunkBatchSize).isLessThan(MAX_BATCH_SIZE);
+
+        for (int i = 0; i < 100; i++) {
+            tuner.onBatchSaved(tuner.getBatchSize(), 10, 5000);
+        }
+        assertThat(tuner.getBatchSize()).isEqualTo(MAX_BATCH_SIZE);
+        assertThat(tuner.getMaxDelay()).isEqualTo(10);
+    }
+
+    @Test
+    public void givenLowLoad_whenBatchSaved_thenDelayGrowsToUpperBound() {
+        for (int i = 0; i < 10; i++) {
+            tuner.onBatchSaved(MAX_BATCH_SIZE, 10, MAX_BATCH_SIZE);
+        }
+        assertThat(tuner.getMaxDelay()).isEqualTo(10);
+
+        for (int i = 0; i < 100; i++) {
+            tuner.onBatchSaved(5, 10, 0);
+        }
+        assertThat(tuner.getMaxDelay()).isEqualTo(MAX_DELAY);
+        assertThat(tuner.getBatchSize()).isEqualTo(MAX_BATCH_SIZE);
+    }
+
+}
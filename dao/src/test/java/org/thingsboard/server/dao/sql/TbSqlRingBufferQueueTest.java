@@ -0,0 +1,188 @@
+/**
+ * Copyright © 2016-2023 The Linkstuffs Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.dao.sql;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.thingsboard.server.common.stats.MessagesStats;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+
+public class TbSqlRingBufferQueueTest {
+
+    private ScheduledLogExecutorComponent logExecutor;
+    private TbSqlRingBufferQueue<Integer> queue;
+
+    @Before
+    public void setUp() {
+        logExecutor = new ScheduledLogExecutorComponent();
+        logExecutor.init();
+    }
+
+    @After
+    public void tearDown() {
+        if (queue != null) {
+            queue.destroy();
+        }
+        logExecutor.stop();
+    }
+
+    @Test
+    public void givenSeveralProducers_whenAdd_thenAllElementsSavedOnceInBatches() throws Exception {
+        List<Integer> saved = Collections.synchronizedList(new ArrayList<>());
+        AtomicInteger maxBatch = new AtomicInteger();
+        queue = createQueue(100, 1024, TbSqlQueueWaitStrategy.PARK, TbSqlQueueOverflowPolicy.BLOCK);
+        queue.init(logExecutor, batch -> {
+            maxBatch.accumulateAndGet(batch.size(), Math::max);
+            saved.addAll(batch);
+        }, Integer::compare, 0);
+
+        int producers = 4;
+        int perProducer = 10000;
+        ExecutorService executor = Executors.newFixedThreadPool(producers);
+        try {
+            List<Future<List<ListenableFuture<Void>>>> results = new ArrayList<>();
+            for (int p = 0; p < producers; p++) {
+                int offset = p * perProducer;
+                results.add(executor.submit(() -> {
+                    List<ListenableFuture<Void>> futures = new ArrayList<>(perProducer);
+                    for (int i = 0; i < perProducer; i++) {
+                        futures.add(queue.add(offset + i));
+                    }
+                    return futures;
+                }));
+            }
+            for (Future<List<ListenableFuture<Void>>> result : results) {
+                for (ListenableFuture<Void> future : result.get(30, TimeUnit.SECONDS)) {
+                    future.get(30, TimeUnit.SECONDS);
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(saved).hasSize(producers * perProducer);
+        assertThat(saved).doesNotHaveDuplicates();
+        assertThat(maxBatch.get()).isLessThanOrEqualTo(100);
+        assertThat(queue.size()).isZero();
+    }
+
+    @Test
+    public void givenSpinWaitStrategy_whenBatchIsNotFull_thenSavedAfterMaxDelay() throws Exception {
+        queue = createQueue(100, 16, TbSqlQueueWaitStrategy.SPIN, TbSqlQueueOverflowPolicy.BLOCK);
+        List<Integer> saved = new CopyOnWriteArrayList<>();
+        queue.init(logExecutor, saved::addAll, Integer::compare, 0);
+
+        queue.add(1).get(5, TimeUnit.SECONDS);
+
+        assertThat(saved).containsExactly(1);
+    }
+
+    @Test
+    public void givenRejectPolicy_whenQueueIsFull_thenFutureFails() throws Exception {
+        CountDownLatch saveStarted = new CountDownLatch(1);
+        CountDownLatch saveAllowed = new CountDownLatch(1);
+        queue = createQueue(1, 4, TbSqlQueueWaitStrategy.PARK, TbSqlQueueOverflowPolicy.REJECT);
+        queue.init(logExecutor, batch -> blockSave(saveStarted, saveAllowed), Integer::compare, 0);
+
+        ListenableFuture<Void> first = queue.add(0);
+        assertThat(saveStarted.await(5, TimeUnit.SECONDS)).isTrue();
+        List<ListenableFuture<Void>> queued = new ArrayList<>();
+        for (int i = 1; i <= queue.getCapacity(); i++) {
+            queued.add(queue.add(i));
+        }
+        ListenableFuture<Void> rejected = queue.add(100);
+
+        assertThatThrownBy(rejected::get).isInstanceOf(ExecutionException.class).hasCauseInstanceOf(RejectedExecutionException.class);
+        saveAllowed.countDown();
+        first.get(5, TimeUnit.SECONDS);
+        for (ListenableFuture<Void> future : queued) {
+            future.get(5, TimeUnit.SECONDS);
+        }
+    }
+
+    @Test
+    public void givenDropOldestPolicy_whenQueueIsFull_thenOldestElementFails() throws Exception {
+        CountDownLatch saveStarted = new CountDownLatch(1);
+        CountDownLatch saveAllowed = new CountDownLatch(1);
+        List<Integer> saved = new CopyOnWriteArrayList<>();
+        queue = createQueue(1, 4, TbSqlQueueWaitStrategy.PARK, TbSqlQueueOverflowPolicy.DROP_OLDEST);
+        queue.init(logExecutor, batch -> {
+            blockSave(saveStarted, saveAllowed);
+            saved.addAll(batch);
+        }, Integer::compare, 0);
+
+        queue.add(0);
+        assertThat(saveStarted.await(5, TimeUnit.SECONDS)).isTrue();
+        List<ListenableFuture<Void>> queued = new ArrayList<>();
+        for (int i = 1; i <= queue.getCapacity(); i++) {
+            queued.add(queue.add(i));
+        }
+        ListenableFuture<Void> newest = queue.add(100);
+
+        assertThatThrownBy(() -> queued.get(0).get()).isInstanceOf(ExecutionException.class).hasCauseInstanceOf(RejectedExecutionException.class);
+        saveAllowed.countDown();
+        newest.get(5, TimeUnit.SECONDS);
+        assertThat(saved).doesNotContain(1).contains(0, 100);
+    }
+
+    private void blockSave(CountDownLatch saveStarted, CountDownLatch saveAllowed) {
+        saveStarted.countDown();
+        try {
+            saveAllowed.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private TbSqlRingBufferQueue<Integer> createQueue(int batchSize, int capacity, TbSqlQueueWaitStrategy waitStrategy, TbSqlQueueOverflowPolicy overflowPolicy) {
+        TbSqlQueueSettings settings = new TbSqlQueueSettings();
+        ReflectionTestUtils.setField(settings, "typeStr", "ring_buffer");
+        ReflectionTestUtils.setField(settings, "capacity", capacity);
+        ReflectionTestUtils.setField(settings, "waitStrategyStr", waitStrategy.name());
+        ReflectionTestUtils.setField(settings, "overflowPolicyStr", overflowPolicy.name());
+        settings.init();
+        TbSqlBlockingQueueParams params = TbSqlBlockingQueueParams.builder()
+                .logName("Test")
+                .batchSize(batchSize)
+                .maxDelay(10)
+                .statsPrintIntervalMs(1000)
+                .statsNamePrefix("test")
+                .batchSortEnabled(true)
+                .queueSettings(settings)
+                .build();
+        return new TbSqlRingBufferQueue<>(params, mock(MessagesStats.class), new AtomicInteger(), null);
+    }
+
+}
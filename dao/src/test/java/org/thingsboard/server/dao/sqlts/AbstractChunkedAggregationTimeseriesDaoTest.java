@@ -25,20 +25,30 @@ import org.thingsboard.server.common.data.kv.BaseReadTsKvQuery;
 import org.thingsboard.server.common.data.kv.ReadTsKvQuery;
 import org.thingsboard.server.common.data.kv.ReadTsKvQueryResult;
 import org.thingsboard.server.common.data.kv.TsKvEntry;
+import org.thingsboard.server.dao.model.sqlts.ts.TsKvEntity;
+import org.thingsboard.server.dao.sql.JpaExecutorService;
+import org.thingsboard.server.dao.sqlts.rollup.TsRollupService;
+import org.thingsboard.server.dao.sqlts.ts.TsKvAggregationRepository;
 
+import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.Callable;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.BDDMockito.willAnswer;
 import static org.mockito.BDDMockito.willCallRealMethod;
 import static org.mockito.BDDMockito.willReturn;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.thingsboard.server.common.data.id.TenantId.SYS_TENANT_ID;
+import static org.thingsboard.server.common.data.kv.Aggregation.AVG;
 import static org.thingsboard.server.common.data.kv.Aggregation.COUNT;
 
 public class AbstractChunkedAggregationTimeseriesDaoTest {
@@ -149,6 +159,66 @@ public class AbstractChunkedAggregationTimeseriesDaoTest {
         }
     }
 
+    @Test
+    public void givenBucketedAggregation_whenAggregateAvg_thenSingleGroupedQueryIsUsed() {
+        TsKvAggregationRepository aggregationRepository = mock(TsKvAggregationRepository.class);
+        ReflectionTestUtils.setField(tsDao, "aggregationRepository", aggregationRepository);
+        willReturn(1).given(tsDao).getOrSaveKeyId(TEMP);
+        TsKvEntity entity = new TsKvEntity(10L, 0.0, 2L, 0L, "AVG", 2500L);
+        entity.setTs(getTsForReadTsKvQuery(1, 3000));
+        willReturn(List.of(entity)).given(aggregationRepository).findAllAndAggregate(any(), anyInt(), anyLong(), anyLong(), anyLong(), any());
+
+        ReadTsKvQuery query = new BaseReadTsKvQuery(TEMP, 1, 3000, 3, LIMIT, AVG, DESC);
+        ReadTsKvQueryResult result = tsDao.findAllAndAggregateInBuckets(SYS_TENANT_ID, query);
+
+        verify(aggregationRepository, times(1)).findAllAndAggregate(SYS_TENANT_ID.getId(), 1, 1, 3000, 3, AVG);
+        verifyNoMoreInteractions(aggregationRepository);
+        verify(tsDao, times(0)).findAndAggregateAsync(any(), any(), anyLong(), anyLong(), anyLong(), any());
+        assertThat(result.getData()).hasSize(1);
+        assertThat(result.getData().get(0).getKey()).isEqualTo(TEMP);
+        assertThat(result.getData().get(0).getDoubleValue()).hasValue(5.0);
+        assertThat(result.getLastEntryTs()).isEqualTo(2500L);
+    }
+
+    @Test
+    public void givenBucketedAggregation_whenIntervalNotMultiplePeriod_thenLastBucketTsEqualsMiddleOfShorterInterval() {
+        assertThat(TsKvAggregationRepository.getBucketTs(1, 3000, 2000, 0)).isEqualTo(getTsForReadTsKvQuery(1, 2001));
+        assertThat(TsKvAggregationRepository.getBucketTs(1, 3000, 2000, 1)).isEqualTo(getTsForReadTsKvQuery(2001, 3000));
+        assertThat(TsKvAggregationRepository.getBucketTs(1, 3000, 3, 999)).isEqualTo(getTsForReadTsKvQuery(2998, 3000));
+    }
+
+    @Test
+    public void givenRollupEnabled_whenAggregateWithoutBuckets_thenRollupIntervalsReadFromRollups() throws Exception {
+        JpaExecutorService service = mock(JpaExecutorService.class);
+        willAnswer(invocation -> Futures.immediateFuture(invocation.<Callable<?>>getArgument(0).call())).given(service).submit(any(Callable.class));
+        TsRollupService rollupService = mock(TsRollupService.class);
+        ReflectionTestUtils.setField(tsDao, "service", service);
+        ReflectionTestUtils.setField(tsDao, "rollupService", rollupService);
+        willReturn(1).given(tsDao).getOrSaveKeyId(TEMP);
+        willReturn(true).given(rollupService).isEnabled();
+        willReturn(2001L).given(rollupService).getRollupEndTs(SYS_TENANT_ID.getId(), 1, 1, 3001, 1000);
+        TsKvEntity first = new TsKvEntity(10L, 0.0, 2L, 0L, "AVG", 400L);
+        first.setTs(getTsForReadTsKvQuery(1, 1001));
+        TsKvEntity second = new TsKvEntity(30L, 0.0, 2L, 0L, "AVG", 1400L);
+        second.setTs(getTsForReadTsKvQuery(1001, 2001));
+        willReturn(List.of(first, second)).given(rollupService).findAllAndAggregate(SYS_TENANT_ID.getId(), 1, 1, 2001, 3001, 1000, AVG);
+        TsKvEntity last = new TsKvEntity(50L, 0.0, 2L, 0L, "AVG", 2400L);
+        last.setStrKey(TEMP);
+        last.setTs(getTsForReadTsKvQuery(2001, 3001));
+        willReturn(Futures.immediateFuture(Optional.of(last))).given(tsDao).findAndAggregateAsync(any(), anyString(), anyLong(), anyLong(), anyLong(), any());
+
+        ReadTsKvQuery query = new BaseReadTsKvQuery(TEMP, 1, 3001, 1000, LIMIT, AVG, DESC);
+        ReadTsKvQueryResult result = tsDao.findAllAsync(SYS_TENANT_ID, SYS_TENANT_ID, query).get();
+
+        verify(tsDao, times(1)).findAndAggregateAsync(any(), any(), anyLong(), anyLong(), anyLong(), any());
+        verify(tsDao, times(1)).findAndAggregateAsync(SYS_TENANT_ID, TEMP, 2001, 3001, getTsForReadTsKvQuery(2001, 3001), AVG);
+        assertThat(result.getData()).extracting(TsKvEntry::getTs)
+                .containsExactly(first.getTs(), second.getTs(), last.getTs());
+        assertThat(result.getData()).extracting(TsKvEntry::getKey).containsOnly(TEMP);
+        assertThat(result.getData()).extracting(entry -> entry.getDoubleValue().get()).containsExactly(5.0, 15.0, 25.0);
+        assertThat(result.getLastEntryTs()).isEqualTo(2400L);
+    }
+
     long getTsForReadTsKvQuery(long startTs, long endTs) {
         return startTs + (endTs - startTs) / 2L;
     }
@@ -0,0 +1,149 @@
+/**
+ * Copyright © 2016-2023 The Linkstuffs Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.dao.sqlts.dictionary;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.thingsboard.server.common.stats.DefaultCounter;
+import org.thingsboard.server.common.stats.StatsFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.willAnswer;
+import static org.mockito.BDDMockito.willReturn;
+import static org.mockito.BDDMockito.willThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+public class TsKvDictionaryServiceTest {
+
+    private TsKvDictionaryBulkRepository repository;
+    private DefaultCounter hitCounter;
+    private DefaultCounter missCounter;
+    private TsKvDictionaryService service;
+    private ExecutorService executor;
+
+    private final Map<String, Integer> db = new ConcurrentHashMap<>();
+    private final AtomicInteger sequence = new AtomicInteger();
+    private final List<Collection<String>> savedBatches = new CopyOnWriteArrayList<>();
+
+    @Before
+    public void setUp() {
+        repository = mock(TsKvDictionaryBulkRepository.class);
+        StatsFactory statsFactory = mock(StatsFactory.class);
+        hitCounter = mock(DefaultCounter.class);
+        missCounter = mock(DefaultCounter.class);
+        willReturn(hitCounter).given(statsFactory).createDefaultCounter(anyString(), anyString(), eq("hit"));
+        willReturn(missCounter).given(statsFactory).createDefaultCounter(anyString(), anyString(), eq("miss"));
+        willAnswer(invocation -> {
+            Collection<String> keys = new ArrayList<>(invocation.getArgument(0));
+            savedBatches.add(keys);
+            // slow round trip, so that concurrent callers pile up behind the creator
+            Thread.sleep(20);
+            return keys.stream().collect(Collectors.toMap(Function.identity(), key -> db.computeIfAbsent(key, k -> sequence.incrementAndGet())));
+        }).given(repository).saveOrGet(any());
+        service = new TsKvDictionaryService(repository, statsFactory);
+        ReflectionTestUtils.setField(service, "preloadEnabled", true);
+        ReflectionTestUtils.setField(service, "maxBatchSize", 1000);
+        executor = Executors.newFixedThreadPool(16);
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void givenPreloadedKey_whenGetOrSaveKeyId_thenNoQueries() {
+        willReturn(Map.of("temperature", 7)).given(repository).findAll();
+        service.init();
+
+        assertThat(service.getOrSaveKeyId("temperature")).isEqualTo(7);
+
+        verify(repository, never()).saveOrGet(any());
+        verify(hitCounter).increment();
+    }
+
+    @Test
+    public void givenConcurrentCallers_whenGetOrSaveKeyId_thenEveryKeyIsCreatedOnceAndNewKeysAreBatched() throws Exception {
+        int keysCount = 50;
+        int callsPerKey = 8;
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Integer>> futures = new ArrayList<>();
+        for (int i = 0; i < keysCount * callsPerKey; i++) {
+            String key = "key" + (i % keysCount);
+            futures.add(executor.submit(() -> {
+                start.await();
+                return service.getOrSaveKeyId(key);
+            }));
+        }
+        start.countDown();
+        for (int i = 0; i < futures.size(); i++) {
+            assertThat(futures.get(i).get(10, TimeUnit.SECONDS)).isEqualTo(db.get("key" + (i % keysCount)));
+        }
+
+        List<String> savedKeys = savedBatches.stream().flatMap(Collection::stream).collect(Collectors.toList());
+        assertThat(savedKeys).hasSize(keysCount).doesNotHaveDuplicates();
+        assertThat(savedBatches.size()).isLessThan(keysCount);
+
+        assertThat(service.getOrSaveKeyId("key0")).isEqualTo(db.get("key0"));
+        verify(repository, times(savedBatches.size())).saveOrGet(any());
+    }
+
+    @Test
+    public void givenMultipleKeys_whenGetOrSaveKeyIds_thenMissingKeysAreCreatedInOneQuery() {
+        service.getOrSaveKeyId("a");
+
+        Map<String, Integer> result = service.getOrSaveKeyIds(List.of("a", "b", "c", "b"));
+
+        assertThat(result).containsOnlyKeys("a", "b", "c");
+        assertThat(savedBatches).hasSize(2);
+        assertThat(savedBatches.get(1)).containsExactlyInAnyOrder("b", "c");
+    }
+
+    @Test
+    public void givenFailedCreation_whenGetOrSaveKeyId_thenErrorIsPropagatedAndKeyIsRetried() {
+        willThrow(new IllegalStateException("DB is down")).given(repository).saveOrGet(any());
+
+        assertThatThrownBy(() -> service.getOrSaveKeyId("a")).hasRootCauseInstanceOf(IllegalStateException.class);
+
+        willReturn(Map.of("a", 3)).given(repository).saveOrGet(any());
+        assertThat(service.getOrSaveKeyId("a")).isEqualTo(3);
+    }
+
+}
@@ -0,0 +1,41 @@
+/**
+ * Copyright © 2016-2023 The Linkstuffs Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.dao.sqlts.insert;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class AbstractCopyInsertRepositoryTest {
+
+    @Test
+    public void givenNull_whenEscape_thenCopyNullMarker() {
+        assertThat(AbstractCopyInsertRepository.escape(null)).isEqualTo("\\N");
+    }
+
+    @Test
+    public void givenPlainValue_whenEscape_thenSameInstance() {
+        String value = "{\"temperature\":42}";
+        assertThat(AbstractCopyInsertRepository.escape(value)).isSameAs(value);
+    }
+
+    @Test
+    public void givenSpecialChars_whenEscape_thenEscapedForCopyTextFormat() {
+        assertThat(AbstractCopyInsertRepository.escape("a\tb\nc\rd\\e")).isEqualTo("a\\tb\\nc\\rd\\\\e");
+        assertThat(AbstractCopyInsertRepository.escape("\\N")).isEqualTo("\\\\N");
+    }
+
+}
@@ -0,0 +1,240 @@
+/**
+ * Copyright © 2016-2023 The Linkstuffs Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.dao.sqlts.insert;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.AopTestUtils;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.thingsboard.server.dao.model.sql.AbstractTsKvEntity;
+import org.thingsboard.server.dao.model.sqlts.latest.TsKvLatestEntity;
+import org.thingsboard.server.dao.model.sqlts.ts.TsKvEntity;
+import org.thingsboard.server.dao.service.AbstractServiceTest;
+import org.thingsboard.server.dao.service.DaoSqlTest;
+import org.thingsboard.server.dao.sqlts.insert.latest.InsertLatestTsRepository;
+import org.thingsboard.server.dao.sqlts.insert.latest.sql.SqlCopyLatestInsertTsRepository;
+import org.thingsboard.server.dao.sqlts.insert.sql.SqlCopyInsertTsRepository;
+import org.thingsboard.server.dao.sqlts.insert.sql.SqlPartitioningRepository;
+import org.thingsboard.server.dao.timeseries.SqlPartition;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Writes the same batches through the COPY and the upsert repositories, each to its own entity, and compares the resulting rows.
+ */
+@DaoSqlTest
+public class CopyInsertRepositorySqlTest extends AbstractServiceTest {
+
+    private static final long PARTITION_START_TS = 1580515200000L; // 2020-02-01T00:00:00Z
+    private static final long PARTITION_END_TS = 1583020800000L; // 2020-03-01T00:00:00Z
+    private static final long TS = PARTITION_START_TS + 1000;
+
+    private static final String TS_KV_QUERY = "SELECT key, ts, bool_v, str_v, long_v, dbl_v, json_v::text AS json_v " +
+            "FROM ts_kv WHERE entity_id = ? ORDER BY key, ts";
+    private static final String TS_KV_LATEST_QUERY = "SELECT key, ts, bool_v, str_v, long_v, dbl_v, json_v::text AS json_v " +
+            "FROM ts_kv_latest WHERE entity_id = ? ORDER BY key";
+
+    @Autowired
+    private InsertTsRepository<TsKvEntity> insertRepository;
+
+    @Autowired
+    private SqlCopyInsertTsRepository copyInsertRepository;
+
+    @Autowired
+    private InsertLatestTsRepository insertLatestRepository;
+
+    @Autowired
+    private SqlCopyLatestInsertTsRepository copyInsertLatestRepository;
+
+    @Autowired
+    private SqlPartitioningRepository partitioningRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private UUID upsertEntityId;
+    private UUID copyEntityId;
+
+    @Before
+    public void before() {
+        upsertEntityId = UUID.randomUUID();
+        copyEntityId = UUID.randomUUID();
+        partitioningRepository.save(new SqlPartition(SqlPartition.TS_KV, PARTITION_START_TS, PARTITION_END_TS, "2020_02"));
+    }
+
+    @After
+    public void after() {
+        setUpdateByLatestTs(true);
+        for (UUID entityId : List.of(upsertEntityId, copyEntityId)) {
+            jdbcTemplate.update("DELETE FROM ts_kv WHERE entity_id = ?", entityId);
+            jdbcTemplate.update("DELETE FROM ts_kv_latest WHERE entity_id = ?", entityId);
+        }
+    }
+
+    @Test
+    public void givenBatchesWithConflictsAndNulls_whenSaveTs_thenCopyAndUpsertRowsAreEqual() {
+        saveTs(List.of(
+                new Value(1, TS).longV(1L),
+                new Value(2, TS).strV("tab\tnew line\nreturn\rbackslash\\ \\N null\u0000char"),
+                new Value(3, TS).jsonV("{\"nested\":{\"text\":\"a\\tb\"},\"array\":[1,null,true]}"),
+                new Value(4, TS).boolV(false),
+                new Value(5, TS).dblV(-0.1),
+                new Value(6, TS),
+                new Value(7, TS).strV(""),
+                // the same primary key twice in one batch, the last value wins
+                new Value(1, TS + 1).longV(10L),
+                new Value(1, TS + 1).dblV(10.5)));
+        // conflicts with the stored rows, including type changes and values replaced by nulls
+        saveTs(List.of(
+                new Value(1, TS).dblV(Double.MAX_VALUE),
+                new Value(2, TS),
+                new Value(3, TS).boolV(true),
+                new Value(4, TS).jsonV("[]"),
+                new Value(5, TS).longV(Long.MIN_VALUE),
+                new Value(6, TS).strV("no longer null"),
+                new Value(8, TS).longV(8L)));
+
+        List<Map<String, Object>> upsertRows = findRows(TS_KV_QUERY, upsertEntityId);
+        assertThat(upsertRows).hasSize(9);
+        assertThat(upsertRows.get(1)).containsEntry("long_v", null).containsEntry("dbl_v", 10.5);
+        assertThat(findRows(TS_KV_QUERY, copyEntityId)).isEqualTo(upsertRows);
+    }
+
+    @Test
+    public void givenUpdateByLatestTs_whenSaveLatest_thenCopyAndUpsertRowsAreEqual() {
+        setUpdateByLatestTs(true);
+
+        saveLatestBatches();
+
+        List<Map<String, Object>> upsertRows = findRows(TS_KV_LATEST_QUERY, upsertEntityId);
+        assertThat(upsertRows).hasSize(5);
+        assertThat(upsertRows.get(0)).containsEntry("ts", TS + 10).containsEntry("long_v", 1L);
+        assertThat(findRows(TS_KV_LATEST_QUERY, copyEntityId)).isEqualTo(upsertRows);
+    }
+
+    @Test
+    public void givenUpdateByLatestTsDisabled_whenSaveLatest_thenCopyAndUpsertRowsAreEqual() {
+        setUpdateByLatestTs(false);
+
+        saveLatestBatches();
+
+        List<Map<String, Object>> upsertRows = findRows(TS_KV_LATEST_QUERY, upsertEntityId);
+        assertThat(upsertRows).hasSize(5);
+        assertThat(upsertRows.get(0)).containsEntry("ts", TS).containsEntry("long_v", null).containsEntry("dbl_v", 2.5);
+        assertThat(findRows(TS_KV_LATEST_QUERY, copyEntityId)).isEqualTo(upsertRows);
+    }
+
+    private void saveLatestBatches() {
+        saveLatest(List.of(
+                new Value(1, TS + 10).longV(1L),
+                new Value(2, TS + 10).strV("line\nbreak\\"),
+                new Value(3, TS + 10).jsonV("{\"a\":null}"),
+                new Value(4, TS + 10)));
+        // an older value for key 1, newer values for keys 2-4 and a new key 5
+        saveLatest(List.of(
+                new Value(1, TS).dblV(2.5),
+                new Value(2, TS + 20),
+                new Value(3, TS + 20).boolV(true),
+                new Value(4, TS + 20).strV("tab\t"),
+                new Value(5, TS).longV(5L)));
+    }
+
+    private void saveTs(List<Value> values) {
+        insertRepository.saveOrUpdate(toEntities(values, upsertEntityId, TsKvEntity::new));
+        copyInsertRepository.saveOrUpdate(toEntities(values, copyEntityId, TsKvEntity::new));
+    }
+
+    private void saveLatest(List<Value> values) {
+        insertLatestRepository.saveOrUpdate(toEntities(values, upsertEntityId, TsKvLatestEntity::new));
+        copyInsertLatestRepository.saveOrUpdate(toEntities(values, copyEntityId, TsKvLatestEntity::new));
+    }
+
+    private void setUpdateByLatestTs(boolean updateByLatestTs) {
+        ReflectionTestUtils.setField(AopTestUtils.getUltimateTargetObject(insertLatestRepository), "updateByLatestTs", updateByLatestTs);
+        ReflectionTestUtils.setField(AopTestUtils.getUltimateTargetObject(copyInsertLatestRepository), "updateByLatestTs", updateByLatestTs);
+    }
+
+    private List<Map<String, Object>> findRows(String query, UUID entityId) {
+        return jdbcTemplate.queryForList(query, entityId);
+    }
+
+    private static <E extends AbstractTsKvEntity> List<E> toEntities(List<Value> values, UUID entityId, Supplier<E> factory) {
+        return values.stream().map(value -> {
+            E entity = factory.get();
+            entity.setEntityId(entityId);
+            entity.setKey(value.key);
+            entity.setTs(value.ts);
+            entity.setBooleanValue(value.boolV);
+            entity.setStrValue(value.strV);
+            entity.setLongValue(value.longV);
+            entity.setDoubleValue(value.dblV);
+            entity.setJsonValue(value.jsonV);
+            return entity;
+        }).collect(Collectors.toList());
+    }
+
+    private static class Value {
+
+        private final int key;
+        private final long ts;
+        private Boolean boolV;
+        private String strV;
+        private Long longV;
+        private Double dblV;
+        private String jsonV;
+
+        Value(int key, long ts) {
+            this.key = key;
+            this.ts = ts;
+        }
+
+        Value boolV(Boolean boolV) {
+            this.boolV = boolV;
+            return this;
+        }
+
+        Value strV(String strV) {
+            this.strV = strV;
+            return this;
+        }
+
+        Value longV(Long longV) {
+            this.longV = longV;
+            return this;
+        }
+
+        Value dblV(Double dblV) {
+            this.dblV = dblV;
+            return this;
+        }
+
+        Value jsonV(String jsonV) {
+            this.jsonV = jsonV;
+            return this;
+        }
+
+    }
+
+}
@@ -0,0 +1,157 @@
+/**
+ * Copyright © 2016-2023 The Linkstuffs Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.dao.sqlts.rollup;
+
+import com.datastax.oss.driver.api.core.uuid.Uuids;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.thingsboard.server.common.data.Tenant;
+import org.thingsboard.server.common.data.id.DeviceId;
+import org.thingsboard.server.common.data.id.TenantId;
+import org.thingsboard.server.common.data.kv.Aggregation;
+import org.thingsboard.server.common.data.kv.BaseReadTsKvQuery;
+import org.thingsboard.server.common.data.kv.BasicTsKvEntry;
+import org.thingsboard.server.common.data.kv.DoubleDataEntry;
+import org.thingsboard.server.common.data.kv.LongDataEntry;
+import org.thingsboard.server.common.data.kv.ReadTsKvQuery;
+import org.thingsboard.server.common.data.kv.TsKvEntry;
+import org.thingsboard.server.dao.service.AbstractServiceTest;
+import org.thingsboard.server.dao.service.DaoSqlTest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+@DaoSqlTest
+@TestPropertySource(properties = {
+        "sql.ts.rollup.enabled=true",
+        "sql.ts.rollup.refresh_interval_ms=3600000",
+        "sql.ts.rollup.start_ts=" + TsRollupServiceSqlTest.START_TS
+})
+public class TsRollupServiceSqlTest extends AbstractServiceTest {
+
+    static final long START_TS = 1577836800000L; // 2020-01-01T00:00:00Z
+    static final long HOUR = TimeUnit.HOURS.toMillis(1);
+    static final long DAY = TimeUnit.DAYS.toMillis(1);
+
+    private static final String LONG_KEY = "rollupLongKey";
+    private static final String DOUBLE_KEY = "rollupDoubleKey";
+    private static final int MAX_TIMEOUT = 30;
+
+    @Autowired
+    private TsRollupService rollupService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private TenantId tenantId;
+
+    @Before
+    public void before() {
+        Tenant tenant = new Tenant();
+        tenant.setTitle("My tenant");
+        tenantId = tenantService.saveTenant(tenant).getId();
+        await().atMost(MAX_TIMEOUT, TimeUnit.SECONDS).until(rollupService::isReady);
+    }
+
+    @After
+    public void after() {
+        tenantService.deleteTenant(tenantId);
+    }
+
+    @Test
+    public void givenLateAndOverwrittenValues_whenAggregated_thenRollupResultsEqualRawAggregation() throws Exception {
+        DeviceId deviceId = new DeviceId(Uuids.timeBased());
+        long startTs = START_TS + 10 * DAY;
+        long endTs = startTs + 2 * DAY;
+        List<TsKvEntry> entries = new ArrayList<>();
+        int i = 0;
+        for (long ts = startTs; ts < endTs; ts += TimeUnit.MINUTES.toMillis(10)) {
+            entries.add(new BasicTsKvEntry(ts, new LongDataEntry(LONG_KEY, (long) (i % 97) - 40)));
+            // halves keep the double sums exact regardless of the summation order
+            entries.add(new BasicTsKvEntry(ts, new DoubleDataEntry(DOUBLE_KEY, (i % 13) * 0.5 - 3)));
+            i++;
+        }
+        save(deviceId, entries);
+        assertThat(countStaleHours(deviceId)).isEqualTo(2 * 2 * 24);
+
+        rollupService.refresh();
+
+        assertThat(countStaleHours(deviceId)).isZero();
+        assertThat(rollupService.getRollupEndTs(deviceId.getId(), getKeyId(LONG_KEY), startTs, endTs, HOUR)).isEqualTo(endTs);
+        assertRollupsEqualRawAggregation(deviceId, startTs, endTs);
+
+        // late values for the refreshed hours, including an overwrite of an existing value
+        save(deviceId, List.of(
+                new BasicTsKvEntry(startTs + 5 * HOUR + 1, new LongDataEntry(LONG_KEY, 1000L)),
+                new BasicTsKvEntry(startTs + DAY + 3 * HOUR, new LongDataEntry(LONG_KEY, -1000L)),
+                new BasicTsKvEntry(startTs + 5 * HOUR + 1, new DoubleDataEntry(DOUBLE_KEY, 1000.5))));
+
+        assertThat(countStaleHours(deviceId)).isEqualTo(3);
+        assertThat(rollupService.getRollupEndTs(deviceId.getId(), getKeyId(LONG_KEY), startTs, endTs, HOUR)).isEqualTo(startTs + 5 * HOUR);
+        assertRollupsEqualRawAggregation(deviceId, startTs, endTs);
+
+        rollupService.refresh();
+
+        assertThat(countStaleHours(deviceId)).isZero();
+        assertThat(rollupService.getRollupEndTs(deviceId.getId(), getKeyId(LONG_KEY), startTs, endTs, HOUR)).isEqualTo(endTs);
+        assertRollupsEqualRawAggregation(deviceId, startTs, endTs);
+    }
+
+    private void assertRollupsEqualRawAggregation(DeviceId deviceId, long startTs, long endTs) throws Exception {
+        for (String key : List.of(LONG_KEY, DOUBLE_KEY)) {
+            for (long interval : List.of(HOUR, 6 * HOUR, DAY)) {
+                for (Aggregation aggregation : List.of(Aggregation.AVG, Aggregation.SUM, Aggregation.MIN, Aggregation.MAX, Aggregation.COUNT)) {
+                    ReadTsKvQuery query = new BaseReadTsKvQuery(key, startTs, endTs, interval, 1000, aggregation, "ASC");
+                    List<TsKvEntry> fromRollups = find(deviceId, query);
+                    ReflectionTestUtils.setField(rollupService, "ready", false);
+                    List<TsKvEntry> fromRawValues;
+                    try {
+                        fromRawValues = find(deviceId, query);
+                    } finally {
+                        ReflectionTestUtils.setField(rollupService, "ready", true);
+                    }
+                    assertThat(fromRollups).as("%s %s by %s ms", aggregation, key, interval).isNotEmpty().isEqualTo(fromRawValues);
+                }
+            }
+        }
+    }
+
+    private void save(DeviceId deviceId, List<TsKvEntry> entries) throws Exception {
+        tsService.saveWithoutLatest(tenantId, deviceId, entries, 0).get(MAX_TIMEOUT, TimeUnit.SECONDS);
+    }
+
+    private List<TsKvEntry> find(DeviceId deviceId, ReadTsKvQuery query) throws Exception {
+        return tsService.findAll(tenantId, deviceId, List.of(query)).get(MAX_TIMEOUT, TimeUnit.SECONDS);
+    }
+
+    private int countStaleHours(DeviceId deviceId) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM ts_rollup_stale WHERE entity_id = ?", Integer.class, deviceId.getId());
+    }
+
+    private int getKeyId(String key) {
+        return jdbcTemplate.queryForObject("SELECT key_id FROM ts_kv_dictionary WHERE key = ?", Integer.class, key);
+    }
+
+}
@@ -0,0 +1,85 @@
+/**
+ * Copyright © 2016-2023 The Linkstuffs Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.dao.sqlts.rollup;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TsRollupServiceTest {
+
+    static final long HOUR = TimeUnit.HOURS.toMillis(1);
+    static final long DAY = TimeUnit.DAYS.toMillis(1);
+    static final long NOW = 1000 * DAY + 10 * HOUR + 123;
+
+    private TsRollupService rollupService;
+
+    @Before
+    public void setUp() {
+        rollupService = new TsRollupService();
+    }
+
+    @Test
+    public void givenAlignedQuery_whenGetRollupInterval_thenCoarsestIntervalIsUsed() {
+        assertThat(TsRollupService.getRollupInterval(10 * DAY, 2 * DAY)).isEqualTo(TsRollupInterval.DAY);
+        assertThat(TsRollupService.getRollupInterval(10 * DAY, 6 * HOUR)).isEqualTo(TsRollupInterval.HOUR);
+        assertThat(TsRollupService.getRollupInterval(10 * DAY + HOUR, DAY)).isEqualTo(TsRollupInterval.HOUR);
+        assertThat(TsRollupService.getRollupInterval(10 * DAY, HOUR / 2)).isNull();
+        assertThat(TsRollupService.getRollupInterval(10 * DAY + 1, HOUR)).isNull();
+    }
+
+    @Test
+    public void givenPartialLastInterval_whenGetRollupEndTs_thenItIsExcluded() {
+        long startTs = 990 * DAY;
+        assertThat(rollupService.getRollupEndTs(startTs, NOW, HOUR, NOW)).isEqualTo(1000 * DAY + 10 * HOUR);
+        assertThat(rollupService.getRollupEndTs(startTs, NOW, DAY, NOW)).isEqualTo(1000 * DAY);
+        assertThat(rollupService.getRollupEndTs(startTs, 995 * DAY + 30 * 60000, DAY, NOW)).isEqualTo(995 * DAY);
+    }
+
+    @Test
+    public void givenStaleHour_whenExcludeStale_thenIntervalsFromStaleHourAreExcluded() {
+        long startTs = 990 * DAY;
+        long rollupEndTs = 1000 * DAY;
+        assertThat(TsRollupService.excludeStale(startTs, rollupEndTs, HOUR, null)).isEqualTo(rollupEndTs);
+        assertThat(TsRollupService.excludeStale(startTs, rollupEndTs, HOUR, rollupEndTs + HOUR)).isEqualTo(rollupEndTs);
+        assertThat(TsRollupService.excludeStale(startTs, rollupEndTs, HOUR, 995 * DAY + 5 * HOUR)).isEqualTo(995 * DAY + 5 * HOUR);
+        assertThat(TsRollupService.excludeStale(startTs, rollupEndTs, DAY, 995 * DAY + 5 * HOUR)).isEqualTo(995 * DAY);
+        assertThat(TsRollupService.excludeStale(startTs, rollupEndTs, 2 * DAY, 995 * DAY + 5 * HOUR)).isEqualTo(994 * DAY);
+        assertThat(TsRollupService.excludeStale(startTs, rollupEndTs, DAY, startTs)).isEqualTo(startTs);
+    }
+
+    @Test
+    public void givenNotCoveredRange_whenGetRollupEndTs_thenRawValuesAreUsed() {
+        ReflectionTestUtils.setField(rollupService, "coveredFromTs", 999 * DAY);
+        assertThat(rollupService.getRollupEndTs(998 * DAY, NOW, HOUR, NOW)).isEqualTo(998 * DAY);
+        assertThat(rollupService.getRollupEndTs(999 * DAY, NOW, HOUR, NOW)).isEqualTo(1000 * DAY + 10 * HOUR);
+
+        ReflectionTestUtils.setField(rollupService, "ttl", TimeUnit.HOURS.toSeconds(12));
+        assertThat(rollupService.getRollupEndTs(999 * DAY, NOW, HOUR, NOW)).isEqualTo(999 * DAY);
+        assertThat(rollupService.getRollupEndTs(1000 * DAY, NOW, HOUR, NOW)).isEqualTo(1000 * DAY + 10 * HOUR);
+    }
+
+    @Test
+    public void givenNotAlignedQuery_whenGetRollupEndTs_thenRawValuesAreUsed() {
+        assertThat(rollupService.getRollupEndTs(990 * DAY + 1, NOW, HOUR, NOW)).isEqualTo(990 * DAY + 1);
+        assertThat(rollupService.getRollupEndTs(990 * DAY, NOW, 1000, NOW)).isEqualTo(990 * DAY);
+    }
+
+}
@@ -0,0 +1,60 @@
+/**
+ * Copyright © 2016-2023 The Linkstuffs Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.dao.timeseries;
+
+import org.junit.Test;
+import org.thingsboard.server.common.data.kv.BaseReadTsKvQuery;
+import org.thingsboard.server.common.data.kv.BasicTsKvEntry;
+import org.thingsboard.server.common.data.kv.LongDataEntry;
+import org.thingsboard.server.common.data.kv.TsKvEntry;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CassandraBaseTimeseriesDaoPartitionsPruningTest {
+
+    private static final List<Long> PARTITIONS = List.of(10L, 20L, 30L, 40L);
+
+    @Test
+    public void testPrunePartitions() {
+        assertThat(CassandraBaseTimeseriesDao.prunePartitions(PARTITIONS, 20L, 30L)).containsExactly(20L, 30L);
+        assertThat(CassandraBaseTimeseriesDao.prunePartitions(PARTITIONS, 15L, 35L)).containsExactly(20L, 30L);
+        assertThat(CassandraBaseTimeseriesDao.prunePartitions(PARTITIONS, 0L, 100L)).containsExactly(10L, 20L, 30L, 40L);
+        assertThat(CassandraBaseTimeseriesDao.prunePartitions(PARTITIONS, 40L, 40L)).containsExactly(40L);
+        assertThat(CassandraBaseTimeseriesDao.prunePartitions(PARTITIONS, 21L, 29L)).isEmpty();
+        assertThat(CassandraBaseTimeseriesDao.prunePartitions(PARTITIONS, 50L, 60L)).isEmpty();
+        assertThat(CassandraBaseTimeseriesDao.prunePartitions(List.of(), 0L, 100L)).isEmpty();
+    }
+
+    @Test
+    public void testCursorTruncatesDataOfConcurrentPartitionsToLimit() {
+        TsKvQueryCursor cursor = new TsKvQueryCursor("DEVICE", UUID.randomUUID(),
+                new BaseReadTsKvQuery("key", 0, 100, 0, 3, null, "DESC"), PARTITIONS);
+        cursor.addData(List.of(entry(45), entry(41)));
+        cursor.addData(List.of(entry(35), entry(32)));
+        cursor.addData(List.of(entry(25)));
+
+        assertThat(cursor.isFull()).isTrue();
+        assertThat(cursor.getData()).extracting(TsKvEntry::getTs).containsExactly(45L, 41L, 35L);
+    }
+
+    private static TsKvEntry entry(long ts) {
+        return new BasicTsKvEntry(ts, new LongDataEntry("key", ts));
+    }
+
+}
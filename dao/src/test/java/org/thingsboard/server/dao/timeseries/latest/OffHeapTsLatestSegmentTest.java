@@ -0,0 +1,116 @@
+/**
+ * Copyright © 2016-2023 The Linkstuffs Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.dao.timeseries.latest;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class OffHeapTsLatestSegmentTest {
+
+    final UUID entityId = UUID.randomUUID();
+
+    @Test
+    public void givenPutValues_whenGet_thenLatestValuesAreReturned() {
+        OffHeapTsLatestSegment segment = new OffHeapTsLatestSegment(16, 1024);
+        put(segment, "temperature", "20");
+        put(segment, "humidity", "40");
+        put(segment, "temperature", "21");
+        put(segment, "temperature", "21.5");
+
+        assertThat(get(segment, "temperature")).isEqualTo("21.5");
+        assertThat(get(segment, "humidity")).isEqualTo("40");
+        assertThat(get(segment, "pressure")).isNull();
+        assertThat(segment.size()).isEqualTo(2);
+    }
+
+    @Test
+    public void givenDataBufferIsFull_whenPut_thenDeadRecordsAreCompacted() {
+        OffHeapTsLatestSegment segment = new OffHeapTsLatestSegment(16, 256);
+        for (int i = 0; i < 100; i++) {
+            assertThat(put(segment, "key" + (i % 4), "value-" + "x".repeat(i % 7))).isTrue();
+        }
+        for (int i = 96; i < 100; i++) {
+            assertThat(get(segment, "key" + (i % 4))).isEqualTo("value-" + "x".repeat(i % 7));
+        }
+        assertThat(segment.size()).isEqualTo(4);
+        assertThat(segment.usedBytes()).isLessThanOrEqualTo(256);
+    }
+
+    @Test
+    public void givenRemovedKeys_whenPut_thenDeletedSlotsAreReused() {
+        OffHeapTsLatestSegment segment = new OffHeapTsLatestSegment(4, 4096);
+        for (int i = 0; i < 100; i++) {
+            assertThat(put(segment, "key" + i, "value" + i)).isTrue();
+            assertThat(remove(segment, "key" + i)).isTrue();
+        }
+        assertThat(segment.size()).isZero();
+        assertThat(put(segment, "key", "value")).isTrue();
+        assertThat(get(segment, "key")).isEqualTo("value");
+    }
+
+    @Test
+    public void givenSegmentIsFull_whenPut_thenValueIsRejected() {
+        OffHeapTsLatestSegment segment = new OffHeapTsLatestSegment(2, 4096);
+        assertThat(put(segment, "key1", "value")).isTrue();
+        assertThat(put(segment, "key2", "value")).isTrue();
+        assertThat(put(segment, "key3", "value")).isFalse();
+        assertThat(put(segment, "key2", "big value")).isTrue();
+
+        assertThat(put(segment, "key1", "x".repeat(5000))).isFalse();
+        assertThat(get(segment, "key1")).isNull();
+        assertThat(get(segment, "key2")).isEqualTo("big value");
+    }
+
+    @Test
+    public void givenModification_whenGetModCount_thenItIsIncremented() {
+        OffHeapTsLatestSegment segment = new OffHeapTsLatestSegment(16, 1024);
+        long modCount = segment.getModCount();
+        put(segment, "key", "value");
+        assertThat(segment.getModCount()).isGreaterThan(modCount);
+        modCount = segment.getModCount();
+        get(segment, "key");
+        assertThat(segment.getModCount()).isEqualTo(modCount);
+        segment.clear();
+        assertThat(segment.getModCount()).isGreaterThan(modCount);
+        assertThat(get(segment, "key")).isNull();
+    }
+
+    private boolean put(OffHeapTsLatestSegment segment, String key, String value) {
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        return segment.put(hash(keyBytes), entityId.getMostSignificantBits(), entityId.getLeastSignificantBits(),
+                keyBytes, value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private String get(OffHeapTsLatestSegment segment, String key) {
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        byte[] value = segment.get(hash(keyBytes), entityId.getMostSignificantBits(), entityId.getLeastSignificantBits(), keyBytes);
+        return value != null ? new String(value, StandardCharsets.UTF_8) : null;
+    }
+
+    private boolean remove(OffHeapTsLatestSegment segment, String key) {
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        return segment.remove(hash(keyBytes), entityId.getMostSignificantBits(), entityId.getLeastSignificantBits(), keyBytes);
+    }
+
+    private int hash(byte[] key) {
+        return OffHeapTsLatestSegment.hash(entityId.getMostSignificantBits(), entityId.getLeastSignificantBits(), key);
+    }
+
+}
@@ -0,0 +1,105 @@
+/**
+ * Copyright © 2016-2023 The Linkstuffs Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.dao.timeseries.latest;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.thingsboard.server.common.data.id.DeviceId;
+import org.thingsboard.server.common.data.kv.BasicTsKvEntry;
+import org.thingsboard.server.common.data.kv.BooleanDataEntry;
+import org.thingsboard.server.common.data.kv.DoubleDataEntry;
+import org.thingsboard.server.common.data.kv.JsonDataEntry;
+import org.thingsboard.server.common.data.kv.LongDataEntry;
+import org.thingsboard.server.common.data.kv.StringDataEntry;
+import org.thingsboard.server.common.data.kv.TsKvEntry;
+import org.thingsboard.server.common.stats.DefaultCounter;
+import org.thingsboard.server.common.stats.StatsFactory;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.BDDMockito.willReturn;
+import static org.mockito.Mockito.mock;
+
+public class TsLatestStoreTest {
+
+    final DeviceId deviceId = new DeviceId(UUID.randomUUID());
+    TsLatestStore store;
+
+    @Before
+    public void setUp() {
+        StatsFactory statsFactory = mock(StatsFactory.class);
+        willReturn(mock(DefaultCounter.class)).given(statsFactory).createDefaultCounter(anyString(), any());
+        store = new TsLatestStore(statsFactory);
+        ReflectionTestUtils.setField(store, "maxEntries", 1024);
+        ReflectionTestUtils.setField(store, "maxMemoryMb", 1);
+        store.init();
+    }
+
+    @Test
+    public void givenEntriesOfAllTypes_whenEncodeAndDecode_thenEntriesAreEqual() {
+        List<TsKvEntry> entries = List.of(
+                new BasicTsKvEntry(1, new BooleanDataEntry("bool", true)),
+                new BasicTsKvEntry(2, new LongDataEntry("long", Long.MIN_VALUE)),
+                new BasicTsKvEntry(3, new DoubleDataEntry("double", 36.6)),
+                new BasicTsKvEntry(4, new StringDataEntry("str", "значение")),
+                new BasicTsKvEntry(5, new JsonDataEntry("json", "{\"a\":1}")));
+        for (TsKvEntry entry : entries) {
+            assertThat(TsLatestStore.decode(entry.getKey(), TsLatestStore.encode(entry))).isEqualTo(entry);
+        }
+        assertThat(TsLatestStore.encode(new BasicTsKvEntry(6, new StringDataEntry("str", null)))).isNull();
+    }
+
+    @Test
+    public void givenLoadedValue_whenGet_thenValueIsStored() {
+        assertThat(store.get(deviceId, "temperature")).isNull();
+        long modCount = store.getModCount(deviceId, "temperature");
+        TsKvEntry latest = new BasicTsKvEntry(10, new DoubleDataEntry("temperature", 20.0));
+        store.putIfNotModified(deviceId, "temperature", latest, modCount);
+        assertThat(store.get(deviceId, "temperature").get()).isEqualTo(latest);
+
+        modCount = store.getModCount(deviceId, "humidity");
+        store.putIfNotModified(deviceId, "humidity", null, modCount);
+        assertThat(store.get(deviceId, "humidity")).isNotNull();
+        assertThat(store.get(deviceId, "humidity").get()).isNull();
+    }
+
+    @Test
+    public void givenSaveDuringLoad_whenPutIfNotModified_thenLoadedValueIsDropped() {
+        long modCount = store.getModCount(deviceId, "temperature");
+        store.update(deviceId, new BasicTsKvEntry(20, new DoubleDataEntry("temperature", 21.0)));
+        store.putIfNotModified(deviceId, "temperature", new BasicTsKvEntry(10, new DoubleDataEntry("temperature", 20.0)), modCount);
+        assertThat(store.get(deviceId, "temperature")).isNull();
+    }
+
+    @Test
+    public void givenStoredValue_whenUpdate_thenOnlyNewerValueIsApplied() {
+        store.putIfNotModified(deviceId, "temperature", null, store.getModCount(deviceId, "temperature"));
+        store.update(deviceId, new BasicTsKvEntry(20, new DoubleDataEntry("temperature", 21.0)));
+        store.update(deviceId, new BasicTsKvEntry(10, new DoubleDataEntry("temperature", 20.0)));
+        assertThat(store.get(deviceId, "temperature").get().getDoubleValue()).hasValue(21.0);
+
+        store.evictIfOutdated(deviceId, new BasicTsKvEntry(20, new DoubleDataEntry("temperature", 21.0)));
+        assertThat(store.get(deviceId, "temperature")).isNotNull();
+        store.evictIfOutdated(deviceId, new BasicTsKvEntry(30, new DoubleDataEntry("temperature", 22.0)));
+        assertThat(store.get(deviceId, "temperature")).isNull();
+    }
+
+}
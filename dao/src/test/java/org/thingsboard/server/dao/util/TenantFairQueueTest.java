@@ -0,0 +1,62 @@
+/**
+ * Copyright © 2016-2023 The Linkstuffs Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.dao.util;
+
+import org.junit.Test;
+import org.thingsboard.server.common.data.id.TenantId;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TenantFairQueueTest {
+
+    private final TenantId noisyTenantId = TenantId.fromUUID(UUID.randomUUID());
+    private final TenantId tenantId = TenantId.fromUUID(UUID.randomUUID());
+
+    @Test
+    public void testTenantsAreTakenInRoundRobinOrder() throws InterruptedException {
+        TenantFairQueue<String> queue = new TenantFairQueue<>(100, 0);
+        for (int i = 0; i < 5; i++) {
+            assertThat(queue.offer(noisyTenantId, "noisy" + i)).isTrue();
+        }
+        assertThat(queue.offer(tenantId, "a0")).isTrue();
+        assertThat(queue.offer(tenantId, "a1")).isTrue();
+        assertThat(queue.size()).isEqualTo(7);
+        assertThat(queue.tenantsCount()).isEqualTo(2);
+
+        List<String> taken = new ArrayList<>();
+        while (queue.size() > 0) {
+            taken.add(queue.take());
+        }
+        assertThat(taken).containsExactly("noisy0", "a0", "noisy1", "a1", "noisy2", "noisy3", "noisy4");
+        assertThat(queue.tenantsCount()).isZero();
+    }
+
+    @Test
+    public void testCapacity() {
+        TenantFairQueue<String> queue = new TenantFairQueue<>(3, 2);
+        assertThat(queue.offer(noisyTenantId, "noisy0")).isTrue();
+        assertThat(queue.offer(noisyTenantId, "noisy1")).isTrue();
+        assertThat(queue.offer(noisyTenantId, "noisy2")).isFalse();
+        assertThat(queue.offer(tenantId, "a0")).isTrue();
+        assertThat(queue.offer(tenantId, "a1")).isFalse();
+        assertThat(queue.size()).isEqualTo(3);
+    }
+
+}
@@ -15,6 +15,7 @@
  */
 package org.thingsboard.rule.engine.api;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import io.netty.channel.EventLoopGroup;
 import org.thingsboard.common.util.ListeningExecutor;
 import org.thingsboard.rule.engine.api.sms.SmsSenderFactory;
@@ -181,6 +182,12 @@ public interface TbContext {
 
     TbMsg transformMsg(TbMsg origMsg, String type, EntityId originator, TbMsgMetaData metaData, String data);
 
+    /**
+     * Creates a message with the given JSON body and keeps the JSON as its parsed data, see {@link TbMsg#getDataAsJson()}.
+     * The JSON must not be modified after the call.
+     */
+    TbMsg transformMsg(TbMsg origMsg, String type, EntityId originator, TbMsgMetaData metaData, JsonNode data);
+
     TbMsg customerCreatedMsg(Customer customer, RuleNodeId ruleNodeId);
 
     TbMsg deviceCreatedMsg(Device device, RuleNodeId ruleNodeId);
@@ -207,7 +207,7 @@ public class TbMsgDeduplicationNode implements TbNode {
         ArrayNode mergedData = JacksonUtil.OBJECT_MAPPER.createArrayNode();
         msgs.forEach(msg -> {
             ObjectNode msgNode = JacksonUtil.newObjectNode();
-            msgNode.set("msg", JacksonUtil.toJsonNode(msg.getData()));
+            msgNode.set("msg", msg.getDataAsJson());
             msgNode.set("metadata", JacksonUtil.valueToTree(msg.getMetaData().getData()));
             mergedData.add(msgNode);
         });
@@ -79,7 +79,7 @@ public abstract class AbstractTbMsgPushNode<T extends BaseTbMsgPushNodeConfigura
             EdgeEventActionType actionType = getEdgeEventActionTypeByMsgType(msgType);
             Map<String, Object> entityBody = new HashMap<>();
             Map<String, String> metadata = msg.getMetaData().getData();
-            JsonNode dataJson = JacksonUtil.toJsonNode(msg.getData());
+            JsonNode dataJson = msg.getDataAsJson();
             switch (actionType) {
                 case ATTRIBUTES_UPDATED:
                 case POST_ATTRIBUTES:
@@ -120,7 +120,7 @@ public abstract class AbstractTbMsgPushNode<T extends BaseTbMsgPushNodeConfigura
     abstract void processMsg(TbContext ctx, TbMsg msg);
 
     protected UUID getUUIDFromMsgData(TbMsg msg) {
-        JsonNode data = JacksonUtil.toJsonNode(msg.getData()).get("id");
+        JsonNode data = msg.getDataAsJson().get("id");
         String id = JacksonUtil.convertValue(data.get("id"), String.class);
         return UUID.fromString(id);
     }
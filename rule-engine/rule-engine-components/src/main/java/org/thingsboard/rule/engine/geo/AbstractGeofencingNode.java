@@ -15,9 +15,7 @@
  */
 package org.thingsboard.rule.engine.geo;
 
-import com.google.gson.JsonElement;
-import com.google.gson.JsonObject;
-import com.google.gson.JsonParser;
+import com.fasterxml.jackson.databind.JsonNode;
 import org.locationtech.spatial4j.context.jts.JtsSpatialContext;
 import org.locationtech.spatial4j.context.jts.JtsSpatialContextFactory;
 import org.thingsboard.common.util.JacksonUtil;
@@ -48,11 +46,10 @@ public abstract class AbstractGeofencingNode<T extends TbGpsGeofencingFilterNode
     abstract protected Class<T> getConfigClazz();
 
     protected boolean checkMatches(TbMsg msg) throws TbNodeException {
-        JsonElement msgDataElement = new JsonParser().parse(msg.getData());
-        if (!msgDataElement.isJsonObject()) {
+        JsonNode msgDataObj = msg.getDataAsJson();
+        if (msgDataObj == null || !msgDataObj.isObject()) {
             throw new TbNodeException("Incoming Message is not a valid JSON object");
         }
-        JsonObject msgDataObj = msgDataElement.getAsJsonObject();
         double latitude = getValueFromMessageByName(msg, msgDataObj, config.getLatitudeKeyName());
         double longitude = getValueFromMessageByName(msg, msgDataObj, config.getLongitudeKeyName());
         List<Perimeter> perimeters = getPerimeters(msg, msgDataObj);
@@ -78,7 +75,7 @@ public abstract class AbstractGeofencingNode<T extends TbGpsGeofencingFilterNode
         }
     }
 
-    protected List<Perimeter> getPerimeters(TbMsg msg, JsonObject msgDataObj) throws TbNodeException {
+    protected List<Perimeter> getPerimeters(TbMsg msg, JsonNode msgDataObj) throws TbNodeException {
         if (config.isFetchPerimeterInfoFromMessageMetadata()) {
             if (StringUtils.isEmpty(config.getPerimeterKeyName())) {
                 // Old configuration before "perimeterKeyName" was introduced
@@ -133,10 +130,11 @@ public abstract class AbstractGeofencingNode<T extends TbGpsGeofencingFilterNode
         }
     }
 
-    protected Double getValueFromMessageByName(TbMsg msg, JsonObject msgDataObj, String keyName) throws TbNodeException {
+    protected Double getValueFromMessageByName(TbMsg msg, JsonNode msgDataObj, String keyName) throws TbNodeException {
         double value;
-        if (msgDataObj.has(keyName) && msgDataObj.get(keyName).isJsonPrimitive()) {
-            value = msgDataObj.get(keyName).getAsDouble();
+        JsonNode valueNode = msgDataObj.get(keyName);
+        if (valueNode != null && valueNode.isValueNode() && !valueNode.isNull()) {
+            value = valueNode.isNumber() ? valueNode.doubleValue() : Double.parseDouble(valueNode.asText());
         } else {
             String valueStr = msg.getMetaData().getValue(keyName);
             if (!StringUtils.isEmpty(valueStr)) {
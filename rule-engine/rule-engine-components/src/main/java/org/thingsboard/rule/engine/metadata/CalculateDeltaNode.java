@@ -75,7 +75,7 @@ public class CalculateDeltaNode implements TbNode {
     @Override
     public void onMsg(TbContext ctx, TbMsg msg) {
         if (msg.getType().equals(SessionMsgType.POST_TELEMETRY_REQUEST.name())) {
-            JsonNode json = JacksonUtil.toJsonNode(msg.getData());
+            JsonNode json = msg.getDataAsJson();
             String inputKey = config.getInputValueKey();
             if (json.has(inputKey)) {
                 DonAsynchron.withCallback(getLastValue(msg.getOriginator()),
@@ -94,7 +94,7 @@ public abstract class TbAbstractGetAttributesNode<C extends TbGetAttributesNodeC
         }
         JsonNode msgDataNode;
         if (fetchToData) {
-            msgDataNode = JacksonUtil.toJsonNode(msg.getData());
+            msgDataNode = msg.getDataAsJson().deepCopy();
             if (!msgDataNode.isObject()) {
                 ctx.tellFailure(msg, new IllegalArgumentException("Msg body is not an object!"));
                 return;
@@ -125,7 +125,7 @@ public abstract class TbAbstractGetAttributesNode<C extends TbGetAttributesNodeC
                 });
             });
             TbMsg outMsg = fetchToData ?
-                    TbMsg.transformMsgData(msg, JacksonUtil.toString(msgDataNode)) :
+                    TbMsg.transformMsgData(msg, msgDataNode) :
                     TbMsg.transformMsg(msg, msgMetaData);
             if (failuresMap.isEmpty()) {
                 ctx.tellSuccess(outMsg);
@@ -89,10 +89,10 @@ public class TbFetchDeviceCredentialsNode implements TbNode {
             }
             transformedMsg = TbMsg.transformMsg(msg, msg.getType(), originator, metaData, msg.getData());
         } else {
-            ObjectNode data = (ObjectNode) JacksonUtil.toJsonNode(msg.getData());
+            ObjectNode data = (ObjectNode) msg.getDataAsJson().deepCopy();
             data.put(CREDENTIALS_TYPE, credentialsType.name());
             data.set(CREDENTIALS, credentialsInfo);
-            transformedMsg = TbMsg.transformMsg(msg, msg.getType(), originator, msg.getMetaData(), JacksonUtil.toString(data));
+            transformedMsg = TbMsg.transformMsg(msg, msg.getType(), originator, msg.getMetaData(), data);
         }
         ctx.tellSuccess(transformedMsg);
     }
@@ -18,7 +18,6 @@ package org.thingsboard.rule.engine.transform;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import lombok.extern.slf4j.Slf4j;
-import org.thingsboard.common.util.JacksonUtil;
 import org.thingsboard.rule.engine.api.RuleNode;
 import org.thingsboard.rule.engine.api.TbContext;
 import org.thingsboard.rule.engine.api.TbNode;
@@ -61,6 +60,7 @@ public class TbRenameKeysNode implements TbNode {
     public void onMsg(TbContext ctx, TbMsg msg) throws ExecutionException, InterruptedException, TbNodeException {
         TbMsgMetaData metaData = msg.getMetaData();
         String data = msg.getData();
+        ObjectNode msgData = null;
         boolean msgChanged = false;
         if (fromMetadata) {
             Map<String, String> metaDataMap = metaData.getData();
@@ -74,9 +74,9 @@ public class TbRenameKeysNode implements TbNode {
             }
             metaData = new TbMsgMetaData(metaDataMap);
         } else {
-            JsonNode dataNode = JacksonUtil.toJsonNode(msg.getData());
+            JsonNode dataNode = msg.getDataAsJson();
             if (dataNode.isObject()) {
-                ObjectNode msgData = (ObjectNode) dataNode;
+                msgData = ((ObjectNode) dataNode).deepCopy();
                 for (Map.Entry<String, String> entry : renameKeysMapping.entrySet()) {
                     String nameKey = entry.getKey();
                     if (msgData.has(nameKey)) {
@@ -85,11 +85,14 @@ public class TbRenameKeysNode implements TbNode {
                         msgData.remove(nameKey);
                     }
                 }
-                data = JacksonUtil.toString(msgData);
             }
         }
         if (msgChanged) {
-            ctx.tellSuccess(TbMsg.transformMsg(msg, msg.getType(), msg.getOriginator(), metaData, data));
+            if (msgData != null) {
+                ctx.tellSuccess(TbMsg.transformMsg(msg, msg.getType(), msg.getOriginator(), metaData, msgData));
+            } else {
+                ctx.tellSuccess(TbMsg.transformMsg(msg, msg.getType(), msg.getOriginator(), metaData, data));
+            }
         } else {
             ctx.tellSuccess(msg);
         }
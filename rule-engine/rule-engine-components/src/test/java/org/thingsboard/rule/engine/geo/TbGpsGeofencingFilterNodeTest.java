@@ -0,0 +1,107 @@
+/**
+ * Copyright © 2016-2023 The Linkstuffs Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.rule.engine.geo;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.thingsboard.common.util.JacksonUtil;
+import org.thingsboard.rule.engine.api.TbContext;
+import org.thingsboard.rule.engine.api.TbNodeConfiguration;
+import org.thingsboard.rule.engine.api.TbNodeException;
+import org.thingsboard.server.common.data.id.DeviceId;
+import org.thingsboard.server.common.msg.TbMsg;
+import org.thingsboard.server.common.msg.TbMsgMetaData;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+public class TbGpsGeofencingFilterNodeTest {
+
+    private final DeviceId deviceId = new DeviceId(UUID.randomUUID());
+
+    private TbContext ctx;
+    private TbGpsGeofencingFilterNode node;
+
+    @BeforeEach
+    void setUp() throws TbNodeException {
+        ctx = mock(TbContext.class);
+        TbGpsGeofencingFilterNodeConfiguration config = new TbGpsGeofencingFilterNodeConfiguration().defaultConfiguration();
+        config.setFetchPerimeterInfoFromMessageMetadata(false);
+        config.setPerimeterType(PerimeterType.CIRCLE);
+        config.setCenterLatitude(50.0);
+        config.setCenterLongitude(30.0);
+        config.setRange(1.0);
+        config.setRangeUnit(RangeUnit.KILOMETER);
+        node = new TbGpsGeofencingFilterNode();
+        node.init(ctx, new TbNodeConfiguration(JacksonUtil.valueToTree(config)));
+    }
+
+    @Test
+    void givenCoordinatesInsidePerimeter_whenOnMsg_thenTrue() throws TbNodeException {
+        TbMsg msg = newMsg("{\"latitude\":50.001,\"longitude\":30.001}", new TbMsgMetaData());
+
+        node.onMsg(ctx, msg);
+
+        verify(ctx).tellNext(msg, "True");
+    }
+
+    @Test
+    void givenCoordinatesOutsidePerimeter_whenOnMsg_thenFalse() throws TbNodeException {
+        TbMsg msg = newMsg("{\"latitude\":51.0,\"longitude\":30.0}", new TbMsgMetaData());
+
+        node.onMsg(ctx, msg);
+
+        verify(ctx).tellNext(msg, "False");
+    }
+
+    @Test
+    void givenCoordinatesAsStringsAndInMetadata_whenOnMsg_thenTrue() throws TbNodeException {
+        TbMsgMetaData metaData = new TbMsgMetaData();
+        metaData.putValue("longitude", "30.001");
+        TbMsg msg = newMsg("{\"latitude\":\"50.001\",\"longitude\":null}", metaData);
+
+        node.onMsg(ctx, msg);
+
+        verify(ctx).tellNext(msg, "True");
+    }
+
+    @Test
+    void givenParsedData_whenOnMsg_thenUseParsedData() throws TbNodeException {
+        TbMsg msg = TbMsg.newMsg(null, "POST_TELEMETRY_REQUEST", deviceId, null, new TbMsgMetaData(),
+                JacksonUtil.newObjectNode().put("latitude", 50.001).put("longitude", 30.001), null, null);
+
+        node.onMsg(ctx, msg);
+
+        verify(ctx).tellNext(msg, "True");
+    }
+
+    @Test
+    void givenDataIsNotObject_whenOnMsg_thenException() {
+        TbMsg msg = newMsg("[50.0,30.0]", new TbMsgMetaData());
+
+        assertThatThrownBy(() -> node.onMsg(ctx, msg))
+                .isInstanceOf(TbNodeException.class)
+                .hasMessage("Incoming Message is not a valid JSON object");
+    }
+
+    private TbMsg newMsg(String data, TbMsgMetaData metaData) {
+        return TbMsg.newMsg("POST_TELEMETRY_REQUEST", deviceId, metaData, data);
+    }
+
+}